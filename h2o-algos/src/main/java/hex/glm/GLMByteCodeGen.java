@@ -0,0 +1,126 @@
+package hex.glm;
+
+import hex.DataInfo;
+import javassist.bytecode.Bytecode;
+import javassist.bytecode.Opcode;
+import water.codegen.ByteCodeGen;
+
+import java.util.ArrayList;
+
+import static water.codegen.ByteCodeGen.branch;
+import static water.codegen.ByteCodeGen.patch;
+
+/** A GLM code generator producing JVM bytecode for the linear predictor of a
+ *  single-response model:
+ *
+ *  - numeric terms are unrolled, with coefficients and imputed means as constants
+ *  - a categorical term is a lookup of its coefficient in a per-column table
+ *    indexed by level (computed once from {@link DataInfo#getCategoricalId})
+ *  - the terms are spread over static methods of bounded size, chained by
+ *    {@link Eta#eta}
+ */
+public class GLMByteCodeGen {
+
+  /** Base class of the generated classes. */
+  public static abstract class Eta {
+    public Eta() {}
+    /** Linear predictor, without offset. */
+    public abstract double eta(double[] data);
+
+    /** Coefficient of the categorical level {@code d}; NA and unseen levels get {@code dflt}. */
+    public static double catBeta(double[] betas, double d, double dflt) {
+      if( Double.isNaN(d) ) return dflt;
+      int l = (int)d;
+      return l >= 0 && l < betas.length ? betas[l] : dflt;
+    }
+  }
+
+  private static final String TERMS_DESC = "([DD)D";
+  private static final String CATS = "CATS";
+
+  /** Compile the linear predictor of the given (non-multinomial, interaction free) model. */
+  public static Eta compile(GLMModel m) {
+    final DataInfo dinfo = m._output._dinfo;
+    final double[] b = m.beta();
+    ByteCodeGen gen = new ByteCodeGen(Eta.class);
+
+    // Per-level coefficient tables for categoricals
+    double[][] cats = new double[dinfo._cats][];
+    double[] dflts = new double[dinfo._cats];
+    for( int i=0; i<dinfo._cats; i++ ) {
+      cats[i] = new double[m._output._domains[i].length];
+      for( int l=0; l<cats[i].length; l++ ) {
+        int id = dinfo.getCategoricalId(i, l);
+        cats[i][l] = id >= 0 ? b[id] : 0;
+      }
+      int id = dinfo.getCategoricalId(i, Double.NaN); // NAs and unseen levels get the mode
+      dflts[i] = id >= 0 ? b[id] : 0;
+    }
+
+    // Terms, in the same order as GLMModel.score0
+    ArrayList<String[]> methods = new ArrayList<>(); // {class, method}
+    int nterms = dinfo._cats + dinfo._nums;
+    for( int t=0; t<nterms; ) {
+      String cls = gen.isFull(gen.className()) ? gen.newClass() : gen.className();
+      Bytecode c = gen.code(cls, 5); // data, eta, d
+      for( ; t<nterms && c.currentPc() < ByteCodeGen.MAX_METHOD_SIZE && !gen.isFull(cls); t++ ) {
+        if( t < dinfo._cats ) {    // eta += CATS[t][data[t]]
+          c.addGetstatic(cls, CATS, "[[D");
+          c.addIconst(t);
+          c.addOpcode(Opcode.AALOAD);
+          c.addAload(0);
+          c.addIconst(t);
+          c.addOpcode(Opcode.DALOAD);
+          c.addLdc2w(dflts[t]);
+          c.addInvokestatic(Eta.class.getName(), "catBeta", "([DDD)D");
+        } else {                   // eta += b * (NA ? mean : data[t])
+          int i = t - dinfo._cats;
+          c.addAload(0);
+          c.addIconst(t);
+          c.addOpcode(Opcode.DALOAD);
+          c.addDstore(3);
+          if( !dinfo._skipMissing ) {
+            c.addDload(3);
+            c.addDload(3);
+            c.addOpcode(Opcode.DCMPL);
+            int notNA = branch(c, Opcode.IFEQ);
+            c.addLdc2w(dinfo._numMeans[i]);
+            c.addDstore(3);
+            patch(c, notNA);
+          }
+          c.addLdc2w(b[dinfo.numStart() + i]);
+          c.addDload(3);
+          c.addOpcode(Opcode.DMUL);
+        }
+        c.addDload(1);
+        c.addOpcode(Opcode.DADD);
+        c.addDstore(1);
+      }
+      c.addDload(1);
+      c.addOpcode(Opcode.DRETURN);
+      String name = "e" + methods.size();
+      gen.addMethod(cls, name, TERMS_DESC, true, c);
+      methods.add(new String[]{cls, name});
+    }
+    String last = null;
+    for( String[] mth : methods )
+      if( !mth[0].equals(last) )
+        gen.addStaticField(last = mth[0], CATS, "[[D", cats);
+
+    // eta(data) in the first class: intercept, then all the terms
+    String main = gen.mainClassName();
+    Bytecode c = gen.code(main, 4); // this, data, eta
+    c.addLdc2w(b[b.length - 1]);
+    c.addDstore(2);
+    for( String[] mth : methods ) {
+      c.addAload(1);
+      c.addDload(2);
+      c.addInvokestatic(mth[0], mth[1], TERMS_DESC);
+      c.addDstore(2);
+    }
+    c.addDload(2);
+    c.addOpcode(Opcode.DRETURN);
+    gen.addMethod(main, "eta", "([D)D", false, c);
+    return gen.newInstance();
+  }
+}
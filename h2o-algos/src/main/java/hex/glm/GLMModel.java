@@ -1053,17 +1053,36 @@ public class GLMModel extends Model<GLMModel,GLMModel.GLMParameters,GLMModel.GLM
           d = _output._dinfo._numMeans[i];
         eta += b[numStart + i] * d;
       }
-      double mu = _parms.linkInv(eta);
-      if (_parms._family == Family.binomial) { // threshold for prediction
-        preds[0] = mu >= defaultThreshold()?1:0;
-        preds[1] = 1.0 - mu; // class 0
-        preds[2] = mu; // class 1
-      } else
-        preds[0] = mu;
+      scoreEta(eta, preds);
     }
     return preds;
   }
 
+  // Predictions of a single-response GLM from the linear predictor
+  private double[] scoreEta(double eta, double[] preds) {
+    double mu = _parms.linkInv(eta);
+    if (_parms._family == Family.binomial) { // threshold for prediction
+      preds[0] = mu >= defaultThreshold()?1:0;
+      preds[1] = 1.0 - mu; // class 0
+      preds[2] = mu; // class 1
+    } else
+      preds[0] = mu;
+    return preds;
+  }
+
+  /** Compile the linear predictor straight to bytecode, see {@link
+   *  GLMByteCodeGen}.  Multinomial models and models with interactions are
+   *  not supported. */
+  @Override public CompiledModel compile() {
+    if (_parms._family == Family.multinomial || _output._dinfo._interactions != null) return null;
+    final GLMByteCodeGen.Eta eta = GLMByteCodeGen.compile(this);
+    return new CompiledModel<GLMModel>(this) {
+      @Override protected double[] scoreRaw(double[] data, double[] preds) {
+        return scoreEta(eta.eta(data), preds);
+      }
+    };
+  }
+
   @Override protected void toJavaPredictBody(SBPrintStream body,
                                              CodeGeneratorPipeline classCtx,
                                              CodeGeneratorPipeline fileCtx,
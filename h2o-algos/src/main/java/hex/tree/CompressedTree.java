@@ -4,6 +4,7 @@ import java.util.Arrays;
 import java.util.Random;
 
 import water.*;
+import water.fvec.Chunk;
 import water.util.IcedBitSet;
 import water.util.SB;
 
@@ -23,22 +24,75 @@ public class CompressedTree extends Keyed {
   final byte [] _bits;
   final int _nclass;            // Number of classes being predicted (for an integer prediction tree)
   final long _seed;
-  public CompressedTree( byte[] bits, int nclass, long seed, int tid, int cls ) {
+  final float[] _covers;        // Weighted rows going left & right of every decision node, in tree order; null if unknown
+  public CompressedTree( byte[] bits, int nclass, long seed, int tid, int cls ) { this(bits, nclass, seed, tid, cls, null); }
+  public CompressedTree( byte[] bits, int nclass, long seed, int tid, int cls, float[] covers ) {
     super(makeTreeKey(tid, cls));
-    _bits = bits; _nclass = nclass; _seed = seed; 
+    _bits = bits; _nclass = nclass; _seed = seed; _covers = covers;
   }
 
   /** Highly efficient (critical path) tree scoring */
   public double score( final double row[]) { return score(row, false); }
-  public double score( final double row[], boolean computeLeafAssignment) {
+  /** Tree scoring reading the features straight out of the row of the given
+   *  Chunks (in the order the model expects); no row copy is made. */
+  public double score( final Chunk chks[], int row_in_chunk ) { return score(null, chks, row_in_chunk, false, null); }
+  public double score( final double row[], boolean computeLeafAssignment) { return score(row, null, 0, computeLeafAssignment, null); }
+
+  /** Tree-path feature contributions: walking down the decision path of the
+   *  row, every decision adds the change of the expected tree prediction
+   *  (from the node to the chosen child) to the contribution of its column.
+   *  The contributions plus the returned expected prediction of the root sum
+   *  up to the tree prediction.
+   *  @param contribs per-column contributions, added into
+   *  @return expected prediction of the tree, the bias */
+  public double scoreContributions( final double row[], double contribs[] ) {
+    if( _covers == null ) throw H2O.unimpl("Feature contributions need a tree trained with node covers");
+    return score(row, null, 0, false, contribs);
+  }
+
+  // Expected prediction of every decision node and the number of decision
+  // nodes in its left subtree, both in tree order; computed from the covers
+  private transient double[] _nodeValues;
+  private transient int[] _leftNodes;
+  private void nodeValues() {
+    if( _nodeValues != null ) return;
+    final int n = _covers.length/2;
+    final double[] vals = new double[n];
+    final int[] lefts = new int[n];
+    new TreeVisitor<RuntimeException>(this) {
+      int _cnt;
+      final int[] _ids = new int[n+1];      int _idsp;  // Decision nodes being walked
+      final double[] _vs = new double[n+2]; int _vsp;   // Values of walked subtrees
+      @Override protected void pre(int col, float fcmp, IcedBitSet gcmp, int equal, DHistogram.NASplitDir naSplitDir) { _ids[_idsp++] = _cnt++; }
+      @Override protected void mid(int col, float fcmp, int equal) { int k = _ids[_idsp-1]; lefts[k] = _cnt - k - 1; }
+      @Override protected void leaf(float pred) { _vs[_vsp++] = pred; }
+      @Override protected void post(int col, float fcmp, int equal) {
+        int k = _ids[--_idsp];
+        double r = _vs[--_vsp], l = _vs[--_vsp];
+        double n0 = _covers[2*k], n1 = _covers[2*k+1];
+        _vs[_vsp++] = vals[k] = n0+n1 > 0 ? (n0*l + n1*r)/(n0+n1) : (l+r)/2;
+      }
+    }.visit();
+    _leftNodes = lefts;
+    _nodeValues = vals;
+  }
+
+  private double score( final double row[], final Chunk chks[], int row_in_chunk, boolean computeLeafAssignment, double contribs[]) {
     AutoBuffer ab = new AutoBuffer(_bits);
     IcedBitSet ibs = null;      // Lazily set on hitting first group test
     long bitsRight = 0;
     int level = 0;
+    int node = 0;               // Decision node, in tree order
+    double nodeVal = 0;
+    if( contribs != null ) {
+      nodeValues();
+      if( _nodeValues.length > 0 ) nodeVal = _nodeValues[0];
+    }
+    final double bias = nodeVal;
     while(true) {
       int nodeType = ab.get1U();
       int colId = ab.get2();
-      if( colId == 65535 ) return scoreLeaf(ab);
+      if( colId == 65535 ) return scoreLeaf(ab); // A lone leaf is all bias
       DHistogram.NASplitDir naSplitDir = DHistogram.NASplitDir.values()[ab.get1U()];
       final boolean NAvsREST = naSplitDir == DHistogram.NASplitDir.NAvsREST;
       final boolean NALeft = naSplitDir == DHistogram.NASplitDir.NALeft;
@@ -74,7 +128,7 @@ public class CompressedTree extends Keyed {
 
       // WARNING: Generated code has to be consistent with this code:
       assert(equal!=1); //no longer supported
-      double d = row[colId];
+      double d = row != null ? row[colId] : chks[colId].atd(row_in_chunk);
       if ((Double.isNaN(d) && !NALeft) ||                                            // NA goes right
               !NAvsREST &&
               ( ( (equal==0            ) && d >= splitVal         ) ||  // greater or equals goes right
@@ -85,6 +139,7 @@ public class CompressedTree extends Keyed {
         if (!(Double.isNaN(d) && (NALeft||Left))) { //missing value with NALeft or Left goes LEFT as well
           ab.skip(skip);        // Skip to the right subtree
           if (computeLeafAssignment && level < 64) bitsRight |= 1 << level;
+          if (contribs != null) node += _leftNodes[node];
           lmask = rmask;        // And set the leaf bits into common place
         }
       } else {
@@ -92,13 +147,23 @@ public class CompressedTree extends Keyed {
         assert(!Double.isNaN(d) || NALeft || Left);
       }
       level++;
+      node++;
       if( (lmask&16)==16 ) {
         if (computeLeafAssignment) {
           bitsRight |= 1 << level; //mark the end of the tree
           return Double.longBitsToDouble(bitsRight);
         }
+        if (contribs != null) {
+          float pred = scoreLeaf(ab);
+          contribs[colId] += pred - nodeVal;
+          return bias;
+        }
         return scoreLeaf(ab);
       }
+      if (contribs != null) {
+        contribs[colId] += _nodeValues[node] - nodeVal;
+        nodeVal = _nodeValues[node];
+      }
     }
   }
 
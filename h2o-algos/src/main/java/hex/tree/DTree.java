@@ -727,6 +727,26 @@ public class DTree extends Iced {
       ab.put1(0).put2((char)65535); // Flag it special so the decompress doesn't look for top-level decision
     root().compress(ab);      // Compress whole tree
     assert ab.position() == sz;
-    return new CompressedTree(ab.buf(),_nclass,_seed,tid,cls);
+    return new CompressedTree(ab.buf(),_nclass,_seed,tid,cls,covers());
+  }
+
+  // Weighted rows going left and right of every decided node, in the same
+  // (depth-first, left first) order as the compressed tree
+  private float[] covers() {
+    ArrayList<DecidedNode> dns = new ArrayList<>();
+    collectDecided(root(), dns);
+    float[] covers = new float[2*dns.size()];
+    for( int i=0; i<dns.size(); i++ ) {
+      covers[2*i  ] = (float)dns.get(i)._split._n0;
+      covers[2*i+1] = (float)dns.get(i)._split._n1;
+    }
+    return covers;
+  }
+  private void collectDecided(Node n, ArrayList<DecidedNode> dns) {
+    if( !(n instanceof DecidedNode) ) return;
+    DecidedNode dn = (DecidedNode)n;
+    dns.add(dn);
+    collectDecided(node(dn._nids[0]), dns);
+    collectDecided(node(dn._nids[1]), dns);
   }
 }
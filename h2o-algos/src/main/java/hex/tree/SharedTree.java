@@ -219,6 +219,7 @@ public abstract class SharedTree<M extends SharedTreeModel<M,P,O>, P extends Sha
           p._train = rndKey;
           p._weights_column = _parms._weights_column;
           p._combine_method = QuantileModel.CombineMethod.INTERPOLATE;
+          p._sketch = true;       // Split points need not be exact; one pass over all columns
           p._probs = new double[N];
           for (int i = 0; i < N; ++i) //compute quantiles such that they span from (inclusive) min...maxEx (exclusive)
             p._probs[i] = i * 1./N;
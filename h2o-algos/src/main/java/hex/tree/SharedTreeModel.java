@@ -16,7 +16,7 @@ import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Arrays;
 
-public abstract class SharedTreeModel<M extends SharedTreeModel<M,P,O>, P extends SharedTreeModel.SharedTreeParameters, O extends SharedTreeModel.SharedTreeOutput> extends Model<M,P,O> implements Model.LeafNodeAssignment {
+public abstract class SharedTreeModel<M extends SharedTreeModel<M,P,O>, P extends SharedTreeModel.SharedTreeParameters, O extends SharedTreeModel.SharedTreeOutput> extends Model<M,P,O> implements Model.LeafNodeAssignment, Model.Contributions {
 
   public abstract static class SharedTreeParameters extends Model.Parameters {
 
@@ -251,6 +251,162 @@ public abstract class SharedTreeModel<M extends SharedTreeModel<M,P,O>, P extend
     Arrays.fill(preds,0);
     for( int tidx=0; tidx<ntrees; tidx++ )
       score0(data, preds, tidx);
+    return unifyPreds(preds, offset, ntrees);
+  }
+
+  /** Turn the summed-up tree predictions of a row into the final model
+   *  predictions (link function, averaging, ...).  Counterpart of {@link
+   *  #toJavaUnifyPreds(SBPrintStream)} for in-H2O scoring. */
+  protected double[] unifyPreds(double[] preds, double offset, int ntrees) { return preds; }
+
+  /** Binomial decision on the summed-up tree predictions of a row: class 1
+   *  is predicted iff {@code sign * sum >= threshold}.
+   *  @return {sign, threshold}, or null if the decision cannot be made on the
+   *  sum of the trees alone */
+  protected double[] binomialDecision(double offset) { return null; }
+
+  // Early-exit decision for binomial scoring, or null if not supported
+  private double[] earlyExitDecision(double offset) {
+    if( !_output.isBinomialClassifier() || !binomialOpt() || _parms._balance_classes ) return null;
+    return binomialDecision(offset);
+  }
+
+  // Per-tree leaf value bounds, as suffix sums: the remaining trees from tree
+  // t on can add at least _leafBounds[0][t] and at most _leafBounds[1][t]
+  private transient double[][] _leafBounds;
+  private double[][] leafBounds() {
+    final int ntrees = _output._treeKeys.length;
+    double[][] lb = _leafBounds;
+    if( lb != null && lb[0].length == ntrees+1 ) return lb;
+    lb = new double[2][ntrees+1];
+    for( int tidx=ntrees-1; tidx>=0; tidx-- ) {
+      final double[] mm = new double[]{Double.MAX_VALUE, -Double.MAX_VALUE};
+      new TreeVisitor<RuntimeException>(_output.ctree(tidx, 0)) {
+        @Override protected void leaf(float pred) { mm[0] = Math.min(mm[0], pred); mm[1] = Math.max(mm[1], pred); }
+      }.visit();
+      lb[0][tidx] = lb[0][tidx+1] + mm[0];
+      lb[1][tidx] = lb[1][tidx+1] + mm[1];
+    }
+    return _leafBounds = lb;
+  }
+
+  /** Predicted label of a binomial model, with early exit: trees are walked
+   *  in order while tracking the running sum, and scoring stops as soon as
+   *  the remaining trees' largest possible contribution (from their leaf
+   *  value bounds) cannot flip the decision anymore.  Gives the same label as
+   *  full scoring; models which cannot decide on the sum of trees (e.g.
+   *  balanced classes) fall back to full scoring. */
+  public int scoreLabel(double[] data, double offset) {
+    double[] preds = new double[_output.nclasses()+1];
+    double[] dec = earlyExitDecision(offset);
+    if( dec == null )
+      return (int)postProcessPreds(score0(data, preds, 1, offset), data)[0];
+    final double sign = dec[0], thresh = dec[1];
+    final double[][] lb = leafBounds();
+    final int ntrees = _output._treeKeys.length;
+    final double eps = 1e-9 * (1 + Math.abs(thresh) + Math.max(Math.abs(lb[0][0]), Math.abs(lb[1][0])));
+    double sum = 0;
+    for( int tidx=0; tidx<ntrees-1; tidx++ ) {
+      sum += _output.ctree(tidx, 0).score(data);
+      double lo = sign > 0 ? sum + lb[0][tidx+1] : -sum - lb[1][tidx+1];
+      double hi = sign > 0 ? sum + lb[1][tidx+1] : -sum - lb[0][tidx+1];
+      if( lo >= thresh + eps ) return 1;
+      if( hi <  thresh - eps ) return 0;
+    }
+    // Undecided until the last tree: finish the exact way
+    if( ntrees > 0 ) sum += _output.ctree(ntrees-1, 0).score(data);
+    preds[1] = sum;
+    return (int)postProcessPreds(unifyPreds(preds, offset, ntrees), data)[0];
+  }
+
+  /** Tree-path feature contributions of one row, see {@link
+   *  CompressedTree#scoreContributions}: one extra walk down every tree.
+   *  @param data row, in the model's column order
+   *  @param contribs {@code nfeatures()+1} slots, filled with the per-feature
+   *  contributions, and the bias (the expected prediction) in the last one
+   *  @return contribs, summing up to the raw model prediction, see {@link
+   *  #unifyContributions} */
+  public double[] scoreContributions(double[] data, double[] contribs) {
+    if( _output.nclasses() > 2 || (_output.isBinomialClassifier() && !binomialOpt()) )
+      throw H2O.unimpl("Feature contributions are only supported for regression and binomial models");
+    Arrays.fill(contribs, 0);
+    double bias = 0;
+    for( int tidx=0; tidx<_output._treeKeys.length; tidx++ )
+      bias += _output.ctree(tidx, 0).scoreContributions(data, contribs);
+    contribs[contribs.length-1] = bias;
+    return unifyContributions(contribs);
+  }
+
+  /** Map the summed-up per-tree contributions to the scale of the model's prediction. */
+  protected double[] unifyContributions(double[] contribs) { return contribs; }
+
+  /** Feature contributions of all rows of the frame; one column per model
+   *  feature, plus a last "BiasTerm" column.  The result is in the DKV; caller
+   *  is responsible for deleting. */
+  @Override public Frame scoreContributions(Frame fr, Key destination_key) {
+    Frame adaptFr = new Frame(fr);
+    adaptTestForTrain(adaptFr, true, false);
+    final int nfeatures = _output.nfeatures();
+    String[] names = Arrays.copyOf(_output._names, nfeatures+1);
+    names[nfeatures] = "BiasTerm";
+    Frame features = new Frame(Arrays.copyOf(adaptFr.names(), nfeatures), Arrays.copyOf(adaptFr.vecs(), nfeatures));
+    Frame res = new MRTask() {
+      @Override public void map(Chunk[] cs, NewChunk[] ncs) {
+        double[] data = new double[nfeatures];
+        double[] contribs = new double[nfeatures+1];
+        for( int row=0; row<cs[0]._len; row++ ) {
+          for( int i=0; i<nfeatures; i++ ) data[i] = cs[i].atd(row);
+          scoreContributions(data, contribs);
+          for( int i=0; i<ncs.length; i++ ) ncs[i].addNum(contribs[i]);
+        }
+      }
+    }.doAll(nfeatures+1, Vec.T_NUM, features).outputFrame(destination_key, names, null);
+    cleanup_adapt(adaptFr, fr);
+    return res;
+  }
+
+  /** Compile all trees straight to bytecode, see {@link TreeByteCodeGen}. */
+  @Override public CompiledModel compile() {
+    final TreeByteCodeGen.Forest forest = TreeByteCodeGen.compile(this);
+    final int ntrees = _output._treeKeys.length;
+    return new CompiledModel<M>((M)this) {
+      @Override protected double[] scoreRaw(double[] data, double[] preds) {
+        Arrays.fill(preds, 0);
+        forest.score0(data, preds);
+        return unifyPreds(preds, 0, ntrees);
+      }
+    };
+  }
+
+  /** Block scoring: rather than walking all trees for one row at a time, walk
+   *  each tree over the whole block of rows, reading the features directly
+   *  from the Chunks.  This keeps a tree hot in cache across the block and
+   *  avoids the per-row copy into {@code tmp}. */
+  @Override public double[][] score0(Chunk chks[], double[] weights, double[] offsets, int row0, int nrows, double[] tmp, double[][] preds) {
+    for( int r=0; r<nrows; r++ )
+      if( weights[r] != 0 ) Arrays.fill(preds[r], 0);
+    final int ntrees = _output._treeKeys.length;
+    for( int tidx=0; tidx<ntrees; tidx++ ) {
+      Key[] keys = _output._treeKeys[tidx];
+      for( int c=0; c<keys.length; c++ ) {
+        if( keys[c] == null ) continue;
+        CompressedTree ct = DKV.get(keys[c]).get();
+        int pidx = keys.length == 1 ? 0 : c + 1;
+        for( int r=0; r<nrows; r++ )
+          if( weights[r] != 0 )
+            preds[r][pidx] += ct.score(chks, row0 + r);
+      }
+    }
+    // Multinomial tie-breaking hashes the raw row, so only then load it
+    final boolean needsRow = _output.isClassifier() && _output.nclasses() > 2;
+    for( int r=0; r<nrows; r++ ) {
+      if( weights[r] == 0 ) continue;
+      if( needsRow )
+        for( int i=0; i<tmp.length; i++ )
+          tmp[i] = chks[i].atd(row0 + r);
+      unifyPreds(preds[r], offsets[r], ntrees);
+      postProcessPreds(preds[r], needsRow ? tmp : null);
+    }
     return preds;
   }
   // Score per line per tree
@@ -320,8 +476,47 @@ public abstract class SharedTreeModel<M extends SharedTreeModel<M,P,O>, P extend
     sb.ip("public boolean isSupervised() { return true; }").nl();
     sb.ip("public int nfeatures() { return "+_output.nfeatures()+"; }").nl();
     sb.ip("public int nclasses() { return "+_output.nclasses()+"; }").nl();
+    toJavaScoreLabel(sb);
     return sb;
   }
+
+  // Number of trees per generated early-exit method
+  private static final int SCORE_LABEL_TREES = 500;
+
+  /** Generate the early-exit binomial label scoring, same as {@link
+   *  #scoreLabel(double[], double)}, overriding {@link
+   *  hex.genmodel.GenModel#scoreLabel(double[])}. */
+  private void toJavaScoreLabel(SBPrintStream sb) {
+    double[] dec = earlyExitDecision(0);
+    if( dec == null ) return;
+    final double[][] lb = leafBounds();
+    final int ntrees = _output._treeKeys.length;
+    final double eps = 1e-9 * (1 + Math.abs(dec[1]) + Math.max(Math.abs(lb[0][0]), Math.abs(lb[1][0])));
+    final String mname = JCodeGen.toJavaId(_key.toString());
+    final String sum = dec[0] > 0 ? "f[0]" : "-f[0]";
+    sb.nl();
+    sb.ip("// Binomial label with early exit: stops walking the trees as soon as").nl();
+    sb.ip("// the remaining ones cannot flip the decision anymore.").nl();
+    sb.ip("@Override public int scoreLabel(double[] data) {").nl().ii(1);
+    sb.ip("double[] f = new double[1];").nl();
+    sb.ip("int label;").nl();
+    for( int t=0; t<ntrees-1; t+=SCORE_LABEL_TREES )
+      sb.ip("if ((label = scoreLabel_").p(t/SCORE_LABEL_TREES).p("(data, f)) >= 0) return label;").nl();
+    sb.ip("return (int)score0(data, new double[").p(_output.nclasses()+1).p("])[0];").nl();
+    sb.di(1).ip("}").nl();
+    for( int t0=0; t0<ntrees-1; t0+=SCORE_LABEL_TREES ) {
+      sb.ip("private static int scoreLabel_").p(t0/SCORE_LABEL_TREES).p("(double[] data, double[] f) {").nl().ii(1);
+      for( int t=t0; t<Math.min(t0+SCORE_LABEL_TREES, ntrees-1); t++ ) {
+        double lo = dec[1] + eps - (dec[0] > 0 ? lb[0][t+1] : -lb[1][t+1]);
+        double hi = dec[1] - eps - (dec[0] > 0 ? lb[1][t+1] : -lb[0][t+1]);
+        toJavaTreeName(sb.ip("f[0] += "), mname, t, 0).p(".score0(data);").nl();
+        sb.ip("if (").p(sum).p(" >= ").pj(lo).p(") return 1;").nl();
+        sb.ip("if (").p(sum).p(" < ").pj(hi).p(") return 0;").nl();
+      }
+      sb.ip("return -1;").nl();
+      sb.di(1).ip("}").nl();
+    }
+  }
   @Override protected void toJavaPredictBody(SBPrintStream body,
                                              CodeGeneratorPipeline classCtx,
                                              CodeGeneratorPipeline fileCtx,
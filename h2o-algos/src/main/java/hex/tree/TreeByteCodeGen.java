@@ -0,0 +1,205 @@
+package hex.tree;
+
+import hex.genmodel.GenModel;
+import javassist.bytecode.Bytecode;
+import javassist.bytecode.Opcode;
+import water.DKV;
+import water.Key;
+import water.codegen.ByteCodeGen;
+import water.util.IcedBitSet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import static water.codegen.ByteCodeGen.branch;
+import static water.codegen.ByteCodeGen.patch;
+
+/** A tree code generator producing JVM bytecode for the trees of a model:
+ *
+ *  - every tree becomes a static method {@code double t(double[] data)}, with
+ *    the same decisions as {@link CompressedTree#score(double[])}
+ *  - if a tree method is too long, subtrees are redirected to new methods
+ *  - if the constant pool of a class fills up, the following trees and
+ *    subtrees go to a new class
+ *  - the {@link Forest#score0} of the first class sums up all trees
+ */
+public class TreeByteCodeGen {
+
+  /** Base class of the generated classes. */
+  public static abstract class Forest {
+    public Forest() {}
+    /** Add the prediction of every tree into {@code preds}. */
+    public abstract void score0(double[] data, double[] preds);
+  }
+
+  private static final String TREE_DESC = "([D)D";
+  private static final String SUM_DESC = "([D[D)V";
+  private static final String GRPSPLIT = "GRPSPLIT";
+
+  private final ByteCodeGen _gen = new ByteCodeGen(Forest.class);
+  private final HashMap<String,ArrayList<byte[]>> _grpSplits = new HashMap<>(); // Bitsets per class
+  private int _methods;
+
+  /** Compile all trees of the given model. */
+  public static Forest compile(SharedTreeModel<?,?,?> tm) {
+    return new TreeByteCodeGen().generate(tm._output);
+  }
+
+  private Forest generate(SharedTreeModel.SharedTreeOutput out) {
+    // Compile every tree, remember how to call it
+    ArrayList<String[]> calls = new ArrayList<>(); // {class, method, preds index}
+    for( Key[] keys : out._treeKeys ) {
+      for( int c=0; c<keys.length; c++ ) {
+        if( keys[c] == null ) continue;
+        CompressedTree ct = DKV.get(keys[c]).get();
+        String cls = currentClass();
+        calls.add(new String[]{cls, method(cls, new NodeBuilder(ct).root()), Integer.toString(keys.length == 1 ? 0 : c + 1)});
+      }
+    }
+    // Sum up the trees in static methods of bounded size
+    ArrayList<String[]> sums = new ArrayList<>();
+    for( int i=0; i<calls.size(); ) {
+      String cls = currentClass();
+      Bytecode b = _gen.code(cls, 2); // data, preds
+      for( ; i<calls.size() && b.currentPc() < ByteCodeGen.MAX_METHOD_SIZE && !_gen.isFull(cls); i++ ) {
+        String[] call = calls.get(i);  // preds[k] += tree(data)
+        b.addAload(1);
+        b.addIconst(Integer.parseInt(call[2]));
+        b.addOpcode(Opcode.DUP2);
+        b.addOpcode(Opcode.DALOAD);
+        b.addAload(0);
+        b.addInvokestatic(call[0], call[1], TREE_DESC);
+        b.addOpcode(Opcode.DADD);
+        b.addOpcode(Opcode.DASTORE);
+      }
+      b.addOpcode(Opcode.RETURN);
+      String m = "s" + _methods++;
+      _gen.addMethod(cls, m, SUM_DESC, true, b);
+      sums.add(new String[]{cls, m});
+    }
+    // The entry point of the first class calls all the sums
+    String main = _gen.mainClassName();
+    Bytecode b = _gen.code(main, 3); // this, data, preds
+    for( String[] sum : sums ) {
+      b.addAload(1);
+      b.addAload(2);
+      b.addInvokestatic(sum[0], sum[1], SUM_DESC);
+    }
+    b.addOpcode(Opcode.RETURN);
+    _gen.addMethod(main, "score0", SUM_DESC, false, b);
+    // Bitsets for the group splits
+    for( Map.Entry<String,ArrayList<byte[]>> e : _grpSplits.entrySet() )
+      _gen.addStaticField(e.getKey(), GRPSPLIT, "[[B", e.getValue().toArray(new byte[e.getValue().size()][]));
+    return _gen.newInstance();
+  }
+
+  // Class to put new code in; starts a new one when the constant pool fills up
+  private String currentClass() {
+    return _gen.isFull(_gen.className()) ? _gen.newClass() : _gen.className();
+  }
+
+  /** Emit the given (sub)tree as a new static method of the given class. */
+  private String method(String cls, Node n) {
+    Bytecode b = _gen.code(cls, 3); // data, and one double
+    emit(cls, b, n);
+    String m = "t" + _methods++;
+    _gen.addMethod(cls, m, TREE_DESC, true, b);
+    return m;
+  }
+
+  private void emit(String cls, Bytecode b, Node n) {
+    if( n._leaf ) {
+      b.addLdc2w((double)n._pred);
+      b.addOpcode(Opcode.DRETURN);
+      return;
+    }
+    if( b.currentPc() > ByteCodeGen.MAX_METHOD_SIZE || _gen.isFull(cls) ) { // Redirect to a new method
+      String cls2 = currentClass();
+      String m = method(cls2, n);
+      b.addAload(0);
+      b.addInvokestatic(cls2, m, TREE_DESC);
+      b.addOpcode(Opcode.DRETURN);
+      return;
+    }
+    // d = data[col]
+    b.addAload(0);
+    b.addIconst(n._col);
+    b.addOpcode(Opcode.DALOAD);
+    b.addDstore(1);
+    // NA goes right, unless NALeft or Left (d != d only for NA)
+    b.addDload(1);
+    b.addDload(1);
+    b.addOpcode(Opcode.DCMPL);
+    int na = branch(b, Opcode.IFNE);
+    boolean naLeft = n._naSplitDir == DHistogram.NASplitDir.NALeft || n._naSplitDir == DHistogram.NASplitDir.Left;
+    int right = -1;
+    if( n._naSplitDir != DHistogram.NASplitDir.NAvsREST ) {
+      if( n._equal == 0 ) {   // greater or equals goes right
+        b.addDload(1);
+        b.addLdc2w((double)n._split);
+        b.addOpcode(Opcode.DCMPL);
+        right = branch(b, Opcode.IFGE);
+      } else {                // if contained in bitset, go right
+        ArrayList<byte[]> grps = _grpSplits.get(cls);
+        if( grps == null ) _grpSplits.put(cls, grps = new ArrayList<>());
+        b.addGetstatic(cls, GRPSPLIT, "[[B");
+        b.addIconst(grps.size());
+        b.addOpcode(Opcode.AALOAD);
+        b.addIconst(n._bitoff);
+        b.addDload(1);
+        b.addInvokestatic(GenModel.class.getName(), "bitSetContains", "([BID)Z");
+        right = branch(b, Opcode.IFNE);
+        grps.add(n._bits);
+      }
+    }                         // else: all but NA go left
+    // LEFT
+    if( naLeft ) patch(b, na);
+    emit(cls, b, n._left);
+    // RIGHT
+    if( !naLeft ) patch(b, na);
+    if( right != -1 ) patch(b, right);
+    emit(cls, b, n._right);
+  }
+
+  // Decoded tree node
+  private static class Node {
+    boolean _leaf;
+    float _pred;
+    int _col, _equal, _bitoff;
+    float _split;
+    byte[] _bits;
+    DHistogram.NASplitDir _naSplitDir;
+    Node _left, _right;
+  }
+
+  // Decode a CompressedTree into Nodes
+  private static class NodeBuilder extends TreeVisitor<RuntimeException> {
+    private final ArrayList<Node> _stack = new ArrayList<>();
+    private Node _root;
+    NodeBuilder(CompressedTree ct) { super(ct); }
+    Node root() { visit(); return _root; }
+    private void add(Node n) {
+      if( _stack.isEmpty() ) { _root = n; return; }
+      Node top = _stack.get(_stack.size()-1);
+      if( top._left == null ) top._left = n; else top._right = n;
+    }
+    @Override protected void pre(int col, float fcmp, IcedBitSet gcmp, int equal, DHistogram.NASplitDir naSplitDir) {
+      assert equal != 1; // no longer supported
+      Node n = new Node();
+      n._col = col; n._equal = equal; n._split = fcmp; n._naSplitDir = naSplitDir;
+      if( (equal == 2 || equal == 3) && naSplitDir != DHistogram.NASplitDir.NAvsREST ) {
+        n._bits = gcmp.toByteArray(); // gcmp is reused by the visitor
+        n._bitoff = gcmp.max() - gcmp.size();
+      }
+      add(n);
+      _stack.add(n);
+    }
+    @Override protected void leaf(float pred) {
+      Node n = new Node();
+      n._leaf = true; n._pred = pred;
+      add(n);
+    }
+    @Override protected void post(int col, float fcmp, int equal) { _stack.remove(_stack.size()-1); }
+  }
+}
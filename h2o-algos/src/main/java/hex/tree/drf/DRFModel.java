@@ -32,12 +32,28 @@ public class DRFModel extends SharedTreeModel<DRFModel,DRFModel.DRFParameters,DR
 
   @Override protected boolean binomialOpt() { return !_parms._binomial_double_trees; }
 
+  // Contributions to the averaged prediction: the regression value, or the class 1 probability
+  @Override protected double[] unifyContributions(double[] contribs) {
+    int N = _output._ntrees;
+    if (N < 1) return contribs;
+    if (_output.nclasses() == 2) { // trees predict class 0
+      for (int i = 0; i < contribs.length; i++) contribs[i] /= -N;
+      contribs[contribs.length-1] += 1;
+    } else
+      MathUtils.div(contribs, N);
+    return contribs;
+  }
+
+  // Class 1 iff 1 - sum/N >= threshold, i.e. -sum >= N*(threshold-1)
+  @Override protected double[] binomialDecision(double offset) {
+    return new double[]{-1, _output._ntrees * (defaultThreshold() - 1)};
+  }
+
   /** Bulk scoring API for one row.  Chunks are all compatible with the model,
    *  and expect the last Chunks are for the final distribution and prediction.
    *  Default method is to just load the data into the tmp array, then call
    *  subclass scoring logic. */
-  @Override protected double[] score0(double data[], double preds[], double weight, double offset, int ntrees) {
-    super.score0(data, preds, weight, offset, ntrees);
+  @Override protected double[] unifyPreds(double preds[], double offset, int ntrees) {
     int N = _output._ntrees;
     if (_output.nclasses() == 1) { // regression - compute avg over all trees
       if (N>=1) preds[0] /= N;
@@ -5,6 +5,7 @@ import hex.quantile.Quantile;
 import hex.quantile.QuantileModel;
 import hex.tree.SharedTreeModel;
 import water.DKV;
+import water.H2O;
 import water.Job;
 import water.Key;
 import water.fvec.Frame;
@@ -42,12 +43,26 @@ public class GBMModel extends SharedTreeModel<GBMModel,GBMModel.GBMParameters,GB
 
   public GBMModel(Key selfKey, GBMParameters parms, GBMOutput output ) { super(selfKey,parms,output); }
 
+  // Contributions to the link-scale prediction f, the initial prediction is part of the bias
+  @Override protected double[] unifyContributions(double[] contribs) {
+    if (_parms._distribution == Distribution.Family.multinomial)
+      throw H2O.unimpl("Feature contributions are not supported for the multinomial distribution");
+    contribs[contribs.length-1] += _output._init_f;
+    return contribs;
+  }
+
+  // Class 1 iff linkInv(sum + init_f + offset) >= threshold
+  @Override protected double[] binomialDecision(double offset) {
+    if (_parms._distribution != Distribution.Family.bernoulli && _parms._distribution != Distribution.Family.modified_huber) return null;
+    return new double[]{1, new Distribution(_parms).link(defaultThreshold()) - _output._init_f - offset};
+  }
+
   /** Bulk scoring API for one row.  Chunks are all compatible with the model,
    *  and expect the last Chunks are for the final distribution and prediction.
    *  Default method is to just load the data into the tmp array, then call
    *  subclass scoring logic. */
-  @Override protected double[] score0(double data[/*ncols*/], double preds[/*nclasses+1*/], double weight, double offset, int ntrees) {
-    super.score0(data, preds, weight, offset, ntrees);    // These are f_k(x) in Algorithm 10.4
+  @Override protected double[] unifyPreds(double preds[/*nclasses+1*/], double offset, int ntrees) {
+    // preds are f_k(x) in Algorithm 10.4
     if (_parms._distribution == Distribution.Family.bernoulli || _parms._distribution == Distribution.Family.modified_huber) {
       double f = preds[1] + _output._init_f + offset; //Note: class 1 probability stored in preds[1] (since we have only one tree)
       preds[2] = new Distribution(_parms).linkInv(f);
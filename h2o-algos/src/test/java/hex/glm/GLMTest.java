@@ -1746,4 +1746,28 @@ public class GLMTest  extends TestUtil {
       Scope.exit();
     }
   }
+  // Runtime-compiled linear predictor must score like the in-H2O model
+  @Test public void testCompiledScoring() {
+    for (Family family : new Family[]{Family.gaussian, Family.binomial}) {
+      Frame train = null, preds = null;
+      GLMModel glm = null;
+      try {
+        train = randomFrame(Key.<Frame>make(), 1000, 20, 0.3, 0.2, 0.05, 10, family == Family.binomial ? 2 : 1, 1234);
+
+        GLMParameters parms = new GLMParameters(family);
+        parms._train = train._key;
+        parms._response_column = "response";
+        parms._lambda = new double[]{1e-3};
+        glm = new GLM(parms).trainModel().get();
+
+        preds = glm.score(train);
+        assertTrue(glm.testCompiledScoring(train, preds, 1e-12));
+      } finally {
+        if (train != null) train.remove();
+        if (preds != null) preds.remove();
+        if (glm != null) glm.delete();
+      }
+    }
+  }
+
 }
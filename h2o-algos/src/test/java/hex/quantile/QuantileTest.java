@@ -1,5 +1,6 @@
 package hex.quantile;
 
+import hex.CreateFrame;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Ignore;
@@ -694,4 +695,70 @@ public class QuantileTest extends TestUtil {
       if( fr2  != null ) fr2.remove();
     }
   }
+
+  private static double[][] quantiles(Frame fr, boolean sketch, String weights) {
+    QuantileModel.QuantileParameters parms = new QuantileModel.QuantileParameters();
+    parms._train = fr._key;
+    parms._sketch = sketch;
+    parms._weights_column = weights;
+    Job<QuantileModel> job = new Quantile(parms).trainModel();
+    QuantileModel kmm = job.get();
+    job.remove();
+    try {
+      return kmm._output._quantiles;
+    } finally {
+      kmm.delete();
+    }
+  }
+
+  @Test public void testSketch() {
+    Frame small = null, big = null;
+    try {
+      // Few distinct values: the sketch is exact, weights included
+      small = ArrayUtils.frame(new String[]{"x", "weight"}, ard(3, 1), ard(1, 2), ard(4, 1), ard(1, 0), ard(5, 3), ard(9, 1), ard(2, 1), ard(6, 2));
+      Assert.assertTrue(Arrays.deepEquals(quantiles(small, false, null), quantiles(small, true, null)));
+      Assert.assertTrue(Arrays.deepEquals(quantiles(small, false, "weight"), quantiles(small, true, "weight")));
+
+      // Many distinct values: within the rank error of uniform data on [-100,100]
+      CreateFrame cf = new CreateFrame();
+      cf.rows = 200000;
+      cf.cols = 3;
+      cf.categorical_fraction = 0;
+      cf.integer_fraction = 0;
+      cf.binary_fraction = 0;
+      cf.time_fraction = 0;
+      cf.string_fraction = 0;
+      cf.missing_fraction = 0.01;
+      cf.real_range = 100;
+      cf.seed = 1234;
+      big = cf.execImpl().get();
+      double[][] exact = quantiles(big, false, null), sketch = quantiles(big, true, null);
+      for( int c=0; c<exact.length; c++ )
+        for( int p=0; p<exact[c].length; p++ )
+          Assert.assertEquals(exact[c][p], sketch[c][p], 2 * 1e-3 * 200);
+    } finally {
+      if( small != null ) small.remove();
+      if( big   != null ) big.delete();
+    }
+  }
+
+  @Test public void testSketchBuffer() {
+    // Grows with the values added, never past the rows of a chunk
+    QuantileSketch qs = new QuantileSketch(1e-4, 100);
+    for( int i=0; i<100; i++ ) qs.add(i, 1);
+    Assert.assertEquals(100, qs.bufferLength());
+    qs = new QuantileSketch(1e-4);
+    Assert.assertTrue(qs.bufferLength() <= 16);
+    for( int i=0; i<1000; i++ ) qs.add(i, 1);
+    Assert.assertTrue(qs.bufferLength() < 2048);
+    Assert.assertTrue(qs.isExact());
+    Assert.assertEquals(499.5, qs.quantile(0.5, QuantileModel.CombineMethod.INTERPOLATE), 0);
+    // Errors below the floor are rejected
+    try {
+      new QuantileSketch(1e-6, 100);
+      Assert.fail("Expected the error bound to be rejected");
+    } catch( IllegalArgumentException e ) {
+      // Expected
+    }
+  }
 }
@@ -6,6 +6,7 @@ import hex.ModelMetricsBinomial;
 import hex.ModelMetricsRegression;
 import hex.SplitFrame;
 import hex.tree.SharedTreeModel;
+import hex.CreateFrame;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Ignore;
@@ -1593,4 +1594,124 @@ public class DRFTest extends TestUtil {
       Scope.exit();
     }
   }
+  // Runtime-compiled trees must score like the in-H2O model
+  @Test public void testCompiledScoring() {
+    for (int nresp : new int[]{1, 2, 3}) {
+      Frame train = null, preds = null;
+      DRFModel drf = null;
+      try {
+        train = randomFrame(2000, 10, 50, nresp, 1234);
+
+        DRFModel.DRFParameters parms = new DRFModel.DRFParameters();
+        parms._train = train._key;
+        parms._response_column = "response";
+        parms._ntrees = 5;
+        parms._max_depth = 15;
+        parms._seed = 42;
+        drf = new DRF(parms).trainModel().get();
+
+        preds = drf.score(train);
+        Assert.assertTrue(drf.testCompiledScoring(train, preds, 1e-15));
+      } finally {
+        if (train != null) train.remove();
+        if (preds != null) preds.remove();
+        if (drf != null) drf.delete();
+      }
+    }
+  }
+
+  // Early-exit binomial labels must agree with full scoring
+  @Test public void testScoreLabel() {
+    Frame train = null, preds = null;
+    DRFModel drf = null;
+    try {
+      CreateFrame cf = new CreateFrame();
+      cf.rows = 2000;
+      cf.cols = 10;
+      cf.categorical_fraction = 0.3;
+      cf.integer_fraction = 0.2;
+      cf.binary_fraction = 0.0;
+      cf.time_fraction = 0.0;
+      cf.string_fraction = 0.0;
+      cf.missing_fraction = 0.1;
+      cf.factors = 20;
+      cf.response_factors = 2;
+      cf.has_response = true;
+      cf.seed = 2345;
+      train = cf.execImpl().get();
+
+      DRFModel.DRFParameters parms = new DRFModel.DRFParameters();
+      parms._train = train._key;
+      parms._response_column = "response";
+      parms._ntrees = 30;
+      parms._max_depth = 8;
+      parms._seed = 42;
+      drf = new DRF(parms).trainModel().get();
+
+      preds = drf.score(train);
+      String[] names = drf._output._names;
+      double[] data = new double[drf._output.nfeatures()];
+      for (long r = 0; r < train.numRows(); r++) {
+        for (int i = 0; i < data.length; i++)
+          data[i] = train.vec(names[i]).at(r);
+        Assert.assertEquals("row " + r, (int) preds.vec(0).at8(r), drf.scoreLabel(data, 0));
+      }
+      Assert.assertTrue(drf.testJavaScoring(train, preds, 1e-15));
+    } finally {
+      if (train != null) train.remove();
+      if (preds != null) preds.remove();
+      if (drf != null) drf.delete();
+    }
+  }
+
+  // Feature contributions plus bias must add up to the prediction
+  @Test public void testScoreContributions() {
+    for (int nresp : new int[]{1, 2}) {
+      Frame train = null, preds = null;
+      DRFModel drf = null;
+      try {
+        CreateFrame cf = new CreateFrame();
+        cf.rows = 1000;
+        cf.cols = 8;
+        cf.categorical_fraction = 0.3;
+        cf.integer_fraction = 0.2;
+        cf.binary_fraction = 0.0;
+        cf.time_fraction = 0.0;
+        cf.string_fraction = 0.0;
+        cf.missing_fraction = 0.1;
+        cf.factors = 10;
+        cf.response_factors = nresp;
+        cf.has_response = true;
+        cf.seed = 3456;
+        train = cf.execImpl().get();
+
+        DRFModel.DRFParameters parms = new DRFModel.DRFParameters();
+        parms._train = train._key;
+        parms._response_column = "response";
+        parms._ntrees = 10;
+        parms._max_depth = 8;
+        parms._seed = 42;
+        drf = new DRF(parms).trainModel().get();
+
+        preds = drf.score(train);
+        String[] names = drf._output._names;
+        double[] data = new double[drf._output.nfeatures()];
+        double[] contribs = new double[data.length + 1];
+        for (long r = 0; r < train.numRows(); r++) {
+          for (int i = 0; i < data.length; i++)
+            data[i] = train.vec(names[i]).at(r);
+          drf.scoreContributions(data, contribs);
+          double f = 0;
+          for (double c : contribs) f += c;
+          double p = nresp == 1 ? preds.vec(0).at(r) : preds.vec(2).at(r);
+          Assert.assertEquals("row " + r, p, f, 1e-5);
+        }
+      } finally {
+        if (train != null) train.remove();
+        if (preds != null) preds.remove();
+        if (drf != null) drf.delete();
+      }
+    }
+  }
+
 }
@@ -1,6 +1,7 @@
 package hex.tree.gbm;
 
 import hex.*;
+import hex.genmodel.GenModel;
 import hex.tree.SharedTreeModel;
 import org.junit.Assert;
 import org.junit.BeforeClass;
@@ -2627,4 +2628,183 @@ public class GBMTest extends TestUtil {
     }
   }
 
+  // Block scoring in BigScore must match the per-row scoring path
+  @Test public void testBlockScoring() {
+    for (int nresp : new int[]{1, 2, 3}) {
+      Frame train = null, preds = null;
+      GBMModel gbm = null;
+      try {
+        CreateFrame cf = new CreateFrame();
+        cf.rows = 3000;   // several scoring blocks per chunk
+        cf.cols = 8;
+        cf.categorical_fraction = 0.25;
+        cf.integer_fraction = 0.25;
+        cf.binary_fraction = 0.0;
+        cf.time_fraction = 0.0;
+        cf.string_fraction = 0.0;
+        cf.missing_fraction = 0.1;
+        cf.factors = 5;
+        cf.response_factors = nresp;
+        cf.has_response = true;
+        cf.seed = 1234;
+        train = cf.execImpl().get();
+
+        GBMModel.GBMParameters parms = new GBMModel.GBMParameters();
+        parms._train = train._key;
+        parms._response_column = "response";
+        parms._ntrees = 10;
+        parms._max_depth = 4;
+        parms._seed = 42;
+        gbm = new GBM(parms).trainModel().get();
+
+        preds = gbm.score(train);
+        Frame adapted = new Frame(train);
+        gbm.adaptTestForTrain(adapted, true, false);
+        double[] tmp = new double[gbm._output.nfeatures()];
+        double[] p = new double[gbm._output.nclasses() + 1];
+        Chunk[] cs = new Chunk[adapted.numCols()];
+        for (long r = 0; r < train.numRows(); r += 7) {
+          for (int c = 0; c < cs.length; c++)
+            cs[c] = adapted.vec(c).chunkForRow(r);
+          gbm.score0(cs, (int) (r - cs[0].start()), tmp, p);   // per-row path
+          for (int c = 0; c < preds.numCols(); c++)
+            assertEquals(p[c], preds.vec(c).at(r), 1e-6);
+        }
+        Assert.assertTrue(gbm.testJavaScoring(train, preds, 1e-15));
+      } finally {
+        if (train != null) train.remove();
+        if (preds != null) preds.remove();
+        if (gbm != null) gbm.delete();
+      }
+    }
+  }
+
+  // Runtime-compiled trees must score like the in-H2O model
+  @Test public void testCompiledScoring() {
+    for (int nresp : new int[]{1, 2, 3}) {
+      Frame train = null, preds = null;
+      GBMModel gbm = null;
+      try {
+        train = randomFrame(3000, 10, 100, nresp, 4321); // large bitset splits
+
+        GBMModel.GBMParameters parms = new GBMModel.GBMParameters();
+        parms._train = train._key;
+        parms._response_column = "response";
+        parms._ntrees = 5;
+        parms._max_depth = 12;  // large trees get split across methods
+        parms._min_rows = 1;
+        parms._seed = 42;
+        gbm = new GBM(parms).trainModel().get();
+
+        preds = gbm.score(train);
+        Assert.assertTrue(gbm.testCompiledScoring(train, preds, 1e-15));
+      } finally {
+        if (train != null) train.remove();
+        if (preds != null) preds.remove();
+        if (gbm != null) gbm.delete();
+      }
+    }
+  }
+
+  // Early-exit binomial labels must agree with full scoring
+  @Test public void testScoreLabel() throws Exception {
+    Frame train = null, preds = null;
+    GBMModel gbm = null;
+    try {
+      CreateFrame cf = new CreateFrame();
+      cf.rows = 2000;
+      cf.cols = 10;
+      cf.categorical_fraction = 0.3;
+      cf.integer_fraction = 0.2;
+      cf.binary_fraction = 0.0;
+      cf.time_fraction = 0.0;
+      cf.string_fraction = 0.0;
+      cf.missing_fraction = 0.1;
+      cf.factors = 20;
+      cf.response_factors = 2;
+      cf.has_response = true;
+      cf.seed = 2345;
+      train = cf.execImpl().get();
+
+      GBMModel.GBMParameters parms = new GBMModel.GBMParameters();
+      parms._train = train._key;
+      parms._response_column = "response";
+      parms._distribution = Distribution.Family.bernoulli;
+      parms._ntrees = 50;
+      parms._max_depth = 5;
+      parms._seed = 42;
+      gbm = new GBM(parms).trainModel().get();
+
+      preds = gbm.score(train);
+      String[] names = gbm._output._names;
+      double[] data = new double[gbm._output.nfeatures()];
+      for (long r = 0; r < train.numRows(); r++) {
+        for (int i = 0; i < data.length; i++)
+          data[i] = train.vec(names[i]).at(r);
+        Assert.assertEquals("row " + r, (int) preds.vec(0).at8(r), gbm.scoreLabel(data, 0));
+      }
+      Assert.assertTrue(gbm.testJavaScoring(train, preds, 1e-15));
+      // The POJO overrides GenModel.scoreLabel with the same early exit
+      GenModel pojo = (GenModel) JCodeGen.compile(JCodeGen.toJavaId(gbm._key.toString()), gbm.toJava(false, true)).newInstance();
+      for (long r = 0; r < train.numRows(); r++) {
+        for (int i = 0; i < data.length; i++)
+          data[i] = train.vec(names[i]).at(r);
+        Assert.assertEquals("row " + r, (int) preds.vec(0).at8(r), pojo.scoreLabel(data));
+      }
+    } finally {
+      if (train != null) train.remove();
+      if (preds != null) preds.remove();
+      if (gbm != null) gbm.delete();
+    }
+  }
+
+  // Feature contributions plus bias must add up to the (link-scale) prediction
+  @Test public void testScoreContributions() {
+    for (int nresp : new int[]{1, 2}) {
+      Frame train = null, preds = null, contribs = null;
+      GBMModel gbm = null;
+      try {
+        CreateFrame cf = new CreateFrame();
+        cf.rows = 1000;
+        cf.cols = 8;
+        cf.categorical_fraction = 0.3;
+        cf.integer_fraction = 0.2;
+        cf.binary_fraction = 0.0;
+        cf.time_fraction = 0.0;
+        cf.string_fraction = 0.0;
+        cf.missing_fraction = 0.1;
+        cf.factors = 10;
+        cf.response_factors = nresp;
+        cf.has_response = true;
+        cf.seed = 3456;
+        train = cf.execImpl().get();
+
+        GBMModel.GBMParameters parms = new GBMModel.GBMParameters();
+        parms._train = train._key;
+        parms._response_column = "response";
+        parms._distribution = nresp == 1 ? gaussian : Distribution.Family.bernoulli;
+        parms._ntrees = 10;
+        parms._max_depth = 5;
+        parms._seed = 42;
+        gbm = new GBM(parms).trainModel().get();
+
+        preds = gbm.score(train);
+        contribs = gbm.scoreContributions(train, Key.<Frame>make());
+        Assert.assertEquals(gbm._output.nfeatures() + 1, contribs.numCols());
+        Assert.assertEquals(train.numRows(), contribs.numRows());
+        for (long r = 0; r < train.numRows(); r++) {
+          double f = 0;
+          for (int i = 0; i < contribs.numCols(); i++) f += contribs.vec(i).at(r);
+          double p = nresp == 1 ? preds.vec(0).at(r) : preds.vec(2).at(r);
+          Assert.assertEquals("row " + r, p, nresp == 1 ? f : 1 / (1 + Math.exp(-f)), 1e-5);
+        }
+      } finally {
+        if (train != null) train.remove();
+        if (preds != null) preds.remove();
+        if (contribs != null) contribs.remove();
+        if (gbm != null) gbm.delete();
+      }
+    }
+  }
+
 }
@@ -0,0 +1,37 @@
+package hex;
+
+import hex.genmodel.GenModel;
+
+import java.util.Arrays;
+
+/**
+ * In-JVM scorer for a {@link Model} whose hot scoring path was compiled
+ * straight to JVM bytecode at runtime (see {@link water.codegen.ByteCodeGen}).
+ *
+ * It gives POJO-like scoring speed without generating, shipping or compiling
+ * Java source, and is a regular {@link GenModel}, so it can be used with the
+ * EasyPredict API.  Obtained from {@link Model#compile()}.
+ */
+public abstract class CompiledModel<M extends Model> extends GenModel {
+  protected final M _model;
+
+  protected CompiledModel(M model) {
+    super(Arrays.copyOf(model._output._names, model._output.nfeatures()), model._output._domains); // Same as the POJO NAMES
+    _model = model;
+  }
+
+  @Override public ModelCategory getModelCategory() { return _model._output.getModelCategory(); }
+  @Override public String getUUID() { return Long.toString(_model.checksum()); }
+  @Override public boolean isSupervised() { return _model._output.isSupervised(); }
+  @Override public int nfeatures() { return _model._output.nfeatures(); }
+  @Override public int nclasses() { return _model._output.isSupervised() ? _model._output.nclasses() : 0; }
+
+  /** Same contract as {@link Model#score0(double[], double[])}, including
+   *  the probability correction and label assignment of classifiers. */
+  @Override public final double[] score0(double[] data, double[] preds) {
+    return _model.postProcessPreds(scoreRaw(data, preds), data);
+  }
+
+  /** Compiled part of the scoring; fills in the raw model predictions. */
+  protected abstract double[] scoreRaw(double[] data, double[] preds);
+}
@@ -48,6 +48,10 @@ public abstract class Model<M extends Model<M,P,O>, P extends Model.Parameters,
     Frame scoreLeafNodeAssignment(Frame frame, Key destination_key);
   }
 
+  public interface Contributions {
+    Frame scoreContributions(Frame frame, Key destination_key);
+  }
+
   public interface ExemplarMembers {
     Frame scoreExemplarMembers(Key destination_key, int exemplarIdx);
   }
@@ -1012,31 +1016,42 @@ public abstract class Model<M extends Model<M,P,O>, P extends Model.Parameters,
         } else
           actual = new float[chks.length];
       }
-      double[] preds = _mb._work;  // Sized for the union of test and train classes
       int len = chks[0]._len;
-      for (int row = 0; row < len; row++) {
-        double weight = weightsChunk!=null?weightsChunk.atd(row):1;
-        if (weight == 0) {
+      int blen = Math.min(len, SCORE_BLOCK_ROWS);
+      double[][] preds = new double[blen][_mb._work.length];  // Sized for the union of test and train classes
+      double[] weights = new double[blen];
+      double[] offsets = new double[blen];
+      for (int row0 = 0; row0 < len; row0 += blen) {
+        int nrows = Math.min(blen, len - row0);
+        for (int r = 0; r < nrows; r++) {
+          weights[r] = weightsChunk!=null?weightsChunk.atd(row0 + r):1;
+          offsets[r] = offsetChunk!=null?offsetChunk.atd(row0 + r):0;
+        }
+        double[][] ps = score0(chks, weights, offsets, row0, nrows, tmp, preds);
+        for (int r = 0; r < nrows; r++) {
+          int row = row0 + r;
+          double weight = weights[r];
+          if (weight == 0) {
+            if (_makePreds) {
+              for (int c = 0; c < _npredcols; c++)  // Output predictions; sized for train only (excludes extra test classes)
+                cpreds[c].addNum(0);
+            }
+            continue;
+          }
+          double [] p = ps[r];
+          if (_computeMetrics) {
+            if(isSupervised()) {
+              actual[0] = (float)responseChunk.atd(row);
+            } else {
+              for(int i = 0; i < actual.length; ++i)
+                actual[i] = (float)chks[i].atd(row);
+            }
+            _mb.perRow(p, actual, weight, offsets[r], Model.this);
+          }
           if (_makePreds) {
             for (int c = 0; c < _npredcols; c++)  // Output predictions; sized for train only (excludes extra test classes)
-              cpreds[c].addNum(0);
-          }
-          continue;
-        }
-        double offset = offsetChunk!=null?offsetChunk.atd(row):0;
-        double [] p = score0(chks, weight, offset, row, tmp, preds);
-        if (_computeMetrics) {
-          if(isSupervised()) {
-            actual[0] = (float)responseChunk.atd(row);
-          } else {
-            for(int i = 0; i < actual.length; ++i)
-              actual[i] = (float)chks[i].atd(row);
+              cpreds[c].addNum(p[c]);
           }
-          _mb.perRow(preds, actual, weight, offset, Model.this);
-        }
-        if (_makePreds) {
-          for (int c = 0; c < _npredcols; c++)  // Output predictions; sized for train only (excludes extra test classes)
-            cpreds[c].addNum(p[c]);
         }
       }
       if ( _j != null) _j.update(1);
@@ -1058,7 +1073,33 @@ public abstract class Model<M extends Model<M,P,O>, P extends Model.Parameters,
     assert(_output.nfeatures() == tmp.length);
     for( int i=0; i< tmp.length; i++ )
       tmp[i] = chks[i].atd(row_in_chunk);
-    double [] scored = score0(tmp, preds, weight, offset);
+    return postProcessPreds(score0(tmp, preds, weight, offset), tmp);
+  }
+
+  /** Number of rows handed at once to the block scoring API by {@link BigScore}. */
+  public static final int SCORE_BLOCK_ROWS = 1024;
+
+  /** Bulk scoring API for a block of rows.  Rows {@code row0} to {@code
+   *  row0+nrows-1} of the chunks are scored into {@code preds[0..nrows-1]};
+   *  rows with a zero weight are skipped.  The returned array holds the
+   *  predictions per row of the block.  Default method is a per-row loop over
+   *  {@link #score0(Chunk[], double, double, int, double[], double[])};
+   *  models which can do better on a block of rows (e.g. tree ensembles,
+   *  which walk each tree over the whole block) override it. */
+  public double[][] score0( Chunk chks[], double[] weights, double[] offsets, int row0, int nrows, double[] tmp, double[][] preds ) {
+    for( int r=0; r<nrows; r++ ) {
+      if( weights[r] == 0 ) continue;
+      double[] p = score0(chks, weights[r], offsets[r], row0 + r, tmp, preds[r]);
+      if( p != preds[r] ) System.arraycopy(p, 0, preds[r], 0, Math.min(p.length, preds[r].length));
+    }
+    return preds;
+  }
+
+  /** Final per-row step of scoring: correct probabilities for balanced
+   *  classes and assign the predicted label.  {@code data} is the row in the
+   *  order the model expects, and is only used for tie-breaking of
+   *  multinomial predictions. */
+  protected double[] postProcessPreds( double[] scored, double[] data ) {
     if(isSupervised()) {
       // Correct probabilities obtained from training on oversampled data back to original distribution
       // C.f. http://gking.harvard.edu/files/0s.pdf Eq.(27)
@@ -1066,12 +1107,20 @@ public abstract class Model<M extends Model<M,P,O>, P extends Model.Parameters,
         if (_parms._balance_classes)
           GenModel.correctProbabilities(scored, _output._priorClassDist, _output._modelClassDist);
         //assign label at the very end (after potentially correcting probabilities)
-        scored[0] = hex.genmodel.GenModel.getPrediction(scored, _output._priorClassDist, tmp, defaultThreshold());
+        scored[0] = hex.genmodel.GenModel.getPrediction(scored, _output._priorClassDist, data, defaultThreshold());
       }
     }
     return scored;
   }
 
+  /** Compile the scoring logic of this model straight to JVM bytecode, in
+   *  process: no Java source is generated and no compiler is involved, so a
+   *  long-lived scoring service can get POJO-speed scoring right after
+   *  loading a model.
+   *  @return a scorer equivalent to the in-H2O scoring, or null if this kind
+   *  of model does not support compilation */
+  public CompiledModel compile() { return null; }
+
   /** Subclasses implement the scoring logic.  The data is pre-loaded into a
    *  re-used temp array, in the order the model expects.  The predictions are
    *  loaded into the re-used temp array, which is also returned.  */
@@ -1316,6 +1365,28 @@ public abstract class Model<M extends Model<M,P,O>, P extends Model.Parameters,
   // is well, false is there are any mismatches.  Throws if there is any error
   // (typically an AssertionError or unable to compile the POJO).
   public boolean testJavaScoring( Frame data, Frame model_predictions, double rel_epsilon) {
+    String modelName = JCodeGen.toJavaId(_key.toString());
+    boolean preview = false;
+    String java_text = toJava(preview, true);
+    GenModel genmodel;
+    try {
+      Class clz = JCodeGen.compile(modelName,java_text);
+      genmodel = (GenModel)clz.newInstance();
+    } catch (Exception e) {
+      e.printStackTrace();
+      throw H2O.fail("Internal POJO compilation failed",e);
+    }
+    return testGenModelScoring(genmodel, data, model_predictions, rel_epsilon);
+  }
+
+  // Same as testJavaScoring, but for the runtime-compiled scorer from compile().
+  public boolean testCompiledScoring( Frame data, Frame model_predictions, double rel_epsilon) {
+    GenModel genmodel = compile();
+    if( genmodel == null ) throw H2O.unimpl("Bytecode compilation is not supported for " + getClass().getSimpleName());
+    return testGenModelScoring(genmodel, data, model_predictions, rel_epsilon);
+  }
+
+  private boolean testGenModelScoring( GenModel genmodel, Frame data, Frame model_predictions, double rel_epsilon) {
     assert data.numRows()==model_predictions.numRows();
     final Frame fr = new Frame(data);
     boolean computeMetrics = data.vec(_output.responseName()) != null && !data.vec(_output.responseName()).isBad();
@@ -1336,18 +1407,6 @@ public abstract class Model<M extends Model<M,P,O>, P extends Model.Parameters,
         }
       }
 
-      String modelName = JCodeGen.toJavaId(_key.toString());
-      boolean preview = false;
-      String java_text = toJava(preview, true);
-      GenModel genmodel;
-      try {
-        Class clz = JCodeGen.compile(modelName,java_text);
-        genmodel = (GenModel)clz.newInstance();
-      } catch (Exception e) {
-        e.printStackTrace();
-        throw H2O.fail("Internal POJO compilation failed",e);
-      }
-
       Vec[] dvecs = fr.vecs();
       Vec[] pvecs = model_predictions.vecs();
 
@@ -38,6 +38,8 @@ public class Quantile extends ModelBuilder<QuantileModel,QuantileModel.QuantileP
     for( double p : _parms._probs )
       if( p < 0.0 || p > 1.0 )
         error("_probs","Probabilities must be between 0 and 1");
+    if( _parms._sketch && !(_parms._sketch_error >= QuantileSketch.MIN_EPS && _parms._sketch_error < 1) )
+      error("_sketch_error","Sketch error must be between "+QuantileSketch.MIN_EPS+" and 1");
     _ncols = train().numCols()-numSpecialCols(); //offset/weights/nfold - should only ever be weights
     if ( numSpecialCols() == 1 && _weights == null)
       throw new IllegalArgumentException("The only special Vec that is supported for Quantiles is observation weights.");
@@ -75,6 +77,10 @@ public class Quantile extends ModelBuilder<QuantileModel,QuantileModel.QuantileP
         // ---
         // Run the main Quantile Loop
         Vec vecs[] = train().vecs();
+        if( _parms._sketch ) {
+          sketchQuantiles(model, vecs);
+          return;
+        }
         for( int n=0; n<_ncols; n++ ) {
           if( stop_requested() ) return; // Stopped/cancelled
           Vec vec = vecs[n];
@@ -114,6 +120,47 @@ public class Quantile extends ModelBuilder<QuantileModel,QuantileModel.QuantileP
     }
   }
 
+  // All columns in one pass: a sketch per column, merged in reduce
+  private void sketchQuantiles( QuantileModel model, Vec[] vecs ) {
+    boolean[] skip = new boolean[_ncols];
+    for( int n=0; n<_ncols; n++ )
+      skip[n] = vecs[n].isBad() || vecs[n].isCategorical() || vecs[n].isString() || vecs[n].isTime() || vecs[n].isUUID();
+    Frame fr = new Frame(Arrays.copyOf(vecs, _ncols));
+    if( _weights != null ) fr.add("weights", _weights);
+    QuantileSketch[] sketches = new SketchTask(skip, _parms._sketch_error, _weights != null).doAll(fr)._sketches;
+    model._output._iterations = 1;
+    for( int n=0; n<_ncols; n++ ) {
+      for( int p = 0; p < _parms._probs.length; p++ )
+        model._output._quantiles[n][p] = skip[n] || sketches == null ? Double.NaN : sketches[n].quantile(_parms._probs[p], _parms._combine_method);
+      model.update(_job);
+      _job.update(_parms._probs.length);
+    }
+  }
+
+  private static class SketchTask extends MRTask<SketchTask> {
+    final boolean[] _skip;
+    final double _eps;
+    final boolean _hasWeights;  // Last column holds the weights
+    QuantileSketch[] _sketches;
+    SketchTask( boolean[] skip, double eps, boolean hasWeights ) { _skip = skip; _eps = eps; _hasWeights = hasWeights; }
+    @Override public void map( Chunk[] cs ) {
+      _sketches = new QuantileSketch[_skip.length];
+      Chunk w = _hasWeights ? cs[cs.length-1] : null;
+      for( int c=0; c<_skip.length; c++ ) {
+        if( _skip[c] ) continue;
+        QuantileSketch qs = _sketches[c] = new QuantileSketch(_eps, cs[c]._len);
+        for( int row=0; row<cs[c]._len; row++ )
+          qs.add(cs[c].atd(row), w == null ? 1 : w.atd(row));
+      }
+    }
+    @Override public void reduce( SketchTask t ) {
+      if( _sketches == null ) _sketches = t._sketches;
+      else if( t._sketches != null )
+        for( int c=0; c<_sketches.length; c++ )
+          if( _sketches[c] != null ) _sketches[c].merge(t._sketches[c]);
+    }
+  }
+
   public static class StratifiedQuantilesTask extends H2O.H2OCountedCompleter<StratifiedQuantilesTask> {
     // INPUT
     final double _prob;
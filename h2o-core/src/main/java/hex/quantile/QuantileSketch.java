@@ -0,0 +1,195 @@
+package hex.quantile;
+
+import water.Iced;
+
+import java.util.Arrays;
+
+/**
+ *  Mergeable, weighted quantile sketch with a bounded rank error.
+ *
+ *  <p>Keeps (value, weight) centroids sorted by value.  While there are few
+ *  distinct values every centroid is a single distinct value and quantiles
+ *  are exact, with the same definitions as the exact {@link Quantile} passes.
+ *  Beyond about {@code 2/eps} distinct values, neighbouring centroids are
+ *  merged as long as their weight stays under {@code eps} of the total
+ *  weight, so the rank of any reported quantile is off by at most about
+ *  {@code eps} of the rows.
+ *
+ *  <p>Sketches of disjoint data merge into a sketch of their union, so one
+ *  MRTask pass computes all quantiles of a column.
+ *
+ *  <p>The centroid buffer starts small and grows with the values added, up
+ *  to its {@code 4/eps} bound, so a sketch of a chunk holds no more centroids
+ *  than the chunk has rows.
+ */
+public class QuantileSketch extends Iced {
+  /** Smallest rank error bound; the buffer bound grows as 1/eps */
+  public static final double MIN_EPS = 1e-4;
+  private static final int INIT_CAPACITY = 16;
+  private final double _eps;    // Rank error bound, as a fraction of the total weight
+  private double[] _vals;       // Centroid values; sorted below _nsorted
+  private double[] _wts;        // Centroid weights
+  private int _n;               // Centroids in use
+  private int _nsorted;         // Leading centroids sorted and compressed
+  private double _total;        // Total weight
+  private double _min = Double.POSITIVE_INFINITY, _max = Double.NEGATIVE_INFINITY;
+  private boolean _exact = true; // Every centroid is one distinct value
+
+  public QuantileSketch(double eps) { this(eps, INIT_CAPACITY); }
+
+  /** A sketch of at most about {@code rows} values, such as the rows of a chunk */
+  public QuantileSketch(double eps, int rows) {
+    if( !(eps >= MIN_EPS && eps < 1) ) throw new IllegalArgumentException("Sketch error must be between "+MIN_EPS+" and 1, got "+eps);
+    _eps = eps;
+    int cap = Math.max(1, Math.min(rows, capacity()));
+    _vals = new double[cap];
+    _wts = new double[cap];
+  }
+
+  // Buffered centroids before a compression is forced
+  private int capacity() { return 2*(int)Math.ceil(2/_eps); }
+
+  // Make room for one more centroid: grow the buffer while under its bound,
+  // else compress it
+  private void reserve() {
+    if( _n < _vals.length ) return;
+    if( _vals.length < capacity() ) {
+      int len = (int)Math.min(capacity(), 2L*_vals.length);
+      _vals = Arrays.copyOf(_vals, len);
+      _wts = Arrays.copyOf(_wts, len);
+    } else compress();
+  }
+
+  /** Add a value with a weight; NaN values and non-positive weights are ignored. */
+  public void add( double v, double w ) {
+    if( Double.isNaN(v) || !(w > 0) ) return;
+    reserve();
+    _vals[_n] = v;
+    _wts[_n++] = w;
+    _total += w;
+    if( v < _min ) _min = v;
+    if( v > _max ) _max = v;
+  }
+
+  /** Fold another sketch into this one. */
+  public QuantileSketch merge( QuantileSketch qs ) {
+    for( int i=0; i<qs._n; i++ ) {
+      reserve();
+      _vals[_n] = qs._vals[i];
+      _wts[_n++] = qs._wts[i];
+    }
+    _total += qs._total;
+    _min = Math.min(_min, qs._min);
+    _max = Math.max(_max, qs._max);
+    _exact &= qs._exact;
+    return this;
+  }
+
+  /** @return total weight added */
+  public double total() { return _total; }
+
+  /** @return true while quantiles are exact */
+  public boolean isExact() { compress(); return _exact; }
+
+  // Length of the centroid buffer
+  int bufferLength() { return _vals.length; }
+
+  /** @return number of centroids kept */
+  public int size() { compress(); return _n; }
+
+  /** @return quantile for probability prob, NaN if nothing was added */
+  public double quantile( double prob, QuantileModel.CombineMethod method ) {
+    compress();
+    if( _total == 0 ) return Double.NaN;
+    double p2 = prob*(_total-1);  // Desired fractional row number for this probability
+    if( !_exact ) return interpolate(p2);
+    long r2 = (long)p2;
+    int lo = find(r2);
+    if( r2 == p2 ) return _vals[lo];
+    int hi = find(r2+1);
+    return Quantile.computeQuantile(_vals[lo], _vals[hi], r2, _total, prob, method);
+  }
+
+  // Centroid holding (zero based) row number row, the last one past the end
+  private int find( double row ) {
+    double sum = 0;
+    for( int i=0; i<_n; i++ )
+      if( row < (sum += _wts[i]) )
+        return i;
+    return _n-1;
+  }
+
+  // Value at a fractional row: centroids sit at the middle of their rows,
+  // the extremes at the first and last rows
+  private double interpolate( double row ) {
+    double sum = 0, prevMid = 0, prevVal = _min;
+    for( int i=0; i<_n; i++ ) {
+      double mid = sum + (_wts[i]-1)/2;
+      if( row < mid ) {
+        if( mid == prevMid ) return _vals[i];
+        return prevVal + (_vals[i]-prevVal)*(row-prevMid)/(mid-prevMid);
+      }
+      sum += _wts[i];
+      prevMid = mid;
+      prevVal = _vals[i];
+    }
+    double last = _total-1;
+    if( last <= prevMid ) return _max;
+    return prevVal + (_max-prevVal)*(row-prevMid)/(last-prevMid);
+  }
+
+  // Sort, combine equal values, and merge neighbours while too many centroids
+  private void compress() {
+    if( _nsorted == _n ) return;
+    sort(_vals, _wts, 0, _n-1);
+    int j = 0;
+    for( int i=1; i<_n; i++ )
+      if( _vals[i] == _vals[j] ) _wts[j] += _wts[i];
+      else { j++; _vals[j] = _vals[i]; _wts[j] = _wts[i]; }
+    _n = j+1;
+    if( _n > capacity()/2 ) {
+      _exact = false;
+      double maxw = _eps*_total;
+      j = 0;
+      for( int i=1; i<_n; i++ ) {
+        double w = _wts[j]+_wts[i];
+        if( w <= maxw ) {
+          _vals[j] = (_vals[j]*_wts[j] + _vals[i]*_wts[i])/w;
+          _wts[j] = w;
+        } else { j++; _vals[j] = _vals[i]; _wts[j] = _wts[i]; }
+      }
+      _n = j+1;
+    }
+    _nsorted = _n;
+  }
+
+  // Quicksort of values, carrying the weights along
+  private static void sort( double[] vs, double[] ws, int lo, int hi ) {
+    while( lo < hi ) {
+      if( hi-lo < 16 ) {          // Insertion sort for short ranges
+        for( int i=lo+1; i<=hi; i++ )
+          for( int k=i; k>lo && vs[k-1] > vs[k]; k-- ) swap(vs, ws, k, k-1);
+        return;
+      }
+      double pivot = vs[(lo+hi)>>>1];
+      int i = lo, k = hi;
+      while( i <= k ) {
+        while( vs[i] < pivot ) i++;
+        while( vs[k] > pivot ) k--;
+        if( i <= k ) swap(vs, ws, i++, k--);
+      }
+      if( k-lo < hi-i ) { sort(vs, ws, lo, k); lo = i; } // Recurse on the smaller half
+      else              { sort(vs, ws, i, hi); hi = k; }
+    }
+  }
+
+  private static void swap( double[] vs, double[] ws, int i, int k ) {
+    double v = vs[i]; vs[i] = vs[k]; vs[k] = v;
+    double w = ws[i]; ws[i] = ws[k]; ws[k] = w;
+  }
+
+  @Override public String toString() {
+    compress();
+    return "QuantileSketch(eps="+_eps+", total="+_total+", exact="+_exact+", centroids="+Arrays.toString(Arrays.copyOf(_vals, _n))+")";
+  }
+}
@@ -8,10 +8,12 @@ import water.api.schemas3.ModelParametersSchemaV3;
 public class QuantileV3 extends ModelBuilderSchema<Quantile,QuantileV3,QuantileV3.QuantileParametersV3> {
 
   public static final class QuantileParametersV3 extends ModelParametersSchemaV3<QuantileModel.QuantileParameters, QuantileParametersV3> {
-    static public String[] own_fields = new String[] {"probs", "combine_method", "weights_column"};
+    static public String[] own_fields = new String[] {"probs", "combine_method", "weights_column", "sketch", "sketch_error"};
 
     // Input fields
     @API(help="Probabilities for quantiles")  public double probs[];
     @API(help="How to combine quantiles for even sample sizes", values={"INTERPOLATE", "AVG", "LO", "HI"}) public QuantileModel.CombineMethod combine_method;
+    @API(help="Compute all columns in a single pass with a mergeable sketch instead of exact refinement passes") public boolean sketch;
+    @API(help="Rank error bound of the sketch, as a fraction of the rows") public double sketch_error;
   } // QuantileParametersV2
 }
@@ -77,7 +77,8 @@ abstract public class MemoryManager {
     // NO LOGGING UNDER LOCK!
     Log.warn("Pausing to swap to disk; more memory may help");
   }
-  static boolean canAlloc() { return CAN_ALLOC; }
+  /** @return false while memory is critical and allocations are blocked */
+  public static boolean canAlloc() { return CAN_ALLOC; }
 
   static void set_goals( String msg, boolean oom){
     set_goals(msg, oom, 0);
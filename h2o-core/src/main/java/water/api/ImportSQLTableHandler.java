@@ -15,7 +15,8 @@ public class ImportSQLTableHandler extends Handler {
   @SuppressWarnings("unused") // called through reflection by RequestServer
   public JobV3 importSQLTable(int version, ImportSQLTableV99 importSqlTable) {
      Job j = SQLManager.importSqlTable(importSqlTable.connection_url, importSqlTable.table, importSqlTable.select_query, 
-             importSqlTable.username, importSqlTable.password, importSqlTable.columns, importSqlTable.optimize);
+             importSqlTable.username, importSqlTable.password, importSqlTable.columns, importSqlTable.optimize,
+             importSqlTable.partition_column, importSqlTable.max_connections, importSqlTable.snapshot);
     return new JobV3().fillFromImpl(j);
     
   }
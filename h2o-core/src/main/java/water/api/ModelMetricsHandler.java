@@ -22,6 +22,7 @@ class ModelMetricsHandler extends Handler {
     public boolean _project_archetypes;
     public boolean _reverse_transform;
     public boolean _leaf_node_assignment;
+    public boolean _predict_contributions;
     public int _exemplar_index = -1;
 
     // Fetch all metrics that match model and/or frame
@@ -106,6 +107,9 @@ class ModelMetricsHandler extends Handler {
     @API(help = "Return the leaf node assignment (optional, only for DRF/GBM models)", json = false, required = false)
     public boolean leaf_node_assignment;
 
+    @API(help = "Return the per-feature contributions to the prediction, plus a BiasTerm column (optional, only for DRF/GBM models)", json = false, required = false)
+    public boolean predict_contributions;
+
     @API(help = "Retrieve all members for a given exemplar (optional, only for Aggregator models)", json = false, required = false)
     public int exemplar_index;
 
@@ -125,6 +129,7 @@ class ModelMetricsHandler extends Handler {
       mml._project_archetypes = this.project_archetypes;
       mml._reverse_transform = this.reverse_transform;
       mml._leaf_node_assignment = this.leaf_node_assignment;
+      mml._predict_contributions = this.predict_contributions;
       mml._exemplar_index = this.exemplar_index;
 
       if (null != model_metrics) {
@@ -150,6 +155,7 @@ class ModelMetricsHandler extends Handler {
       this.project_archetypes = mml._project_archetypes;
       this.reverse_transform = mml._reverse_transform;
       this.leaf_node_assignment = mml._leaf_node_assignment;
+      this.predict_contributions = mml._predict_contributions;
       this.exemplar_index = mml._exemplar_index;
 
       if (null != mml._model_metrics) {
@@ -358,7 +364,7 @@ class ModelMetricsHandler extends Handler {
 
     Frame predictions;
     if (!s.reconstruction_error && !s.reconstruction_error_per_feature && s.deep_features_hidden_layer < 0 &&
-        !s.project_archetypes && !s.reconstruct_train && !s.leaf_node_assignment && s.exemplar_index < 0) {
+        !s.project_archetypes && !s.reconstruct_train && !s.leaf_node_assignment && !s.predict_contributions && s.exemplar_index < 0) {
       if (null == parms._predictions_name)
         parms._predictions_name = "predictions" + Key.make().toString().substring(0,5) + "_" + parms._model._key.toString() + "_on_" + parms._frame._key.toString();
       predictions = parms._model.score(parms._frame, parms._predictions_name);
@@ -395,6 +401,12 @@ class ModelMetricsHandler extends Handler {
         if (null == parms._predictions_name)
           parms._predictions_name = "leaf_node_assignment" + Key.make().toString().substring(0, 5) + "_" + parms._model._key.toString() + "_on_" + parms._frame._key.toString();
         predictions = ((Model.LeafNodeAssignment) parms._model).scoreLeafNodeAssignment(parms._frame, Key.make(parms._predictions_name));
+      } else if(s.predict_contributions) {
+        if (!Model.Contributions.class.isAssignableFrom(parms._model.getClass()))
+          throw new H2OIllegalArgumentException("Feature contributions require a DRF or GBM model.", "Model must implement Model.Contributions.");
+        if (null == parms._predictions_name)
+          parms._predictions_name = "contributions" + Key.make().toString().substring(0, 5) + "_" + parms._model._key.toString() + "_on_" + parms._frame._key.toString();
+        predictions = ((Model.Contributions) parms._model).scoreContributions(parms._frame, Key.make(parms._predictions_name));
       } else if(s.exemplar_index >= 0) {
         assert(Model.ExemplarMembers.class.isAssignableFrom(parms._model.getClass()));
         if (null == parms._predictions_name)
@@ -412,7 +424,7 @@ class ModelMetricsHandler extends Handler {
       mm = new ModelMetricsListSchemaV3();
 
     mm.predictions_frame = new KeyV3.FrameKeyV3(predictions._key);
-    if (parms._leaf_node_assignment) //don't show metrics in leaf node assignments are made
+    if (parms._leaf_node_assignment || parms._predict_contributions) //don't show metrics in leaf node assignments or contributions are made
       mm.model_metrics = null;
 
     if (null == mm.model_metrics || 0 == mm.model_metrics.length) {
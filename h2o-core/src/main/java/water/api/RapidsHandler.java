@@ -8,6 +8,7 @@ import water.api.schemas3.RapidsHelpV3.RapidsExpressionV3;
 import water.exceptions.H2OIllegalArgumentException;
 import water.rapids.ast.AstRoot;
 import water.rapids.Rapids;
+import water.rapids.ResultCache;
 import water.rapids.Session;
 import water.rapids.Val;
 import water.util.Log;
@@ -29,7 +30,7 @@ public class RapidsHandler extends Handler {
 
     Session ses = RapidsHandler.SESSIONS.get(rapids.session_id);
     if (ses == null) {
-      ses = new Session();
+      ses = new Session().setCache(!NO_CACHE);
       RapidsHandler.SESSIONS.put(rapids.session_id, ses);
     }
 
@@ -58,6 +59,26 @@ public class RapidsHandler extends Handler {
     }
   }
 
+  // Sessions cache the results of repeated expressions unless turned off
+  private static final boolean NO_CACHE = Boolean.getBoolean(H2O.OptArgs.SYSTEM_PROP_PREFIX + "rapids.nocache");
+
+  @SuppressWarnings("unused") // called through reflection by RequestServer
+  public RapidsCacheV3 cacheStats(int version, RapidsCacheV3 stats) {
+    Session ses = SESSIONS.get(StringUtils.isNullOrEmpty(stats.session_id) ? "_specialSess" : stats.session_id);
+    ResultCache cache = ses == null ? null : ses.cache();
+    if (cache != null) {
+      synchronized (cache) {
+        if (stats.clear) cache.clear();
+        stats.hits = cache.hits();
+        stats.misses = cache.misses();
+        stats.evictions = cache.evictions();
+        stats.entries = cache.size();
+        stats.bytes = cache.bytes();
+      }
+    }
+    return stats;
+  }
+
   public RapidsHelpV3 genHelp(int version, SchemaV3 noschema) {
     Reflections reflections = new Reflections("water.rapids");
     RapidsHelpV3 res = new RapidsHelpV3();
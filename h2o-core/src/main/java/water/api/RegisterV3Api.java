@@ -409,6 +409,10 @@ public class RegisterV3Api extends AbstractRegister {
         "Example of an experimental endpoint.  Call via /EXPERIMENTAL/Sample.  Experimental endpoints can change at " +
         "any moment.");
 
+    RequestServer.registerEndpoint("rapidsCache",
+        "GET /99/Rapids/cache", RapidsHandler.class, "cacheStats",
+        "Hit and miss statistics of the Rapids result cache of a session.");
+
     RequestServer.registerEndpoint("rapids_help",
         "GET /99/Rapids/help", RapidsHandler.class, "genHelp",
         "Produce help for Rapids AstRoot language.");
@@ -27,5 +27,14 @@ public class ImportSQLTableV99 extends SchemaV3<Iced,ImportSQLTableV99> {
 
   @API(help = "optimize")
   public boolean optimize = true;
+
+  @API(help = "Integral column to read the table by key ranges; defaults to a single integral primary key")
+  public String partition_column = "";
+
+  @API(help = "Maximum number of database connections, over all nodes; at least the cloud size, one per node")
+  public int max_connections = 100;
+
+  @API(help = "Import a copy of the table made by a single statement, consistent if the table is being updated")
+  public boolean snapshot = false;
   
 }
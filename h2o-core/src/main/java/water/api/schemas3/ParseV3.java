@@ -44,6 +44,18 @@ public class ParseV3 extends SchemaV3<Iced, ParseV3> {
   @API(help="Size of individual parse tasks", direction=API.Direction.INPUT)
   public int chunk_size;
 
+  @API(help="Indices of the columns to leave out of the parsed frame", direction=API.Direction.INPUT)
+  public int[] skipped_columns;
+
+  @API(help="Fraction of the rows to keep, as a sample drawn while parsing", direction=API.Direction.INPUT)
+  public double sample_rate = 1;
+
+  @API(help="Seed of the row sample, -1 for a random one", direction=API.Direction.INPUT)
+  public long sample_seed = -1;
+
+  @API(help="Index of a column whose levels are each sampled at sample_rate, -1 for a Bernoulli sample", direction=API.Direction.INPUT)
+  public int sample_strata_column = -1;
+
   @API(help="Delete input key after parse")
   public boolean delete_on_done;
 
@@ -0,0 +1,27 @@
+package water.api.schemas3;
+
+import water.Iced;
+import water.api.API;
+
+public class RapidsCacheV3 extends SchemaV3<Iced, RapidsCacheV3> {
+  @API(help="Session ID", direction=API.Direction.INPUT)
+  public String session_id;
+
+  @API(help="Drop all cached results", direction=API.Direction.INPUT)
+  public boolean clear;
+
+  @API(help="Expressions answered from the cache", direction=API.Direction.OUTPUT)
+  public long hits;
+
+  @API(help="Cacheable expressions computed", direction=API.Direction.OUTPUT)
+  public long misses;
+
+  @API(help="Results dropped from the cache", direction=API.Direction.OUTPUT)
+  public long evictions;
+
+  @API(help="Results currently cached", direction=API.Direction.OUTPUT)
+  public int entries;
+
+  @API(help="Estimated size of the cached results", direction=API.Direction.OUTPUT)
+  public long bytes;
+}
@@ -0,0 +1,148 @@
+package water.codegen;
+
+import javassist.bytecode.*;
+import water.H2O;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Emits JVM classes straight from bytecode at runtime, without a Java source
+ * and javac round trip (the in-process counterpart of the POJO code
+ * generators).
+ *
+ * A generator holds a group of classes which are loaded together by a private
+ * class loader, so generated code can call static methods of any other class
+ * in the group; that is how code too big for one method or one constant pool
+ * gets split.  Classes are written in the Java 5 class file format, which
+ * does not require StackMapTable frames.
+ */
+public class ByteCodeGen {
+  /** Keep generated methods below HotSpot's 8000 byte limit for JIT compilation. */
+  public static final int MAX_METHOD_SIZE = 6000;
+  /** Keep some room in the constant pool for method and field references. */
+  public static final int MAX_CONSTANT_POOL_SIZE = (1 << 16) - 4096;
+
+  private static final AtomicInteger _cnt = new AtomicInteger();
+
+  private final Class _super;
+  private final String _prefix;
+  private final Map<String,ClassFile> _classes = new HashMap<>();
+  private final Map<String,Object> _statics = new HashMap<>(); // "class.field" -> value
+  private final ArrayList<String> _order = new ArrayList<>();
+  private ClassFile _cf;        // Class currently being filled
+
+  /** @param superClass public class with a public no-arg constructor, extended by all generated classes */
+  public ByteCodeGen(Class superClass) {
+    _super = superClass;
+    _prefix = superClass.getName() + "$Gen" + _cnt.getAndIncrement() + "_";
+    newClass();
+  }
+
+  /** Start a new class in the group, it becomes the current class. */
+  public String newClass() {
+    String name = _prefix + _classes.size();
+    ClassFile cf = new ClassFile(false, name, _super.getName());
+    cf.setMajorVersion(ClassFile.JAVA_5);
+    cf.setAccessFlags(AccessFlag.PUBLIC | AccessFlag.FINAL);
+    ConstPool cp = cf.getConstPool();
+    MethodInfo init = new MethodInfo(cp, MethodInfo.nameInit, "()V");
+    Bytecode b = new Bytecode(cp, 1, 1);
+    b.addAload(0);
+    b.addInvokespecial(_super.getName(), MethodInfo.nameInit, "()V");
+    b.addReturn(null);
+    init.setCodeAttribute(b.toCodeAttribute());
+    init.setAccessFlags(AccessFlag.PUBLIC);
+    cf.addMethod2(init);
+    _classes.put(name, cf);
+    _order.add(name);
+    _cf = cf;
+    return name;
+  }
+
+  /** Name of the current class. */
+  public String className() { return _cf.getName(); }
+  /** Name of the first class of the group, the one {@link #newInstance()} instantiates. */
+  public String mainClassName() { return _order.get(0); }
+
+  /** @return true if the constant pool of the given class is about to overflow. */
+  public boolean isFull(String cls) { return _classes.get(cls).getConstPool().getSize() > MAX_CONSTANT_POOL_SIZE; }
+
+  /** Fresh code buffer for a method of the given class. */
+  public Bytecode code(String cls, int maxLocals) { return new Bytecode(_classes.get(cls).getConstPool(), 0, maxLocals); }
+
+  /** Add a public method to the given class.  The code must have been
+   *  created by {@link #code(String, int)} for the same class. */
+  public void addMethod(String cls, String name, String desc, boolean isStatic, Bytecode b) {
+    ClassFile cf = _classes.get(cls);
+    assert b.getConstPool() == cf.getConstPool();
+    MethodInfo mi = new MethodInfo(cf.getConstPool(), name, desc);
+    mi.setCodeAttribute(b.toCodeAttribute());
+    mi.setAccessFlags(AccessFlag.PUBLIC | (isStatic ? AccessFlag.STATIC : 0));
+    cf.addMethod2(mi);
+  }
+
+  /** Add a public static field to the given class, set to {@code value} when the class is loaded. */
+  public void addStaticField(String cls, String name, String desc, Object value) {
+    ClassFile cf = _classes.get(cls);
+    FieldInfo fi = new FieldInfo(cf.getConstPool(), name, desc);
+    fi.setAccessFlags(AccessFlag.PUBLIC | AccessFlag.STATIC);
+    cf.addField2(fi);
+    _statics.put(cls + "." + name, value);
+  }
+
+  /** Load all classes of the group and return an instance of the first one. */
+  public <T> T newInstance() {
+    try {
+      Loader loader = new Loader(_super.getClassLoader());
+      for( String name : _order ) {
+        Class c = loader.loadClass(name);
+        for( FieldInfo fi : (java.util.List<FieldInfo>)_classes.get(name).getFields() )
+          c.getField(fi.getName()).set(null, _statics.get(name + "." + fi.getName()));
+      }
+      return (T)loader.loadClass(mainClassName()).newInstance();
+    } catch( ReflectiveOperationException e ) {
+      throw H2O.fail("Cannot load generated class", e);
+    }
+  }
+
+  // -----------------------------------------------------------------------
+  // Small emitters
+
+  /** Emit a forward branch with a to-be-patched offset; returns its pc. */
+  public static int branch(Bytecode b, int opcode) {
+    int pc = b.currentPc();
+    b.addOpcode(opcode);
+    b.addIndex(0);
+    return pc;
+  }
+
+  /** Point the branch emitted at {@code pc} to the current position. */
+  public static void patch(Bytecode b, int pc) {
+    int off = b.currentPc() - pc;
+    assert off <= Short.MAX_VALUE : "branch offset too large: " + off;
+    b.write16bit(pc + 1, off);
+  }
+
+  // Defines the classes of one group on demand, so they can reference each other
+  private class Loader extends ClassLoader {
+    Loader(ClassLoader parent) { super(parent); }
+    @Override protected Class<?> findClass(String name) throws ClassNotFoundException {
+      ClassFile cf = _classes.get(name);
+      if( cf == null ) throw new ClassNotFoundException(name);
+      try {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        cf.write(new DataOutputStream(bos));
+        byte[] bits = bos.toByteArray();
+        return defineClass(name, bits, 0, bits.length);
+      } catch( IOException e ) {
+        throw new ClassNotFoundException(name, e);
+      }
+    }
+  }
+}
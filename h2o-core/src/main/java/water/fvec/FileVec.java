@@ -229,4 +229,69 @@ public abstract class FileVec extends ByteVec {
       return (int)chunkSize;
     }
   }
+
+  /** Shortest parse task worth scheduling, in nanoseconds */
+  static final long MIN_PARSE_TASK_NANOS = 10000000;
+  /** Smallest compressed column chunk worth its per-chunk overhead */
+  static final int MIN_COL_CHUNK_BYTES = 1<<13;
+  /** Most chunk keys per node, as in the static heuristic */
+  static final int MAX_CHUNK_KEYS_PER_NODE = 1<<21;
+
+  /**
+   * Feedback-driven chunk size, from a sample parsed with the real parser.
+   * The static heuristic only sees the file size and column count; here the
+   * sample tells how fast the data parses and how well it compresses, so a
+   * chunk can be sized by what it costs rather than by its byte count:
+   * <ul>
+   * <li>large enough that each parse task runs for {@code MIN_PARSE_TASK_NANOS},
+   * <li>large enough that each compressed column chunk holds
+   *     {@code MIN_COL_CHUNK_BYTES}, which bounds the per-chunk overhead of
+   *     very wide files, and under {@code MAX_CHUNK_KEYS_PER_NODE} chunks,
+   * <li>otherwise small enough for 4 waves of tasks over all cores, so
+   *     narrow files still get their parallelism,
+   * <li>and with compressed column chunks well below the Value size limit.
+   * </ul>
+   *
+   * @param sampleBytes - bytes of the parsed sample
+   * @param sampleRows - rows parsed from the sample
+   * @param sampleNanos - time to parse and compress the sample
+   * @param sampleCompressedBytes - size of the compressed chunks of all columns
+   * @param heuristic - the static heuristic's choice, used for tiny files
+   * @return - chunk size in bytes
+   */
+  public static int calcAdaptiveChunkSize(long totalSize, int numCols, long maxLineLength, int cores, int cloudsize,
+                                          long sampleBytes, long sampleRows, long sampleNanos,
+                                          long sampleCompressedBytes, int heuristic) {
+    if (totalSize <= 1<<16 || sampleBytes <= 0 || sampleRows <= 0 || numCols <= 0)
+      return heuristic;
+    int minParseChunkSize = 1<<12;
+    int maxParseChunkSize = Value.MAX-1;
+    double bytesPerRow = (double) sampleBytes / sampleRows;
+    double nanosPerByte = (double) Math.max(1, sampleNanos) / sampleBytes;
+    double compressedPerValue = Math.max(1e-3, (double) sampleCompressedBytes / sampleRows / numCols);
+    // Lower bounds: per-task time, per-column chunk size, chunk count per node
+    double forTime = MIN_PARSE_TASK_NANOS / nanosPerByte;
+    double forColChunk = MIN_COL_CHUNK_BYTES / compressedPerValue * bytesPerRow;
+    double forKeys = (double) totalSize * numCols / ((double) cloudsize * MAX_CHUNK_KEYS_PER_NODE);
+    double lower = Math.max(Math.max(forTime, forColChunk), Math.max(forKeys, 10 * maxLineLength));
+    // Preferred: 4 waves of parse tasks on every core
+    double parallel = (double) totalSize / (4.0 * cores * cloudsize);
+    // Upper bound: keep well inside a Value even for columns compressing worse than the average
+    double upper = Math.max(Value.MAX / 4 / compressedPerValue * bytesPerRow, 10 * maxLineLength);
+    long chunkSize = (long) Math.min(Math.max(parallel, lower), upper);
+    if (chunkSize > 1024*1024)
+      chunkSize &= ~511L;       // align chunk size to 512B
+    chunkSize = Math.max(minParseChunkSize, Math.min(maxParseChunkSize, chunkSize));
+    Log.info("ParseSetup adaptive chunk size: "
+        + "sampled " + sampleBytes + " bytes, " + sampleRows + " rows in " + (sampleNanos / 1000000) + "ms"
+        + ", compressed bytes/value: " + (float) compressedPerValue
+        + ", lower bounds (time/column chunk/keys): " + (long) forTime + "/" + (long) forColChunk + "/" + (long) forKeys
+        + ", parallel target: " + (long) parallel
+        + ", upper bound: " + (long) upper
+        + ", rowsPerChunk: " + (long) (chunkSize / bytesPerRow)
+        + ", chunkSize: " + chunkSize
+        + " (heuristic: " + heuristic + ")"
+        + ", numChunks: " + Math.max(1, totalSize / chunkSize));
+    return (int) chunkSize;
+  }
 }
@@ -0,0 +1,152 @@
+package water.fvec;
+
+import water.*;
+import water.exceptions.H2OIllegalArgumentException;
+import water.parser.Categorical;
+import water.util.Log;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Appends the rows of one Frame to another in place.
+ * <p/>
+ * The chunks of the source move onto the end of the destination's Vecs: the
+ * Vecs keep their keys and get a longer row layout, the existing chunks are
+ * neither copied nor rewritten, and rollups already computed are extended
+ * with the new chunks only.  Categorical domains grow by the new levels,
+ * appended after the old ones so existing codes stay valid; only the source
+ * chunks are recoded.  Frames sharing the destination's Vecs see the new rows
+ * too.
+ */
+public final class FrameAppender {
+  private FrameAppender() {}
+
+  /**
+   * Move the rows of {@code src} to the end of {@code dst}, column by column,
+   * and delete what remains of {@code src}.
+   *
+   * @return the grown destination Frame
+   */
+  public static Frame append(Frame dst, Frame src, Key<Job> jobKey) {
+    if (dst.numCols() != src.numCols())
+      throw new H2OIllegalArgumentException("Cannot append " + src.numCols() + " columns to a frame of " + dst.numCols() + " columns");
+    Vec[] dvecs = dst.vecs(), svecs = src.vecs();
+    String[][] domains = new String[dvecs.length][];
+    byte[] types = new byte[dvecs.length];
+    int[][] maps = new int[dvecs.length][];
+    for (int i = 0; i < dvecs.length; i++) {
+      Vec dv = dvecs[i], sv = svecs[i];
+      if (dv.getClass() != Vec.class || sv.getClass() != Vec.class)
+        throw new H2OIllegalArgumentException("Cannot append to column " + dst.name(i) + " of " + dv.getClass().getSimpleName());
+      domains[i] = dv.domain();
+      types[i] = dv.get_type();
+      if (sv.isBad()) continue; // All missing, fits any type
+      if (dv.get_type() == Vec.T_BAD) { // Nothing yet, take the new type
+        domains[i] = sv.domain();
+        types[i] = sv.get_type();
+        continue;
+      }
+      if (sv.get_type() != dv.get_type())
+        throw new H2OIllegalArgumentException("Cannot append a column of type " + sv.get_type_str() + " to column " +
+            dst.name(i) + " of type " + dv.get_type_str());
+      if (dv.isCategorical()) {
+        maps[i] = extendDomain(dv.domain(), sv.domain(), domains, i);
+        if (domains[i].length > Categorical.MAX_CATEGORICAL_COUNT)
+          throw new H2OIllegalArgumentException("Exceeded categorical limit on column " + dst.name(i));
+      }
+    }
+    dst.write_lock(jobKey);
+    try {
+      // Recode the new chunks to the extended domains
+      boolean recode = false;
+      for (int[] map : maps) recode |= map != null;
+      if (recode) new Recode(maps).doAll(src);
+      // Extend the row layout
+      long[] despc = dvecs[0].espc(), sespc = svecs[0].espc();
+      int n0 = despc.length - 1;
+      long len0 = despc[n0];
+      long[] espc = Arrays.copyOf(despc, n0 + sespc.length);
+      for (int j = 1; j < sespc.length; j++) espc[n0 + j] = len0 + sespc[j];
+      int rowLayout = Vec.ESPC.rowLayout(dvecs[0]._key, espc);
+      Key[] dkeys = new Key[dvecs.length];
+      for (int i = 0; i < dkeys.length; i++) dkeys[i] = dvecs[i]._key;
+      new Move(dkeys, n0).doAll(src);
+      // New headers under the old keys, then their rollups
+      Futures fs = new Futures();
+      Vec[] vecs = new Vec[dvecs.length];
+      for (int i = 0; i < vecs.length; i++) {
+        vecs[i] = new Vec(dkeys[i], rowLayout, domains[i], types[i]);
+        DKV.put(vecs[i], fs);
+      }
+      fs.blockForPending();
+      for (Vec v : vecs) RollupStats.append(v, len0, n0);
+      for (Vec v : svecs) {     // The chunks are gone already
+        DKV.remove(v.rollupStatsKey(), fs);
+        DKV.remove(v._key, fs);
+      }
+      DKV.remove(src._key, fs);
+      fs.blockForPending();
+      Log.info("Appended " + (espc[espc.length - 1] - len0) + " rows in " + (sespc.length - 1) + " chunks to " + dst._key);
+      return new Frame(dst._key, dst.names(), vecs).unlock(jobKey);
+    } catch (RuntimeException e) {
+      dst.unlock(jobKey);
+      throw e;
+    }
+  }
+
+  // The old domain followed by the new levels of the source; the source
+  // codes in it, or null if they are the same
+  private static int[] extendDomain(String[] dom, String[] sdom, String[][] domains, int col) {
+    HashMap<String, Integer> idx = new HashMap<>();
+    for (int i = 0; i < dom.length; i++) idx.put(dom[i], i);
+    String[] res = Arrays.copyOf(dom, dom.length + sdom.length);
+    int n = dom.length;
+    int[] map = new int[sdom.length];
+    boolean same = true;
+    for (int i = 0; i < sdom.length; i++) {
+      Integer j = idx.get(sdom[i]);
+      if (j == null) {
+        res[n] = sdom[i];
+        j = n++;
+      }
+      map[i] = j;
+      same &= j == i;
+    }
+    domains[col] = Arrays.copyOf(res, n);
+    return same ? null : map;
+  }
+
+  private static class Recode extends MRTask<Recode> {
+    private final int[][] _maps;
+    Recode(int[][] maps) { _maps = maps; }
+    @Override public void map(Chunk[] cs) {
+      for (int i = 0; i < cs.length; i++) {
+        int[] map = _maps[i];
+        if (map == null) continue;
+        Chunk c = cs[i];
+        for (int r = 0; r < c._len; r++)
+          if (!c.isNA(r)) c.set(r, map[(int) c.at8(r)]);
+      }
+    }
+  }
+
+  // Put each source chunk under the key of the matching destination chunk
+  private static class Move extends MRTask<Move> {
+    private final Key[] _dkeys;
+    private final int _n0;
+    Move(Key[] dkeys, int n0) { _dkeys = dkeys; _n0 = n0; }
+    @Override public void map(Chunk[] cs) {
+      for (int i = 0; i < cs.length; i++) {
+        Chunk c = cs[i];
+        Key old = c.vec().chunkKey(c.cidx());
+        Key ck = Vec.chunkKey(_dkeys[i], _n0 + c.cidx());
+        c._vec = null;          // Filled in again from the new Vec
+        c._start = -1;
+        c._cidx = -1;
+        DKV.put(ck, new Value(ck, c), _fs);
+        DKV.remove(old, _fs);
+      }
+    }
+  }
+}
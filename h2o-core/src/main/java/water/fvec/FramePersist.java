@@ -0,0 +1,144 @@
+package water.fvec;
+
+import water.*;
+import water.exceptions.H2OIllegalArgumentException;
+import water.persist.PersistManager;
+import water.util.Log;
+import water.util.UnsafeUtils;
+
+import java.util.HashMap;
+
+/**
+ * A binary checkpoint of a Frame, reloaded without parsing.
+ * <p/>
+ * The Frame is saved into a directory: {@code frame.meta} holds the names,
+ * types, domains, row layout and any rollups already computed, and one file
+ * per chunk index holds the compressed Chunk bytes of every column, exactly
+ * as they sit in the K/V store.  Chunk files are written by the node holding
+ * the chunks, and read back by the node the reloaded chunks are homed on, all
+ * in parallel; the directory must be visible from every node (a shared file
+ * system, HDFS or S3).  The meta file carries the type map of the writing
+ * H2O, and like exported models is only readable by the same version.
+ */
+public final class FramePersist {
+  private FramePersist() {}
+
+  static final String META = "frame.meta";
+
+  private static String chunkFile(String dir, int cidx) { return dir + "/c" + cidx; }
+
+  /** Save the Frame into the directory {@code dir}, which must be empty or
+   *  missing unless {@code overwrite} is set. */
+  public static void saveTo(Frame fr, String dir, boolean overwrite) {
+    PersistManager pm = H2O.getPM();
+    if( pm.exists(dir) ) {
+      if( !pm.isDirectory(dir) )
+        throw new H2OIllegalArgumentException(dir, "saveFrame", "Cannot save a frame into regular file " + dir);
+      if( !overwrite && pm.list(dir).length != 0 )
+        throw new H2OIllegalArgumentException(dir, "saveFrame", "Target directory " + dir + " is non-empty.");
+    } else pm.mkdirs(dir);
+    Vec[] vecs = fr.vecs();
+    for( int i = 0; i < vecs.length; i++ )
+      if( vecs[i].getClass() != Vec.class )
+        throw new H2OIllegalArgumentException("Cannot save column " + fr.name(i) + " of " + vecs[i].getClass().getSimpleName());
+    fr.read_lock((Key<Job>)null);
+    try {
+      long t0 = System.currentTimeMillis();
+      new SaveChunks(dir, overwrite).doAll(fr);
+      AutoBuffer ab = new AutoBuffer(pm.create(dir + "/" + META, overwrite), true);
+      ab.putA8(fr.anyVec().espc());
+      ab.putAStr(fr.names());
+      byte[] types = new byte[vecs.length];
+      String[][] domains = new String[vecs.length][];
+      for( int i = 0; i < vecs.length; i++ ) {
+        types[i] = vecs[i].get_type();
+        domains[i] = vecs[i].domain();
+      }
+      ab.putA1(types);
+      ab.putAAStr(domains);
+      for( Vec v : vecs )       // Only the rollups already known
+        ab.put(RollupStats.getOrNull(v, v.rollupStatsKey()));
+      ab.close();
+      Log.info("Saved frame " + fr._key + " to " + dir + " in " + (System.currentTimeMillis() - t0) + "ms");
+    } finally {
+      fr.unlock((Key<Job>)null);
+    }
+  }
+
+  /** Load a Frame saved by {@link #saveTo} under the key {@code key}. */
+  public static Frame loadFrom(Key<Frame> key, String dir) {
+    PersistManager pm = H2O.getPM();
+    if( !pm.exists(dir + "/" + META) )
+      throw new H2OIllegalArgumentException(dir, "loadFrame", "No saved frame in " + dir);
+    long t0 = System.currentTimeMillis();
+    AutoBuffer ab = new AutoBuffer(pm.open(dir + "/" + META));
+    long[] espc = ab.getA8();
+    String[] names = ab.getAStr();
+    byte[] types = ab.getA1();
+    String[][] domains = ab.getAAStr();
+    RollupStats[] rs = new RollupStats[names.length];
+    for( int i = 0; i < rs.length; i++ ) rs[i] = ab.get(RollupStats.class);
+    ab.close();
+    Key<Vec>[] keys = new Vec.VectorGroup().addVecs(names.length);
+    int rowLayout = Vec.ESPC.rowLayout(keys[0], espc);
+    Key[] cks = new Key[espc.length - 1];
+    for( int i = 0; i < cks.length; i++ ) cks[i] = Vec.chunkKey(keys[0], i);
+    new LoadChunks(dir, keys).doAll(cks);
+    Futures fs = new Futures();
+    Vec[] vecs = new Vec[keys.length];
+    for( int i = 0; i < vecs.length; i++ ) {
+      vecs[i] = new Vec(keys[i], rowLayout, domains[i], types[i]);
+      DKV.put(vecs[i], fs);
+      if( rs[i] != null ) DKV.put(vecs[i].rollupStatsKey(), rs[i], fs);
+    }
+    fs.blockForPending();
+    Frame fr = new Frame(key, names, vecs);
+    fr.delete_and_lock().unlock();
+    Log.info("Loaded frame " + key + " from " + dir + " in " + (System.currentTimeMillis() - t0) + "ms");
+    return fr;
+  }
+
+  // Write the chunks of every column with the same index to one file
+  private static class SaveChunks extends MRTask<SaveChunks> {
+    private final String _dir;
+    private final boolean _overwrite;
+    SaveChunks(String dir, boolean overwrite) { _dir = dir; _overwrite = overwrite; }
+    @Override public void map(Chunk[] cs) {
+      AutoBuffer ab = new AutoBuffer(H2O.getPM().create(chunkFile(_dir, cs[0].cidx()), _overwrite), false);
+      ab.put4(cs.length);
+      for( Chunk c : cs )
+        ab.putStr(c.getClass().getName()).putA1(c.asBytes());
+      ab.close();
+    }
+  }
+
+  // Read each chunk file on the node its chunks are homed on
+  private static class LoadChunks extends MRTask<LoadChunks> {
+    private final String _dir;
+    private final Key<Vec>[] _keys;
+    private transient HashMap<String,Short> _types;
+    LoadChunks(String dir, Key<Vec>[] keys) { _dir = dir; _keys = keys; }
+    @Override public void setupLocal() { _types = new HashMap<>(); }
+    @Override public void map(Key ck0) {
+      int cidx = UnsafeUtils.get4(ck0._kb, 6);
+      AutoBuffer ab = new AutoBuffer(H2O.getPM().open(chunkFile(_dir, cidx)));
+      int ncols = ab.get4();
+      if( ncols != _keys.length )
+        throw new IllegalStateException("Chunk file " + chunkFile(_dir, cidx) + " has " + ncols + " columns, expected " + _keys.length);
+      for( Key<Vec> k : _keys ) {
+        String clz = ab.getStr();
+        byte[] mem = ab.getA1();
+        Key ck = Vec.chunkKey(k, cidx);
+        DKV.put(ck, new Value(ck, mem.length, mem, typeId(clz), Value.ICE), _fs);
+      }
+      ab.close();
+    }
+    private short typeId(String clz) {
+      synchronized( _types ) {
+        Short id = _types.get(clz);
+        if( id == null ) _types.put(clz, id = (short)TypeMap.onIce(clz));
+        return id;
+      }
+    }
+  }
+}
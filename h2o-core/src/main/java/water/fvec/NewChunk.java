@@ -1046,8 +1046,10 @@ public class NewChunk extends Chunk {
     byte mode = type();
     if( mode==Vec.T_BAD ) // ALL NAs, nothing to do
       return new C0DChunk(Double.NaN, _len);
-    if( mode==Vec.T_STR )
+    if( mode==Vec.T_STR ) {
+      cancel_sparse();  // CStrChunk has no row indices; leading NAs would shift the strings up
       return new CStrChunk(_sslen, _ss, _sparseLen, _len, _is, _isAllASCII);
+    }
     boolean rerun=false;
     if(mode == Vec.T_CAT) {
       for(int i = 0; i< _sparseLen; i++ )
@@ -11,6 +11,7 @@ import water.nbhm.NonBlockingHashMap;
 import water.parser.Categorical;
 import water.parser.BufferedString;
 import water.util.ArrayUtils;
+import water.util.HyperLogLog;
 
 import java.util.Arrays;
 
@@ -54,6 +55,10 @@ final class RollupStats extends Iced {
   volatile long[] _bins;
   // Approximate data value closest to the Xth percentile
   double[] _pctiles;
+  // Distinct non-NA values: exact when the histogram has a bin per integer,
+  // else a HyperLogLog estimate computed on-demand in a 3rd pass; NaN if not
+  // computed yet, and always for String and UUID columns
+  double _nunique = Double.NaN;
 
   public boolean hasHisto(){return _bins != null;}
 
@@ -235,6 +240,31 @@ final class RollupStats extends Iced {
     _checksum ^= rs._checksum;
   }
 
+  // Turn the sums reduced from the chunks into the final rollups
+  private void finish() {
+    _sigma = Math.sqrt(_sigma/(_rows-1));
+    if (_rows == 1) _sigma = 0;
+    if (_rows < 5) for (int i=0; i<5-_rows; i++) {  // Fix PUBDEV-150 for files under 5 rows
+      _maxs[4-i] = Double.NaN;
+      _mins[4-i] = Double.NaN;
+    }
+  }
+
+  // Back to the sums reduced from the chunks of a Vec of the given length
+  private RollupStats unfinish( long len ) {
+    RollupStats rs = new RollupStats(0);
+    rs._naCnt = _naCnt;  rs._nzCnt = _nzCnt;
+    rs._pinfs = _pinfs;  rs._ninfs = _ninfs;
+    rs._rows = _rows;    rs._size = _size;
+    rs._isInt = _isInt;
+    rs._mean = _mean;
+    rs._sigma = _rows > 1 ? _sigma*_sigma*(_rows-1) : 0;
+    rs._mins = _mins.clone();   // NaNs are skipped by reduce
+    rs._maxs = _maxs.clone();
+    rs._checksum = _checksum ^ len;
+    return rs;
+  }
+
   double min( double d ) {
     assert(!Double.isNaN(d));
     for( int i=0; i<_mins.length; i++ )
@@ -259,14 +289,8 @@ final class RollupStats extends Iced {
     @Override public void postGlobal() {
       if( _rs == null )
         _rs = new RollupStats(0);
-      else {
-        _rs._sigma = Math.sqrt(_rs._sigma/(_rs._rows-1));
-        if (_rs._rows == 1) _rs._sigma = 0;
-        if (_rs._rows < 5) for (int i=0; i<5-_rs._rows; i++) {  // Fix PUBDEV-150 for files under 5 rows
-          _rs._maxs[4-i] = Double.NaN;
-          _rs._mins[4-i] = Double.NaN;
-        }
-      }
+      else
+        _rs.finish();
       // mean & sigma not allowed on more than 2 classes; for 2 classes the assumption is that it's true/false
       if( _fr.anyVec().isCategorical() && _fr.anyVec().domain().length > 2 )
         _rs._mean = _rs._sigma = Double.NaN;
@@ -281,6 +305,42 @@ final class RollupStats extends Iced {
     @Override public String toString(){return "Roll(" + _fr.anyVec()._key +")";}
   }
 
+  /** Extend the rollups of a Vec whose chunks from {@code cidx} on were just
+   *  appended, rolling up the new chunks only.  Rollups not computed yet are
+   *  left to be computed on demand; histograms and percentiles are dropped
+   *  and recomputed on demand. */
+  static void append(Vec vec, long oldLen, int cidx) {
+    final Key rskey = vec.rollupStatsKey();
+    Value val = DKV.get(rskey);
+    RollupStats old = val == null ? null : val.<RollupStats>get();
+    if( old == null || !old.isReady() ) {
+      if( val != null ) DKV.remove(rskey);
+      return;
+    }
+    RollupStats rs = new RollupStats(0);
+    rs.reduce(old.unfinish(oldLen));
+    RollupStats tail = new RollTail(cidx).doAll(vec)._rs;
+    if( tail != null ) rs.reduce(tail);
+    rs.finish();
+    if( vec.isCategorical() && vec.domain().length > 2 )
+      rs._mean = rs._sigma = Double.NaN;
+    rs._checksum ^= vec.length();
+    DKV.put(rskey, rs);
+  }
+
+  // Raw rollups of the chunks from _cidx on
+  private static class RollTail extends MRTask<RollTail> {
+    final int _cidx;
+    RollupStats _rs;
+    RollTail( int cidx ) { _cidx = cidx; }
+    @Override public void map( Chunk c ) { if( c.cidx() >= _cidx ) _rs = new RollupStats(0).map(c); }
+    @Override public void reduce( RollTail t ) {
+      if( _rs == null ) _rs = t._rs;
+      else if( t._rs != null ) _rs.reduce(t._rs);
+    }
+    @Override public boolean logVerbose() { return false; }
+  }
+
   static void start(final Vec vec, Futures fs, boolean computeHisto) {
     if( vec instanceof InteractionWrappedVec ) return;
     if( DKV.get(vec._key)== null )
@@ -298,17 +358,22 @@ final class RollupStats extends Iced {
 
   private static NonBlockingHashMap<Key,RPC> _pendingRollups = new NonBlockingHashMap<>();
 
-  static RollupStats get(Vec vec, boolean computeHisto) {
+  static RollupStats get(Vec vec, boolean computeHisto) { return get(vec, computeHisto, false); }
+  // With computeNUnique, also estimate the distinct values if the histogram
+  // does not count them; the estimate is kept with the rollups
+  static RollupStats get(Vec vec, boolean computeHisto, boolean computeNUnique) {
     if( DKV.get(vec._key)== null ) throw new RuntimeException("Rollups not possible, because Vec was deleted: "+vec._key);
     if( vec.isString() ) computeHisto = false; // No histogram for string columns
+    if( vec.isString() || vec.isUUID() ) computeNUnique = false;
+    computeHisto |= computeNUnique;
     final Key rskey = vec.rollupStatsKey();
     RollupStats rs = DKV.getGet(rskey);
-    while(rs == null || (!rs.isReady() || (computeHisto && !rs.hasHisto()))){
+    while(rs == null || (!rs.isReady() || (computeHisto && !rs.hasHisto()) || (computeNUnique && Double.isNaN(rs._nunique)))){
       if(rs != null && rs.isMutating())
         throw new IllegalArgumentException("Can not compute rollup stats while vec is being modified. (1)");
       // 1. compute only once
       try {
-        RPC rpcNew = new RPC(rskey.home_node(),new ComputeRollupsTask(vec, computeHisto));
+        RPC rpcNew = new RPC(rskey.home_node(),new ComputeRollupsTask(vec, computeHisto, computeNUnique));
         RPC rpcOld = _pendingRollups.putIfAbsent(rskey, rpcNew);
         if(rpcOld == null) {  // no prior pending task, need to send this one
           rpcNew.call().get();
@@ -372,13 +437,15 @@ final class RollupStats extends Iced {
   static final class ComputeRollupsTask extends DTask<ComputeRollupsTask>{
     final Key _vecKey;
     final Key _rsKey;
-    final boolean _computeHisto;
+    final boolean _computeHisto, _computeNUnique;
 
-    public ComputeRollupsTask(Vec v, boolean computeHisto){
+    public ComputeRollupsTask(Vec v, boolean computeHisto){ this(v, computeHisto, false); }
+    public ComputeRollupsTask(Vec v, boolean computeHisto, boolean computeNUnique){
       super((byte)(Thread.currentThread() instanceof H2O.FJWThr ? currThrPriority()+1 : H2O.MIN_HI_PRIORITY-3));
       _vecKey = v._key;
       _rsKey = v.rollupStatsKey();
-      _computeHisto = computeHisto;
+      _computeHisto = computeHisto || computeNUnique;
+      _computeNUnique = computeNUnique;
     }
 
     private Value makeComputing(){
@@ -388,6 +455,12 @@ final class RollupStats extends Iced {
       newRs._tsk = cc == null?this:cc;
       return new Value(_rsKey,newRs);
     }
+    // Estimate the distinct values the histogram did not count, then install
+    private void installResponse(Value nnn, RollupStats rs, Vec vec) {
+      if( _computeNUnique && Double.isNaN(rs._nunique) )
+        rs._nunique = HyperLogLog.nunique(new Frame(vec), new int[]{0})[0];
+      installResponse(nnn, rs);
+    }
     private void installResponse(Value nnn, RollupStats rs) {
       Futures fs = new Futures();
       Value old = DKV.DputIfMatch(_rsKey, new Value(_rsKey, rs), nnn, fs);
@@ -408,12 +481,13 @@ final class RollupStats extends Iced {
         //   a) computed
         //        a.1) has histo or histo not required => do nothing
         //        a.2) no histo and histo is required  => only compute histo
+        //             (or no nunique and nunique is required => estimate it)
         //   b) computing => wait for the task computing it to finish and check again
         //   c) mutating  => throw IAE
         //   d) null      => compute new rollups
         if (rs != null) {
           if (rs.isReady()) {
-            if (_computeHisto && !rs.hasHisto()) { // a.2 => compute rollups
+            if ((_computeHisto && !rs.hasHisto()) || (_computeNUnique && Double.isNaN(rs._nunique))) { // a.2 => compute histo and nunique
               CountedCompleter cc = getCompleter(); // should be null or RPCCall
               if(cc != null) assert cc.getCompleter() == null;
               // note: if cc == null then onExceptionalCompletion tasks waiting on this may be woken up before exception handling iff exception is thrown.
@@ -422,7 +496,8 @@ final class RollupStats extends Iced {
               Value oldv = DKV.DputIfMatch(_rsKey, nnn, v, fs);
               fs.blockForPending();
               if(oldv == v){ // got the lock
-                computeHisto(rs, vec, nnn);
+                if(rs.hasHisto()) installResponse(nnn, rs, vec);
+                else computeHisto(rs, vec, nnn);
                 break;
               } // else someone else is modifying the rollups => try again
             } else
@@ -455,7 +530,8 @@ final class RollupStats extends Iced {
       // All NAs or non-math; histogram has zero bins
       if (rs._naCnt == vec.length() || vec.isUUID()) {
         rs._bins = new long[0];
-        installResponse(nnn, rs);
+        rs._nunique = vec.isUUID() ? Double.NaN : 0;
+        installResponse(nnn, rs, vec);
         return;
       }
       // Constant: use a single bin
@@ -464,7 +540,8 @@ final class RollupStats extends Iced {
       assert rows > 0 : "rows = " + rows + ", vec.len() = " + vec.length() + ", naCnt = " + rs._naCnt;
       if (span == 0) {
         rs._bins = new long[]{rows};
-        installResponse(nnn, rs);
+        rs._nunique = 1;
+        installResponse(nnn, rs, vec);
         return;
       }
       // Number of bins: MAX_SIZE by default.  For integers, bins for each unique int
@@ -478,6 +555,12 @@ final class RollupStats extends Iced {
       Histo histo = new Histo(null, rs, nbins).doAll(vec);
       assert ArrayUtils.sum(histo._bins) == rows;
       rs._bins = histo._bins;
+      // A bin per integer counts the distinct values exactly, for free
+      if( rs._isInt && nbins == span + 1 ) {
+        long n = 0;
+        for( long b : rs._bins ) if( b > 0 ) n++;
+        rs._nunique = n;
+      }
       // Compute percentiles from histogram
       rs._pctiles = new double[Vec.PERCENTILES.length];
       int j = 0;                 // Histogram bin number
@@ -509,7 +592,7 @@ final class RollupStats extends Iced {
         } // otherwise either h==0 and we know which bin, or fraction is between two positions that fall in the same bin
         // this guarantees we are within one bin of the exact answer; i.e. within (max-min)/MAX_SIZE
       }
-      installResponse(nnn, rs);
+      installResponse(nnn, rs, vec);
     }
   }
 }
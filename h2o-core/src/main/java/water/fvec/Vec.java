@@ -699,6 +699,21 @@ public class Vec extends Keyed<Vec> {
    *  @return A set of percentiles */
   public double[] pctiles() { return RollupStats.get(this, true)._pctiles;   }
 
+  /** Number of distinct non-NA values.  Exact, from {@link #bins}, when the
+   *  histogram has a bin per integer (small integer ranges and most
+   *  categoricals); else a HyperLogLog estimate within a few percent, from a
+   *  pass made on the first call and kept with the rollups until the Vec is
+   *  written into.
+   *  @return number of distinct values, or NaN for String and UUID columns */
+  public double nunique() {
+    if( isString() || isUUID() ) return Double.NaN;
+    return RollupStats.get(this, true, true)._nunique;
+  }
+  /** Optimistically return the number of distinct values the rollups hold:
+   *  exact from the histogram, or the estimate of an earlier {@link #nunique}
+   *  @return number of distinct values, or NaN if not known yet */
+  public double lazy_nunique() { return rollupStats()._nunique; }
+
 
   /** Compute the roll-up stats as-needed */
   private RollupStats rollupStats() { return RollupStats.get(this); }
@@ -722,6 +737,11 @@ public class Vec extends Keyed<Vec> {
    *  @return Checksum of the Vec's content  */
   @Override protected long checksum_impl() { return rollupStats()._checksum;}
 
+  /** Checksum of the current contents.  Unlike {@link #checksum} it is not
+   *  cached in this Vec, and so changes after the Vec is written into.
+   *  @return 64-bit checksum of the current contents */
+  public long contentChecksum() { return rollupStats()._checksum; }
+
 
   private static class SetMutating extends TAtomic<RollupStats> {
     @Override protected RollupStats atomic(RollupStats rs) {
@@ -810,6 +830,8 @@ public class Vec extends Keyed<Vec> {
     if( _rollupStatsKey==null ) _rollupStatsKey=chunkKey(-2);
     return _rollupStatsKey;
   }
+  /** Key of the per-chunk {@link ZoneMap}, removed along with the Vec */
+  Key zoneMapKey() { return chunkKey(-3); }
 
   /** Get a Chunk's Value by index.  Basically the index-to-key map, plus the
    *  {@code DKV.get()}.  Warning: this pulls the data locally; using this call
@@ -1105,6 +1127,7 @@ public class Vec extends Keyed<Vec> {
     }
     Key kr = chunkKey(vkey,-2); // Rollup Stats
     H2O.raw_remove(kr);
+    H2O.raw_remove(chunkKey(vkey,-3)); // Zone map
     H2O.raw_remove(vkey);
   }
 
@@ -0,0 +1,91 @@
+package water.fvec;
+
+import water.DKV;
+import water.Iced;
+import water.MRTask;
+import water.Value;
+
+import java.util.Arrays;
+
+/** Per-chunk min, max and NA count of a numeric Vec, so that filters can skip
+ *  chunks which cannot match without reading them.
+ *
+ *  <p>Computed lazily in one pass and cached in the K/V next to the rollups;
+ *  removed along with the Vec.  A zone map remembers the content checksum of
+ *  the Vec it was computed from, and is recomputed after the Vec is written
+ *  into.
+ */
+public final class ZoneMap extends Iced<ZoneMap> {
+  private final long _checksum;         // Vec content checksum when computed
+  private final double[] _mins, _maxs;  // Non-NA min and max, +/-Inf for no values
+  private final int[] _naCnts;
+
+  private ZoneMap(long checksum, double[] mins, double[] maxs, int[] naCnts) {
+    _checksum = checksum;
+    _mins = mins;
+    _maxs = maxs;
+    _naCnts = naCnts;
+  }
+
+  /** @return the zone map of a numeric or time Vec, computing it if needed;
+   *  null for other types */
+  public static ZoneMap get(Vec vec) {
+    if (!(vec.isNumeric() || vec.isTime())) return null;
+    long checksum = vec.contentChecksum();
+    Value val = DKV.get(vec.zoneMapKey());
+    if (val != null) {
+      ZoneMap zm = val.get();
+      if (zm._checksum == checksum && zm.nChunks() == vec.nChunks()) return zm;
+    }
+    ZoneTask t = new ZoneTask(vec.nChunks()).doAll(vec);
+    ZoneMap zm = new ZoneMap(checksum, t._mins, t._maxs, t._naCnts);
+    DKV.put(vec.zoneMapKey(), zm);
+    return zm;
+  }
+
+  public int nChunks() { return _mins.length; }
+  /** @return smallest non-NA value of the chunk, +Inf if there is none */
+  public double min(int cidx) { return _mins[cidx]; }
+  /** @return largest non-NA value of the chunk, -Inf if there is none */
+  public double max(int cidx) { return _maxs[cidx]; }
+  public int naCnt(int cidx) { return _naCnts[cidx]; }
+
+  private static class ZoneTask extends MRTask<ZoneTask> {
+    double[] _mins, _maxs;
+    int[] _naCnts;              // -1 for chunks not yet seen
+
+    ZoneTask(int nchunks) {
+      _mins = new double[nchunks];
+      _maxs = new double[nchunks];
+      _naCnts = new int[nchunks];
+      Arrays.fill(_naCnts, -1);
+    }
+
+    @Override public void map(Chunk c) {
+      double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+      int nas = 0;
+      for (int i = 0; i < c._len; i++) {
+        double d = c.atd(i);
+        if (Double.isNaN(d)) nas++;
+        else {
+          if (d < min) min = d;
+          if (d > max) max = d;
+        }
+      }
+      int cidx = c.cidx();
+      _mins[cidx] = min;
+      _maxs[cidx] = max;
+      _naCnts[cidx] = nas;
+    }
+
+    @Override public void reduce(ZoneTask t) {
+      if (_naCnts != t._naCnts)
+        for (int i = 0; i < _naCnts.length; i++)
+          if (_naCnts[i] == -1) {
+            _mins[i] = t._mins[i];
+            _maxs[i] = t._maxs[i];
+            _naCnts[i] = t._naCnts[i];
+          }
+    }
+  }
+}
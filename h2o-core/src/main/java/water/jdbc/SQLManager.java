@@ -7,16 +7,24 @@ import water.parser.ParseDataset;
 import water.util.Log;
 
 import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.UUID;
 import java.util.concurrent.ArrayBlockingQueue;
 
 import static water.fvec.Vec.makeCon;
 
 public class SQLManager {
   
+  //prefix of the tables copied from a select_query or snapshot, made unique per import
   final static String TEMP_TABLE_NAME = "table_for_h2o_import";
   //upper bound on number of connections to database
   final static int MAX_CONNECTIONS = 100;
+  //rows per round trip of a key range read
+  final static int FETCH_SIZE = 10000;
+  //rounds of splitting key ranges which count too many rows, and the least parts each is split into
+  final static int MAX_SPLIT_ROUNDS = 16, SPLIT_FACTOR = 16;
   
   /**
    * @param connection_url (Input) 
@@ -30,7 +38,44 @@ public class SQLManager {
   public static Job<Frame> importSqlTable(final String connection_url, String table, final String select_query,
                                           final String username, final String password, final String columns,
                                           boolean optimize) {
-    
+    return importSqlTable(connection_url, table, select_query, username, password, columns, optimize, "", MAX_CONNECTIONS, false);
+  }
+
+  /**
+   * Chunks are read in parallel, each by its own query.  With an integral
+   * partition column, each chunk reads one range of its keys with a WHERE
+   * clause; without one, each chunk pages through the table with LIMIT and
+   * OFFSET, which the database pays for by scanning every skipped row.  Key
+   * ranges are balanced by counting their rows first: ranges of too many rows
+   * are split and ranges of too few are merged, so that skewed keys still make
+   * chunks of about the planned size.  Only the rows of a single key cannot
+   * be split, and are read as one chunk.
+   * @param connection_url (Input) 
+   * @param table (Input)
+   * @param select_query (Input)
+   * @param username (Input)
+   * @param password (Input)
+   * @param columns (Input)
+   * @param optimize (Input)                
+   * @param partition_column (Input) integral column to split the table on by key range; if empty, the primary key
+   *                         of the table if it is a single integral column
+   * @param max_connections (Input) upper bound on the number of connections to the database, over all nodes;
+   *                        every node reads with at least one, so it must be at least the cloud size
+   * @param snapshot (Input) import a copy of the table made by a single statement, so that all reads see the
+   *                 same rows even if the table is being updated; the copy gets an index on the partition column,
+   *                 built once so that the range reads do not each scan the whole copy
+   */
+  public static Job<Frame> importSqlTable(final String connection_url, String table, String select_query,
+                                          final String username, final String password, final String columns,
+                                          boolean optimize, String partition_column, final int max_connections,
+                                          boolean snapshot) {
+    if (max_connections < H2O.getCloudSize())
+      throw new IllegalArgumentException("The max_connections must be at least the cloud size " + H2O.getCloudSize() +
+          ", as every node reads with its own connection, but is: " + max_connections);
+    if (partition_column == null) partition_column = "";
+    //concurrent imports each copy into their own table
+    final String temp_table = SQLManager.TEMP_TABLE_NAME + "_" + UUID.randomUUID().toString().replace("-", "");
+    final String destination_table = table.equals("") ? temp_table : table;
     
     Connection conn = null;
     Statement stmt = null;
@@ -51,8 +96,16 @@ public class SQLManager {
     long numRow = 0;
     final String[] columnNames;
     final byte[] columnH2OTypes;
+    long[] bounds = null;
     try {
       conn = DriverManager.getConnection(connection_url, username, password);
+      if (partition_column.equals("") && !table.equals(""))
+        partition_column = primaryKey(conn, table);
+      //a snapshot is a copy of the table, made as the copy of a select_query
+      if (snapshot && !table.equals("")) {
+        select_query = "SELECT * FROM " + table;
+        table = "";
+      }
       stmt = conn.createStatement();
       //set fetch size for improved performance
       stmt.setFetchSize(1);
@@ -61,12 +114,17 @@ public class SQLManager {
         if (!select_query.toLowerCase().startsWith("select")) {
           throw new IllegalArgumentException("The select_query must start with `SELECT`, but instead is: " + select_query);
         }
-        table = SQLManager.TEMP_TABLE_NAME;
+        table = temp_table;
         //returns number of rows, but as an int, not long. if int max value is exceeded, result is negative
         numRow = stmt.executeUpdate("CREATE TABLE " + table + " AS " + select_query);
-      } else if (table.equals(SQLManager.TEMP_TABLE_NAME)) {
-        //tables with this name are assumed to be created here temporarily and are dropped
-        throw new IllegalArgumentException("The specified table cannot be named: " + SQLManager.TEMP_TABLE_NAME);
+        //the copy has no indexes; without one every key range read would scan all of it
+        if (!partition_column.equals("")) {
+          try {
+            stmt.executeUpdate("CREATE INDEX " + table + "_idx ON " + table + " (" + partition_column + ")");
+          } catch (SQLException ex) {
+            Log.warn("Could not index " + partition_column + " of " + table + ", every partition scans the table: " + ex.getMessage());
+          }
+        }
       }
       //get number of rows. check for negative row count
       if (numRow <= 0) {
@@ -74,6 +132,15 @@ public class SQLManager {
         rs.next();
         numRow = rs.getLong(1);
       }
+      //get the key range of the partition column, if it is integral
+      if (!partition_column.equals("")) {
+        rs = stmt.executeQuery("SELECT MIN(" + partition_column + "), MAX(" + partition_column + ") FROM " + table);
+        rs.next();
+        if (!isIntegral(rs.getMetaData(), 1))
+          Log.warn("Partition column " + partition_column + " is not integral, reading by LIMIT and OFFSET");
+        else if (rs.getObject(1) != null)
+          bounds = new long[]{rs.getLong(1), rs.getLong(2)};
+      }
       //get H2O column names and types 
       if (needFetchClause)
         rs = stmt.executeQuery("SELECT " + columns + " FROM " + table + " FETCH NEXT 1 ROWS ONLY");
@@ -164,31 +231,42 @@ public class SQLManager {
             (long)((float)(catcols+intcols)*numRow*4 //4 bytes for categoricals and integers
                     +(float)bincols          *numRow*1*binary_ones_fraction //sparse uses a fraction of one byte (or even less)
                     +(float)(realcols+timecols+stringcols) *numRow*8); //8 bytes for real and time (long) values
-    final Vec _v;
+    Vec v;
     if (optimize) {
-      _v = makeCon(totSize, numRow);
+      v = makeCon(totSize, numRow);
     } else {
       double rows_per_chunk = FileVec.calcOptimalChunkSize(totSize, numCol, numCol * 4,
               Runtime.getRuntime().availableProcessors(), H2O.getCloudSize(), false, false);
-      _v = makeCon(0, numRow, (int) Math.ceil(Math.log1p(rows_per_chunk)), false);
+      v = makeCon(0, numRow, (int) Math.ceil(Math.log1p(rows_per_chunk)), false);
     }
+    //one chunk per key range, of as many rows as the range has
+    final long[] partitions;
+    if (bounds != null) {
+      partitions = balancedBounds(connection_url, username, password, table, partition_column, bounds[0], bounds[1],
+          v.nChunks(), numRow);
+      v.remove();
+      v = makeCon(0, partitions.length, 0, false);
+      Log.info("Partitions of " + partition_column + ": " + partitions.length);
+    } else partitions = null;
+    final Vec _v = v;
     Log.info("Number of chunks: " + _v.nChunks());
     //create frame
-    final Key destination_key = Key.make(table + "_sql_to_hex");
+    final Key destination_key = Key.make(destination_table + "_sql_to_hex");
     final Job<Frame> j = new Job(destination_key, Frame.class.getName(), "Import SQL Table");
 
     final String finalTable = table;
+    final String partitionColumn = partition_column;
     H2O.H2OCountedCompleter work = new H2O.H2OCountedCompleter() {
       @Override
       public void compute2() {
         Frame fr = new SqlTableToH2OFrame(connection_url, finalTable, needFetchClause, username, password, columns, 
-                numCol, _v.nChunks(), j).doAll(columnH2OTypes, _v)
+                numCol, _v.nChunks(), max_connections, partitionColumn, partitions, j).doAll(columnH2OTypes, _v)
                 .outputFrame(destination_key, columnNames, null);
         DKV.put(fr);
         _v.remove();
         ParseDataset.logParseResults(fr);
-        if (finalTable.equals(SQLManager.TEMP_TABLE_NAME)) 
-          dropTempTable(connection_url, username, password);
+        if (finalTable.equals(temp_table))
+          dropTempTable(connection_url, username, password, temp_table);
         tryComplete();
       }
     };
@@ -197,16 +275,195 @@ public class SQLManager {
     return j;
   }
 
+  /** Name of the primary key of the table if it is a single column, or "" */
+  private static String primaryKey(Connection conn, String table) {
+    String key = "";
+    try {
+      ResultSet rs = conn.getMetaData().getPrimaryKeys(null, null, table);
+      try {
+        if (rs.next()) key = rs.getString("COLUMN_NAME");
+        if (rs.next()) key = ""; //composite key
+      } finally {
+        rs.close();
+      }
+    } catch (SQLException ex) {
+      Log.warn("Failed to read the primary key of " + table + ": " + ex.getMessage());
+    }
+    return key;
+  }
+
+  private static boolean isIntegral(ResultSetMetaData rsmd, int col) throws SQLException {
+    switch (rsmd.getColumnType(col)) {
+      case Types.INTEGER:
+      case Types.TINYINT:
+      case Types.SMALLINT:
+      case Types.BIGINT:
+        return true;
+      case Types.NUMERIC:
+      case Types.DECIMAL:
+        return rsmd.getScale(col) == 0;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Split the keys min to max into at most nparts ranges of equal width.
+   * @return the lowest key of each range
+   */
+  static long[] partitionBounds(long min, long max, int nparts) {
+    BigInteger lo = BigInteger.valueOf(min);
+    BigInteger span = BigInteger.valueOf(max).subtract(lo).add(BigInteger.ONE);
+    int n = (int) Math.max(1, Math.min(nparts, span.min(BigInteger.valueOf(Integer.MAX_VALUE)).longValue()));
+    long[] bounds = new long[n];
+    for (int p = 0; p < n; p++)
+      bounds[p] = lo.add(span.multiply(BigInteger.valueOf(p)).divide(BigInteger.valueOf(n))).longValue();
+    return bounds;
+  }
+
+  /**
+   * Key ranges of about numRow / nparts rows each: equal-width ranges are
+   * split where they count too many rows, and merged where too few.
+   * @return the lowest key of each range
+   */
+  static long[] balancedBounds(String connection_url, String username, String password, String table,
+                               String column, long min, long max, int nparts, long numRow) {
+    long target = Math.max(1, (numRow + nparts - 1) / nparts);
+    long[] bounds = partitionBounds(min, max, nparts);
+    if (bounds.length == 1) return bounds;
+    Connection conn = null;
+    try {
+      conn = DriverManager.getConnection(connection_url, username, password);
+      Statement stmt = conn.createStatement();
+      stmt.setFetchSize(FETCH_SIZE);
+      RangeCounts rc = countRanges(stmt, table, column, bounds);
+      for (int round = 0; round < MAX_SPLIT_ROUNDS; round++) {
+        long[] split = splitRanges(bounds, rc, target);
+        if (split.length == bounds.length) break;
+        bounds = split;
+        rc = countRanges(stmt, table, column, bounds);
+      }
+      for (int p = 0; p < bounds.length; p++)
+        if (rc._counts[p] > 2 * target)
+          Log.warn("Partition" + rangeClause(column, bounds, p) + " of " + table + " has " + rc._counts[p] +
+              " rows, more than " + 2 * target + ", of too few keys to split further");
+      return mergeRanges(bounds, rc._counts, target);
+    } catch (SQLException ex) {
+      //equal-width ranges are still correct, only possibly unbalanced
+      Log.warn("Could not count the rows per partition of " + table + ": " + ex.getMessage());
+      return bounds;
+    } finally {
+      if (conn != null) {
+        try {
+          conn.close();
+        } catch (SQLException sqlEx) {} // ignore
+      }
+    }
+  }
+
+  /** Rows and lowest and highest non-null key of each key range */
+  static class RangeCounts {
+    final long[] _counts, _mins, _maxs;
+    RangeCounts(long[] counts, long[] mins, long[] maxs) {
+      _counts = counts;
+      _mins = mins;
+      _maxs = maxs;
+    }
+  }
+
+  /**
+   * Count the rows of each key range, in a single pass over the table.  Null
+   * keys count in the first range, as they are read with it.
+   */
+  static RangeCounts countRanges(Statement stmt, String table, String column, long[] bounds) throws SQLException {
+    StringBuilder sb = new StringBuilder("SELECT h2o_range, COUNT(*), MIN(h2o_key), MAX(h2o_key) FROM (SELECT CASE");
+    for (int p = bounds.length - 1; p > 0; p--)
+      sb.append(" WHEN ").append(column).append(" >= ").append(bounds[p]).append(" THEN ").append(p);
+    sb.append(" ELSE 0 END AS h2o_range, ").append(column).append(" AS h2o_key FROM ").append(table)
+        .append(") h2o_ranges GROUP BY h2o_range");
+    RangeCounts rc = new RangeCounts(new long[bounds.length], new long[bounds.length], new long[bounds.length]);
+    ResultSet rs = stmt.executeQuery(sb.toString());
+    try {
+      while (rs.next()) {
+        int p = rs.getInt(1);
+        rc._counts[p] = rs.getLong(2);
+        rc._mins[p] = rs.getLong(3);
+        //only null keys: nothing to split on
+        rc._maxs[p] = rs.getObject(4) == null ? rc._mins[p] : rs.getLong(4);
+      }
+    } finally {
+      rs.close();
+    }
+    return rc;
+  }
+
+  /**
+   * Split the ranges of more than twice the target rows and of more than one
+   * key into equal-width ranges over their keys, at least SPLIT_FACTOR of
+   * them so that skewed keys are narrowed down in a few rounds.
+   * @return the lowest key of each range
+   */
+  static long[] splitRanges(long[] bounds, RangeCounts rc, long target) {
+    ArrayList<Long> res = new ArrayList<>();
+    for (int p = 0; p < bounds.length; p++) {
+      res.add(bounds[p]);
+      if (rc._counts[p] <= 2 * target || rc._maxs[p] <= rc._mins[p]) continue;
+      int nparts = (int) Math.max(SPLIT_FACTOR, Math.min(Integer.MAX_VALUE, (rc._counts[p] + target - 1) / target));
+      long[] split = partitionBounds(rc._mins[p], rc._maxs[p], nparts);
+      //the first part starts with the range, to keep the keys below the lowest and the null keys
+      for (int i = 1; i < split.length; i++)
+        res.add(split[i]);
+    }
+    return toArray(res);
+  }
+
+  /**
+   * Merge runs of consecutive ranges which together count at most the target rows.
+   * @return the lowest key of each range
+   */
+  static long[] mergeRanges(long[] bounds, long[] counts, long target) {
+    ArrayList<Long> res = new ArrayList<>();
+    long rows = 0;
+    for (int p = 0; p < bounds.length; p++) {
+      if (p == 0 || rows + counts[p] > target) {
+        res.add(bounds[p]);
+        rows = 0;
+      }
+      rows += counts[p];
+    }
+    return toArray(res);
+  }
+
+  private static long[] toArray(ArrayList<Long> list) {
+    long[] res = new long[list.size()];
+    for (int i = 0; i < res.length; i++)
+      res[i] = list.get(i);
+    return res;
+  }
+
+  /**
+   * WHERE clause of the key range p.  The first and last ranges are open, so
+   * that null keys and keys out of the min to max range are read once.
+   */
+  static String rangeClause(String column, long[] bounds, int p) {
+    if (bounds.length == 1) return "";
+    if (p == 0) return " WHERE " + column + " < " + bounds[1] + " OR " + column + " IS NULL";
+    if (p == bounds.length - 1) return " WHERE " + column + " >= " + bounds[p];
+    return " WHERE " + column + " >= " + bounds[p] + " AND " + column + " < " + bounds[p + 1];
+  }
+
   private static class SqlTableToH2OFrame extends MRTask<SqlTableToH2OFrame> {
-    final String _url, _table, _user, _password, _columns;
-    final int _numCol, _nChunks;
+    final String _url, _table, _user, _password, _columns, _partitionColumn;
+    final int _numCol, _nChunks, _maxConnections;
     final boolean _needFetchClause;
+    final long[] _partitions; //lowest key of each chunk's range; null to read by LIMIT and OFFSET
     final Job _job;
 
     transient ArrayBlockingQueue<Connection> sqlConn;
 
     public SqlTableToH2OFrame(String url, String table, boolean needFetchClause, String user, String password, 
-                              String columns, int numCol, int nChunks, Job job) {
+                              String columns, int numCol, int nChunks, int maxConnections, String partitionColumn,
+                              long[] partitions, Job job) {
       _url = url;
       _table = table;
       _needFetchClause = needFetchClause;
@@ -215,6 +472,9 @@ public class SQLManager {
       _columns = columns;
       _numCol = numCol;
       _nChunks = nChunks;
+      _maxConnections = maxConnections;
+      _partitionColumn = partitionColumn;
+      _partitions = partitions;
       _job = job;
 
     }
@@ -222,12 +482,15 @@ public class SQLManager {
     @Override
     protected void setupLocal() {
       int conPerNode = (int) Math.min(Math.ceil((double) _nChunks / H2O.getCloudSize()), Runtime.getRuntime().availableProcessors());
-      conPerNode = Math.min(conPerNode, SQLManager.MAX_CONNECTIONS / H2O.getCloudSize()); 
+      //at least one per node, importSqlTable checks max_connections allows for it
+      conPerNode = Math.max(1, Math.min(conPerNode, _maxConnections / H2O.getCloudSize()));
       Log.info("Database connections per node: " + conPerNode);
       sqlConn = new ArrayBlockingQueue<>(conPerNode);
       try {
         for (int i = 0; i < conPerNode; i++) {
           Connection conn = DriverManager.getConnection(_url, _user, _password);
+          //without auto-commit, drivers such as PostgreSQL stream a result set by the fetch size
+          conn.setAutoCommit(false);
           sqlConn.add(conn);
         }
       } catch (SQLException ex) {
@@ -244,15 +507,17 @@ public class SQLManager {
       ResultSet rs = null;
       Chunk c0 = cs[0];
       String sqlText = "SELECT " + _columns + " FROM " + _table;
-      if (_needFetchClause)
+      if (_partitions != null)
+        sqlText += rangeClause(_partitionColumn, _partitions, c0.cidx());
+      else if (_needFetchClause)
         sqlText += " OFFSET " + c0.start() + " ROWS FETCH NEXT " + c0._len + " ROWS ONLY";
       else
         sqlText += " LIMIT " + c0._len + " OFFSET " + c0.start();
       try {
         conn = sqlConn.take();
-        stmt = conn.createStatement();
-        //set fetch size for best performance
-        stmt.setFetchSize(c0._len);
+        stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        //set fetch size for best performance; a key range is streamed, as its size is not known
+        stmt.setFetchSize(_partitions != null ? SQLManager.FETCH_SIZE : c0._len);
         rs = stmt.executeQuery(sqlText);
         while (rs.next()) {
           for (int i = 0; i < _numCol; i++) {
@@ -327,8 +592,14 @@ public class SQLManager {
           stmt = null;
         }
 
-        //return connection to pool
-        sqlConn.add(conn);
+        //end the read-only transaction and return connection to pool
+        if (conn != null) {
+          try {
+            conn.commit();
+          } catch (SQLException sqlEx) {
+          } // ignore
+          sqlConn.add(conn);
+        }
 
       }
       if (_job != null) _job.update(1);
@@ -345,11 +616,11 @@ public class SQLManager {
     }
   }
   
-  private static void dropTempTable(String connection_url, String username, String password) {
+  private static void dropTempTable(String connection_url, String username, String password, String table) {
     Connection conn = null;
     Statement stmt = null;
     
-    String drop_table_query = "DROP TABLE " + SQLManager.TEMP_TABLE_NAME;
+    String drop_table_query = "DROP TABLE " + table;
     try {
       conn = DriverManager.getConnection(connection_url, username, password);
       stmt = conn.createStatement();
@@ -0,0 +1,300 @@
+package water.parser;
+
+import water.*;
+import water.fvec.ByteVec;
+import water.fvec.Chunk;
+import water.fvec.FileVec;
+
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Blocked gzip (BGZF, as written by bgzip) inputs, inflated in parallel.
+ * <p/>
+ * A BGZF file is a series of gzip members of at most 64KB, each giving its
+ * own compressed length in a header extra field.  One pass over the
+ * compressed ByteVec finds the block headers in every chunk, and the plan
+ * checks that they chain from the first byte to the last.  The parse then
+ * maps over the compressed chunks: each inflates the blocks starting in it,
+ * in pieces of about a chunk, and tokenizes every piece right away, see
+ * {@link Reader}.  No inflated bytes are ever stored.  Any other gzip stream
+ * is a single deflate stream which cannot be split, and is streamed as before.
+ */
+class BlockGzip extends Iced<BlockGzip> {
+  private static final int HEADER = 18, TRAILER = 8;
+
+  private final long[][] _offs; // Per compressed chunk, the blocks starting in it
+  private final int[][] _lens;  // Their compressed lengths
+  private final int[][] _breaks;// Per compressed chunk, first block of each inflated chunk
+  private final int[] _first;   // Per compressed chunk, its first inflated chunk
+  private final long[] _espc;   // Layout of the inflated ByteVec
+
+  private BlockGzip(long[][] offs, int[][] lens, int[][] breaks, int[] first, long[] espc) {
+    _offs = offs;
+    _lens = lens;
+    _breaks = breaks;
+    _first = first;
+    _espc = espc;
+  }
+
+  /** @return true if the bytes start with a BGZF block header */
+  static boolean isBlockGzip(byte[] bs) {
+    return isHeader(bs, 0);
+  }
+
+  private static boolean isHeader(byte[] bs, int p) {
+    return p + HEADER <= bs.length && bs[p] == 31 && (bs[p + 1] & 0xFF) == 139 && bs[p + 2] == 8 && bs[p + 3] == 4 &&
+        bs[p + 10] == 6 && bs[p + 11] == 0 && bs[p + 12] == 'B' && bs[p + 13] == 'C' && bs[p + 14] == 2 && bs[p + 15] == 0;
+  }
+
+  private static int getInt2(byte[] bs, int p) {
+    return (bs[p] & 0xFF) | (bs[p + 1] & 0xFF) << 8;
+  }
+
+  private static int getInt4(byte[] bs, int p) {
+    return getInt2(bs, p) | getInt2(bs, p + 2) << 16;
+  }
+
+  // Bytes of the ByteVec from pos, across chunks
+  private static byte[] bytes(ByteVec vec, long pos, int len) {
+    byte[] bs = new byte[(int) Math.min(len, vec.length() - pos)];
+    for (int n = 0; n < bs.length; ) {
+      Chunk c = vec.chunkForRow(pos + n);
+      int off = (int) (pos + n - c.start());
+      int m = Math.min(bs.length - n, c._len - off);
+      System.arraycopy(c.getBytes(), off, bs, n, m);
+      n += m;
+    }
+    return bs;
+  }
+
+  /**
+   * Plan the parallel inflation of a file.
+   *
+   * @return the plan, or null if the file is not blocked gzip of more than one block
+   */
+  static BlockGzip plan(ByteVec vec) {
+    if (!isBlockGzip(vec.getFirstBytes())) return null;
+    int nchunks = vec.nChunks();
+    Index idx = new Index(nchunks).doAll(vec);
+    // Keep the headers chaining from the first byte; others are compressed
+    // bytes looking like one
+    long[][] offs = new long[nchunks][];
+    int[][] lens = new int[nchunks][], breaks = new int[nchunks][];
+    int[] first = new int[nchunks];
+    long[] sizes = new long[nchunks];   // Per inflated chunk
+    long next = 0;
+    int nblocks = 0, nout = 0;
+    for (int c = 0; c < nchunks; c++) {
+      long[] cofs = idx._offs[c];
+      int[] keep = new int[cofs.length];
+      int n = 0;
+      for (int i = 0; i < cofs.length; i++) {
+        if (cofs[i] < next) continue;
+        if (cofs[i] > next) return null;
+        keep[n++] = i;
+        next += idx._lens[c][i];
+      }
+      offs[c] = new long[n];
+      lens[c] = new int[n];
+      // Inflated chunks of about the default chunk size, never empty
+      int[] brk = new int[n];
+      int nbrk = 0;
+      long size = 0;
+      for (int i = 0; i < n; i++) {
+        offs[c][i] = cofs[keep[i]];
+        lens[c][i] = idx._lens[c][keep[i]];
+        int sz = idx._sizes[c][keep[i]];
+        if (nbrk == 0 || (size > 0 && size + sz > FileVec.DFLT_CHUNK_SIZE)) {
+          if (nbrk > 0) sizes = add(sizes, nout + nbrk - 1, size);
+          brk[nbrk++] = i;
+          size = 0;
+        }
+        size += sz;
+      }
+      if (size > 0) sizes = add(sizes, nout + nbrk - 1, size);
+      else nbrk = 0;            // Only empty blocks
+      breaks[c] = Arrays.copyOf(brk, nbrk);
+      first[c] = nout;
+      nblocks += n;
+      nout += nbrk;
+    }
+    if (next != vec.length() || nblocks < 2 || nout == 0) return null;
+    long[] espc = new long[nout + 1];
+    for (int i = 0; i < nout; i++) espc[i + 1] = espc[i] + sizes[i];
+    return new BlockGzip(offs, lens, breaks, first, espc);
+  }
+
+  private static long[] add(long[] ls, int i, long l) {
+    if (i >= ls.length) ls = Arrays.copyOf(ls, Math.max(i + 1, ls.length * 2));
+    ls[i] = l;
+    return ls;
+  }
+
+  /** @return the number of inflated pieces, each parsed as one chunk */
+  int nChunks() {
+    return _espc.length - 1;
+  }
+
+  /** @return the first inflated piece of the blocks starting in compressed chunk cidx */
+  int firstPiece(int cidx) {
+    return _first[cidx];
+  }
+
+  /** @return the number of inflated pieces of the blocks starting in compressed chunk cidx */
+  int nPieces(int cidx) {
+    return _breaks[cidx].length;
+  }
+
+  /** @return a reader of the pieces of the blocks starting in the compressed chunk */
+  Reader reader(Chunk chk) {
+    return new Reader(chk);
+  }
+
+  /**
+   * Inflated pieces for the parse of one compressed chunk.  Each piece is
+   * inflated on demand, and only the last two asked for are kept: the parser
+   * of a piece reads on into the next one to finish its last line, which for
+   * the last piece of the chunk means inflating the first piece of the next
+   * compressed chunk once more.
+   */
+  class Reader implements ParseReader {
+    private final Chunk _chk;
+    private int _idx = -1, _nextIdx = -1;
+    private byte[] _cur, _next;
+    private long _goffset;
+
+    private Reader(Chunk chk) {
+      _chk = chk;
+    }
+
+    @Override
+    public byte[] getChunkData(int cidx) {
+      if (cidx >= nChunks()) return null;
+      _goffset = _espc[cidx];
+      if (cidx == _nextIdx) return _next;
+      if (cidx == _idx) return _cur;
+      _idx = _nextIdx;
+      _cur = _next;
+      _nextIdx = cidx;
+      return _next = inflate(_chk, cidx);
+    }
+
+    @Override public int getChunkDataStart(int cidx) { return -1; }
+    @Override public void setChunkDataStart(int cidx, int offset) { }
+    @Override public long getGlobalByteOffset() { return _goffset; }
+  }
+
+  // Inflate one piece, reading the compressed bytes from chk if the blocks
+  // start there, else from the compressed chunk they start in
+  private byte[] inflate(Chunk chk, int piece) {
+    int cidx = chk.cidx();
+    while (cidx + 1 < _first.length && _first[cidx + 1] <= piece) cidx++;
+    while (piece < _first[cidx]) cidx--;
+    ByteVec vec = (ByteVec) chk.vec();
+    if (cidx != chk.cidx()) chk = vec.chunkForChunkIdx(cidx);
+    long[] offs = _offs[cidx];
+    int[] lens = _lens[cidx], breaks = _breaks[cidx];
+    int k = piece - _first[cidx];
+    byte[] bs = chk.getBytes();
+    long start = chk.start();
+    byte[] buf = new byte[(int) (_espc[piece + 1] - _espc[piece])];
+    Inflater inf = new Inflater(true);
+    CRC32 crc = new CRC32();
+    try {
+      int pos = 0;
+      for (int b = breaks[k]; b < (k + 1 < breaks.length ? breaks[k + 1] : offs.length); b++) {
+        int p = (int) (offs[b] - start);
+        byte[] blk = bs;
+        if (p + lens[b] > bs.length) {  // Runs into the next chunk
+          blk = bytes(vec, offs[b], lens[b]);
+          p = 0;
+        }
+        int size = getInt4(blk, p + lens[b] - 4);
+        inf.reset();
+        inf.setInput(blk, p + HEADER, lens[b] - HEADER - TRAILER);
+        int n = 0;
+        while (n < size && !inf.finished()) {
+          int m = inf.inflate(buf, pos + n, size - n);
+          if (m == 0 && (inf.needsInput() || inf.needsDictionary())) break;
+          n += m;
+        }
+        crc.reset();
+        crc.update(buf, pos, n);
+        if (n != size || (int) crc.getValue() != getInt4(blk, p + lens[b] - 8))
+          throw new ParseDataset.H2OParseException("Corrupt gzip block at byte " + offs[b]);
+        pos += n;
+      }
+      return buf;
+    } catch (DataFormatException e) {
+      throw new ParseDataset.H2OParseException("Corrupt gzip block in chunk " + cidx + ": " + e.getMessage());
+    } finally {
+      inf.end();
+    }
+  }
+
+  // Candidate block headers per chunk, with compressed and inflated lengths
+  private static class Index extends MRTask<Index> {
+    long[][] _offs;
+    int[][] _lens, _sizes;
+
+    Index(int nchunks) {
+      _offs = new long[nchunks][];
+      _lens = new int[nchunks][];
+      _sizes = new int[nchunks][];
+    }
+
+    @Override
+    public void map(Chunk chk) {
+      ByteVec vec = (ByteVec) chk.vec();
+      byte[] bs = chk.getBytes();
+      long start = chk.start();
+      int n = 0;
+      long[] offs = new long[16];
+      int[] lens = new int[16], sizes = new int[16];
+      byte[] tail = null;       // Last bytes of this chunk and first of the next
+      int tailStart = Math.max(0, bs.length - HEADER);
+      for (int p = 0; p < chk._len; p++) {
+        if (bs[p] != 31) continue;
+        byte[] hdr = bs;
+        int hp = p;
+        if (p + HEADER > bs.length) {
+          if (tail == null) tail = bytes(vec, start + tailStart, 2 * HEADER);
+          hdr = tail;
+          hp = p - tailStart;
+        }
+        if (!isHeader(hdr, hp)) continue;
+        int len = getInt2(hdr, hp + 16) + 1;
+        if (len < HEADER + TRAILER) continue;
+        long end = start + p + len;
+        if (end > vec.length()) continue;
+        int size = p + len <= bs.length ? getInt4(bs, p + len - 4) : getInt4(bytes(vec, end - 4, 4), 0);
+        if (n == offs.length) {
+          offs = Arrays.copyOf(offs, n * 2);
+          lens = Arrays.copyOf(lens, n * 2);
+          sizes = Arrays.copyOf(sizes, n * 2);
+        }
+        offs[n] = start + p;
+        lens[n] = len;
+        sizes[n++] = size;
+      }
+      int cidx = chk.cidx();
+      _offs[cidx] = Arrays.copyOf(offs, n);
+      _lens[cidx] = Arrays.copyOf(lens, n);
+      _sizes[cidx] = Arrays.copyOf(sizes, n);
+    }
+
+    @Override
+    public void reduce(Index idx) {
+      if (_offs != idx._offs)
+        for (int i = 0; i < _offs.length; i++)
+          if (idx._offs[i] != null) {
+            _offs[i] = idx._offs[i];
+            _lens[i] = idx._lens[i];
+            _sizes[i] = idx._sizes[i];
+          }
+    }
+  }
+}
@@ -1,21 +1,32 @@
 package water.parser;
 
-import java.util.concurrent.atomic.AtomicInteger;
+import com.google.common.base.Charsets;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 import water.Iced;
-import water.util.IcedHashMap;
+import water.MemoryManager;
 import water.util.Log;
 import water.util.PrettyPrint;
+import water.util.UnsafeUtils;
 
 /** Class for tracking categorical (factor) columns.
  *
- *  Basically a wrapper around non blocking hash map.
+ *  A dictionary of the unique strings of a column, numbered from 1 in order
+ *  of arrival.  The strings are stored one after another in a byte arena,
+ *  their offsets and hashes in int arrays indexed by number, and an
+ *  open-addressed table of numbers finds them - no object per level.
+ *  Lookups never lock: they read the arrays of the current table, which
+ *  inserts publish with a volatile write of the slot.  Adding a level locks
+ *  the dictionary; a table that has to grow is copied and published whole.
+ *
  *  In the first pass, we just collect set of unique strings per column
  *  (if there are less than MAX_CATEGORICAL_COUNT unique elements).
- *  
- *  After pass1, the keys are sorted and indexed alphabetically.
- *  In the second pass, map is used only for lookup and never updated.
- *  
+ *  After pass1, the keys are sorted, and merged with those of the other nodes
+ *  into the global domain; each node maps its numbers to it by walking its
+ *  sorted keys along the global domain.
+ *
  *  Categorical objects are shared among threads on the local nodes!
  *
  * @author tomasnykodym
@@ -24,60 +35,174 @@ import water.util.PrettyPrint;
 public final class Categorical extends Iced {
 
   public static final int MAX_CATEGORICAL_COUNT = 10000000;
-  transient AtomicInteger _id = new AtomicInteger();
-  int _maxId = -1;
-  volatile IcedHashMap<BufferedString, Integer> _map;
+  private transient volatile Dict _dict = new Dict(16, 256, 1024);
+  private transient int[] _sorted;  // Numbers in key order, once parsed
   boolean maxDomainExceeded = false;
 
-  Categorical() { _map = new IcedHashMap<>(); }
+  Categorical() { }
+
+  // The current table.  Arrays are only written under the Categorical lock,
+  // and only until a grown copy replaces the table.
+  private static final class Dict {
+    final AtomicIntegerArray _slots;  // Numbers, 0 for empty
+    final int[] _hashes;  // By number
+    final int[] _offs;    // By number, start in the arena; the next number's is the end
+    final byte[] _arena;
+    int _size;            // Numbers used
+
+    Dict(int nslots, int nids, int nbytes) {
+      _slots = new AtomicIntegerArray(nslots);
+      _hashes = MemoryManager.malloc4(nids);
+      _offs = MemoryManager.malloc4(nids + 1);
+      _arena = MemoryManager.malloc1(nbytes);
+    }
+
+    int find(byte[] buf, int off, int len, int h) {
+      int mask = _slots.length() - 1;
+      for (int i = h & mask; ; i = (i + 1) & mask) {
+        int id = _slots.get(i);
+        if (id == 0) return 0;
+        if (_hashes[id] == h && equals(id, buf, off, len)) return id;
+      }
+    }
+
+    boolean equals(int id, byte[] buf, int off, int len) {
+      int start = _offs[id];
+      if (_offs[id + 1] - start != len) return false;
+      for (int i = 0; i < len; i++)
+        if (_arena[start + i] != buf[off + i]) return false;
+      return true;
+    }
+
+    /** Add a key under the next number, findable unless equal to an earlier one; a grown copy if full */
+    Dict put(byte[] buf, int off, int len, int h) {
+      int id = _size + 1;
+      long end = (long) _offs[id] + len;
+      Dict d = this;
+      if (id >= _hashes.length || end > _arena.length || 2 * id > _slots.length())
+        d = grow(id, end);
+      System.arraycopy(buf, off, d._arena, d._offs[id], len);
+      d._offs[id + 1] = (int) end;
+      d._hashes[id] = h;
+      d._size = id;
+      if (d.find(buf, off, len, h) == 0) d.slot(id, h);
+      return d;
+    }
+
+    private void slot(int id, int h) {
+      int mask = _slots.length() - 1;
+      int i = h & mask;
+      while (_slots.get(i) != 0) i = (i + 1) & mask;
+      _slots.set(i, id);        // Publishes the key
+    }
+
+    private Dict grow(int id, long end) {
+      if (end > Integer.MAX_VALUE - 8)
+        throw new ParseDataset.H2OParseException("Categorical levels of a column exceed 2GB.  Consider reparsing this column as a string.");
+      int nslots = _slots.length();
+      while (2 * id > nslots) nslots <<= 1;
+      int nids = id < _hashes.length ? _hashes.length : _hashes.length << 1;
+      long nbytes = end <= _arena.length ? _arena.length : Math.max(end, Math.min(2L * _arena.length, Integer.MAX_VALUE - 8));
+      Dict d = new Dict(nslots, nids, (int) nbytes);
+      System.arraycopy(_hashes, 0, d._hashes, 0, id);
+      System.arraycopy(_offs, 0, d._offs, 0, id + 1);
+      System.arraycopy(_arena, 0, d._arena, 0, _offs[id]);
+      d._size = _size;
+      if (nslots == _slots.length())
+        for (int i = 0; i < nslots; i++) d._slots.set(i, _slots.get(i));
+      else
+        for (int i = 0; i < _slots.length(); i++) {
+          int old = _slots.get(i);
+          if (old != 0) d.slot(old, _hashes[old]);
+        }
+      return d;
+    }
+  }
+
+  private static int hash(byte[] buf, int off, int len) {
+    int h = 0;
+    for (int i = off; i < off + len; i++)
+      h = 31 * h + (buf[i] & 0xFF);
+    h ^= h >>> 16;
+    h *= 0x85EBCA6B;
+    return h ^ (h >>> 13);
+  }
 
   /** Add key to this map (treated as hash set in this case). */
   int addKey(BufferedString str) {
-    // _map is shared and be cast to null (if categorical is killed) -> grab local copy
-    IcedHashMap<BufferedString, Integer> m = _map;
-    if( m == null ) return Integer.MAX_VALUE;     // Nuked already
-    Integer res = m.get(str);
-    if( res != null ) return res; // Recorded already
-    assert str.length() < 65535; // Length limit so 65535 can be used as a sentinel
-    int newVal = _id.incrementAndGet();
-    res = m.putIfAbsent(new BufferedString(str), newVal);
-    if( res != null ) return res;
-    if( m.size() > MAX_CATEGORICAL_COUNT) maxDomainExceeded = true;
-    return newVal;
+    byte[] buf = str.getBuffer();
+    int off = str.getOffset(), len = str.length();
+    int h = hash(buf, off, len);
+    int id = _dict.find(buf, off, len, h);
+    if (id != 0) return id;   // Recorded already
+    assert len < 65535; // Length limit so 65535 can be used as a sentinel
+    synchronized (this) {
+      Dict d = _dict;
+      id = d.find(buf, off, len, h);
+      if (id != 0) return id;
+      _dict = d = d.put(buf, off, len, h);
+      if (d._size > MAX_CATEGORICAL_COUNT) maxDomainExceeded = true;
+      return d._size;
+    }
   }
-  final boolean containsKey(BufferedString key){ return _map.containsKey(key); }
+  final boolean containsKey(BufferedString key){ return getTokenId(key) != 0; }
   @Override public String toString() {
-    return "{"+_map+" }";
+    StringBuilder sb = new StringBuilder("{");
+    BufferedString[] dom = getColumnDomain();
+    for (int i = 0; i < dom.length; i++)
+      sb.append(i == 0 ? "" : ", ").append(dom[i]).append('=').append(i + 1);
+    return sb.append(" }").toString();
   }
 
-  int getTokenId( BufferedString str ) { return _map.get(str); }
-  
-  int maxId() { return _maxId == -1 ? _id.get() : _maxId; }
-  int size() { return _map.size(); }
+  /** @return the number of the key, or 0 if not in the map */
+  int getTokenId( BufferedString str ) {
+    byte[] buf = str.getBuffer();
+    int off = str.getOffset(), len = str.length();
+    return _dict.find(buf, off, len, hash(buf, off, len));
+  }
+
+  int maxId() { return _dict._size; }
+  int size() { return _dict._size; }
   boolean isMapFull() { return maxDomainExceeded; }
 
+  /** @return the keys by number, from 1, as views into the arena */
   BufferedString[] getColumnDomain() {
-    return  _map.keySet().toArray(new BufferedString[_map.size()]);
+    Dict d = _dict;
+    BufferedString[] res = new BufferedString[d._size];
+    for (int id = 1; id <= d._size; id++)
+      res[id - 1] = new BufferedString(d._arena, d._offs[id], d._offs[id + 1] - d._offs[id]);
+    return res;
   }
 
   public static final int MAX_EXAMPLES = 10;
   public void convertToUTF8(int col){
     int hexConvCnt = 0;
-    BufferedString[] bStrs = _map.keySet().toArray(new BufferedString[_map.size()]);
+    BufferedString[] bStrs = getColumnDomain();
+    byte[][] converted = null;
     StringBuilder hexSB = new StringBuilder();
     for (int i =0; i < bStrs.length; i++) {
       String s = bStrs[i].toString();
-      if (!bStrs[i].equals(s)) {
+      byte[] bs = s.getBytes(Charsets.UTF_8);
+      if (!bStrs[i].equals(new BufferedString(bs, 0, bs.length))) {
         if (s.contains("\uFFFD")) { // make weird chars into hex
           s = bStrs[i].bytesToString();
           if (hexConvCnt++ < MAX_EXAMPLES) hexSB.append(s +", ");
           if (hexConvCnt == MAX_EXAMPLES) hexSB.append("...");
+          bs = s.getBytes(Charsets.UTF_8);
         }
-        int val = _map.get(bStrs[i]);
-        _map.remove(bStrs[i]);
-        bStrs[i] = new BufferedString(s);
-        _map.put(bStrs[i], val);
+        if (converted == null) converted = new byte[bStrs.length][];
+        converted[i] = bs;
+      }
+    }
+    if (converted != null) {    // Renumber nothing, rebuild the table
+      Dict d = new Dict(16, 256, 1024);
+      for (int i = 0; i < bStrs.length; i++) {
+        byte[] buf = converted[i] != null ? converted[i] : bStrs[i].getBuffer();
+        int off = converted[i] != null ? 0 : bStrs[i].getOffset();
+        int len = converted[i] != null ? converted[i].length : bStrs[i].length();
+        d = d.put(buf, off, len, hash(buf, off, len));
       }
+      _dict = d;
     }
     if (hexConvCnt > 0) Log.info("Found categoricals with non-UTF-8 characters in the "
         + PrettyPrint.withOrdinalIndicator(col)
@@ -85,30 +210,96 @@ public final class Categorical extends Iced {
         + hexSB.toString());
   }
 
-  // Since this is a *concurrent* hashtable, writing it whilst its being
-  // updated is tricky.  If the table is NOT being updated, then all is written
-  // as expected.  If the table IS being updated we only promise to write the
-  // Keys that existed at the time the table write began.  If elements are
-  // being deleted, they may be written anyways.  If the Values are changing, a
-  // random Value is written.
-//  public AutoBuffer write_impl( AutoBuffer ab ) {
-//    if( _map == null ) return ab.put1(1); // Killed map marker
-//    ab.put1(0);                           // Not killed
-//    ab.put4(maxId());
-//    for( BufferedString key : _map.keySet() )
-//      ab.put2((char)key.length()).putA1(key.getBuffer(),key.length()).put4(_map.get(key));
-//    return ab.put2((char)65535); // End of map marker
-//  }
-//
-//  public Categorical read_impl( AutoBuffer ab ) {
-//    assert _map == null || _map.size()==0;
-//    _map = null;
-//    if( ab.get1() == 1 ) return this; // Killed?
-//    _maxId = ab.get4();
-//    _map = new NonBlockingHashMap<>();
-//    int len;
-//    while( (len = ab.get2()) != 65535 ) // Read until end-of-map marker
-//      _map.put(new BufferedString(ab.getA1(len)),ab.get4());
-//    return this;
-//  }
+  /**
+   * Sort the keys, remembering the order for {@link #mapTo}.
+   *
+   * @return the distinct keys in order, packed as their count, then the
+   * length and bytes of each
+   */
+  byte[] packSortedDomain() {
+    final Dict d = _dict;
+    int[] ids = new int[d._size];
+    for (int i = 0; i < ids.length; i++) ids[i] = i + 1;
+    int[] tmp = new int[ids.length];
+    sort(d, ids, tmp, 0, ids.length);
+    _sorted = ids;
+    int n = 0, nbytes = 4;
+    for (int i = 0; i < ids.length; i++)
+      if (i == 0 || compare(d, ids[i - 1], ids[i]) != 0) {
+        n++;
+        nbytes += 4 + d._offs[ids[i] + 1] - d._offs[ids[i]];
+      }
+    byte[] packed = MemoryManager.malloc1(nbytes, false);
+    UnsafeUtils.set4(packed, 0, n);
+    for (int i = 0, p = 4; i < ids.length; i++)
+      if (i == 0 || compare(d, ids[i - 1], ids[i]) != 0) {
+        int off = d._offs[ids[i]], len = d._offs[ids[i] + 1] - off;
+        UnsafeUtils.set4(packed, p, len);
+        System.arraycopy(d._arena, off, packed, p + 4, len);
+        p += 4 + len;
+      }
+    return packed;
+  }
+
+  /**
+   * Map the numbers of this node to positions in the global domain, packed as
+   * by {@link #packSortedDomain}: one walk of both in order, with no lookups.
+   *
+   * @return the positions by number, -1 for numbers not in the domain
+   */
+  int[] mapTo(byte[] packedDomain) {
+    Dict d = _dict;
+    if (_sorted == null) packSortedDomain();
+    int[] map = MemoryManager.malloc4(d._size + 1);
+    Arrays.fill(map, -1);
+    int n = UnsafeUtils.get4(packedDomain, 0), g = 0, p = 4;
+    for (int id : _sorted) {
+      int off = d._offs[id], len = d._offs[id + 1] - off;
+      while (g < n) {
+        int glen = UnsafeUtils.get4(packedDomain, p);
+        int x = compare(packedDomain, p + 4, glen, d._arena, off, len);
+        if (x == 0) {
+          map[id] = g;
+          break;
+        }
+        if (x > 0) break;       // Not in the domain; the update reports it
+        g++;
+        p += 4 + glen;
+      }
+    }
+    return map;
+  }
+
+  private static int compare(Dict d, int id1, int id2) {
+    int off1 = d._offs[id1], off2 = d._offs[id2];
+    return compare(d._arena, off1, d._offs[id1 + 1] - off1, d._arena, off2, d._offs[id2 + 1] - off2);
+  }
+
+  // Unsigned bytes, as BufferedString.compareTo
+  private static int compare(byte[] b1, int off1, int len1, byte[] b2, int off2, int len2) {
+    int len = Math.min(len1, len2);
+    for (int i = 0; i < len; i++) {
+      int x = (b1[off1 + i] & 0xFF) - (b2[off2 + i] & 0xFF);
+      if (x != 0) return x;
+    }
+    return len1 - len2;
+  }
+
+  // Merge sort of numbers by key
+  private static void sort(Dict d, int[] ids, int[] tmp, int lo, int hi) {
+    if (hi - lo < 16) {
+      for (int i = lo + 1; i < hi; i++)
+        for (int j = i; j > lo && compare(d, ids[j - 1], ids[j]) > 0; j--) {
+          int t = ids[j]; ids[j] = ids[j - 1]; ids[j - 1] = t;
+        }
+      return;
+    }
+    int mid = (lo + hi) >>> 1;
+    sort(d, ids, tmp, lo, mid);
+    sort(d, ids, tmp, mid, hi);
+    if (compare(d, ids[mid - 1], ids[mid]) <= 0) return;
+    System.arraycopy(ids, lo, tmp, lo, hi - lo);
+    for (int i = lo, a = lo, b = mid; i < hi; i++)
+      ids[i] = b >= hi || (a < mid && compare(d, tmp[a], tmp[b]) <= 0) ? tmp[a++] : tmp[b++];
+  }
 }
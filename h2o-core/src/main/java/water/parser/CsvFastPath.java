@@ -0,0 +1,235 @@
+package water.parser;
+
+import water.fvec.Vec;
+import water.util.UnsafeUtils;
+
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Fast path of the {@link CsvParser} for plain lines.
+ * <p/>
+ * Lines are found and split with a structural index: 8 bytes at a time, a
+ * SWAR (SIMD within a register) test marks the separators, line ends and
+ * quotes of a word in one long, whose set bits are then visited directly.
+ * Fields are then parsed by specialized number and string parsers.  A line
+ * is taken only if it is wholly within the chunk and none of its fields needs
+ * more of the grammar than that - quotes, currencies, percentages, more
+ * digits than a long holds - and is otherwise left to the state machine,
+ * which then hands the next line back.  Results are exactly the state
+ * machine's.
+ */
+final class CsvFastPath {
+  private static final long ONES = 0x0101010101010101L, LOWS = 0x7F7F7F7F7F7F7F7FL;
+  // Words are read in native order, so the first byte is the lowest one
+  private static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
+  // Field kinds
+  private static final byte NA = 0, NUM = 1, STR = 2;
+
+  private final byte _sep;
+  private final long _seps, _lfs, _crs, _dqs, _sqs;   // Byte repeated 8 times
+  private final boolean _singleQuotes;
+  private final String[][] _naStrings;
+  private final byte[] _ctypes;   // Column types forcing strings, or null
+  private final BufferedString _str = new BufferedString();
+
+  // Current line
+  private int[] _ends = new int[16];  // Field ends: separators, then the line end
+  private byte[] _kinds = new byte[16];
+  private int[] _starts = new int[16];
+  private long[] _nums = new long[16];
+  private int[] _exps = new int[16];
+
+  private CsvFastPath(ParseSetup setup, byte[] ctypes) {
+    _sep = setup._separator;
+    _singleQuotes = setup._single_quotes;
+    _seps = ONES * (_sep & 0xFF);
+    _lfs = ONES * Parser.CHAR_LF;
+    _crs = ONES * Parser.CHAR_CR;
+    _dqs = ONES * Parser.CHAR_DOUBLE_QUOTE;
+    _sqs = ONES * Parser.CHAR_SINGLE_QUOTE;
+    _naStrings = setup._na_strings;
+    _ctypes = ctypes;
+  }
+
+  /** @return a fast path for the setup, or null if its grammar needs the state machine */
+  static CsvFastPath make(ParseSetup setup, ParseWriter dout) {
+    if (!CsvParser.FAST_PATH || !LITTLE_ENDIAN || !(dout instanceof FVecParseWriter)) return null;
+    // Runs of spaces are one separator; quotes are plain bytes in Hive files
+    if (setup._separator == Parser.CHAR_SPACE || setup._separator == CsvParser.HIVE_SEP) return null;
+    FVecParseWriter fdout = (FVecParseWriter) dout;
+    return new CsvFastPath(setup, fdout._ctypes != null ? setup._column_types : null);
+  }
+
+  // High bit of each byte of w equal to the byte repeated in b, exactly
+  private static long eq(long w, long b) {
+    long x = w ^ b;
+    return ~(((x & LOWS) + LOWS) | x | LOWS);
+  }
+
+  // Separators, line ends, quotes and NULs, which the state machine takes
+  // for a closing quote when unquoted
+  private long structural(long w) {
+    long m = eq(w, _seps) | eq(w, _lfs) | eq(w, _crs) | eq(w, _dqs) | eq(w, 0);
+    return _singleQuotes ? m | eq(w, _sqs) : m;
+  }
+
+  private boolean isStructural(byte c) {
+    return c == _sep || c == 0 || c == Parser.CHAR_LF || c == Parser.CHAR_CR || c == Parser.CHAR_DOUBLE_QUOTE ||
+        (_singleQuotes && c == Parser.CHAR_SINGLE_QUOTE);
+  }
+
+  /**
+   * Parse lines from a line start, as long as they are plain.
+   *
+   * @return the start of the first line not parsed; before the end of bits
+   */
+  int parseLines(byte[] bits, int p, ParseWriter dout) {
+    while (p < bits.length) {
+      byte c = bits[p];
+      if (Parser.isEOL(c)) {  // Empty line
+        if (p + 1 >= bits.length) return p;
+        p++;
+        continue;
+      }
+      int nfields = scanLine(bits, p);
+      if (nfields < 0) return p;
+      int eol = _ends[nfields - 1];
+      int next = eol + (bits[eol] == Parser.CHAR_CR && eol + 1 < bits.length && bits[eol + 1] == Parser.CHAR_LF ? 2 : 1);
+      if (next >= bits.length || !parseFields(bits, p, nfields, dout)) return p;
+      emit(bits, nfields, dout);
+      p = next;
+    }
+    return p;
+  }
+
+  // Field ends of the line starting at p; -1 if quoted or not ended in bits
+  private int scanLine(byte[] bits, int p) {
+    int n = 0;
+    for (int i = p; i < bits.length; i += 8) {
+      long m;
+      if (i + 8 <= bits.length) m = structural(UnsafeUtils.get8(bits, i));
+      else {
+        m = 0;
+        for (int j = i; j < bits.length; j++)
+          if (isStructural(bits[j])) m |= 0x80L << ((j - i) << 3);
+      }
+      for (; m != 0; m &= m - 1) {
+        int j = i + (Long.numberOfTrailingZeros(m) >>> 3);
+        byte c = bits[j];
+        if (n == _ends.length) grow();
+        if (c == _sep) _ends[n++] = j;
+        else if (Parser.isEOL(c)) {
+          _ends[n++] = j;
+          return n;
+        } else return -1;     // Quote or NUL
+      }
+    }
+    return -1;
+  }
+
+  private void grow() {
+    int len = _ends.length * 2;
+    _ends = Arrays.copyOf(_ends, len);
+    _kinds = Arrays.copyOf(_kinds, len);
+    _starts = Arrays.copyOf(_starts, len);
+    _nums = Arrays.copyOf(_nums, len);
+    _exps = Arrays.copyOf(_exps, len);
+  }
+
+  private boolean isForcedString(int col) {
+    return _ctypes != null && col < _ctypes.length && (_ctypes[col] == Vec.T_CAT || _ctypes[col] == Vec.T_STR);
+  }
+
+  // Parse the fields of a line; false if any needs the state machine
+  private boolean parseFields(byte[] bits, int a, int nfields, ParseWriter dout) {
+    for (int col = 0; col < nfields; col++) {
+      int b = _ends[col];
+      while (a < b && (bits[a] == Parser.CHAR_SPACE || (bits[a] == Parser.CHAR_TAB && _sep != Parser.CHAR_TAB))) a++;
+      _starts[col] = a;
+      if (a == b) _kinds[col] = NA;
+      else if (dout.isString(col)) _kinds[col] = STR;
+      else {
+        byte c = bits[a];
+        if (c == '$') return false;
+        if (isForcedString(col)) _kinds[col] = STR;   // Whatever number it starts with
+        else if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.') {
+          byte kind = parseNumber(bits, a, b, col);
+          if (kind < 0) return false;
+          _kinds[col] = kind;
+        } else _kinds[col] = STR;
+      }
+      a = b + 1;
+    }
+    return true;
+  }
+
+  // NUM with the number in _nums and _exps, STR if not a number, -1 if the state machine must decide
+  private byte parseNumber(byte[] bits, int i, int b, int col) {
+    boolean neg = bits[i] == '-';
+    if (neg || bits[i] == '+') i++;
+    long number = 0;
+    int digits = 0, fraction = 0;
+    for (; i < b && bits[i] >= '0' && bits[i] <= '9'; i++, digits++) {
+      if (number >= Parser.LARGEST_DIGIT_NUMBER) return -1;
+      number = number * 10 + (bits[i] - '0');
+    }
+    if (i < b && bits[i] == '.')
+      for (i++; i < b && bits[i] >= '0' && bits[i] <= '9'; i++, digits++, fraction++) {
+        if (number >= Parser.LARGEST_DIGIT_NUMBER) return -1;
+        number = number * 10 + (bits[i] - '0');
+      }
+    if (digits == 0) return -1;   // A sign or a dot alone is zero
+    int exp = 0;
+    if (i < b && (bits[i] == 'e' || bits[i] == 'E')) {
+      int sgn = 1;
+      if (++i < b && (bits[i] == '-' || bits[i] == '+')) sgn = bits[i++] == '-' ? -1 : 1;
+      if (i < b && (bits[i] == '-' || bits[i] == '+')) return -1;   // Signs multiply
+      if (i == b || bits[i] < '0' || bits[i] > '9') return STR;
+      for (int n = 0; i < b && bits[i] >= '0' && bits[i] <= '9'; i++, n++) {
+        if (n == 6) return -1;
+        exp = exp * 10 + (bits[i] - '0');
+      }
+      exp *= sgn;
+    }
+    while (i < b && (bits[i] == Parser.CHAR_SPACE || bits[i] == Parser.CHAR_TAB)) i++;
+    if (i < b) return bits[i] == '%' ? -1 : STR;
+    _nums[col] = neg ? -number : number;
+    _exps[col] = exp - fraction;
+    return NUM;
+  }
+
+  private void emit(byte[] bits, int nfields, ParseWriter dout) {
+    for (int col = 0; col < nfields; col++) {
+      switch (_kinds[col]) {
+        case NA:
+          dout.addInvalidCol(col);
+          break;
+        case NUM:
+          dout.addNumCol(col, _nums[col], _exps[col]);
+          break;
+        default:
+          int a = _starts[col], b = _ends[col];
+          _str.set(bits, a, b - a);
+          if (isNA(col)) dout.addInvalidCol(col);
+          else {
+            dout.addStrCol(col, _str);
+            for (int i = a; i < b; i++)
+              if ((bits[i] & 0x80) == 128) {
+                dout.setIsAllASCII(col, false);
+                break;
+              }
+          }
+      }
+    }
+    dout.newLine();
+  }
+
+  private boolean isNA(int col) {
+    if (_naStrings == null || _naStrings.length <= col || _naStrings[col] == null) return false;
+    for (String s : _naStrings[col])
+      if (_str.equals(s)) return true;
+    return false;
+  }
+}
@@ -4,6 +4,7 @@ import org.apache.commons.lang.math.NumberUtils;
 import org.apache.http.ParseException;
 import water.fvec.Vec;
 import water.fvec.FileVec;
+import water.H2O;
 import water.Key;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
@@ -18,6 +19,8 @@ class CsvParser extends Parser {
   private static final int NO_HEADER = ParseSetup.NO_HEADER;
   private static final int GUESS_HEADER = ParseSetup.GUESS_HEADER;
   private static final int HAS_HEADER = ParseSetup.HAS_HEADER;
+  /** Parse plain lines with the {@link CsvFastPath}; off only to compare with the state machine */
+  static boolean FAST_PATH = !Boolean.getBoolean(H2O.OptArgs.SYSTEM_PROP_PREFIX + "parse.csv.noFastPath");
 
   CsvParser( ParseSetup ps, Key jobKey ) { super(ps, jobKey); }
 
@@ -77,6 +80,8 @@ class CsvParser extends Parser {
     dout.newLine();
 
     final boolean forceable = dout instanceof FVecParseWriter && ((FVecParseWriter)dout)._ctypes != null && _setup._column_types != null;
+    final CsvFastPath fast = CsvFastPath.make(_setup, dout);
+    int fastFrom = -1;          // Line start the fast path last gave up on
 MAIN_LOOP:
     while (true) {
       boolean forcedCategorical = forceable && colIdx < _setup._column_types.length && _setup._column_types[colIdx] == Vec.T_CAT;
@@ -187,6 +192,14 @@ MAIN_LOOP:
           continue MAIN_LOOP;
         // ---------------------------------------------------------------------
         case POSSIBLE_EMPTY_LINE:
+          if (fast != null && firstChunk && offset != fastFrom) {
+            fastFrom = fast.parseLines(bits, offset, dout);
+            if (fastFrom != offset) {
+              offset = fastFrom;
+              c = bits[offset];
+              continue MAIN_LOOP;
+            }
+          }
           if (isEOL(c)) {
             if (c == CHAR_CR)
               state = EXPECT_COND_LF;
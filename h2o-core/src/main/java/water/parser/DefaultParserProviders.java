@@ -66,6 +66,27 @@ public final class DefaultParserProviders {
     }
   }
 
+  public final static class XlsxParserProvider extends AbstractParserProvide  {
+
+    @Override
+    public ParserInfo info() {
+      return XLSX_INFO;
+    }
+
+    @Override
+    public Parser createParser(ParseSetup setup, Key<Job> jobKey) {
+      return new XlsxParser(setup, jobKey);
+    }
+
+    @Override
+    public ParseSetup guessSetup(byte[] bits, byte sep, int ncols, boolean singleQuotes,
+                                 int checkHeader, String[] columnNames, byte[] columnTypes,
+                                 String[][] domains, String[][] naStrings) {
+      if( !XlsxParser.isXlsx(bits) ) throw new ParseDataset.H2OParseException("Not an XLSX file.");
+      return XlsxParser.guessSetup(XlsxParser.source(bits));
+    }
+  }
+
   public final static class SVMLightParserProvider extends AbstractParserProvide {
 
     @Override
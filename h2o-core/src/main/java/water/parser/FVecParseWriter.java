@@ -11,6 +11,10 @@ import water.util.ArrayUtils;
 import java.util.Arrays;
 
 /** Parsed data output specialized for fluid vecs.
+ *
+ * Parsers write cells by file column.  With a column projection, skipped
+ * columns are dropped here and never get a NewChunk; with a row sample,
+ * dropped rows never reach the NewChunks or the categorical dictionaries.
  * @author tomasnykodym
  */
 public class FVecParseWriter extends Iced implements StreamParseWriter {
@@ -26,8 +30,18 @@ public class FVecParseWriter extends Iced implements StreamParseWriter {
   ParseErr [] _errs = new ParseErr[0];
   private final Vec.VectorGroup _vg;
   private long _errCnt;
+  final int[] _colMap;          // Parsed column of each file column, -1 if skipped; null if all are parsed
+  private transient final RowSampler _sampler; // Null if all rows are kept
+  private transient byte[] _timeFormats; // ParseTime format last parsed per column, made on the first time
 
   public FVecParseWriter(Vec.VectorGroup vg, int cidx, Categorical[] categoricals, byte[] ctypes, int chunkSize, AppendableVec[] avs){
+    this(vg, cidx, categoricals, ctypes, chunkSize, avs, null, null);
+  }
+  /** A writer of the parsed columns {@code colMap} of the file, and of the
+   *  rows {@code sampler} keeps; all of them if null. */
+  FVecParseWriter(Vec.VectorGroup vg, int cidx, Categorical[] categoricals, byte[] ctypes, int chunkSize, AppendableVec[] avs, int[] colMap, RowSampler sampler){
+    _colMap = colMap;
+    _sampler = sampler;
     _ctypes = ctypes;           // Required not-null
     _vecs = avs;
     _nvs = new NewChunk[avs.length];
@@ -74,68 +88,97 @@ public class FVecParseWriter extends Iced implements StreamParseWriter {
     return this;
   }
   @Override public FVecParseWriter nextChunk(){
-    return  new FVecParseWriter(_vg, _cidx+1, _categoricals, _ctypes, _chunkSize, _vecs);
+    FVecParseWriter dout = new FVecParseWriter(_vg, _cidx+1, _categoricals, _ctypes, _chunkSize, _vecs, _colMap,
+                                               _sampler == null ? null : _sampler.nextChunk(_cidx+1));
+    dout._timeFormats = _timeFormats; // Streamed chunks of a file share their time formats
+    return dout;
+  }
+
+  // Parsed column of a file column, or -1 if it is skipped
+  final int parsedColumn(int colIdx) {
+    if( _colMap == null ) return colIdx < _nCols ? colIdx : -1;
+    return colIdx < _colMap.length ? _colMap[colIdx] : -1;
   }
 
   @Override public void newLine() {
+    if( _sampler != null ) _sampler.endRow(this); // Writes out a held row if kept
     if(_col >= 0){
       ++_nLines;
       for(int i = _col+1; i < _nCols; ++i)
-        addInvalidCol(i);
+        na(i);
     }
     _col = -1;
   }
   @Override public void addNumCol(int colIdx, long number, int exp) {
-    if( colIdx < _nCols ) {
-      _nvs[_col = colIdx].addNum(number, exp);
-      if(_ctypes != null && _ctypes[colIdx] == Vec.T_BAD ) _ctypes[colIdx] = Vec.T_NUM;
-    }
+    if( _sampler != null && _sampler.hold(colIdx, number, exp) ) return;
+    int c = parsedColumn(colIdx);
+    if( c >= 0 ) num(c, number, exp);
+  }
+  final void num(int colIdx, long number, int exp) {
+    _nvs[_col = colIdx].addNum(number, exp);
+    if(_ctypes != null && _ctypes[colIdx] == Vec.T_BAD ) _ctypes[colIdx] = Vec.T_NUM;
   }
 
   @Override public final void addInvalidCol(int colIdx) {
-    if(colIdx < _nCols) _nvs[_col = colIdx].addNA();
+    if( _sampler != null && _sampler.holdNA(colIdx) ) return;
+    int c = parsedColumn(colIdx);
+    if( c >= 0 ) na(c);
+  }
+  final void na(int colIdx) { _nvs[_col = colIdx].addNA(); }
+
+  @Override public boolean isString(int colIdx) {
+    int c = parsedColumn(colIdx);
+    return c >= 0 && (_ctypes[c] == Vec.T_CAT || _ctypes[c] == Vec.T_STR);
   }
-  @Override public boolean isString(int colIdx) { return (colIdx < _nCols) && (_ctypes[colIdx] == Vec.T_CAT || _ctypes[colIdx] == Vec.T_STR);}
 
   @Override public void addStrCol(int colIdx, BufferedString str) {
-    if(colIdx < _nvs.length){
-      if(_ctypes[colIdx] == Vec.T_NUM){ // support enforced types
-        addInvalidCol(colIdx);
-        return;
+    if( _sampler != null && _sampler.hold(colIdx, str) ) return;
+    int c = parsedColumn(colIdx);
+    if( c >= 0 ) str(c, str);
+  }
+  final void str(int colIdx, BufferedString str) {
+    if(_ctypes[colIdx] == Vec.T_NUM){ // support enforced types
+      na(colIdx);
+      return;
+    }
+    long l = Long.MIN_VALUE;    // A time parsed while guessing the type
+    if(_ctypes[colIdx] == Vec.T_BAD && (l = timeParse(colIdx, str)) != Long.MIN_VALUE)
+      _ctypes[colIdx] = Vec.T_TIME;
+    if( _ctypes[colIdx] == Vec.T_BAD && ParseUUID.isUUID(str))
+      _ctypes[colIdx] = Vec.T_UUID;
+
+    if( _ctypes[colIdx] == Vec.T_TIME ) {
+      if( l == Long.MIN_VALUE ) l = timeParse(colIdx, str);
+      if( l == Long.MIN_VALUE ) na(colIdx);
+      else {
+        num(colIdx, l, 0);               // Record time in msec
+        _nvs[_col]._timCnt++; // Count histo of time parse patterns
       }
-      if(_ctypes[colIdx] == Vec.T_BAD && ParseTime.isTime(str))
-        _ctypes[colIdx] = Vec.T_TIME;
-      if( _ctypes[colIdx] == Vec.T_BAD && ParseUUID.isUUID(str))
-        _ctypes[colIdx] = Vec.T_UUID;
-
-      if( _ctypes[colIdx] == Vec.T_TIME ) {
-        long l = ParseTime.attemptTimeParse(str);
-        if( l == Long.MIN_VALUE ) addInvalidCol(colIdx);
-        else {
-          addNumCol(colIdx, l, 0);               // Record time in msec
-          _nvs[_col]._timCnt++; // Count histo of time parse patterns
-        }
-      } else if( _ctypes[colIdx] == Vec.T_UUID ) { // UUID column?  Only allow UUID parses
-        long[] uuid = ParseUUID.attemptUUIDParse(str);
-        // FIXME: what if colIdx > _nCols
-        if( colIdx < _nCols ) _nvs[_col = colIdx].addUUID(uuid[0], uuid[1]);
-      } else if( _ctypes[colIdx] == Vec.T_STR ) {
-        _nvs[_col = colIdx].addStr(str);
-      } else { // categoricals
-        if(!_categoricals[colIdx].isMapFull()) {
-          int id = _categoricals[_col = colIdx].addKey(str);
-          if (_ctypes[colIdx] == Vec.T_BAD && id > 1) _ctypes[colIdx] = Vec.T_CAT;
-          if(_ctypes[colIdx] == Vec.T_CAT) {
-            _nvs[colIdx].addNum(id, 0); // if we are sure we have a categorical column, we can only store the integer (more efficient than remembering this value was categorical)
-          } else
-            _nvs[colIdx].addCategorical(id);
-        } else { // maxed out categorical map
-          throw new ParseDataset.H2OParseException("Exceeded categorical limit on column #"+(colIdx+1)+" (using 1-based indexing).  Consider reparsing this column as a string.");
-        }
+    } else if( _ctypes[colIdx] == Vec.T_UUID ) { // UUID column?  Only allow UUID parses
+      long[] uuid = ParseUUID.attemptUUIDParse(str);
+      _nvs[_col = colIdx].addUUID(uuid[0], uuid[1]);
+    } else if( _ctypes[colIdx] == Vec.T_STR ) {
+      _nvs[_col = colIdx].addStr(str);
+    } else { // categoricals
+      if(!_categoricals[colIdx].isMapFull()) {
+        int id = _categoricals[_col = colIdx].addKey(str);
+        if (_ctypes[colIdx] == Vec.T_BAD && id > 1) _ctypes[colIdx] = Vec.T_CAT;
+        if(_ctypes[colIdx] == Vec.T_CAT) {
+          _nvs[colIdx].addNum(id, 0); // if we are sure we have a categorical column, we can only store the integer (more efficient than remembering this value was categorical)
+        } else
+          _nvs[colIdx].addCategorical(id);
+      } else { // maxed out categorical map
+        throw new ParseDataset.H2OParseException("Exceeded categorical limit on column #"+(colIdx+1)+" (using 1-based indexing).  Consider reparsing this column as a string.");
       }
     }
   }
 
+  // Time of the cell, trying the format of the column's last time first
+  private long timeParse(int colIdx, BufferedString str) {
+    if( _timeFormats == null ) _timeFormats = new byte[_ctypes.length];
+    return ParseTime.attemptTimeParse(str, _timeFormats, colIdx);
+  }
+
   /** Adds double value to the column. */
   @Override public void addNumCol(int colIdx, double value) {
     if (Double.isNaN(value)) {
@@ -169,7 +212,10 @@ public class FVecParseWriter extends Iced implements StreamParseWriter {
     _errCnt++;
   }
 
-  @Override public void setIsAllASCII(int colIdx, boolean b) {_nvs[colIdx]._isAllASCII = b;}
+  @Override public void setIsAllASCII(int colIdx, boolean b) {
+    int c = parsedColumn(colIdx);
+    if( c >= 0 ) _nvs[c]._isAllASCII = b;
+  }
 
   @Override
   public boolean hasErrors() {
@@ -183,7 +229,7 @@ public class FVecParseWriter extends Iced implements StreamParseWriter {
   }
 
   @Override
-  public long lineNum() {return _nLines;}
+  public long lineNum() {return _sampler == null ? _nLines : _nLines + _sampler._dropped;}
 
   public void addErr(ParseErr err){
     if(_errs.length < 20)
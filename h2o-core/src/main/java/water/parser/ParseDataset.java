@@ -47,6 +47,30 @@ public final class ParseDataset {
     return pds;
   }
 
+  // Parse more files into the existing Frame dst, guessing the setup from the first Key
+  public static Frame append(Key<Frame> dst, Key... keys) {
+    return append(dst, keys, true, ParseSetup.guessSetup(keys, false, ParseSetup.GUESS_HEADER));
+  }
+  /** Parse the keys with the column names and types of the existing Frame
+   *  {@code dst}, and append the rows to it without copying the old chunks.
+   *  Categorical domains are extended with any new levels. */
+  public static Frame append(Key<Frame> dst, Key[] keys, boolean deleteOnDone, ParseSetup setup) {
+    Frame fr = DKV.getGet(dst);
+    if( fr == null )
+      throw new H2OIllegalArgumentException("Missing data","Did not find any frame under key " + dst);
+    if( setup._number_columns != fr.numCols() )
+      throw new H2OIllegalArgumentException("Cannot append " + setup._number_columns + " columns to frame " + dst + " of " + fr.numCols() + " columns");
+    byte[] ctypes = new byte[fr.numCols()];
+    for( int i=0; i<ctypes.length; i++ ) {
+      byte t = fr.vec(i).get_type();
+      ctypes[i] = t == Vec.T_BAD ? Vec.T_NUM : t;
+    }
+    setup._column_types = ctypes;
+    setup._column_names = fr.names().clone();
+    Frame src = parse(Key.make(), keys, deleteOnDone, setup);
+    return FrameAppender.append(fr, src, null);
+  }
+
   // Allow both ByteVec keys and Frame-of-1-ByteVec
   static ByteVec getByteVec(Key key) {
     Iced ice = DKV.getGet(key);
@@ -75,6 +99,7 @@ public final class ParseDataset {
   }
 
   public static Job forkParseSVMLight(final Key<Frame> dest, final Key [] keys, final ParseSetup setup) {
+    setup.checkSchemaOnRead();
     int nchunks = 0;
     Vec v = null;
     // set the parse chunk size for files
@@ -118,6 +143,7 @@ public final class ParseDataset {
     // FIXME: ParseSetup should be separated into two classes - one for using via Rest API as user setup
     //        and another as an internal parser setup to drive parsing.
     final ParseSetup setup = parseSetup.getFinalSetup(keys, parseSetup);
+    setup.checkSchemaOnRead();
 
     HashSet<String> conflictingNames = setup.checkDupColumnNames();
     for( String x : conflictingNames )
@@ -243,6 +269,7 @@ public final class ParseDataset {
     if( job.stop_requested() ) return pds;
 
     final AppendableVec [] avs = mfpt.vecs();
+    setup = setup.parsedSetup(); // Only the parsed columns from here on
     setup._column_names = getColumnNames(avs.length, setup._column_names);
 
     Frame fr = null;
@@ -256,10 +283,12 @@ public final class ParseDataset {
     final int[] ecols = Arrays.copyOf(ecols2, n);
     // If we have any, go gather unified categorical domains
     if( n > 0 ) {
+      byte[][] packedDomains = null;
       if (!setup.getParseType().isDomainProvided) { // Domains are not provided via setup we need to collect them
         job.update(0, "Collecting categorical domains across nodes.");
         {
           GatherCategoricalDomainsTask gcdt = new GatherCategoricalDomainsTask(mfpt._cKey, ecols).doAllNodes();
+          packedDomains = gcdt._packedDomains;
           //Test domains for excessive length.
           List<String> offendingColNames = new ArrayList<>();
           for (int i = 0; i < ecols.length; i++) {
@@ -296,7 +325,7 @@ public final class ParseDataset {
           RPC[] rpcs = new RPC[H2O.CLOUD.size()];
           for (int i = 0; i < fcdt.length; i++){
             H2ONode[] nodes = H2O.CLOUD.members();
-            fcdt[i] = new CreateParse2GlobalCategoricalMaps(mfpt._cKey, fr._key, ecols);
+            fcdt[i] = new CreateParse2GlobalCategoricalMaps(mfpt._cKey, packedDomains, ecols);
             rpcs[i] = new RPC<>(nodes[i], fcdt[i]).call();
           }
           for (RPC rpc : rpcs)
@@ -366,17 +395,16 @@ public final class ParseDataset {
   }
   private static class CreateParse2GlobalCategoricalMaps extends DTask<CreateParse2GlobalCategoricalMaps> {
     private final Key   _parseCatMapsKey;
-    private final Key   _frKey;
+    private final byte[][] _packedDomains;  // Global domains, sorted, per categorical column
     private final int[] _ecol;
 
-    private CreateParse2GlobalCategoricalMaps(Key parseCatMapsKey, Key key, int[] ecol) {
+    private CreateParse2GlobalCategoricalMaps(Key parseCatMapsKey, byte[][] packedDomains, int[] ecol) {
       _parseCatMapsKey = parseCatMapsKey;
-      _frKey = key;
+      _packedDomains = packedDomains;
       _ecol = ecol;
     }
 
     @Override public void compute2() {
-      Frame _fr = DKV.getGet(_frKey);
       // get the node local category->ordinal maps for each column from initial parse pass
       if( !MultiFileParseTask._categoricals.containsKey(_parseCatMapsKey) ) {
         tryComplete();
@@ -385,21 +413,12 @@ public final class ParseDataset {
         final Categorical[] parseCatMaps = MultiFileParseTask._categoricals.get(_parseCatMapsKey);
         int[][] _nodeOrdMaps = new int[_ecol.length][];
 
-        // create old_ordinal->new_ordinal map for each cat column
+        // create old_ordinal->new_ordinal map for each cat column, walking
+        // the sorted node-local levels along the sorted global domain
         for (int eColIdx = 0; eColIdx < _ecol.length; eColIdx++) {
           int colIdx = _ecol[eColIdx];
           if (parseCatMaps[colIdx].size() != 0) {
-            _nodeOrdMaps[eColIdx] = MemoryManager.malloc4(parseCatMaps[colIdx].maxId() + 1);
-            Arrays.fill(_nodeOrdMaps[eColIdx], -1);
-            //Bulk String->BufferedString conversion is slightly faster, but consumes memory
-            final BufferedString[] unifiedDomain = BufferedString.toBufferedString(_fr.vec(colIdx).domain());
-            //final String[] unifiedDomain = _fr.vec(colIdx).domain();
-            for (int i = 0; i < unifiedDomain.length; i++) {
-              //final BufferedString cat = new BufferedString(unifiedDomain[i]);
-              if (parseCatMaps[colIdx].containsKey(unifiedDomain[i])) {
-                _nodeOrdMaps[eColIdx][parseCatMaps[colIdx].getTokenId(unifiedDomain[i])] = i;
-              }
-            }
+            _nodeOrdMaps[eColIdx] = parseCatMaps[colIdx].mapTo(_packedDomains[eColIdx]);
           } else {
             Log.debug("Column " + colIdx + " was marked as categorical but categorical map is empty!");
           }
@@ -473,14 +492,11 @@ public final class ParseDataset {
     public void setupLocal() {
       if (!MultiFileParseTask._categoricals.containsKey(_k)) return;
       _packedDomains = new byte[_catColIdxs.length][];
-      final BufferedString[][] _perColDomains = new BufferedString[_catColIdxs.length][];
       final Categorical[] _colCats = MultiFileParseTask._categoricals.get(_k);
       int i = 0;
       for (int col : _catColIdxs) {
         _colCats[col].convertToUTF8(col + 1);
-        _perColDomains[i] = _colCats[col].getColumnDomain();
-        Arrays.sort(_perColDomains[i]);
-        _packedDomains[i] = packDomain(_perColDomains[i]);
+        _packedDomains[i] = _colCats[col].packSortedDomain();
         i++;
       }
       Log.trace("Done locally collecting domains on each node.");
@@ -568,22 +584,6 @@ public final class ParseDataset {
       Log.trace("Done merging domains.");
     }
 
-    private byte[] packDomain(BufferedString[] domain) {
-      int totStrLen =0;
-      for(BufferedString dom : domain)
-        totStrLen += dom.length();
-      final byte[] packedDom = MemoryManager.malloc1(4 + (domain.length << 2) + totStrLen, false);
-      UnsafeUtils.set4(packedDom, 0, domain.length); //Store domain size
-      int i = 4;
-      for(BufferedString dom : domain) {
-        UnsafeUtils.set4(packedDom, i, dom.length()); //Store str len
-        i += 4;
-        byte[] buf = dom.getBuffer();
-        for(int j=0; j < buf.length; j++) //Store str chars
-          packedDom[i++] = buf[j];
-      }
-      return packedDom;
-    }
     public int getDomainLength(int colIdx) {
       if (_packedDomains == null) return 0;
       else return UnsafeUtils.get4(_packedDomains[colIdx], 0);
@@ -668,6 +668,8 @@ public final class ParseDataset {
     private final Key<Job> _jobKey;
     // A mapping of Key+ByteVec to rolling total Chunk counts.
     private final int[]  _fileChunkOffsets;
+    // Per file, the plan to inflate blocked gzip in parallel, or null
+    private final BlockGzip[] _blockGzips;
 
     // OUTPUT fields:
     FVecParseWriter[] _dout;
@@ -682,10 +684,16 @@ public final class ParseDataset {
       _jobKey = jobKey;
       // A mapping of Key+ByteVec to rolling total Chunk counts.
       _fileChunkOffsets = new int[fkeys.length];
+      _blockGzips = new BlockGzip[fkeys.length];
       int len = 0;
       for( int i = 0; i < fkeys.length; ++i ) {
         _fileChunkOffsets[i] = len;
-        len += getByteVec(fkeys[i]).nChunks();
+        ByteVec vec = getByteVec(fkeys[i]);
+        // Blocked gzip parses from its inflated chunks, as many as they are
+        if( _parseSetup._parse_type.isParallelParseSupported() &&
+            ZipUtil.guessCompressionMethod(vec.getFirstBytes()) == ZipUtil.Compression.GZIP )
+          _blockGzips[i] = BlockGzip.plan(vec);
+        len += _blockGzips[i] != null ? _blockGzips[i].nChunks() : vec.nChunks();
       }
 
       // Mapping from Chunk# to cluster-node-number
@@ -725,8 +733,9 @@ public final class ParseDataset {
         _parseSetup._column_types = new byte[res.length];
         Arrays.fill(_parseSetup._column_types,Vec.T_NUM);
       }
+      byte[] ctypes = _parseSetup.parsedColumnTypes();
       for(int i = 0; i < res.length; ++i)
-        res[i] = new AppendableVec(_vg.vecKey(_vecIdStart + i), espc, _parseSetup._column_types[i], 0);
+        res[i] = new AppendableVec(_vg.vecKey(_vecIdStart + i), espc, ctypes[i], 0);
       // Load the global ESPC from the file-local ESPCs
       for( FVecParseWriter fvpw : _dout ) {
         AppendableVec[] avs = fvpw._vecs;
@@ -775,14 +784,15 @@ public final class ParseDataset {
     }
 
     private FVecParseWriter makeDout(ParseSetup localSetup, int chunkOff, int nchunks) {
-      AppendableVec [] avs = new AppendableVec[localSetup._number_columns];
+      AppendableVec [] avs = new AppendableVec[localSetup.parsedColumnCount()];
       final long [] espc = MemoryManager.malloc8(nchunks);
-      final byte[] ctypes = localSetup._column_types; // SVMLight only uses numeric types, sparsely represented as a null
+      final byte[] ctypes = localSetup.parsedColumnTypes(); // SVMLight only uses numeric types, sparsely represented as a null
       for(int i = 0; i < avs.length; ++i)
         avs[i] = new AppendableVec(_vg.vecKey(i + _vecIdStart), espc, ctypes==null ? /*SVMLight*/Vec.T_NUM : ctypes[i], chunkOff);
       return localSetup._parse_type.equals(SVMLight_INFO)
         ? new SVMLightFVecParseWriter(_vg, _vecIdStart,chunkOff, _parseSetup._chunk_size, avs)
-        : new FVecParseWriter(_vg, chunkOff, categoricals(_cKey, localSetup._number_columns), localSetup._column_types, _parseSetup._chunk_size, avs);
+        : new FVecParseWriter(_vg, chunkOff, categoricals(_cKey, avs.length), ctypes, _parseSetup._chunk_size, avs,
+                              localSetup.parsedColumnMap(), RowSampler.make(localSetup, chunkOff));
     }
 
     // Called once per file
@@ -805,9 +815,17 @@ public final class ParseDataset {
         switch( cpr ) {
         case NONE:
           if( _parseSetup._parse_type.isParallelParseSupported()) {
-            new DistributedParse(_vg, localSetup, _vecIdStart, chunkStartIdx, this, key, vec.nChunks()).dfork(vec).getResult(false);
+            new DistributedParse(_vg, localSetup, _vecIdStart, chunkStartIdx, this, key, vec.nChunks(), null).dfork(vec).getResult(false);
             for( int i = 0; i < vec.nChunks(); ++i )
               _chunk2ParseNodeMap[chunkStartIdx + i] = vec.chunkKey(i).home_node().index();
+          } else if( localSetup._parse_type.equals(XLSX_INFO) ) {
+            // A workbook is read twice, its shared strings and then its sheet
+            FVecParseWriter dout = makeDout(localSetup,chunkStartIdx,vec.nChunks());
+            ((XlsxParser)localSetup.parser(_jobKey)).parse(XlsxParser.source(vec, _jobKey), dout);
+            dout.close(_fs);
+            _dout[_lo] = dout;
+            _errors = _dout[_lo].removeErrors();
+            chunksAreLocal(vec,chunkStartIdx,key);
           } else {
             InputStream bvs = vec.openStream(_jobKey);
             _dout[_lo] = streamParse(bvs, localSetup, makeDout(localSetup,chunkStartIdx,vec.nChunks()), bvs);
@@ -834,6 +852,15 @@ public final class ParseDataset {
           break;
         }
         case GZIP: {
+          if( _blockGzips[_lo] != null ) {
+            // Blocked gzip; each compressed chunk inflates and parses its own blocks
+            BlockGzip bgz = _blockGzips[_lo];
+            new DistributedParse(_vg, localSetup, _vecIdStart, chunkStartIdx, this, key, bgz.nChunks(), bgz).dfork(vec).getResult(false);
+            for( int c = 0; c < vec.nChunks(); ++c )
+              for( int i = 0; i < bgz.nPieces(c); ++i )
+                _chunk2ParseNodeMap[chunkStartIdx + bgz.firstPiece(c) + i] = vec.chunkKey(c).home_node().index();
+            break;
+          }
           InputStream bvs = vec.openStream(_jobKey);
           // Zipped file; no parallel decompression;
           _dout[_lo] = streamParse(new GZIPInputStream(bvs),localSetup,makeDout(localSetup,chunkStartIdx,vec.nChunks()),bvs);
@@ -910,9 +937,10 @@ public final class ParseDataset {
       private transient final Key _srckey; // Source/text file to delete on done
       private transient NonBlockingSetInt _visited;
       private transient long [] _espc;
-      final int _nchunks;
+      final int _nchunks;       // Of the parsed output
+      private final BlockGzip _blockGzip; // Plan to inflate the input chunks, or null if not compressed
 
-      DistributedParse(VectorGroup vg, ParseSetup setup, int vecIdstart, int startChunkIdx, MultiFileParseTask mfpt, Key srckey, int nchunks) {
+      DistributedParse(VectorGroup vg, ParseSetup setup, int vecIdstart, int startChunkIdx, MultiFileParseTask mfpt, Key srckey, int nchunks, BlockGzip blockGzip) {
         super(null);
         _vg = vg;
         _setup = setup;
@@ -923,6 +951,7 @@ public final class ParseDataset {
         _jobKey = mfpt._jobKey;
         _srckey = srckey;
         _nchunks = nchunks;
+        _blockGzip = blockGzip;
       }
       @Override public void setupLocal(){
         super.setupLocal();
@@ -931,40 +960,53 @@ public final class ParseDataset {
       }
       @Override public void map( Chunk in ) {
         if( _jobKey.get().stop_requested() ) return;
-        AppendableVec [] avs = new AppendableVec[_setup._number_columns];
+        if( _blockGzip == null ) parse(in.cidx(), new FVecParseReader(in));
+        else {                  // Every inflated piece is parsed, then dropped
+          BlockGzip.Reader din = _blockGzip.reader(in);
+          for( int i = 0; i < _blockGzip.nPieces(in.cidx()); ++i )
+            parse(_blockGzip.firstPiece(in.cidx()) + i, din);
+        }
+        Job.update(in._len, _jobKey); // Record bytes parsed
+        // remove parsed data right away
+        freeMem(in);
+      }
+
+      // Parse one chunk of input bytes into chunk _startChunkIdx+chunk of the output
+      private void parse( int chunk, ParseReader din ) {
+        final byte[] ctypes = _setup.parsedColumnTypes();
+        AppendableVec [] avs = new AppendableVec[_setup.parsedColumnCount()];
         for(int i = 0; i < avs.length; ++i)
-          if (_setup._column_types == null) // SVMLight
+          if (ctypes == null) // SVMLight
             avs[i] = new AppendableVec(_vg.vecKey(_vecIdStart + i), _espc, Vec.T_NUM, _startChunkIdx);
           else
-            avs[i] = new AppendableVec(_vg.vecKey(_vecIdStart + i), _espc, _setup._column_types[i], _startChunkIdx);
-        // Break out the input & output vectors before the parse loop
-        FVecParseReader din = new FVecParseReader(in);
+            avs[i] = new AppendableVec(_vg.vecKey(_vecIdStart + i), _espc, ctypes[i], _startChunkIdx);
+        final int cidx = _startChunkIdx + chunk;
         FVecParseWriter dout;
         // Get a parser
         Parser p = _setup.parser(_jobKey);
         switch(_setup._parse_type.name()) {
         case "ARFF":
         case "CSV":
-          Categorical [] categoricals = categoricals(_cKey, _setup._number_columns);
-          dout = new FVecParseWriter(_vg,_startChunkIdx + in.cidx(), categoricals, _setup._column_types, _setup._chunk_size, avs); //TODO: use _setup._domains instead of categoricals
+          Categorical [] categoricals = categoricals(_cKey, avs.length);
+          dout = new FVecParseWriter(_vg, cidx, categoricals, ctypes, _setup._chunk_size, avs,
+                                     _setup.parsedColumnMap(), RowSampler.make(_setup, cidx)); //TODO: use _setup._domains instead of categoricals
           break;
         case "SVMLight":
-          dout = new SVMLightFVecParseWriter(_vg, _vecIdStart, in.cidx() + _startChunkIdx, _setup._chunk_size, avs);
+          dout = new SVMLightFVecParseWriter(_vg, _vecIdStart, cidx, _setup._chunk_size, avs);
           break;
         default: // FIXME: should not be default and creation strategy should be forwarded to ParserProvider
-          dout = new FVecParseWriter(_vg, in.cidx() + _startChunkIdx, null, _setup._column_types, _setup._chunk_size, avs);
+          dout = new FVecParseWriter(_vg, cidx, null, ctypes, _setup._chunk_size, avs,
+                                     _setup.parsedColumnMap(), RowSampler.make(_setup, cidx));
           break;
         }
-        p.parseChunk(in.cidx(), din, dout);
-        (_dout = dout).close(_fs);
-        if(_dout.hasErrors())
-          for(ParseWriter.ParseErr err:_dout._errs) {
+        p.parseChunk(chunk, din, dout);
+        dout.close(_fs);
+        if(dout.hasErrors())
+          for(ParseWriter.ParseErr err:dout._errs) {
             assert err != null : "Parse error cannot be null!";
             err._file = _srckey.toString();
           }
-        Job.update(in._len, _jobKey); // Record bytes parsed
-        // remove parsed data right away
-        freeMem(in);
+        _dout = _dout == null ? dout : _dout.reduce(dout);
       }
 
       /**
@@ -988,7 +1030,8 @@ public final class ParseDataset {
         }
       }
       @Override public void reduce(DistributedParse dp) {
-        _dout.reduce(dp._dout);
+        if( _dout == null ) _dout = dp._dout; // A compressed chunk may start no block
+        else if( dp._dout != null ) _dout.reduce(dp._dout);
 
       }
 
@@ -8,6 +8,7 @@ import water.util.ArrayUtils;
 import water.util.Log;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.StringReader;
 import java.util.Arrays;
@@ -25,6 +26,9 @@ public class ParseSetup extends Iced {
   public static final int HAS_HEADER = 1;
   public static final int GUESS_COL_CNT = -1;
 
+  // Size parse chunks from a sample parse of each file, rather than from the file size alone
+  static boolean ADAPTIVE_CHUNK_SIZE = Boolean.getBoolean(H2O.OptArgs.SYSTEM_PROP_PREFIX + "parse.adaptiveChunkSize");
+
   ParserInfo _parse_type;     // CSV, XLS, XSLX, SVMLight, Auto, ARFF
   byte _separator;            // Field separator, usually comma ',' or TAB or space ' '
   // Whether or not single-quotes quote a field.  E.g. how do we parse:
@@ -42,6 +46,11 @@ public class ParseSetup extends Iced {
 
   public ParseWriter.ParseErr[] _errs;
   public int _chunk_size = FileVec.DFLT_CHUNK_SIZE;  // Optimal chunk size to be used store values
+  // Schema on read: parse only some of the columns and a sample of the rows
+  int[] _skipped_columns;     // File columns left out of the parsed frame, or null
+  double _sample_rate = 1;    // Fraction of the rows kept
+  long _sample_seed = -1;     // Seed of the row sample, -1 for a random one
+  int _sample_strata_column = -1; // File column whose levels are sampled alike, or -1 for a Bernoulli sample
   PreviewParseWriter _column_previews = null;
 
   public ParseSetup(ParseSetup ps) {
@@ -49,6 +58,10 @@ public class ParseSetup extends Iced {
          ps._separator, ps._single_quotes, ps._check_header, ps._number_columns,
          ps._column_names, ps._column_types, ps._domains, ps._na_strings, ps._data,
          new ParseWriter.ParseErr[0], ps._chunk_size);
+    _skipped_columns = ps._skipped_columns;
+    _sample_rate = ps._sample_rate;
+    _sample_seed = ps._sample_seed;
+    _sample_strata_column = ps._sample_strata_column;
   }
 
   public static ParseSetup makeSVMLightSetup(){
@@ -192,6 +205,82 @@ public class ParseSetup extends Iced {
     throw new H2OIllegalArgumentException("Unknown parser configuration! Configuration=" + this);
   }
 
+  /** Check the column projection and row sample against the file columns,
+   *  and fix the seed of the sample for every node. */
+  void checkSchemaOnRead() {
+    if( _skipped_columns != null && _skipped_columns.length > 0 ) {
+      if( _parse_type.equals(SVMLight_INFO) )
+        throw new H2OIllegalArgumentException("Cannot skip columns of an SVMLight file");
+      for( int c : _skipped_columns )
+        if( c < 0 || c >= _number_columns )
+          throw new H2OIllegalArgumentException("skipped_columns", "parse", c);
+      if( parsedColumnCount() == 0 )
+        throw new H2OIllegalArgumentException("Cannot skip every column");
+    }
+    if( !(_sample_rate > 0 && _sample_rate <= 1) )
+      throw new H2OIllegalArgumentException("sample_rate", "parse", _sample_rate);
+    if( _parse_type.equals(SVMLight_INFO) && (_sample_rate < 1 || _sample_strata_column != -1) )
+      throw new H2OIllegalArgumentException("Cannot sample rows of an SVMLight file");
+    if( _sample_strata_column < -1 || _sample_strata_column >= _number_columns )
+      throw new H2OIllegalArgumentException("sample_strata_column", "parse", _sample_strata_column);
+    if( _sample_rate < 1 && _sample_seed == -1 )
+      _sample_seed = new java.util.Random().nextLong();
+  }
+
+  /** The parsed column of each file column, -1 for a skipped one; null if
+   *  every column is parsed. */
+  int[] parsedColumnMap() {
+    if( _skipped_columns == null || _skipped_columns.length == 0 ) return null;
+    int[] map = new int[_number_columns];
+    for( int c : _skipped_columns ) map[c] = -1;
+    int n = 0;
+    for( int i = 0; i < map.length; i++ )
+      map[i] = map[i] < 0 ? -1 : n++;
+    return map;
+  }
+
+  /** Number of columns of the parsed frame */
+  int parsedColumnCount() {
+    int[] map = parsedColumnMap();
+    if( map == null ) return _number_columns;
+    int n = 0;
+    for( int c : map ) if( c >= 0 ) n++;
+    return n;
+  }
+
+  /** Column types of the parsed frame; the types of the setup itself if every column is parsed */
+  byte[] parsedColumnTypes() {
+    int[] map = parsedColumnMap();
+    if( map == null || _column_types == null ) return _column_types;
+    byte[] types = new byte[parsedColumnCount()];
+    for( int i = 0; i < map.length; i++ )
+      if( map[i] >= 0 ) types[map[i]] = _column_types[i];
+    return types;
+  }
+
+  /** This setup for the parsed frame: its column names, types, domains and NA
+   *  strings are those of the parsed columns only. */
+  ParseSetup parsedSetup() {
+    int[] map = parsedColumnMap();
+    if( map == null ) return this;
+    ParseSetup ps = new ParseSetup(this);
+    ps._errs = _errs;
+    ps._number_columns = parsedColumnCount();
+    ps._column_names = parsed(map, ParseDataset.getColumnNames(_number_columns, _column_names), ps._number_columns);
+    ps._column_types = parsedColumnTypes();
+    ps._domains = parsed(map, _domains, ps._number_columns);
+    ps._na_strings = parsed(map, _na_strings, ps._number_columns);
+    ps._skipped_columns = null;
+    return ps;
+  }
+  private static <T> T[] parsed(int[] map, T[] cols, int n) {
+    if( cols == null || cols.length != map.length ) return null;
+    T[] res = Arrays.copyOf(cols, n);
+    for( int i = 0; i < map.length; i++ )
+      if( map[i] >= 0 ) res[map[i]] = cols[i];
+    return res;
+  }
+
   // Set of duplicated column names
   HashSet<String> checkDupColumnNames() {
     HashSet<String> conflictingNames = new HashSet<>();
@@ -260,8 +349,13 @@ public class ParseSetup extends Iced {
     if (ice instanceof Frame && ((Frame) ice).vec(0) instanceof UploadFileVec) {
       t._gblSetup._chunk_size = FileVec.DFLT_CHUNK_SIZE;
     } else {
+      int cores = Runtime.getRuntime().availableProcessors();
       t._gblSetup._chunk_size = FileVec.calcOptimalChunkSize(t._totalParseSize, t._gblSetup._number_columns, t._maxLineLength,
-              Runtime.getRuntime().availableProcessors(), H2O.getCloudSize(), false /*use new heuristic*/, true);
+              cores, H2O.getCloudSize(), false /*use new heuristic*/, true);
+      if (t._sampleRows > 0)
+        t._gblSetup._chunk_size = FileVec.calcAdaptiveChunkSize(t._totalParseSize, t._gblSetup._number_columns, t._maxLineLength,
+                cores, H2O.getCloudSize(), t._sampleBytes, t._sampleRows, t._sampleNanos, t._sampleCompressedBytes,
+                t._gblSetup._chunk_size);
     }
 
     return t._gblSetup;
@@ -281,6 +375,8 @@ public class ParseSetup extends Iced {
     public long _totalParseSize;
     public long _maxLineLength;
     String _file;
+    // Sample parse, in adaptive chunk size mode
+    long _sampleBytes, _sampleRows, _sampleNanos, _sampleCompressedBytes;
 
     /**
      *
@@ -326,6 +422,17 @@ public class ParseSetup extends Iced {
         else  // avoid numerical distortion of file size when not compressed
           _totalParseSize += bv.length();
 
+        // A workbook has no lines; its guess reads the first rows of the first sheet, up to XlsxParser.GUESS_ROWS
+        if (XlsxParser.isXlsx(bits)) {
+          try {
+            _gblSetup = XlsxParser.guessSetup(XlsxParser.source(bv, null));
+          } catch (ParseDataset.H2OParseException pse) {
+            throw pse.resetMsg(pse.getMessage()+" for "+key);
+          }
+          _maxLineLength = 0;
+          return;
+        }
+
         // Check for supported encodings
         checkEncoding(bits);
 
@@ -345,6 +452,8 @@ public class ParseSetup extends Iced {
             e._cidx = 0;
             e._file = _file;
           }
+          if (ADAPTIVE_CHUNK_SIZE && _gblSetup._parse_type.equals(CSV_INFO) && _gblSetup._number_columns > 0)
+            sampleParse(bits);
         } catch (ParseDataset.H2OParseException pse) {
           throw pse.resetMsg(pse.getMessage()+" for "+key);
         }
@@ -398,6 +507,12 @@ public class ParseSetup extends Iced {
     public void reduce(GuessSetupTsk other) {
       if (other._empty) return;
 
+      _totalParseSize += other._totalParseSize;
+      _maxLineLength = Math.max(_maxLineLength, other._maxLineLength);
+      _sampleBytes += other._sampleBytes;
+      _sampleRows += other._sampleRows;
+      _sampleNanos += other._sampleNanos;
+      _sampleCompressedBytes += other._sampleCompressedBytes;
       if (_gblSetup == null) {
         _empty = false;
         _gblSetup = other._gblSetup;
@@ -405,8 +520,38 @@ public class ParseSetup extends Iced {
         return;
       }
       _gblSetup = mergeSetups(_gblSetup, other._gblSetup, _file, other._file);
-      _totalParseSize += other._totalParseSize;
-      _maxLineLength = Math.max(_maxLineLength, other._maxLineLength);
+    }
+
+    /**
+     * Parse the sample the way a parse map will, into compressed chunks, and
+     * record its size, rows and time for the adaptive chunk size.
+     */
+    private void sampleParse(byte[] bits) {
+      int n = bits.length;
+      while (n > 0 && bits[n-1] != '\n') n--; // Whole lines only
+      if (n == 0) return;
+      ParseSetup ps = new ParseSetup(_gblSetup);
+      if (ps._column_types == null) ps._column_types = _gblSetup._column_previews.guessTypes();
+      int ncols = ps._number_columns;
+      AppendableVec[] avs = new AppendableVec[ncols];
+      Categorical[] cats = new Categorical[ncols];
+      for (int i = 0; i < ncols; i++) {
+        avs[i] = new AppendableVec(Vec.newKey(), ps._column_types[i]);
+        cats[i] = new Categorical();
+      }
+      FVecParseWriter dout = new FVecParseWriter(null, 0, cats, ps._column_types, n, avs);
+      long t0 = System.nanoTime();
+      try {
+        ps.parser(null).streamParse(new ByteArrayInputStream(bits, 0, n), dout);
+      } catch (IOException e) {
+        return;                 // Not from a byte array
+      }
+      long compressed = 0;
+      for (NewChunk nc : dout._nvs) compressed += nc.compress().asBytes().length;
+      _sampleNanos += System.nanoTime() - t0;
+      _sampleBytes += n;
+      _sampleRows += dout.lineNum();
+      _sampleCompressedBytes += compressed;
     }
 
     @Override public void postGlobal() {
@@ -664,4 +809,24 @@ public class ParseSetup extends Iced {
     return this;
   }
 
+  public ParseSetup setSkippedColumns(int[] skipped_columns) {
+    this._skipped_columns = skipped_columns;
+    return this;
+  }
+
+  public ParseSetup setSampleRate(double sample_rate) {
+    this._sample_rate = sample_rate;
+    return this;
+  }
+
+  public ParseSetup setSampleSeed(long sample_seed) {
+    this._sample_seed = sample_seed;
+    return this;
+  }
+
+  public ParseSetup setSampleStrataColumn(int sample_strata_column) {
+    this._sample_strata_column = sample_strata_column;
+    return this;
+  }
+
 } // ParseSetup state class
@@ -1,7 +1,7 @@
 package water.parser;
 
-import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
+import org.joda.time.chrono.ISOChronology;
 import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
 import org.joda.time.format.DateTimeFormatterBuilder;
@@ -41,23 +41,61 @@ public abstract class ParseTime {
     {"dec".getBytes(),"december" .getBytes()}
   };
 
-  static long attemptTimeParse( BufferedString str ) {
+  // Formats tried by attemptTimeParse, in order.  No two formats parse the
+  // same text, so a column may try the format that parsed its last time first.
+  static final byte NO_FORMAT = 0;
+  private static final byte YEAR_FIRST = 1;     // "yyyy-MM-dd" and time if present
+  private static final byte DAY_FIRST_TEXT = 2; // "dd-MMM-yy" and time if present
+  private static final byte YEAR_MONTH = 3;     // "yy-MMM", not ambiguous with dd-MMM-yy because of trailing "-yy"
+  private static final byte TIME_ONLY = 4;      // Time if present, no date
+  private static final byte MONTH_FIRST = 5;    // "MM/dd/yy" and time if present; note that this format is ambiguous
+  private static final byte ISO_8601 = 6;       // "yyyy-MM-ddTHH:mm:ss.SSS" and zone if present
+  private static final byte DAY_FIRST_DOTS = 7; // "dd.MM.yyyy" and time if present
+  private static final byte NFORMATS = 7;
+
+  static long attemptTimeParse( BufferedString str ) { return attemptTimeParse(str, null, 0); }
+
+  /**
+   * Parse a time, trying first the format of {@code formats[col]}, and then
+   * every other format; {@code formats[col]} is set to the format that parsed.
+   * A column of times in one format is parsed without trying the others.
+   * @param formats - format last parsed per column, or null to try every format in order
+   * @return time as msec since Jan 1, 1970, or Long.MIN_VALUE
+   */
+  static long attemptTimeParse( BufferedString str, byte[] formats, int col ) {
     try {
-      long t0 = attemptYearFirstTimeParse(str); // "yyyy-MM-dd" and time if present
-      if( t0 != Long.MIN_VALUE ) return t0;
-      long t1 = attemptDayFirstTimeParse1(str); // "dd-MMM-yy" and time if present
-      if( t1 != Long.MIN_VALUE ) return t1;
-      long t2 = attemptYearMonthTimeParse(str); // "yy-MMM", not ambiguous with dd-MMM-yy because of trailing "-yy"
-      if( t2 != Long.MIN_VALUE ) return t2;
-      long t3 = attemptTimeOnlyParse(str); // Time if present, no date
-      if( t3 != Long.MIN_VALUE ) return t3;
-      long t4 = attemptDayFirstTimeParse2(str); // "dd/MM/yy" and time if present; note that this format is ambiguous
-      if( t4 != Long.MIN_VALUE ) return t4;     // Cant tell which date: 3/2/10 is
+      byte last = formats == null ? NO_FORMAT : formats[col];
+      if( last != NO_FORMAT ) {
+        long t = attemptTimeParse(str, last);
+        if( t != Long.MIN_VALUE ) return t;
+      }
+      for( byte fmt = 1; fmt <= NFORMATS; fmt++ ) {
+        if( fmt == last ) continue;
+        long t = attemptTimeParse(str, fmt);
+        if( t != Long.MIN_VALUE ) {
+          if( formats != null ) formats[col] = fmt;
+          return t;
+        }
+      }
     } catch( org.joda.time.IllegalFieldValueException | // Not time at all
              org.joda.time.IllegalInstantException      // Parsed as time, but falls into e.g. a daylight-savings hour hole
              ie ) { } //FIXME should collect errors and report at end of parse
     return Long.MIN_VALUE;
   }
+
+  private static long attemptTimeParse( BufferedString str, byte fmt ) {
+    switch( fmt ) {
+    case YEAR_FIRST:     return attemptYearFirstTimeParse(str);
+    case DAY_FIRST_TEXT: return attemptDayFirstTimeParse1(str);
+    case YEAR_MONTH:     return attemptYearMonthTimeParse(str);
+    case TIME_ONLY:      return attemptTimeOnlyParse(str);
+    case MONTH_FIRST:    return attemptDayFirstTimeParse2(str); // Cant tell which date: 3/2/10 is
+    case ISO_8601:       return attemptIsoTimeParse(str);
+    case DAY_FIRST_DOTS: return attemptDayFirstTimeParse3(str);
+    default: throw new IllegalArgumentException("Unknown time format " + fmt);
+    }
+  }
+
   // Tries to parse "yyyy-MM[-dd] [HH:mm:ss.SSS aa]"
   private static long attemptYearFirstTimeParse(BufferedString str) {
     final byte[] buf = str.getBuffer();
@@ -85,7 +123,7 @@ public abstract class ParseTime {
     } else dd=1; // no day
     while( i < end && buf[i] == ' ' ) i++;
     if( i==end )
-      return new DateTime(yyyy,MM,dd,0,0,0, getTimezone()).getMillis();
+      return millis(yyyy,MM,dd,0,0,0);
 
     //Parse time
     return parseTime(buf, i, end, yyyy, MM, dd, false);
@@ -131,7 +169,7 @@ public abstract class ParseTime {
     while( i<end && buf[i] == ' ' ) i++;
     if( i<end && buf[i] == '"' ) i++;
     if( i==end )
-      return new DateTime(yyyy,MM,dd,0,0,0, getTimezone()).getMillis();
+      return millis(yyyy,MM,dd,0,0,0);
 
     // Parse time
     if( buf[i] == ':') i++;
@@ -172,13 +210,105 @@ public abstract class ParseTime {
     while( i<end && buf[i] == ' ' ) i++;
     if( i<end && buf[i] == '"' ) i++;
     if( i==end )
-      return new DateTime(yyyy,MM,dd,0,0,0, getTimezone()).getMillis();
+      return millis(yyyy,MM,dd,0,0,0);
 
     // Parse time
     if( buf[i] == ':') i++;
     return parseTime(buf, i, end, yyyy, MM, dd, false);
   }
 
+  // Tries to parse "dd.MM.yyyy[' '][HH:mm:ss.SSS aa]", the European numeric
+  // date.  The 4-digit year tells it apart from the time "HH.mm.ss".
+  private static long attemptDayFirstTimeParse3(BufferedString str) {
+    final byte[] buf = str.getBuffer();
+    int i=str.getOffset();
+    final int end = i+str.length();
+    while( i < end && buf[i] == ' ' ) i++;
+    if   ( i < end && buf[i] == '"' ) i++;
+    if( (end-i) < 8 ) return Long.MIN_VALUE;
+    int yyyy=0, MM=0, dd=0;
+
+    // Parse date
+    dd = digit(dd,buf[i++]);
+    if( isDigit(buf[i]) ) dd = digit(dd,buf[i++]);
+    if( dd < 1 || dd > 31 ) return Long.MIN_VALUE;
+    if( buf[i++] != '.' ) return Long.MIN_VALUE;
+    MM = digit(MM,buf[i++]);
+    if( isDigit(buf[i]) ) MM = digit(MM,buf[i++]);
+    if( MM < 1 || MM > 12 ) return Long.MIN_VALUE;
+    if( buf[i++] != '.' || end-i < 4 ) return Long.MIN_VALUE;
+    yyyy = digits(buf,i,4);
+    i += 4;
+    if( yyyy < 0 ) return Long.MIN_VALUE;
+    if( i<end && buf[i] != ' ' && buf[i] != '"' ) return Long.MIN_VALUE;
+    while( i<end && buf[i] == ' ' ) i++;
+    if( i<end && buf[i] == '"' ) i++;
+    if( i==end )
+      return millis(yyyy,MM,dd,0,0,0);
+
+    // Parse time
+    return parseTime(buf, i, end, yyyy, MM, dd, false);
+  }
+
+  // Tries to parse the ISO-8601 "yyyy-MM-ddTHH:mm[:ss[.SSS]][Z|+hh[:mm]|-hh[:mm]]".
+  // All positions are fixed up to the seconds.  A time with a zone designator
+  // is exact; a time without one is in the parse timezone, as are all others.
+  private static long attemptIsoTimeParse(BufferedString str) {
+    final byte[] buf = str.getBuffer();
+    int i=str.getOffset();
+    final int end = i+str.length();
+    while( i < end && buf[i] == ' ' ) i++;
+    if   ( i < end && buf[i] == '"' ) i++;
+    if( (end-i) < 16 || buf[i+4] != '-' || buf[i+7] != '-' || buf[i+10] != 'T' || buf[i+13] != ':' )
+      return Long.MIN_VALUE;
+    int yyyy = digits(buf,i,4), MM = digits(buf,i+5,2), dd = digits(buf,i+8,2);
+    int HH = digits(buf,i+11,2), mm = digits(buf,i+14,2), ss = 0, SSS = 0;
+    if( yyyy < 0 || MM < 1 || MM > 12 || dd < 1 || dd > 31 || HH < 0 || HH > 23 || mm < 0 || mm > 59 )
+      return Long.MIN_VALUE;
+    i += 16;
+
+    // Seconds and fraction, msec accuracy
+    if( i < end && buf[i] == ':' ) {
+      if( end-i < 3 ) return Long.MIN_VALUE;
+      ss = digits(buf,i+1,2);
+      if( ss < 0 || ss > 59 ) return Long.MIN_VALUE;
+      i += 3;
+      if( i < end && (buf[i] == '.' || buf[i] == ',') ) {
+        int n = 0;
+        while( ++i < end && isDigit(buf[i]) )
+          if( n++ < 3 ) SSS = SSS*10+(buf[i]-'0');
+        if( n == 0 ) return Long.MIN_VALUE;
+        for( ; n < 3; n++ ) SSS *= 10;  // ".5" is 500 msec
+      }
+    }
+
+    // Zone designator
+    int offset = 0;
+    boolean zoned = false;
+    if( i < end && buf[i] == 'Z' ) {
+      zoned = true;
+      i++;
+    } else if( i < end && (buf[i] == '+' || buf[i] == '-') ) {
+      zoned = true;
+      int sign = buf[i++] == '-' ? -1 : 1;
+      if( end-i < 2 ) return Long.MIN_VALUE;
+      int oh = digits(buf,i,2), om = 0;
+      i += 2;
+      if( i < end && buf[i] == ':' ) i++;
+      if( end-i >= 2 && isDigit(buf[i]) ) {
+        om = digits(buf,i,2);
+        i += 2;
+      } else if( buf[i-1] == ':' ) return Long.MIN_VALUE;
+      if( oh < 0 || oh > 23 || om < 0 || om > 59 ) return Long.MIN_VALUE;
+      offset = sign*(oh*60+om)*60000;
+    }
+    if( i<end && buf[i] == '"' ) i++;
+    if( i<end ) return Long.MIN_VALUE;
+    return zoned
+      ? ISOChronology.getInstanceUTC().getDateTimeMillis(yyyy,MM,dd,HH,mm,ss,SSS) - offset
+      : millis(yyyy,MM,dd,HH,mm,ss)+SSS;
+  }
+
   // Tries to parse "yy-MMM".  Note that this is not ambiguous with dd-MMM-yy
   // which requires a trailing "-yy" year.
   private static long attemptYearMonthTimeParse(BufferedString str) {
@@ -202,7 +332,7 @@ public abstract class ParseTime {
     i += (MM>>4);               // Skip parsed month bytes
     MM &= 0xF;                  // 1-based month in low nybble
     while( i < end && buf[i] == ' ' ) i++;
-    if( i==end ) return new DateTime(yyyy,MM,1,0,0,0, getTimezone()).getMillis();
+    if( i==end ) return millis(yyyy,MM,1,0,0,0);
     return Long.MIN_VALUE;      // Something odd
   }
 
@@ -298,7 +428,7 @@ public abstract class ParseTime {
     if( i == end) {
       if( timeOnly && ndots==3 )
         return Long.MIN_VALUE; // Ambiguous: tell 1.2.3.4 apart from an IP address
-      return new DateTime(yyyy, MM, dd, HH, mm, ss, getTimezone()).getMillis() + SSS;
+      return millis(yyyy, MM, dd, HH, mm, ss) + SSS;
     }
 
     // extract halfday of day, if present
@@ -315,9 +445,27 @@ public abstract class ParseTime {
 
     if( i<end && buf[i] == '"' ) i++;
     if( i<end ) return Long.MIN_VALUE;
-    return new DateTime(yyyy,MM,dd,HH,mm,ss,getTimezone()).getMillis()+SSS;
+    return millis(yyyy,MM,dd,HH,mm,ss)+SSS;
   }
 
+  // Time as msec since Jan 1, 1970 of a date and time in the parse timezone.
+  // The same as the millis of a new DateTime, without making one: the
+  // chronology of the timezone is kept across calls.
+  private static ISOChronology _chronology;
+  private static long millis(int yyyy, int MM, int dd, int HH, int mm, int ss) {
+    DateTimeZone tz = getTimezone();
+    ISOChronology chrono = _chronology;
+    if( chrono == null || chrono.getZone() != tz )
+      _chronology = chrono = ISOChronology.getInstance(tz);
+    return chrono.getDateTimeMillis(yyyy, MM, dd, HH, mm, ss, 0);
+  }
+
+  // n digits at buf[i], or -1
+  private static int digits( byte[] buf, int i, int n ) {
+    int x = 0;
+    while( n-- > 0 ) x = digit(x,buf[i++]);
+    return x;
+  }
   private static int digit( int x, int c ) {
     if( x < 0 || c < '0' || c > '9' ) return -1;
     return x*10+(c-'0');
@@ -0,0 +1,141 @@
+package water.parser;
+
+import water.util.RandomUtils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * Row sample of one chunk parse, taken in the {@link FVecParseWriter}
+ * before any cell reaches a NewChunk or a categorical dictionary.
+ * <p/>
+ * A Bernoulli sample decides each row before its first cell, and a dropped
+ * row costs only its tokenizing.  A stratified sample keeps the same fraction
+ * of every level of the strata column, systematically from a random start
+ * per level, so that rare levels are kept in proportion rather than by luck;
+ * it holds each row until the row ends, as the strata cell may come last.
+ * The sample of a chunk depends only on the seed and the chunk index.
+ */
+final class RowSampler {
+  private static final byte NA = 0, NUM = 1, STR = 2;
+
+  private final double _rate;
+  private final long _seed;
+  private final int _strata;    // File column of the strata, or -1
+  private final Random _rng;
+  private boolean _keep;        // Bernoulli: whether the current row is kept
+  private boolean _seen;        // A cell of the current row was seen
+  long _dropped;                // Rows dropped
+
+  // Stratified: position of each level between kept rows
+  private final HashMap<String,double[]> _phase = new HashMap<>();
+  // Stratified: the held row, cell by cell
+  private int _n;
+  private int[] _cols = new int[16];
+  private byte[] _kinds = new byte[16];
+  private long[] _nums = new long[16];  // A number, or the start in _bytes of a string
+  private int[] _exps = new int[16];    // Exponent of a number, or the end in _bytes of a string
+  private byte[] _bytes = new byte[256];
+  private int _nbytes;
+  private final BufferedString _str = new BufferedString();
+
+  private RowSampler(double rate, long seed, int strata, int cidx) {
+    _rate = rate;
+    _seed = seed;
+    _strata = strata;
+    _rng = RandomUtils.getRNG(seed + cidx * 0x9E3779B97F4A7C15L);
+    _keep = _rng.nextDouble() < _rate;
+  }
+
+  /** The sampler of a chunk, or null if every row is kept */
+  static RowSampler make(ParseSetup ps, int cidx) {
+    return ps._sample_rate < 1 ? new RowSampler(ps._sample_rate, ps._sample_seed, ps._sample_strata_column, cidx) : null;
+  }
+
+  /** The sampler of the next chunk of a streamed parse */
+  RowSampler nextChunk(int cidx) { return new RowSampler(_rate, _seed, _strata, cidx); }
+
+  /** @return true if the cell is not written now: its row is dropped, or held */
+  boolean hold(int col, long number, int exp) {
+    _seen = true;
+    if( _strata < 0 ) return !_keep;
+    int i = cell(col, NUM);
+    _nums[i] = number;
+    _exps[i] = exp;
+    return true;
+  }
+  boolean holdNA(int col) {
+    _seen = true;
+    if( _strata < 0 ) return !_keep;
+    cell(col, NA);
+    return true;
+  }
+  boolean hold(int col, BufferedString str) {
+    _seen = true;
+    if( _strata < 0 ) return !_keep;
+    int i = cell(col, STR);
+    int len = str.length();
+    if( _nbytes + len > _bytes.length ) _bytes = Arrays.copyOf(_bytes, Math.max(_nbytes + len, _bytes.length << 1));
+    System.arraycopy(str.getBuffer(), str.getOffset(), _bytes, _nbytes, len);
+    _nums[i] = _nbytes;
+    _exps[i] = _nbytes += len;
+    return true;
+  }
+
+  private int cell(int col, byte kind) {
+    if( _n == _cols.length ) {
+      int len = _n << 1;
+      _cols = Arrays.copyOf(_cols, len);
+      _kinds = Arrays.copyOf(_kinds, len);
+      _nums = Arrays.copyOf(_nums, len);
+      _exps = Arrays.copyOf(_exps, len);
+    }
+    _cols[_n] = col;
+    _kinds[_n] = kind;
+    return _n++;
+  }
+
+  /** End the current row, writing a held row out to {@code dout} if it is kept */
+  void endRow(FVecParseWriter dout) {
+    if( _strata < 0 ) {
+      if( _seen && !_keep ) _dropped++;
+      _keep = _rng.nextDouble() < _rate;
+    } else if( _seen ) {
+      String level = stratum();
+      double[] phase = _phase.get(level);
+      if( phase == null ) _phase.put(level, phase = new double[]{_rng.nextDouble()});
+      if( (phase[0] += _rate) >= 1 ) {
+        phase[0] -= 1;
+        replay(dout);
+      } else _dropped++;
+      _n = _nbytes = 0;
+    }
+    _seen = false;
+  }
+
+  // Level of the held row; null for a missing one
+  private String stratum() {
+    for( int i = _n - 1; i >= 0; i-- )
+      if( _cols[i] == _strata )
+        switch( _kinds[i] ) {
+          case NUM: return _nums[i] + "e" + _exps[i];
+          case STR: return string(i).toString();
+          default: return null;
+        }
+    return null;
+  }
+  private BufferedString string(int i) { return _str.set(_bytes, (int)_nums[i], _exps[i] - (int)_nums[i]); }
+
+  private void replay(FVecParseWriter dout) {
+    for( int i = 0; i < _n; i++ ) {
+      int c = dout.parsedColumn(_cols[i]);
+      if( c < 0 ) continue;
+      switch( _kinds[i] ) {
+        case NUM: dout.num(c, _nums[i], _exps[i]); break;
+        case STR: dout.str(c, string(i)); break;
+        default:  dout.na(c);
+      }
+    }
+  }
+}
@@ -0,0 +1,359 @@
+package water.parser;
+
+import com.google.common.base.Charsets;
+import water.H2O;
+import water.Job;
+import water.Key;
+import water.fvec.ByteVec;
+import water.util.UnsafeUtils;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import static water.parser.DefaultParserProviders.XLSX_INFO;
+
+/**
+ * Office Open XML workbooks (.xlsx), first sheet only.
+ * <p/>
+ * A workbook is a zip of XML parts.  The first pass over the zip reads the
+ * shared strings table, where the sheets keep their strings, and finds the
+ * first sheet through the workbook and its relationships.  The second pass
+ * streams the sheet's XML with a pull parser straight into the ParseWriter,
+ * a row at a time.  Memory is bounded by the shared strings, kept as UTF-8
+ * in one byte array and handed to the writer as BufferedString views, and
+ * not by the size of the sheet.
+ * <p/>
+ * Numbers come out as stored, so dates formatted as dates in Excel come out
+ * as Excel serial day numbers.
+ */
+class XlsxParser extends Parser {
+  XlsxParser( ParseSetup ps, Key<Job> jobKey ) { super(ps, jobKey); }
+
+  private static final String WORKBOOK = "xl/workbook.xml";
+  private static final String WORKBOOK_RELS = "xl/_rels/workbook.xml.rels";
+  private static final String SHARED_STRINGS = "xl/sharedStrings.xml";
+  private static final String FIRST_SHEET = "xl/worksheets/sheet1.xml";
+  // Rows looked at to guess the setup
+  private static final int GUESS_ROWS = 1000;
+
+  private static final XMLInputFactory XML = XMLInputFactory.newInstance();
+  static {
+    XML.setProperty(XMLInputFactory.IS_COALESCING, true);
+    XML.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    XML.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+  }
+
+  @Override
+  protected ParseWriter parseChunk(int cidx, final ParseReader din, final ParseWriter dout) { throw H2O.unimpl(); }
+
+  // The header was found when guessing; every file keeps it
+  @Override protected int fileHasHeader(byte[] bits, ParseSetup ps) { return ps._check_header; }
+
+  /** The bytes of a workbook, opened once per pass */
+  interface Source { InputStream open() throws IOException; }
+
+  static Source source( final byte[] bits ) {
+    return new Source() { @Override public InputStream open() { return new ByteArrayInputStream(bits); } };
+  }
+  static Source source( final ByteVec vec, final Key<Job> jobKey ) {
+    return new Source() { @Override public InputStream open() { return vec.openStream(jobKey); } };
+  }
+
+  /** A zip whose first part is one of an Office Open XML package */
+  static boolean isXlsx( byte[] bits ) {
+    if( bits == null || bits.length <= ZipFile.LOCHDR || UnsafeUtils.get4(bits, 0) != ZipFile.LOCSIG ) return false;
+    int len = UnsafeUtils.get2(bits, 26) & 0xFFFF;
+    if( ZipFile.LOCHDR + len > bits.length ) return false;
+    String name = new String(bits, ZipFile.LOCHDR, len, Charsets.UTF_8);
+    return name.equals("[Content_Types].xml") || name.startsWith("_rels/") || name.startsWith("docProps/") || name.startsWith("xl/");
+  }
+
+  // A one-shot stream, e.g. out of a gzip: hold the workbook to read it twice
+  @Override public ParseWriter streamParse( final InputStream is, final ParseWriter dout) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    byte[] buf = new byte[1 << 16];
+    for( int len; (len = is.read(buf)) != -1; ) bos.write(buf, 0, len);
+    return parse(source(bos.toByteArray()), dout);
+  }
+
+  /** Parse the first sheet of the workbook into {@code dout} */
+  ParseWriter parse( Source src, final ParseWriter dout ) throws IOException {
+    final int ncols = _setup._number_columns;
+    final boolean header = _setup._check_header == ParseSetup.HAS_HEADER;
+    final Workbook wb = new Workbook(src);
+    wb.rows(src, new RowHandler() {
+      boolean _first = true;
+      @Override public boolean row( Row r ) {
+        if( _first ) {
+          _first = false;
+          if( header ) return true;
+        }
+        r.emit(dout, ncols, wb);
+        return _jobKey == null || !_jobKey.get().stop_requested();
+      }
+    });
+    return dout;
+  }
+
+  /** Guess the setup from the first rows of the first sheet */
+  static ParseSetup guessSetup( Source src ) {
+    final ArrayList<Row> rows = new ArrayList<>();
+    try {
+      final Workbook wb = new Workbook(src);
+      wb.rows(src, new RowHandler() {
+        @Override public boolean row( Row r ) {
+          rows.add(r.copy(wb));
+          return rows.size() < GUESS_ROWS;
+        }
+      });
+    } catch( IOException e ) {
+      // A preview holds only the start of the file; guess from the rows it has
+      if( rows.isEmpty() ) throw new ParseDataset.H2OParseException("Could not parse file as an XLSX file: " + e.getMessage());
+    }
+    if( rows.isEmpty() ) throw new ParseDataset.H2OParseException("Could not parse file as an XLSX file, found no rows.");
+    int ncols = 0;
+    for( Row r : rows ) ncols = Math.max(ncols, r._n);
+    // A header is a first row of strings only, over every column
+    Row first = rows.get(0);
+    boolean header = rows.size() > 1 && first._n == ncols;
+    for( int i = 0; header && i < ncols; i++ ) header = first._kind[i] == Row.STR;
+    String[] names = null;
+    PreviewParseWriter dout = new PreviewParseWriter(ncols);
+    if( header ) {
+      names = new String[ncols];
+      for( int i = 0; i < ncols; i++ ) names[i] = first._str[i];
+      dout.setColumnNames(names);
+    }
+    for( int i = header ? 1 : 0; i < rows.size(); i++ ) rows.get(i).emit(dout, ncols, null);
+    return new ParseSetup(XLSX_INFO, ParseSetup.GUESS_SEP, false, header ? ParseSetup.HAS_HEADER : ParseSetup.NO_HEADER,
+        ncols, names, dout.guessTypes(), null, null, dout._data);
+  }
+
+  private interface RowHandler {
+    /** @return false to stop reading rows */
+    boolean row( Row r );
+  }
+
+  /** The cells of a row, by column; numbers, strings and missing cells */
+  private static final class Row {
+    static final byte NA = 0, NUM = 1, STR = 2, SST = 3;
+    int _n;                     // Columns up to the last cell
+    byte[] _kind = new byte[16];
+    double[] _num = new double[16];
+    int[] _sst = new int[16];
+    String[] _str = new String[16];
+
+    void clear() { Arrays.fill(_kind, 0, _n, NA); _n = 0; }
+    private void at( int col ) {
+      if( col >= _kind.length ) {
+        int len = Math.max(col + 1, _kind.length << 1);
+        _kind = Arrays.copyOf(_kind, len);
+        _num = Arrays.copyOf(_num, len);
+        _sst = Arrays.copyOf(_sst, len);
+        _str = Arrays.copyOf(_str, len);
+      }
+      _n = Math.max(_n, col + 1);
+    }
+    void num( int col, double d ) { at(col); _kind[col] = NUM; _num[col] = d; }
+    void str( int col, String s ) { at(col); _kind[col] = STR; _str[col] = s; }
+    void sst( int col, int idx ) { at(col); _kind[col] = SST; _sst[col] = idx; }
+
+    // A copy outliving the row being read, with the shared strings looked up
+    Row copy( Workbook wb ) {
+      Row r = new Row();
+      r._n = _n;
+      r._kind = Arrays.copyOf(_kind, _n);
+      r._num = Arrays.copyOf(_num, _n);
+      r._sst = Arrays.copyOf(_sst, _n);
+      r._str = Arrays.copyOf(_str, _n);
+      for( int i = 0; i < _n; i++ )
+        if( r._kind[i] == SST ) {
+          r._kind[i] = STR;
+          r._str[i] = wb.sharedString(_sst[i], _bs).toString();
+        }
+      return r;
+    }
+
+    private final BufferedString _bs = new BufferedString();
+    void emit( ParseWriter dout, int ncols, Workbook wb ) {
+      for( int i = 0; i < ncols; i++ ) {
+        switch( i < _n ? _kind[i] : NA ) {
+          case NUM: dout.addNumCol(i, _num[i]); break;
+          case STR: dout.addStrCol(i, _bs.set(_str[i])); break;
+          case SST: dout.addStrCol(i, wb.sharedString(_sst[i], _bs)); break;
+          default:  dout.addInvalidCol(i);
+        }
+      }
+      dout.newLine();
+    }
+  }
+
+  /** The shared strings and where the first sheet is */
+  private static final class Workbook {
+    // Shared strings, UTF-8 end to end in one array
+    private byte[] _sst = new byte[1 << 12];
+    private int[] _sstEnd = new int[16];
+    private int _nsst;
+    private String _sheet = FIRST_SHEET;
+
+    Workbook( Source src ) throws IOException {
+      String rid = null;
+      HashMap<String,String> rels = new HashMap<>();
+      try( ZipInputStream zis = new ZipInputStream(src.open()) ) {
+        for( ZipEntry ze; (ze = nextEntry(zis)) != null; ) {
+          switch( ze.getName() ) {
+            case SHARED_STRINGS: readSharedStrings(xml(zis)); break;
+            case WORKBOOK:       rid = firstSheetId(xml(zis)); break;
+            case WORKBOOK_RELS:  readRels(xml(zis), rels); break;
+          }
+        }
+      } catch( XMLStreamException e ) {
+        throw new IOException(e);
+      }
+      String target = rid == null ? null : rels.get(rid);
+      if( target != null )
+        _sheet = target.startsWith("/") ? target.substring(1) : "xl/" + target;
+    }
+
+    BufferedString sharedString( int idx, BufferedString bs ) {
+      if( idx < 0 || idx >= _nsst ) return bs.set(new byte[0], 0, 0);
+      int start = idx == 0 ? 0 : _sstEnd[idx - 1];
+      return bs.set(_sst, start, _sstEnd[idx] - start);
+    }
+
+    private void addSharedString( String s ) {
+      byte[] b = s.getBytes(Charsets.UTF_8);
+      int start = _nsst == 0 ? 0 : _sstEnd[_nsst - 1];
+      if( start + b.length > _sst.length ) _sst = Arrays.copyOf(_sst, Math.max(start + b.length, _sst.length << 1));
+      System.arraycopy(b, 0, _sst, start, b.length);
+      if( _nsst == _sstEnd.length ) _sstEnd = Arrays.copyOf(_sstEnd, _nsst << 1);
+      _sstEnd[_nsst++] = start + b.length;
+    }
+
+    // <sst><si><t>..</t></si><si><r><t>..</t></r>..</si>; phonetic runs (rPh) are not part of the text
+    private void readSharedStrings( XMLStreamReader xr ) throws XMLStreamException {
+      StringBuilder sb = new StringBuilder();
+      int rph = 0;
+      while( xr.hasNext() ) {
+        int ev = xr.next();
+        if( ev == XMLStreamConstants.START_ELEMENT ) {
+          String ln = xr.getLocalName();
+          if( ln.equals("si") ) sb.setLength(0);
+          else if( ln.equals("rPh") ) rph++;
+          else if( ln.equals("t") && rph == 0 ) sb.append(xr.getElementText());
+        } else if( ev == XMLStreamConstants.END_ELEMENT ) {
+          String ln = xr.getLocalName();
+          if( ln.equals("si") ) addSharedString(sb.toString());
+          else if( ln.equals("rPh") ) rph--;
+        }
+      }
+    }
+
+    // The relationship id of the first <sheet> of the workbook
+    private static String firstSheetId( XMLStreamReader xr ) throws XMLStreamException {
+      while( xr.hasNext() )
+        if( xr.next() == XMLStreamConstants.START_ELEMENT && xr.getLocalName().equals("sheet") )
+          for( int i = 0; i < xr.getAttributeCount(); i++ )
+            if( xr.getAttributeLocalName(i).equals("id") ) return xr.getAttributeValue(i);
+      return null;
+    }
+
+    private static void readRels( XMLStreamReader xr, HashMap<String,String> rels ) throws XMLStreamException {
+      while( xr.hasNext() )
+        if( xr.next() == XMLStreamConstants.START_ELEMENT && xr.getLocalName().equals("Relationship") )
+          rels.put(xr.getAttributeValue(null, "Id"), xr.getAttributeValue(null, "Target"));
+    }
+
+    /** Stream the rows of the first sheet */
+    void rows( Source src, RowHandler h ) throws IOException {
+      try( ZipInputStream zis = new ZipInputStream(src.open()) ) {
+        for( ZipEntry ze; (ze = nextEntry(zis)) != null; )
+          if( ze.getName().equals(_sheet) ) {
+            readRows(xml(zis), h);
+            return;
+          }
+      } catch( XMLStreamException e ) {
+        if( !(e.getNestedException() instanceof EOFException) ) throw new IOException(e);
+        // Only the start of the file, e.g. a preview; keep the rows read
+      }
+    }
+
+    // <sheetData><row r="1"><c r="A1" t="s"><v>0</v></c>..</row>..</sheetData>
+    private static void readRows( XMLStreamReader xr, RowHandler h ) throws XMLStreamException {
+      Row row = new Row();
+      int col = -1;
+      String type = null, val = null;
+      StringBuilder inline = null;
+      while( xr.hasNext() ) {
+        int ev = xr.next();
+        if( ev == XMLStreamConstants.START_ELEMENT ) {
+          switch( xr.getLocalName() ) {
+            case "row": row.clear(); col = -1; break;
+            case "c":
+              String ref = xr.getAttributeValue(null, "r");
+              col = ref == null ? col + 1 : column(ref);
+              type = xr.getAttributeValue(null, "t");
+              val = null;
+              inline = null;
+              break;
+            case "v": val = xr.getElementText(); break;
+            case "is": inline = new StringBuilder(); break;
+            case "t": if( inline != null ) inline.append(xr.getElementText()); break;
+          }
+        } else if( ev == XMLStreamConstants.END_ELEMENT ) {
+          switch( xr.getLocalName() ) {
+            case "c": cell(row, col, type, inline != null ? inline.toString() : val); break;
+            case "row": if( row._n > 0 && !h.row(row) ) return; break;
+            case "sheetData": return;
+          }
+        }
+      }
+    }
+
+    private static void cell( Row row, int col, String type, String val ) {
+      if( val == null || col < 0 ) return; // Missing
+      if( type == null || type.equals("n") ) {
+        try { row.num(col, Double.parseDouble(val)); } catch( NumberFormatException ignore ) { /* missing */ }
+      } else switch( type ) {
+        case "s":
+          try { row.sst(col, Integer.parseInt(val.trim())); } catch( NumberFormatException ignore ) { /* missing */ }
+          break;
+        case "b": row.num(col, val.trim().equals("1") ? 1 : 0); break;
+        case "e": break;        // #N/A, #DIV/0! and such are missing
+        default: row.str(col, val); // inlineStr, str (formula) and d (ISO date)
+      }
+    }
+
+    // Column number of a cell reference, "AB12" is 27
+    static int column( String ref ) {
+      int col = 0;
+      for( int i = 0; i < ref.length(); i++ ) {
+        char c = ref.charAt(i);
+        if( c < 'A' || c > 'Z' ) break;
+        col = col * 26 + (c - 'A' + 1);
+      }
+      return col - 1;
+    }
+
+    private static ZipEntry nextEntry( ZipInputStream zis ) throws IOException {
+      try {
+        return zis.getNextEntry();
+      } catch( EOFException e ) {
+        return null;            // Only the start of the file
+      }
+    }
+    // The reader closes its stream at the end of the document; keep the zip open for the next part
+    private static XMLStreamReader xml( InputStream is ) throws XMLStreamException {
+      return XML.createXMLStreamReader(new FilterInputStream(is) { @Override public void close() { } });
+    }
+  }
+}
@@ -23,9 +23,9 @@ abstract class ZipUtil {
   }
 
   static Compression guessCompressionMethod(byte [] bits) {
-    // Look for ZIP magic
+    // Look for ZIP magic; an XLSX workbook is a zip, read whole by its parser
     if( bits.length > ZipFile.LOCHDR && UnsafeUtils.get4(bits, 0) == ZipFile.LOCSIG )
-      return Compression.ZIP;
+      return XlsxParser.isXlsx(bits) ? Compression.NONE : Compression.ZIP;
     if( bits.length > 2 && (UnsafeUtils.get2(bits,0)&0xffff) == GZIPInputStream.GZIP_MAGIC )
       return Compression.GZIP;
     return Compression.NONE;
@@ -64,7 +64,12 @@ abstract class ZipUtil {
       // Now read from the compressed stream
       int off = 0;
       while( off < bs.length ) {
-        int len = is.read(bs, off, bs.length - off);
+        int len;
+        try {
+          len = is.read(bs, off, bs.length - off);
+        } catch( EOFException eof ) {
+          break;                // Only the first chunk of a larger file
+        }
         if( len < 0 )
           break;
         off += len;
@@ -10,6 +10,7 @@ import water.rapids.vals.ValFun;
 
 import java.io.Closeable;
 import java.util.ArrayList;
+import java.util.HashMap;
 
 /**
  * Execute a set of instructions in the context of an H2O cloud.
@@ -114,6 +115,9 @@ public class Env extends Iced {
 
   public AstFunction _scope;                // Current lexical scope lookup
 
+  // Fingerprints of the frames named in this expression, see ResultCache
+  final HashMap<String, String> _fingerprints = new HashMap<>();
+
   public Val lookup(String id) {
     // Lexically scoped functions first
     Val val = _scope == null ? null : _scope.lookup(id);
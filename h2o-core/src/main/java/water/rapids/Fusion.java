@@ -0,0 +1,410 @@
+package water.rapids;
+
+import water.H2O;
+import water.MRTask;
+import water.fvec.Chunk;
+import water.fvec.Frame;
+import water.fvec.NewChunk;
+import water.fvec.Vec;
+import water.rapids.ast.AstExec;
+import water.rapids.ast.AstFunction;
+import water.rapids.ast.AstPrimitive;
+import water.rapids.ast.AstRoot;
+import water.rapids.ast.params.AstId;
+import water.rapids.ast.params.AstNum;
+import water.rapids.ast.prims.assign.AstAssign;
+import water.rapids.ast.prims.math.AstUniOp;
+import water.rapids.ast.prims.operators.*;
+import water.rapids.vals.ValFrame;
+import water.util.SB;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Fused evaluation of elementwise Rapids expressions.
+ * <p/>
+ * Every elementwise primitive (unary math, binary operators, ifelse) normally
+ * runs its own MRTask and materializes a temporary Frame, so an expression like
+ * {@code log(x+1)*y - ifelse(z>0, z, 0)} makes one pass and one temp Frame per
+ * operator.  Instead, a maximal tree of such operators is planned lazily when
+ * its top-most operator is applied: it becomes a small postfix program over
+ * its inputs, which is evaluated block-wise per Chunk in a single MRTask.
+ * Anything else below the tree (reductions, group-bys, assignments, ...) is an
+ * input of the program and is evaluated (materialized) before it; the fused
+ * result is materialized once, for its consumer.
+ * <p/>
+ * Only numeric (non-categorical) Frames of matching layout and scalars are
+ * fused.  For anything else the tree falls back to the eager per-operator
+ * evaluation, reusing the already evaluated inputs.  The result is the same
+ * as eager evaluation, including the column names.  The plan of an expression
+ * can be shown with {@code (explain expr)}.
+ */
+public class Fusion {
+  // Opcodes
+  private static final byte CON = 0, IN = 1, UNI = 2, BIN = 3, IFELSE = 4;
+
+  private final AstExec _root;
+  private final byte[] _code;
+  private final int[] _args;                      // Constant, input or function index per instruction
+  private final double[] _cons;
+  private final AstPrimitive[] _fns;
+  private final AstRoot[] _inputs;                // Leaves, in evaluation order
+  private final int _nops, _depth;
+  private final HashMap<String, AstRoot> _funs;   // Functions by name, looked up once
+
+  private Fusion(AstExec root, byte[] code, int[] args, double[] cons, AstPrimitive[] fns, AstRoot[] inputs, int nops, int depth, HashMap<String, AstRoot> funs) {
+    _root = root; _code = code; _args = args; _cons = cons; _fns = fns; _inputs = inputs; _nops = nops; _depth = depth; _funs = funs;
+  }
+
+  /**
+   * Plan the elementwise tree rooted at the given expression.
+   * @return the plan, or null if there are not at least two fusible operators
+   */
+  public static Fusion plan(Env env, AstExec ast) {
+    return plan(env, ast, new HashMap<String, AstRoot>());
+  }
+
+  private static Fusion plan(Env env, AstExec ast, HashMap<String, AstRoot> funs) {
+    Builder b = new Builder(env, funs);
+    if (fusible(env, funs, ast) == null || !b.node(ast, false) || b._nops < 2) return null;
+    byte[] code = new byte[b._code.size()];
+    int[] args = new int[code.length];
+    for (int i = 0; i < code.length; i++) { code[i] = b._code.get(i); args[i] = b._args.get(i); }
+    double[] cons = new double[b._cons.size()];
+    for (int i = 0; i < cons.length; i++) cons[i] = b._cons.get(i);
+    return new Fusion(ast, code, args, cons, b._fns.toArray(new AstPrimitive[b._fns.size()]),
+        b._inputs.toArray(new AstRoot[b._inputs.size()]), b._nops, b._maxDepth, funs);
+  }
+
+  /**
+   * Apply a fusible expression: evaluate the inputs, then the whole tree in
+   * one pass, or eagerly if the inputs cannot be fused.
+   * @param fun the function applied by the expression, already looked up
+   * @return the result, or null if the expression is not worth fusing
+   */
+  public static Val apply(Env env, Env.StackHelp stk, AstExec ast, AstRoot fun) {
+    HashMap<String, AstRoot> funs = new HashMap<>();
+    if (ast._asts[0] instanceof AstId) funs.put(ast._asts[0].str(), fun);
+    Fusion plan = plan(env, ast, funs);
+    return plan == null ? null : plan.exec(env, stk);
+  }
+
+  // The element-wise primitive applied by this expression, or null
+  private static AstPrimitive fusible(Env env, HashMap<String, AstRoot> funs, AstRoot ast) {
+    if (!(ast instanceof AstExec)) return null;
+    AstRoot[] asts = ((AstExec) ast)._asts;
+    AstRoot fun = asts[0];
+    if (fun instanceof AstId) fun = lookupFun(env, funs, fun.str());
+    if (!(fun instanceof AstPrimitive) || fun.nargs() != asts.length) return null;
+    if (fun instanceof AstUniOp || fun instanceof AstIfElse) return (AstPrimitive) fun;
+    if (fun instanceof AstBinOp && !(fun instanceof AstLAnd) && !(fun instanceof AstLOr)) // no short-circuits
+      return (AstPrimitive) fun;
+    return null;
+  }
+
+  // The function named id, looked up once per expression
+  private static AstRoot lookupFun(Env env, HashMap<String, AstRoot> funs, String id) {
+    if (!funs.containsKey(id)) funs.put(id, lookupFun(env, id));
+    return funs.get(id);
+  }
+
+  /**
+   * Look up a name in function position, as evaluating the expression would.
+   * @return the function, or null if the name is not a function
+   */
+  static AstRoot lookupFun(Env env, String id) {
+    Val val;
+    try {
+      val = env.lookup(id);
+    } catch (IllegalArgumentException e) {
+      return null;              // Reported when the expression is evaluated
+    }
+    return val.isFun() ? val.getFun() : null;
+  }
+
+  // Turns an expression tree into postfix code
+  private static class Builder {
+    final Env _env;
+    final HashMap<String, AstRoot> _funs;
+    final ArrayList<Byte> _code = new ArrayList<>();
+    final ArrayList<Integer> _args = new ArrayList<>();
+    final ArrayList<Double> _cons = new ArrayList<>();
+    final ArrayList<AstPrimitive> _fns = new ArrayList<>();
+    final ArrayList<AstRoot> _inputs = new ArrayList<>();
+    final HashMap<String, Integer> _ids = new HashMap<>(); // Inputs by name, loaded once
+    int _nops, _depth, _maxDepth;
+
+    Builder(Env env, HashMap<String, AstRoot> funs) { _env = env; _funs = funs; }
+
+    void emit(byte op, int arg, int pop) {
+      _code.add(op);
+      _args.add(arg);
+      _depth += 1 - pop;
+      _maxDepth = Math.max(_maxDepth, _depth);
+    }
+
+    // Side-effect free: no assignments and no user functions
+    boolean pure(AstRoot ast) {
+      if (ast instanceof AstFunction) return false;
+      if (!(ast instanceof AstExec)) return true;
+      AstRoot[] asts = ((AstExec) ast)._asts;
+      AstRoot fun = asts[0] instanceof AstId ? lookupFun(_env, _funs, asts[0].str()) : asts[0];
+      if (!(fun instanceof AstPrimitive) || fun.getClass().getPackage() == AstAssign.class.getPackage()) return false;
+      for (int i = 1; i < asts.length; i++)
+        if (!pure(asts[i])) return false;
+      return true;
+    }
+
+    // Emit the code of a subtree; false if it cannot be fused.  Branches of
+    // an ifelse are not evaluated eagerly when the test is constant, so they
+    // may only have side-effect free inputs.
+    boolean node(AstRoot ast, boolean branch) {
+      if (ast instanceof AstNum) {
+        _cons.add(((AstNum) ast).getNum());
+        emit(CON, _cons.size() - 1, 0);
+        return true;
+      }
+      AstPrimitive fn = fusible(_env, _funs, ast);
+      if (fn == null) {         // An input
+        if (ast instanceof AstId) {
+          Integer idx = _ids.get(ast.str());
+          if (idx == null) _ids.put(ast.str(), idx = input(ast));
+          emit(IN, idx, 0);
+          return true;
+        }
+        if (branch && !pure(ast)) return false;
+        emit(IN, input(ast), 0);
+        return true;
+      }
+      AstRoot[] asts = ((AstExec) ast)._asts;
+      boolean ifelse = fn instanceof AstIfElse;
+      for (int i = 1; i < asts.length; i++)
+        if (!node(asts[i], branch || (ifelse && i > 1))) return false;
+      _fns.add(fn);
+      emit(ifelse ? IFELSE : fn instanceof AstUniOp ? UNI : BIN, _fns.size() - 1, asts.length - 2);
+      _nops++;
+      return true;
+    }
+
+    int input(AstRoot ast) {
+      _inputs.add(ast);
+      return _inputs.size() - 1;
+    }
+  }
+
+  private Val exec(Env env, Env.StackHelp stk) {
+    // Materialize the inputs, in order
+    Val[] vals = new Val[_inputs.length];
+    for (int i = 0; i < vals.length; i++)
+      vals[i] = stk.track(_inputs[i].exec(env));
+
+    // Fusible inputs: scalars and numeric Frames
+    long nrows = -1;
+    ArrayList<Vec> vecs = new ArrayList<>();
+    int[] inCol = new int[vals.length], inNcols = new int[vals.length];
+    for (int i = 0; i < vals.length; i++) {
+      if (vals[i].isNum()) continue;
+      if (!vals[i].isFrame()) return eager(env, stk, vals);
+      Frame fr = vals[i].getFrame();
+      if (fr.numCols() == 0 || (nrows != -1 && fr.numRows() != nrows)) return eager(env, stk, vals);
+      nrows = fr.numRows();
+      for (Vec vec : fr.vecs())
+        if (!vec.isNumeric() || vec.isCategorical()) return eager(env, stk, vals);
+      inCol[i] = vecs.size();
+      inNcols[i] = fr.numCols();
+      vecs.addAll(Arrays.asList(fr.vecs()));
+    }
+    if (vecs.isEmpty()) return eager(env, stk, vals); // All scalars
+    Frame fr;
+    try {
+      fr = new Frame(vecs.toArray(new Vec[vecs.size()]));
+    } catch (IllegalArgumentException e) { // Incompatible layouts
+      return eager(env, stk, vals);
+    }
+
+    // Shapes: the result width and names, with the eager widening rules
+    ArrayList<String[]> names = new ArrayList<>(); // null: default names
+    ArrayList<Integer> ncols = new ArrayList<>();  // 0: scalar
+    byte[] code = _code.clone();
+    int[] args = _args.clone();
+    double[] cons = Arrays.copyOf(_cons, _cons.length + vals.length);
+    for (int pc = 0; pc < code.length; pc++) {
+      switch (code[pc]) {
+        case CON:
+          names.add(null); ncols.add(0);
+          break;
+        case IN:
+          Val v = vals[args[pc]];
+          if (v.isNum()) { // Scalars become constants
+            cons[_cons.length + args[pc]] = v.getNum();
+            code[pc] = CON;
+            args[pc] = _cons.length + args[pc];
+            names.add(null); ncols.add(0);
+          } else {
+            names.add(v.getFrame()._names); ncols.add(v.getFrame().numCols());
+          }
+          break;
+        case UNI: {
+          int n = ncols.get(ncols.size() - 1);
+          names.set(names.size() - 1, null);
+          ncols.set(ncols.size() - 1, n);
+          break;
+        }
+        case BIN: {
+          int rn = ncols.remove(ncols.size() - 1), ln = ncols.remove(ncols.size() - 1);
+          String[] rnames = names.remove(names.size() - 1), lnames = names.remove(names.size() - 1);
+          AstPrimitive fn = _fns[args[pc]];
+          int n;
+          String[] nm;
+          if (ln == 0 && rn == 0) { n = 0; nm = null; }
+          else if (ln == 0) { n = rn; nm = rnames; }
+          else if (rn == 0) { n = ln; nm = fn instanceof AstEq || fn instanceof AstNe ? null : lnames; }
+          else if (ln == rn) { n = ln; nm = lnames; }
+          else if (ln == 1) { n = rn; nm = rnames; }
+          else if (rn == 1) { n = ln; nm = lnames; }
+          else return eager(env, stk, vals);
+          ncols.add(n); names.add(nm);
+          break;
+        }
+        case IFELSE: {
+          int fn = ncols.remove(ncols.size() - 1), tn = ncols.remove(ncols.size() - 1), n = ncols.remove(ncols.size() - 1);
+          names.remove(names.size() - 1); names.remove(names.size() - 1); names.remove(names.size() - 1);
+          if (n == 0 || (tn != 0 && tn != n) || (fn != 0 && fn != n)) return eager(env, stk, vals);
+          ncols.add(n); names.add(null);
+          break;
+        }
+        default: throw H2O.fail();
+      }
+    }
+    int n = ncols.get(0);
+    if (n == 0) return eager(env, stk, vals);
+    Frame res = new FusedTask(code, args, cons, _fns, inCol, inNcols, _depth).doAll(n, Vec.T_NUM, fr).outputFrame(names.get(0), null);
+    return new ValFrame(res);
+  }
+
+  // Evaluate the tree one operator at a time, with the inputs already evaluated
+  private Val eager(Env env, Env.StackHelp stk, Val[] vals) {
+    AstRoot[] leaves = new AstRoot[vals.length];
+    for (int i = 0; i < vals.length; i++)
+      leaves[i] = new AstVal(vals[i]);
+    AstExec ast = (AstExec) substitute(env, _root, leaves);
+    return fusible(env, _funs, ast).apply(env, stk, ast._asts);
+  }
+
+  // Same expression with its inputs replaced by their values; must match Builder.node
+  private AstRoot substitute(Env env, AstRoot ast, AstRoot[] leaves) {
+    if (ast instanceof AstNum) return ast;
+    if (fusible(env, _funs, ast) == null) {
+      for (int i = 0; i < _inputs.length; i++)
+        if (_inputs[i] == ast || (ast instanceof AstId && _inputs[i] instanceof AstId && _inputs[i].str().equals(ast.str())))
+          return leaves[i];
+      throw H2O.fail();
+    }
+    AstRoot[] asts = ((AstExec) ast)._asts.clone();
+    for (int i = 1; i < asts.length; i++)
+      asts[i] = substitute(env, asts[i], leaves);
+    return new AstExec(asts);
+  }
+
+  // An already evaluated value
+  private static class AstVal extends AstRoot {
+    final Val _val;
+    AstVal(Val val) { _val = val; }
+    @Override public Val exec(Env env) { return env.returning(_val); }
+    @Override public String str() { return _val.toString(); }
+    @Override public String example() { return null; }
+    @Override public String description() { return null; }
+    @Override public int nargs() { return 1; }
+  }
+
+  /**
+   * Describe how an expression is evaluated: which operators are fused into
+   * one pass, and which expressions are materialized as their inputs.
+   */
+  public static String explain(Env env, AstRoot ast) {
+    SB sb = new SB();
+    explain(env, ast, sb);
+    return sb.toString();
+  }
+
+  private static void explain(Env env, AstRoot ast, SB sb) {
+    if (!(ast instanceof AstExec)) {
+      sb.i().p("Value: ").p(ast.str()).nl();
+      return;
+    }
+    Fusion plan = plan(env, (AstExec) ast);
+    AstRoot[] children;
+    if (plan != null) {
+      sb.i().p("Fused[").p(plan._nops).p(" ops, ").p(plan._inputs.length).p(" inputs]: ").p(ast.str()).nl();
+      children = plan._inputs;
+    } else {
+      sb.i().p("Materialize: ").p(ast.str()).nl();
+      AstRoot[] asts = ((AstExec) ast)._asts;
+      children = Arrays.copyOfRange(asts, 1, asts.length);
+    }
+    sb.ii(1);
+    for (AstRoot child : children)
+      explain(env, child, sb);
+    sb.di(1);
+  }
+
+  // Evaluates the program block-wise over each Chunk: every instruction runs
+  // over all rows of the chunk before the next one
+  private static class FusedTask extends MRTask<FusedTask> {
+    final byte[] _code;
+    final int[] _args;
+    final double[] _cons;
+    final AstPrimitive[] _fns;
+    final int[] _inCol, _inNcols;   // First column of every input in the frame, and its width
+    final int _depth;
+
+    FusedTask(byte[] code, int[] args, double[] cons, AstPrimitive[] fns, int[] inCol, int[] inNcols, int depth) {
+      _code = code; _args = args; _cons = cons; _fns = fns; _inCol = inCol; _inNcols = inNcols; _depth = depth;
+    }
+
+    @Override
+    public void map(Chunk[] cs, NewChunk[] ncs) {
+      final int len = cs[0]._len;
+      double[][] stk = new double[_depth][len];
+      for (int c = 0; c < ncs.length; c++) {
+        int sp = 0;
+        for (int pc = 0; pc < _code.length; pc++) {
+          int a = _args[pc];
+          switch (_code[pc]) {
+            case CON:
+              Arrays.fill(stk[sp++], _cons[a]);
+              break;
+            case IN:          // 1-column inputs are widened
+              cs[_inCol[a] + (_inNcols[a] == 1 ? 0 : c)].getDoubles(stk[sp++], 0, len);
+              break;
+            case UNI: {
+              AstUniOp fn = (AstUniOp) _fns[a];
+              double[] d = stk[sp - 1];
+              for (int i = 0; i < len; i++) d[i] = fn.op(d[i]);
+              break;
+            }
+            case BIN: {
+              AstBinOp fn = (AstBinOp) _fns[a];
+              double[] r = stk[--sp], l = stk[sp - 1];
+              for (int i = 0; i < len; i++) l[i] = fn.op(l[i], r[i]);
+              break;
+            }
+            case IFELSE: {    // NaN tests poison
+              double[] f = stk[--sp], t = stk[--sp], tst = stk[sp - 1];
+              for (int i = 0; i < len; i++)
+                tst[i] = Double.isNaN(tst[i]) ? Double.NaN : tst[i] == 0 ? f[i] : t[i];
+              break;
+            }
+            default: throw H2O.fail();
+          }
+        }
+        assert sp == 1;
+        double[] res = stk[0];
+        NewChunk nc = ncs[c];
+        for (int i = 0; i < len; i++) nc.addNum(res[i]);
+      }
+    }
+  }
+}
@@ -14,11 +14,26 @@ public class Merge {
   // This is a fully distributed and parallel sort.
   // It is not currently an in-place sort, so the data is doubled and a sorted copy is returned.
   public static Frame sort( final Frame fr, int[] cols ) {
+    return sort(fr, cols, null);
+  }
+
+  // Sort a Frame by the given columns, each ascending or descending (null for
+  // all ascending).  Ascending integer and categorical keys are radix sorted;
+  // fractional, string and descending keys go through a sample sort, see
+  // SampleSort.  Either way a sorted copy is returned.
+  public static Frame sort( final Frame fr, int[] cols, boolean[] ascending ) {
     if( cols.length==0 )        // Empty key list
       return fr;                // Return original frame
     for( int col : cols )
       if( col < 0 || col >= fr.numCols() )
         throw new IllegalArgumentException("Column "+col+" is out of range of "+fr.numCols());
+    if( ascending != null && ascending.length != cols.length )
+      throw new IllegalArgumentException("Expected "+cols.length+" sort directions, but found "+ascending.length);
+    for( int i=0; i<cols.length; i++ ) {
+      Vec vec = fr.vec(cols[i]);
+      if( (ascending != null && !ascending[i]) || !(vec.isCategorical() || vec.isTime() || (vec.isNumeric() && vec.isInt())) )
+        return SampleSort.sort(fr, cols, ascending);
+    }
     // All identity ID maps
     int id_maps[][] = new int[cols.length][];
     for( int i=0; i<cols.length; i++ ) {
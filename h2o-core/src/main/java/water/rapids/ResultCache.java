@@ -0,0 +1,219 @@
+package water.rapids;
+
+import water.DKV;
+import water.H2O;
+import water.Key;
+import water.MemoryManager;
+import water.Value;
+import water.fvec.Frame;
+import water.fvec.Vec;
+import water.rapids.ast.AstExec;
+import water.rapids.ast.AstFunction;
+import water.rapids.ast.AstRoot;
+import water.rapids.ast.params.AstId;
+import water.rapids.ast.prims.advmath.*;
+import water.rapids.ast.prims.assign.*;
+import water.rapids.ast.prims.misc.AstLs;
+import water.rapids.ast.prims.mungers.*;
+import water.rapids.ast.prims.time.AstSetTimeZone;
+import water.rapids.vals.ValFrame;
+import water.util.Log;
+import water.util.SB;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of the results of Rapids expressions within a {@link Session}.
+ * <p/>
+ * Notebooks re-issue the same expressions against unchanged frames.  A
+ * function application is looked up by its canonical text plus a fingerprint
+ * of every frame it names: the content checksum, type and domain of every Vec,
+ * and the column names.  So a hit is only ever returned for the same inputs,
+ * and a frame written into since is recomputed.
+ * <p/>
+ * Cached frames are session temps sharing their Vecs with the frames handed
+ * out: the usual ref-counting and Copy-On-Write keep them intact when a copy
+ * is updated.  The few operators updating Vecs in place without Copy-On-Write
+ * empty the cache instead.  Expressions with side effects or random results
+ * are never cached, nor are frames made only of existing Vecs (column
+ * slices), which cost nothing to recompute.
+ * <p/>
+ * Entries are evicted least recently used first beyond a fraction of the
+ * heap (property {@code sys.ai.h2o.rapids.cache.fraction}, default 0.1), and
+ * all at once when the {@link MemoryManager} blocks allocations.
+ * <p/>
+ * Sessions run concurrent requests, so all access to the entries is
+ * synchronized on the cache.
+ */
+public class ResultCache {
+  private static final double MEM_FRACTION = Double.parseDouble(
+      System.getProperty(H2O.OptArgs.SYSTEM_PROP_PREFIX + "rapids.cache.fraction", "0.1"));
+  private static final int MAX_ENTRIES = 1000;
+
+  // Expressions which are never cached: side effects or random results
+  private static final Class[] UNCACHEABLE = {
+      AstAssign.class, AstRectangleAssign.class, AstRm.class, AstTmpAssign.class,
+      AstColNames.class, AstRename.class, AstLs.class,
+      AstRunif.class, AstKFold.class, AstStratifiedKFold.class, AstStratifiedSplit.class
+  };
+  // Expressions updating Vecs in place, which may be shared with cached frames
+  private static final Class[] INVALIDATING = {
+      AstImpute.class, AstScale.class, AstSetDomain.class, AstSetTimeZone.class
+  };
+
+  private final Session _ses;
+  private final LinkedHashMap<String, Entry> _entries = new LinkedHashMap<>(16, 0.75f, true); // LRU order
+  private final long _maxBytes;
+  private long _bytes;
+  private long _hits, _misses, _evictions;
+
+  private static class Entry {
+    final Val _val;             // Cached frames are session temps
+    final long _bytes;
+
+    Entry(Val val, long bytes) {
+      _val = val;
+      _bytes = bytes;
+    }
+  }
+
+  ResultCache(Session ses) {
+    this(ses, (long) (MEM_FRACTION * MemoryManager.MEM_MAX));
+  }
+
+  ResultCache(Session ses, long maxBytes) {
+    _ses = ses;
+    _maxBytes = maxBytes;
+  }
+
+  public synchronized long hits() { return _hits; }
+  public synchronized long misses() { return _misses; }
+  public synchronized long evictions() { return _evictions; }
+  public synchronized int size() { return _entries.size(); }
+  public synchronized long bytes() { return _bytes; }
+
+  /**
+   * Cache key of a function application.  Each frame is fingerprinted once
+   * per top-level expression and remembered in the {@link Env}, until a
+   * function which may update frames is applied.
+   *
+   * @return canonical text and input fingerprints, or null if not cacheable
+   */
+  public String key(Env env, AstExec exec, AstRoot fun) {
+    if (env._scope != null || _maxBytes <= 0) return null;   // Lexically scoped names are not fingerprinted
+    if (isA(fun, UNCACHEABLE) || isA(fun, INVALIDATING)) return null;
+    SB sb = new SB(exec.str());
+    return fingerprint(env, exec, sb) ? sb.toString() : null;
+  }
+
+  // Append the fingerprints of all frames named in ast; false if not cacheable
+  private static boolean fingerprint(Env env, AstRoot ast, SB sb) {
+    if (ast instanceof AstExec) {
+      for (AstRoot a : ((AstExec) ast)._asts)
+        if (!fingerprint(env, a, sb)) return false;
+    } else if (ast instanceof AstFunction) {
+      return fingerprint(env, ((AstFunction) ast).body(), sb);
+    } else if (ast instanceof AstId) {
+      String id = ast.str();
+      if (!env._fingerprints.containsKey(id)) env._fingerprints.put(id, fingerprint(id));
+      String fp = env._fingerprints.get(id);
+      if (fp == null) return false;
+      sb.p(fp);
+    }
+    return true;
+  }
+
+  // Fingerprint of the frame named id, "" for functions, their arguments and
+  // constants, or null if not cacheable
+  private static String fingerprint(String id) {
+    Value value = DKV.get(Key.make(id));
+    if (value == null) {
+      AstRoot prim = AstRoot.PRIMS.get(id);
+      return prim == null || !(isA(prim, UNCACHEABLE) || isA(prim, INVALIDATING)) ? "" : null;
+    }
+    if (!value.isFrame()) return null;
+    Frame fr = value.get();
+    SB sb = new SB().p('|').p(id).p(':').p(Arrays.hashCode(fr._names));
+    for (Vec vec : fr.vecs())
+      sb.p(',').p(vec.contentChecksum()).p(vec.get_type()).p(Arrays.hashCode(vec.domain()));
+    return sb.toString();
+  }
+
+  private static boolean isA(AstRoot ast, Class[] clzs) {
+    for (Class clz : clzs)
+      if (clz.isInstance(ast)) return true;
+    return false;
+  }
+
+  /** @return the cached result for this key, or null */
+  public synchronized Val get(String key) {
+    Entry e = _entries.get(key);
+    if (e == null) {
+      _misses++;
+      return null;
+    }
+    _hits++;
+    if (!e._val.isFrame()) return e._val;
+    Frame fr = e._val.getFrame();
+    return new ValFrame(new Frame(fr._names.clone(), fr.vecs().clone()));
+  }
+
+  /**
+   * Cache a freshly computed result of fun under this key, unless null.
+   * Applying a function which updates Vecs in place empties the cache, and
+   * applying any function which may update frames forgets their fingerprints.
+   */
+  public synchronized void put(Env env, String key, AstRoot fun, Val val) {
+    if (isA(fun, INVALIDATING)) clear();
+    if (isA(fun, INVALIDATING) || isA(fun, UNCACHEABLE)) env._fingerprints.clear();
+    if (key == null) return;
+    if (!MemoryManager.canAlloc()) {  // Swapping: give the memory back
+      clear();
+      return;
+    }
+    long bytes = 64;
+    switch (val.type()) {
+      case Val.FRM:
+        Frame fr = val.getFrame();
+        boolean computed = false;
+        for (Vec vec : fr.vecs())
+          computed |= !_ses.isShared(vec);
+        if (!computed) return;  // A mere slice of existing frames
+        bytes += 8 * fr.numRows() * fr.numCols();
+        if (bytes > _maxBytes) return;
+        val = new ValFrame(_ses.track_tmp(new Frame(Key.<Frame>make("_rapids_cache" + Key.rand()), fr._names.clone(), fr.vecs().clone())));
+        break;
+      case Val.NUMS: bytes += 8 * val.getNums().length; break;
+      case Val.STRS: bytes += 32 * val.getStrs().length; break;
+      case Val.FUN: return;
+    }
+    Entry old = _entries.put(key, new Entry(val, bytes));
+    if (old != null) drop(old);
+    _bytes += bytes;
+    // Least recently used first
+    Iterator<Map.Entry<String, Entry>> it = _entries.entrySet().iterator();
+    while ((_bytes > _maxBytes || _entries.size() > MAX_ENTRIES) && it.hasNext()) {
+      Entry e = it.next().getValue();
+      it.remove();
+      drop(e);
+      _evictions++;
+    }
+  }
+
+  /** Drop all entries. */
+  public synchronized void clear() {
+    if (_entries.isEmpty()) return;
+    Log.debug("Rapids cache dropping " + _entries.size() + " entries");
+    for (Entry e : _entries.values()) drop(e);
+    _evictions += _entries.size();
+    _entries.clear();
+  }
+
+  private void drop(Entry e) {
+    _bytes -= e._bytes;
+    if (e._val.isFrame()) _ses.remove(e._val.getFrame());
+  }
+}
@@ -0,0 +1,266 @@
+package water.rapids;
+
+import water.*;
+import water.fvec.C16Chunk;
+import water.fvec.Chunk;
+import water.fvec.Frame;
+import water.fvec.NewChunk;
+import water.fvec.Vec;
+import water.parser.BufferedString;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Distributed comparison sort for the keys the radix sort in {@link Merge}
+ * does not handle: fractional numbers, strings and descending order.
+ * <p/>
+ * A sample of rows spread evenly over the frame is sorted by {@link SortOrder}
+ * to pick splitters cutting the key range into as many buckets as the frame
+ * has chunks.  One pass then ships every row, all columns, to its bucket, per
+ * node, in the K/V at the home of the output chunk for that bucket; and a
+ * second pass sorts each bucket there and writes it out.  Each input chunk is
+ * read once, in row order, and only the sample is read by random access.
+ * Since the row number breaks ties, splitters are distinct rows and buckets
+ * stay balanced however many keys repeat.
+ */
+class SampleSort {
+  private static final int SAMPLES_PER_BUCKET = 32;
+
+  static Frame sort(Frame fr, int[] cols, boolean[] ascending) {
+    Vec[] keys = SortOrder.keys(fr, cols);
+    SortOrder order = new SortOrder(keys, ascending);
+    long nrows = fr.numRows();
+    int nbuckets = (int) Math.max(1, Math.min(fr.anyVec().nChunks(), nrows));
+
+    // Splitters from a sorted sample
+    int nsamples = (int) Math.min(nrows, (long) nbuckets * SAMPLES_PER_BUCKET);
+    final SortOrder.Row[] sample = new SortOrder.Row[nsamples];
+    for (int i = 0; i < nsamples; i++)
+      sample[i] = order.row(keys, i * nrows / nsamples);
+    Arrays.sort(sample, comparator(order));
+    SortOrder.Row[] splits = new SortOrder.Row[nbuckets - 1];
+    for (int b = 1; b < nbuckets; b++)
+      splits[b - 1] = sample[(int) ((long) b * nsamples / nbuckets)];
+
+    // One output chunk per bucket, one row long for now
+    Vec layout = Vec.makeCon(0, nbuckets, 0, false);
+    String prefix = "__sample_sort__" + Key.rand();
+    try {
+      new Scatter(order, cols, splits, layout, prefix).doAll(fr);
+      return new Gather(order, cols, prefix).doAll(fr.types(), layout).outputFrame(fr.names(), fr.domains());
+    } finally {
+      layout.remove();
+    }
+  }
+
+  private static Comparator<SortOrder.Row> comparator(final SortOrder order) {
+    return new Comparator<SortOrder.Row>() {
+      @Override public int compare(SortOrder.Row a, SortOrder.Row b) { return order.compare(a, b); }
+    };
+  }
+
+  // Bucket rows of a node are kept under a key at the home of the output chunk
+  static Key bucketKey(String prefix, int bucket, int node, H2ONode home) {
+    return Key.make(prefix + "_bucket" + bucket + "_node" + node, (byte) 1, Key.HIDDEN_USER_KEY, false, home);
+  }
+
+  /** Rows of a bucket, all columns, in row order. */
+  static class Rows extends Iced<Rows> {
+    long[] _rows;               // Row numbers
+    double[][] _ds;             // Per numeric, time or categorical column, NaN for NA
+    transient byte[][][] _ss;   // Per string column, UTF-8 or null for NA; see write_impl
+    long[][] _los, _his;        // Per UUID column
+
+    Rows(Vec[] vecs, int n) {
+      _rows = new long[n];
+      _ds = new double[vecs.length][];
+      _ss = new byte[vecs.length][][];
+      _los = new long[vecs.length][];
+      _his = new long[vecs.length][];
+      for (int c = 0; c < vecs.length; c++) {
+        if (vecs[c].isString()) _ss[c] = new byte[n][];
+        else if (vecs[c].isUUID()) { _los[c] = new long[n]; _his[c] = new long[n]; }
+        else _ds[c] = new double[n];
+      }
+    }
+
+    // Set row i from row r of the chunks
+    void set(int i, Chunk[] cs, int r, BufferedString tmp) {
+      _rows[i] = cs[0].start() + r;
+      for (int c = 0; c < cs.length; c++) {
+        if (_ss[c] != null) {
+          if (cs[c].isNA(r)) continue;
+          cs[c].atStr(tmp, r);
+          _ss[c][i] = Arrays.copyOfRange(tmp.getBuffer(), tmp.getOffset(), tmp.getOffset() + tmp.length());
+        } else if (_los[c] != null) {
+          if (cs[c].isNA(r)) { _los[c][i] = C16Chunk._LO_NA; _his[c][i] = C16Chunk._HI_NA; }
+          else { _los[c][i] = cs[c].at16l(r); _his[c][i] = cs[c].at16h(r); }
+        } else _ds[c][i] = cs[c].atd(r);
+      }
+    }
+
+    // Set rows from n of src, from row i of src
+    void set(int n, Rows src, int i, int len) {
+      System.arraycopy(src._rows, i, _rows, n, len);
+      for (int c = 0; c < _ds.length; c++) {
+        if (_ss[c] != null) System.arraycopy(src._ss[c], i, _ss[c], n, len);
+        else if (_los[c] != null) {
+          System.arraycopy(src._los[c], i, _los[c], n, len);
+          System.arraycopy(src._his[c], i, _his[c], n, len);
+        } else System.arraycopy(src._ds[c], i, _ds[c], n, len);
+      }
+    }
+
+    // Append row i to the NewChunks
+    void copy(int i, NewChunk[] ncs, BufferedString tmp) {
+      for (int c = 0; c < ncs.length; c++) {
+        if (_ss[c] != null) {
+          if (_ss[c][i] == null) ncs[c].addNA();
+          else ncs[c].addStr(tmp.set(_ss[c][i]));
+        } else if (_los[c] != null) ncs[c].addUUID(_los[c][i], _his[c][i]);
+        else if (Double.isNaN(_ds[c][i])) ncs[c].addNA();
+        else ncs[c].addNum(_ds[c][i]);
+      }
+    }
+
+    // AutoBuffer has no byte[][][], and drops the length of all-null arrays
+    public final AutoBuffer write_impl(AutoBuffer ab) {
+      ab.putA8(_rows).put4(_ss.length).putAA8d(_ds).putAA8(_los).putAA8(_his);
+      for (byte[][] ss : _ss) ab.putAA1(ss);
+      return ab;
+    }
+
+    public final Rows read_impl(AutoBuffer ab) {
+      _rows = ab.getA8();
+      int ncols = ab.get4();     // Trailing nulls are not kept
+      _ds = Arrays.copyOf(ab.getAA8d(), ncols);
+      _los = Arrays.copyOf(ab.getAA8(), ncols);
+      _his = Arrays.copyOf(ab.getAA8(), ncols);
+      _ss = new byte[ncols][][];
+      for (int c = 0; c < _ss.length; c++) _ss[c] = ab.getAA1();
+      return this;
+    }
+  }
+
+  // Key values of a shipped row, and where to find the rest of it
+  private static class Entry extends SortOrder.Row {
+    final Rows _part;
+    final int _i;
+
+    Entry(SortOrder order, int[] cols, Rows part, int i) {
+      super(cols.length, order.hasStrs(), part._rows[i]);
+      _part = part;
+      _i = i;
+      for (int k = 0; k < cols.length; k++) {
+        if (part._ss[cols[k]] != null) _ss[k] = part._ss[cols[k]][i];
+        else _ds[k] = part._ds[cols[k]][i];
+      }
+    }
+  }
+
+  // Ship every row to its bucket, per node
+  private static class Scatter extends MRTask<Scatter> {
+    private final SortOrder _order;
+    private final int[] _cols;
+    private final SortOrder.Row[] _splits;
+    private final Vec _layout;
+    private final String _prefix;
+    private transient Rows[][] _rows;   // Per chunk on this node, per bucket
+
+    Scatter(SortOrder order, int[] cols, SortOrder.Row[] splits, Vec layout, String prefix) {
+      _order = order;
+      _cols = cols;
+      _splits = splits;
+      _layout = layout;
+      _prefix = prefix;
+    }
+
+    @Override protected void setupLocal() {
+      _rows = new Rows[_fr.anyVec().nChunks()][];
+    }
+
+    @Override public void map(Chunk[] cs) {
+      Chunk[] keys = new Chunk[_cols.length];
+      for (int k = 0; k < keys.length; k++) keys[k] = cs[_cols[k]];
+      BufferedString tmp = new BufferedString();
+      int nbuckets = _splits.length + 1;
+      int[] buckets = new int[cs[0]._len];
+      int[] cnts = new int[nbuckets];
+      for (int r = 0; r < cs[0]._len; r++) {
+        int lo = 0, hi = _splits.length;      // Number of splitters sorting before or at this row
+        while (lo < hi) {
+          int mid = (lo + hi) >>> 1;
+          if (_order.compare(keys, r, _splits[mid], tmp) >= 0) lo = mid + 1;
+          else hi = mid;
+        }
+        cnts[buckets[r] = lo]++;
+      }
+      Vec[] vecs = _fr.vecs();
+      Rows[] rows = new Rows[nbuckets];
+      for (int b = 0; b < nbuckets; b++)
+        if (cnts[b] > 0) rows[b] = new Rows(vecs, cnts[b]);
+      Arrays.fill(cnts, 0);
+      for (int r = 0; r < buckets.length; r++)
+        rows[buckets[r]].set(cnts[buckets[r]]++, cs, r, tmp);
+      _rows[cs[0].cidx()] = rows;
+    }
+
+    @Override protected void closeLocal() {
+      Vec[] vecs = _fr.vecs();
+      for (int b = 0; b <= _splits.length; b++) {
+        int n = 0;
+        for (Rows[] rows : _rows)
+          if (rows != null && rows[b] != null) n += rows[b]._rows.length;
+        if (n == 0) continue;
+        Rows all = new Rows(vecs, n);
+        n = 0;
+        for (Rows[] rows : _rows)   // In chunk order
+          if (rows != null && rows[b] != null) {
+            all.set(n, rows[b], 0, rows[b]._rows.length);
+            n += rows[b]._rows.length;
+            rows[b] = null;
+          }
+        H2ONode home = _layout.chunkKey(b).home_node();
+        DKV.put(bucketKey(_prefix, b, H2O.SELF.index(), home), all, _fs, true);
+      }
+      _rows = null;
+    }
+  }
+
+  // Sort each bucket and write its rows into the output chunk
+  private static class Gather extends MRTask<Gather> {
+    private final SortOrder _order;
+    private final int[] _cols;
+    private final String _prefix;
+
+    Gather(SortOrder order, int[] cols, String prefix) {
+      _order = order;
+      _cols = cols;
+      _prefix = prefix;
+    }
+
+    @Override public void map(Chunk[] cs, NewChunk[] ncs) {
+      int b = cs[0].cidx();
+      Rows[] parts = new Rows[H2O.CLOUD.size()];
+      int n = 0;
+      for (int node = 0; node < parts.length; node++) {
+        Key k = bucketKey(_prefix, b, node, cs[0].vec().chunkKey(b).home_node());
+        Value val = DKV.get(k);
+        if (val == null) continue;
+        parts[node] = val.get();
+        n += parts[node]._rows.length;
+        DKV.remove(k, _fs);
+      }
+      Entry[] rows = new Entry[n];
+      n = 0;
+      for (Rows part : parts)
+        if (part != null)
+          for (int i = 0; i < part._rows.length; i++) rows[n++] = new Entry(_order, _cols, part, i);
+      Arrays.sort(rows, comparator(_order));
+      BufferedString tmp = new BufferedString();
+      for (Entry row : rows)
+        row._part.copy(row._i, ncs, tmp);
+    }
+  }
+}
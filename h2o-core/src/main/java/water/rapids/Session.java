@@ -2,6 +2,7 @@ package water.rapids;
 
 import water.DKV;
 import water.Futures;
+import water.H2O;
 import water.Key;
 import water.MRTask;
 import water.fvec.Frame;
@@ -52,6 +53,19 @@ public class Session {
   // set.
   private NonBlockingHashSet<Vec> GLOBALS = new NonBlockingHashSet<>();
 
+  // Fused evaluation of element-wise expressions, see Fusion.  Off by default;
+  // turned on with the sys.ai.h2o.rapids.fusion property.
+  private boolean _fusion = Boolean.getBoolean(H2O.OptArgs.SYSTEM_PROP_PREFIX + "rapids.fusion");
+
+  // Exact quantiles and medians, by refinement passes per column, instead of
+  // the one-pass sketch.  Off by default; turned on with the
+  // sys.ai.h2o.rapids.exact_quantiles property.
+  private boolean _exactQuantiles = exactQuantilesByDefault();
+
+  // Results of repeated expressions, see ResultCache.  Off (null) by default:
+  // only long-lived sessions see repeated expressions.
+  private ResultCache _cache;
+
 
   /**
    * Constructor
@@ -78,12 +92,70 @@ public class Session {
     return val;                 // Can return a frame, which may point to session-shared Vecs
   }
 
+  /**
+   * @return true if trees of element-wise operators are evaluated in a single fused pass
+   */
+  public boolean fusion() {
+    return _fusion;
+  }
+
+  /**
+   * Turn fused evaluation of element-wise expressions on or off
+   */
+  public Session setFusion(boolean fusion) {
+    _fusion = fusion;
+    return this;
+  }
+
+  /**
+   * @return true if quantile and median compute exact values rather than sketch them
+   */
+  public boolean exactQuantiles() {
+    return _exactQuantiles;
+  }
+
+  /**
+   * Turn exact quantiles and medians on or off
+   */
+  public Session setExactQuantiles(boolean exact) {
+    _exactQuantiles = exact;
+    return this;
+  }
+
+  /**
+   * @return the exact quantiles setting of new Sessions, and of Rapids calls outside one
+   */
+  public static boolean exactQuantilesByDefault() {
+    return Boolean.getBoolean(H2O.OptArgs.SYSTEM_PROP_PREFIX + "rapids.exact_quantiles");
+  }
+
+  /**
+   * @return the cache of expression results, or null if caching is off
+   */
+  public ResultCache cache() {
+    return _cache;
+  }
+
+  /**
+   * Turn caching of expression results on or off
+   */
+  public Session setCache(boolean cache) {
+    return setCache(cache ? (_cache == null ? new ResultCache(this) : _cache) : null);
+  }
+
+  Session setCache(ResultCache cache) {
+    if (_cache != null && _cache != cache) _cache.clear();
+    _cache = cache;
+    return this;
+  }
+
   /**
    * Normal session exit.  Returned Frames are fully deep-copied, and are responsibility of the caller to delete.
    * Returned Frames have their refcnts currently up by 1 (for the returned value itself).
    */
   public Val end(Val returning) {
     sanity_check_refs(returning);
+    if (_cache != null) _cache.clear();
     // Remove all temp frames
     Futures fs = new Futures();
     for (Frame fr : FRAMES.values()) {
@@ -114,6 +186,7 @@ public class Session {
    */
   public RuntimeException endQuietly(Throwable ex) {
     try {
+      if (_cache != null) _cache.clear();
       GLOBALS.clear();
       Futures fs = new Futures();
       for (Frame fr : FRAMES.values()) {
@@ -227,6 +300,16 @@ public class Session {
     fs.blockForPending();
   }
 
+  /**
+   * @return true if the Vec is in a global or session-tracked frame
+   */
+  boolean isShared(Vec vec) {
+    if (GLOBALS.contains(vec)) return true;
+    for (Frame fr : FRAMES.values())
+      if (fr.find(vec) != -1) return true;
+    return false;
+  }
+
   /**
    * Lower refcnt of all Vecs in frame, deleting Vecs that go to zero refs.
    * Passed in a Futures which is returned, and set to non-null if something gets deleted.
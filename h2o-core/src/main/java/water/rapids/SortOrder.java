@@ -0,0 +1,154 @@
+package water.rapids;
+
+import water.Iced;
+import water.fvec.Chunk;
+import water.fvec.Frame;
+import water.fvec.NewChunk;
+import water.fvec.Vec;
+import water.parser.BufferedString;
+
+import java.util.Arrays;
+
+/**
+ * Row order by several key columns, each ascending or descending.
+ * <p/>
+ * Numeric, time and categorical keys compare by value (categoricals by level
+ * index), string keys lexicographically by their UTF-8 bytes.  NA is smaller than any value, so it
+ * comes first in ascending and last in descending order.  Ties on all keys are
+ * broken by row number, which makes every sort stable and every top-N
+ * deterministic.  UUID keys are not supported.
+ */
+public class SortOrder extends Iced<SortOrder> {
+  private final boolean[] _desc;
+  private final boolean[] _isStr;
+
+  /**
+   * @param keys      key columns, most significant first
+   * @param ascending per key; null for all ascending
+   */
+  public SortOrder(Vec[] keys, boolean[] ascending) {
+    if (ascending != null && ascending.length != keys.length)
+      throw new IllegalArgumentException("Expected " + keys.length + " sort directions, but found " + ascending.length);
+    _desc = new boolean[keys.length];
+    _isStr = new boolean[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i].isUUID()) throw new IllegalArgumentException("Cannot sort by a UUID column");
+      _desc[i] = ascending != null && !ascending[i];
+      _isStr[i] = keys[i].isString();
+    }
+  }
+
+  /** Key values of one row. */
+  public static class Row extends Iced<Row> {
+    final double[] _ds;         // Numeric keys, NaN for NA
+    final byte[][] _ss;         // String keys as UTF-8, null for NA; null if no string keys
+    public final long _row;
+
+    Row(int nkeys, boolean strs, long row) {
+      _ds = new double[nkeys];
+      _ss = strs ? new byte[nkeys][] : null;
+      _row = row;
+    }
+  }
+
+  boolean hasStrs() {
+    for (boolean s : _isStr)
+      if (s) return true;
+    return false;
+  }
+
+  /** @return the key values of row r of the key chunks */
+  public Row row(Chunk[] keys, int r) {
+    Row row = new Row(_desc.length, hasStrs(), keys[0].start() + r);
+    BufferedString tmp = new BufferedString();
+    for (int i = 0; i < keys.length; i++) {
+      if (_isStr[i]) row._ss[i] = keys[i].isNA(r) ? null : bytes(keys[i].atStr(tmp, r));
+      else row._ds[i] = keys[i].atd(r);
+    }
+    return row;
+  }
+
+  /** @return the key values of a row of the key Vecs, by random access */
+  public Row row(Vec[] keys, long r) {
+    Row row = new Row(_desc.length, hasStrs(), r);
+    BufferedString tmp = new BufferedString();
+    for (int i = 0; i < keys.length; i++) {
+      if (_isStr[i]) row._ss[i] = keys[i].isNA(r) ? null : bytes(keys[i].atStr(tmp, r));
+      else row._ds[i] = keys[i].at(r);
+    }
+    return row;
+  }
+
+  /** @return negative, zero or positive as row a sorts before, with or after row b */
+  public int compare(Row a, Row b) {
+    for (int i = 0; i < _desc.length; i++) {
+      int c = _isStr[i] ? compare(a._ss[i], b._ss[i]) : compare(a._ds[i], b._ds[i]);
+      if (c != 0) return _desc[i] ? -c : c;
+    }
+    return Long.compare(a._row, b._row);
+  }
+
+  /**
+   * As {@link #compare(Row, Row)}, for row r of the key chunks without making a
+   * Row of it.  String keys are read into tmp, which the caller reuses.
+   */
+  public int compare(Chunk[] keys, int r, Row b, BufferedString tmp) {
+    for (int i = 0; i < _desc.length; i++) {
+      int c;
+      if (_isStr[i]) {
+        if (keys[i].isNA(r)) c = b._ss[i] == null ? 0 : -1;
+        else if (b._ss[i] == null) c = 1;
+        else {
+          keys[i].atStr(tmp, r);
+          c = compare(tmp.getBuffer(), tmp.getOffset(), tmp.length(), b._ss[i]);
+        }
+      } else c = compare(keys[i].atd(r), b._ds[i]);
+      if (c != 0) return _desc[i] ? -c : c;
+    }
+    return Long.compare(keys[0].start() + r, b._row);
+  }
+
+  private static int compare(double a, double b) {
+    if (Double.isNaN(a)) return Double.isNaN(b) ? 0 : -1;
+    if (Double.isNaN(b)) return 1;
+    return a < b ? -1 : a > b ? 1 : 0;  // -0.0 == 0.0
+  }
+
+  private static int compare(byte[] a, byte[] b) {
+    if (a == null) return b == null ? 0 : -1;
+    if (b == null) return 1;
+    return compare(a, 0, a.length, b);
+  }
+
+  // Unsigned bytes, as BufferedString.compareTo
+  private static int compare(byte[] a, int off, int len, byte[] b) {
+    int n = Math.min(len, b.length);
+    for (int i = 0; i < n; i++) {
+      int x = (0xFF & a[off + i]) - (0xFF & b[i]);
+      if (x != 0) return x;
+    }
+    return len - b.length;
+  }
+
+  private static byte[] bytes(BufferedString str) {
+    return Arrays.copyOfRange(str.getBuffer(), str.getOffset(), str.getOffset() + str.length());
+  }
+
+  /** Append a row of the Vecs to the NewChunks, by random access. */
+  public static void copyRow(Vec[] vecs, long row, NewChunk[] ncs) {
+    for (int c = 0; c < vecs.length; c++) {
+      if (vecs[c].isString()) ncs[c].addStr(vecs[c].chunkForRow(row), row);
+      else if (vecs[c].isUUID()) ncs[c].addUUID(vecs[c].chunkForRow(row), row);
+      else if (vecs[c].isNA(row)) ncs[c].addNA();
+      else ncs[c].addNum(vecs[c].at(row));
+    }
+  }
+
+  /** @return the key Vecs of a Frame */
+  public static Vec[] keys(Frame fr, int[] cols) {
+    for (int col : cols)
+      if (col < 0 || col >= fr.numCols())
+        throw new IllegalArgumentException("Column " + col + " is out of range of " + fr.numCols());
+    return fr.vecs(cols);
+  }
+}
@@ -0,0 +1,178 @@
+package water.rapids;
+
+import water.DKV;
+import water.Iced;
+import water.Key;
+import water.Value;
+import water.fvec.Chunk;
+import water.fvec.Frame;
+import water.fvec.Vec;
+import water.fvec.ZoneMap;
+import water.rapids.ast.AstExec;
+import water.rapids.ast.AstRoot;
+import water.rapids.ast.params.AstId;
+import water.rapids.ast.params.AstNum;
+import water.rapids.ast.prims.mungers.AstColPySlice;
+import water.rapids.ast.prims.mungers.AstColSlice;
+import water.rapids.ast.prims.operators.*;
+import water.util.Log;
+import water.util.MathUtils;
+
+import java.util.ArrayList;
+
+/**
+ * Row filters pushed down to chunk {@link ZoneMap}s.
+ * <p/>
+ * A filter which is a conjunction ({@code &} or {@code &&}) of comparisons
+ * between a numeric column and a number, e.g.
+ * {@code (& (> (cols_py fr "ts") t0) (< (cols_py fr "ts") t1))}, is not
+ * materialized as a boolean Frame: its consumer tests the comparisons row by
+ * row in its own pass, and skips the chunks whose min and max exclude any of
+ * them without reading a row.  On time-ordered data a time range then touches
+ * only the few chunks covering it.
+ * <p/>
+ * NA compares as false, as rows with an NA condition are never selected.
+ * Equality is tested within one ulp, like {@link AstEq}.
+ */
+public class ZoneFilter extends Iced<ZoneFilter> {
+  // Comparisons, all of the form (column op constant)
+  private static final byte LT = 0, LE = 1, GT = 2, GE = 3, EQ = 4;
+
+  private final String _expr;
+  private final Vec[] _vecs;
+  private final byte[] _ops;
+  private final double[] _cons;
+  private final boolean[] _skip;  // Chunks which cannot match
+  private int _nskip;
+
+  private ZoneFilter(String expr, ArrayList<Vec> vecs, ArrayList<Byte> ops, ArrayList<Double> cons) {
+    _expr = expr;
+    int n = vecs.size();
+    _vecs = vecs.toArray(new Vec[n]);
+    _ops = new byte[n];
+    _cons = new double[n];
+    for (int i = 0; i < n; i++) {
+      _ops[i] = ops.get(i);
+      _cons[i] = cons.get(i);
+    }
+    _skip = new boolean[_vecs[0].nChunks()];
+    for (int i = 0; i < n; i++) {
+      ZoneMap zm = ZoneMap.get(_vecs[i]);
+      for (int cidx = 0; cidx < _skip.length; cidx++)
+        if (!_skip[cidx] && !mayMatch(_ops[i], _cons[i], zm.min(cidx), zm.max(cidx))) {
+          _skip[cidx] = true;
+          _nskip++;
+        }
+    }
+  }
+
+  /**
+   * Plan a row filter.
+   *
+   * @param pred the filter expression; not evaluated
+   * @param fr   the Frame being filtered, or null
+   * @return the filter, or null if the expression is not a conjunction of
+   * column to number comparisons on columns laid out like {@code fr}
+   */
+  public static ZoneFilter make(Env env, Env.StackHelp stk, AstRoot pred, Frame fr) {
+    ArrayList<Vec> vecs = new ArrayList<>();
+    ArrayList<Byte> ops = new ArrayList<>();
+    ArrayList<Double> cons = new ArrayList<>();
+    if (!collect(env, stk, pred, vecs, ops, cons)) return null;
+    Frame layout = fr == null ? new Frame(vecs.get(0)) : new Frame(fr.anyVec());
+    for (Vec vec : vecs)
+      if (!layout.isCompatible(new Frame(vec))) return null;
+    return new ZoneFilter(pred.str(), vecs, ops, cons);
+  }
+
+  // Gather the comparisons of a conjunction; false if not of the expected form
+  private static boolean collect(Env env, Env.StackHelp stk, AstRoot ast,
+                                 ArrayList<Vec> vecs, ArrayList<Byte> ops, ArrayList<Double> cons) {
+    if (!(ast instanceof AstExec)) return false;
+    AstRoot[] asts = ((AstExec) ast)._asts;
+    AstRoot fun = asts[0] instanceof AstId ? Fusion.lookupFun(env, asts[0].str()) : null;
+    if (fun == null || asts.length != 3) return false;
+    if (fun instanceof AstAnd || fun instanceof AstLAnd)
+      return collect(env, stk, asts[1], vecs, ops, cons) && collect(env, stk, asts[2], vecs, ops, cons);
+    byte op;
+    if (fun instanceof AstLt) op = LT;
+    else if (fun instanceof AstLe) op = LE;
+    else if (fun instanceof AstGt) op = GT;
+    else if (fun instanceof AstGe) op = GE;
+    else if (fun instanceof AstEq) op = EQ;
+    else return false;
+    AstRoot col = asts[1], con = asts[2];
+    if (con instanceof AstNum == col instanceof AstNum) return false;
+    if (col instanceof AstNum) {  // Constant on the left: flip the comparison
+      col = asts[2];
+      con = asts[1];
+      op = op == LT ? GT : op == LE ? GE : op == GT ? LT : op == GE ? LE : EQ;
+    }
+    if (op == EQ && Double.isNaN(((AstNum) con).getNum())) return false;  // Selects the NAs
+    if (!isColumn(env, col)) return false;
+    Frame fr = stk.track(col.exec(env)).getFrame();
+    if (fr.numCols() != 1 || !(fr.anyVec().isNumeric() || fr.anyVec().isTime())) return false;
+    vecs.add(fr.anyVec());
+    ops.add(op);
+    cons.add(((AstNum) con).getNum());
+    return true;
+  }
+
+  // A Frame named in the DKV, or a column slice of one: cheap and side-effect free
+  private static boolean isColumn(Env env, AstRoot ast) {
+    if (ast instanceof AstId) {
+      if (env._scope != null && env._scope.lookup(ast.str()) != null) return false;
+      Value value = DKV.get(Key.make(ast.str()));
+      return value != null && value.isFrame();
+    }
+    if (!(ast instanceof AstExec)) return false;
+    AstRoot[] asts = ((AstExec) ast)._asts;
+    AstRoot fun = asts[0] instanceof AstId ? Fusion.lookupFun(env, asts[0].str()) : null;
+    return (fun instanceof AstColSlice || fun instanceof AstColPySlice) && asts.length == 3 &&
+        asts[1] instanceof AstId && isColumn(env, asts[1]);
+  }
+
+  private static boolean mayMatch(byte op, double con, double min, double max) {
+    switch (op) {
+      case LT: return min < con;
+      case LE: return min <= con;
+      case GT: return max > con;
+      case GE: return max >= con;
+      default: return min <= con + Math.ulp(con) && con - Math.ulp(con) <= max;
+    }
+  }
+
+  /** @return the columns compared, to be passed along to the consumer's pass */
+  public Vec[] vecs() {
+    return _vecs;
+  }
+
+  /** @return true if no row of this chunk matches */
+  public boolean skip(int cidx) {
+    return _skip[cidx];
+  }
+
+  /** @return true if the row matches; {@code cs[off..]} are the chunks of {@link #vecs} */
+  public boolean matches(Chunk[] cs, int off, int row) {
+    for (int i = 0; i < _ops.length; i++) {
+      double d = cs[off + i].atd(row);
+      switch (_ops[i]) {
+        case LT: if (!(d <  _cons[i])) return false; break;
+        case LE: if (!(d <= _cons[i])) return false; break;
+        case GT: if (!(d >  _cons[i])) return false; break;
+        case GE: if (!(d >= _cons[i])) return false; break;
+        default: if (!MathUtils.equalsWithinOneSmallUlp(d, _cons[i])) return false; break;
+      }
+    }
+    return true;
+  }
+
+  int skipped() {
+    return _nskip;
+  }
+
+  /** Report the chunks skipped in the log. */
+  public void log(String consumer) {
+    Log.info(consumer + " filter " + _expr + " skipped " + _nskip + " of " + _skip.length + " chunks by zone maps");
+  }
+}
@@ -71,7 +71,17 @@ public class AstExec extends AstRoot {
       throw new IllegalArgumentException(
           "Incorrect number of arguments; '" + ast + "' expects " + (nargs - 1) + " but was passed " + (_asts.length - 1));
     try (Env.StackHelp stk = env.stk()) {
-      return env.returning(ast.apply(env, stk, _asts));
+      // Repeated expressions on unchanged frames are answered from the cache
+      ResultCache cache = env._ses == null ? null : env._ses.cache();
+      String key = cache == null ? null : cache.key(env, this, ast);
+      Val res = key == null ? null : cache.get(key);
+      if (res == null) {
+        // Element-wise operator trees get fused into a single pass
+        res = env._ses != null && env._ses.fusion() ? Fusion.apply(env, stk, this, ast) : null;
+        if (res == null) res = ast.apply(env, stk, _asts);
+        if (cache != null) cache.put(env, key, ast, res);
+      }
+      return env.returning(res);
     }
   }
 
@@ -59,6 +59,13 @@ public class AstFunction extends AstPrimitive {
   }
 
 
+  /**
+   * @return the function body
+   */
+  public AstRoot body() {
+    return _body;
+  }
+
   @Override
   public String str() {
     SB sb = new SB().p('{');
@@ -11,6 +11,7 @@ import water.rapids.ast.prims.assign.*;
 import water.rapids.ast.prims.matrix.AstMMult;
 import water.rapids.ast.prims.matrix.AstTranspose;
 import water.rapids.ast.prims.misc.AstComma;
+import water.rapids.ast.prims.misc.AstExplain;
 import water.rapids.ast.prims.misc.AstLs;
 import water.rapids.ast.prims.mungers.*;
 import water.rapids.ast.prims.operators.*;
@@ -195,6 +196,8 @@ public abstract class AstRoot extends Iced<AstRoot> {
     init(new AstYear());
 
     // Advanced Math
+    init(new AstApproxNUnique());
+    init(new AstApproxTopK());
     init(new AstCorrelation());
     init(new AstHist());
     init(new AstImpute());
@@ -206,6 +209,7 @@ public abstract class AstRoot extends Iced<AstRoot> {
     init(new AstQtile());
     init(new AstRunif());
     init(new AstSort());
+    init(new AstTopN());
     init(new AstStratifiedKFold());
     init(new AstStratifiedSplit());
     init(new AstTable());
@@ -245,6 +249,7 @@ public abstract class AstRoot extends Iced<AstRoot> {
     init(new AstScale());
     init(new AstSetDomain());
     init(new AstSetLevel());
+    init(new AstWindow());
 
     // Assignment; all of these lean heavily on Copy-On-Write optimizations.
     init(new AstAppend());      // Add a column
@@ -274,6 +279,7 @@ public abstract class AstRoot extends Iced<AstRoot> {
 
     // Miscellaneous
     init(new AstComma());
+    init(new AstExplain());
     init(new AstLs());
 
     // Search
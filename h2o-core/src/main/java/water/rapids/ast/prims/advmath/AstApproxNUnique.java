@@ -0,0 +1,53 @@
+package water.rapids.ast.prims.advmath;
+
+import water.fvec.Frame;
+import water.fvec.Vec;
+import water.rapids.Env;
+import water.rapids.ast.AstPrimitive;
+import water.rapids.ast.AstRoot;
+import water.rapids.vals.ValNums;
+import water.util.HyperLogLog;
+
+import java.util.Arrays;
+
+/**
+ * Approximate number of distinct non-NA values of every column, from
+ * HyperLogLog sketches computed in a single pass over all columns.  Columns
+ * whose distinct count the rollups already hold, exact or estimated (see
+ * {@link Vec#lazy_nunique}), are not scanned again.
+ */
+public class AstApproxNUnique extends AstPrimitive {
+  @Override
+  public String[] args() {
+    return new String[]{"ary"};
+  }
+
+  @Override
+  public int nargs() {
+    return 1 + 1;
+  }  // (approx_nunique ary)
+
+  @Override
+  public String str() {
+    return "approx_nunique";
+  }
+
+  @Override
+  public ValNums apply(Env env, Env.StackHelp stk, AstRoot asts[]) {
+    Frame fr = stk.track(asts[1].exec(env)).getFrame();
+    double[] ds = new double[fr.numCols()];
+    int[] cols = new int[fr.numCols()];
+    int ncols = 0;
+    for (int i = 0; i < ds.length; i++) {
+      Vec v = fr.vec(i);
+      ds[i] = v.isString() || v.isUUID() ? Double.NaN : v.lazy_nunique();
+      if (Double.isNaN(ds[i])) cols[ncols++] = i;
+    }
+    if (ncols > 0) {
+      cols = Arrays.copyOf(cols, ncols);
+      double[] est = HyperLogLog.nunique(fr, cols);
+      for (int c = 0; c < ncols; c++) ds[cols[c]] = est[c];
+    }
+    return new ValNums(ds);
+  }
+}
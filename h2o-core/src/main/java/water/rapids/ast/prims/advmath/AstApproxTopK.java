@@ -0,0 +1,87 @@
+package water.rapids.ast.prims.advmath;
+
+import water.MRTask;
+import water.fvec.Chunk;
+import water.fvec.Frame;
+import water.fvec.Vec;
+import water.rapids.Env;
+import water.rapids.ast.AstPrimitive;
+import water.rapids.ast.AstRoot;
+import water.rapids.vals.ValFrame;
+import water.util.HeavyHitters;
+
+/**
+ * Approximate k most frequent values of a column, from {@link HeavyHitters}
+ * summaries computed in a single pass.  Returns the values by decreasing
+ * count, with a lower bound of their count and the max error of that bound;
+ * unlike {@link AstTable} only a bounded number of values is ever counted.
+ */
+public class AstApproxTopK extends AstPrimitive {
+  @Override
+  public String[] args() {
+    return new String[]{"ary", "k"};
+  }
+
+  @Override
+  public int nargs() {
+    return 1 + 2;
+  }  // (approx_topk col k)
+
+  @Override
+  public String str() {
+    return "approx_topk";
+  }
+
+  @Override
+  public ValFrame apply(Env env, Env.StackHelp stk, AstRoot asts[]) {
+    Frame fr = stk.track(asts[1].exec(env)).getFrame();
+    if (fr.numCols() != 1)
+      throw new IllegalArgumentException("approx_topk applies to a single column only.");
+    Vec v = fr.anyVec();
+    if (!(v.isNumeric() || v.isCategorical() || v.isTime()))
+      throw new IllegalArgumentException("approx_topk applies to numeric, categorical and time columns only.");
+    int k = (int) asts[2].exec(env).getNum();
+    if (k < 1) throw new IllegalArgumentException("k must be positive, got " + k);
+
+    HeavyHitters hh = new TopKTask(Math.max(1024, 8 * k)).doAll(v)._hh;
+    long[] keys = hh.topK(k);
+    double[] vals = new double[keys.length];
+    long[] cnts = new long[keys.length];
+    long[] errs = new long[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      vals[i] = Double.longBitsToDouble(keys[i]);
+      cnts[i] = hh.count(keys[i]);
+      errs[i] = hh.maxError();
+    }
+    Frame res = new Frame();
+    Vec.VectorGroup vg = Vec.VectorGroup.VG_LEN1;
+    Vec vvec = Vec.makeVec(vals, vg.addVec());
+    if (v.isCategorical()) vvec.setDomain(v.domain());
+    res.add(fr.name(0), vvec);
+    res.add("Count", Vec.makeVec(cnts, null, vg.addVec()));
+    res.add("MaxError", Vec.makeVec(errs, null, vg.addVec()));
+    return new ValFrame(res);
+  }
+
+  private static class TopKTask extends MRTask<TopKTask> {
+    private final int _capacity;
+    HeavyHitters _hh;
+
+    TopKTask(int capacity) {
+      _capacity = capacity;
+    }
+
+    @Override
+    public void map(Chunk c) {
+      _hh = new HeavyHitters(_capacity);
+      for (int row = 0; row < c._len; row++)
+        _hh.add(c.atd(row));
+    }
+
+    @Override
+    public void reduce(TopKTask t) {
+      if (_hh == null) _hh = t._hh;
+      else if (t._hh != null) _hh.merge(t._hh);
+    }
+  }
+}
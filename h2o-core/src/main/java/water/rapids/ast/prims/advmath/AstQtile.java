@@ -7,6 +7,7 @@ import water.Job;
 import water.fvec.Frame;
 import water.fvec.Vec;
 import water.rapids.Env;
+import water.rapids.Session;
 import water.rapids.Val;
 import water.rapids.vals.ValFrame;
 import water.rapids.ast.AstPrimitive;
@@ -48,6 +49,8 @@ public class AstQtile extends AstPrimitive {
     String inter = asts[3].exec(env).getStr();
     parms._combine_method = QuantileModel.CombineMethod.valueOf(inter.toUpperCase());
     parms._weights_column = asts[4].str().equals("_") ? null : asts[4].str();
+    // One pass over all columns, unless exact quantiles are asked for
+    parms._sketch = !(env._ses != null ? env._ses.exactQuantiles() : Session.exactQuantilesByDefault());
 
     // Compute Quantiles
     Job j = new Quantile(parms).trainModel();
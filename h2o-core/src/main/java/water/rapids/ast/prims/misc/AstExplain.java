@@ -0,0 +1,35 @@
+package water.rapids.ast.prims.misc;
+
+import water.rapids.Env;
+import water.rapids.Fusion;
+import water.rapids.Val;
+import water.rapids.ast.AstPrimitive;
+import water.rapids.ast.AstRoot;
+import water.rapids.vals.ValStr;
+
+/**
+ * Describe, without evaluating it, how an expression would be evaluated: which
+ * element-wise operators are fused into a single pass and which expressions
+ * get materialized, see {@link Fusion}.
+ */
+public class AstExplain extends AstPrimitive {
+  @Override
+  public String[] args() {
+    return new String[]{"expr"};
+  }
+
+  @Override
+  public int nargs() {
+    return 1 + 1;
+  } // (explain expr)
+
+  @Override
+  public String str() {
+    return "explain";
+  }
+
+  @Override
+  public Val apply(Env env, Env.StackHelp stk, AstRoot asts[]) {
+    return new ValStr(Fusion.explain(env, asts[1]));
+  }
+}
@@ -265,6 +265,18 @@ public class AstGroup extends AstPrimitive {
       aggs[(idx - 3) / 3] = new AGG(fcn, agg_col, na, (int) fr.vec(agg_col).max() + 1);
     }
 
+    String[] fcnames = new String[aggs.length];
+    for (int i = 0; i < aggs.length; i++)
+      fcnames[i] = aggs[i]._fcn.toString() + "_" + fr.name(aggs[i]._col);
+
+    // Integral group-by columns use packed primitive keys; hashed, or sorted
+    // when nearly every row is its own group
+    long[][] layout = HashGroupBy.layout(fr, gbCols, aggs);
+    if (layout != null)
+      return new ValFrame(SortGroupBy.preferred(fr, gbCols, layout)
+          ? SortGroupBy.groupBy(fr, gbCols, aggs, fcnames, layout)
+          : HashGroupBy.groupBy(fr, gbCols, aggs, fcnames, layout));
+
     // do the group by work now
     IcedHashMap<G, String> gss = doGroups(fr, gbCols, aggs);
     final G[] grps = gss.keySet().toArray(new G[gss.size()]);
@@ -278,6 +290,7 @@ public class AstGroup extends AstPrimitive {
         @Override
         public int compare(G g1, G g2) {
           for (int i = 0; i < gbCols.length; i++) {
+            if (Double.isNaN(g1._gs[i]) && Double.isNaN(g2._gs[i])) continue;
             if (Double.isNaN(g1._gs[i]) && !Double.isNaN(g2._gs[i])) return -1;
             if (!Double.isNaN(g1._gs[i]) && Double.isNaN(g2._gs[i])) return 1;
             if (g1._gs[i] != g2._gs[i]) return g1._gs[i] < g2._gs[i] ? -1 : 1;
@@ -293,10 +306,6 @@ public class AstGroup extends AstPrimitive {
       });
 
     // Build the output!
-    String[] fcnames = new String[aggs.length];
-    for (int i = 0; i < aggs.length; i++)
-      fcnames[i] = aggs[i]._fcn.toString() + "_" + fr.name(aggs[i]._col);
-
     MRTask mrfill = new MRTask() {
       @Override
       public void map(Chunk[] c, NewChunk[] ncs) {
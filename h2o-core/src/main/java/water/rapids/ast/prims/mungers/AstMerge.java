@@ -12,6 +12,7 @@ import water.rapids.ast.AstPrimitive;
 import water.rapids.ast.params.AstNum;
 import water.rapids.ast.params.AstNumList;
 import water.util.IcedHashMap;
+import water.util.Log;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -35,6 +36,10 @@ import java.util.Arrays;
  * If allLeftFlag is true, all rows in the leftFrame will be included, even if
  * there is no matching row in the rightFrame, and vice-versa for
  * allRightFlag.  Missing data will appear as NAs.  Both flags can be true.
+ * <p/>
+ * The method is "broadcast" to replicate the right frame to every node (see
+ * {@link BroadcastJoin}), "radix" to sort both, "hash" to hash the smaller
+ * one, or "auto" to broadcast a right frame small enough and sort otherwise.
  */
 public class AstMerge extends AstPrimitive {
   @Override
@@ -120,6 +125,16 @@ public class AstMerge extends AstPrimitive {
       }
     }.doAllNodes();
 
+    // Plan: broadcast a small enough right frame to every node; else sort
+    // both, unless all right rows are wanted which only hashing does
+    if (method.equals("auto")) {
+      if (BroadcastJoin.fits(r)) method = "broadcast";
+      else if (!allRite) method = "radix";
+      Log.info("Merge of " + l.numRows() + " by " + r.numRows() + " rows planned as " + method);
+    }
+    if (method.equals("broadcast"))
+      return new ValFrame(BroadcastJoin.join(l, r, ncols, allLeft, allRite));
+
     if (method.equals("radix")) {
       // Build categorical mappings, to rapidly convert categoricals from the left to the right
       // With the sortingMerge approach there is no variance here: always map left to right
@@ -4,6 +4,7 @@ import water.*;
 import water.fvec.*;
 import water.rapids.Env;
 import water.rapids.Val;
+import water.rapids.ZoneFilter;
 import water.rapids.ast.AstRoot;
 import water.rapids.vals.ValFrame;
 import water.rapids.ast.AstExec;
@@ -11,6 +12,7 @@ import water.rapids.ast.AstPrimitive;
 import water.rapids.ast.params.AstId;
 import water.rapids.ast.params.AstNum;
 import water.rapids.ast.params.AstNumList;
+import water.util.ArrayUtils;
 
 import java.util.*;
 
@@ -38,6 +40,7 @@ public class AstRowSlice extends AstPrimitive {
   public Val apply(Env env, Env.StackHelp stk, AstRoot asts[]) {
     Frame fr = stk.track(asts[1].exec(env)).getFrame();
     Frame returningFrame;
+    ZoneFilter zf;
     long nrows = fr.numRows();
     if (asts[2] instanceof AstNumList) {
       final AstNumList nums = (AstNumList) asts[2];
@@ -100,6 +103,26 @@ public class AstRowSlice extends AstPrimitive {
     } else if ((asts[2] instanceof AstNum)) {
       long[] rows = new long[]{(long) (((AstNum) asts[2])._v.getNum())};
       returningFrame = fr.deepSlice(rows, null);
+    } else if ((asts[2] instanceof AstExec) && (zf = ZoneFilter.make(env, stk, asts[2], fr)) != null) {
+      // Range predicate on columns: evaluated row by row, skipping chunks
+      final ZoneFilter filter = zf;
+      final int ncols = fr.numCols();
+      returningFrame = new MRTask() {
+        @Override
+        public void map(Chunk[] cs, NewChunk[] ncs) {
+          if (filter.skip(cs[0].cidx())) return;
+          for (int i = 0; i < cs[0]._len; ++i) {
+            if (!filter.matches(cs, ncols, i)) continue;
+            for (int c = 0; c < ncols; ++c) {
+              if (cs[c] instanceof CStrChunk) ncs[c].addStr(cs[c], i);
+              else if (cs[c] instanceof C16Chunk) ncs[c].addUUID(cs[c], i);
+              else if (cs[c].isNA(i)) ncs[c].addNA();
+              else ncs[c].addNum(cs[c].atd(i));
+            }
+          }
+        }
+      }.doAll(fr.types(), new Frame(ArrayUtils.append(fr.vecs(), zf.vecs()))).outputFrame(fr.names(), fr.domains());
+      zf.log("Row slice");
     } else if ((asts[2] instanceof AstExec) || (asts[2] instanceof AstId)) {
       Frame predVec = stk.track(asts[2].exec(env)).getFrame();
       if (predVec.numCols() != 1)
@@ -6,19 +6,37 @@ import water.rapids.Merge;
 import water.rapids.Val;
 import water.rapids.ast.AstPrimitive;
 import water.rapids.ast.AstRoot;
+import water.rapids.ast.params.AstNumList;
 import water.rapids.vals.ValFrame;
 
 
-/** Sort the whole frame by the given columns
+/** Sort the whole frame by the given columns, ascending unless a direction
+ *  is given per column: 1 for ascending, -1 for descending.
  */
 public class AstSort extends AstPrimitive {
-  @Override public String[] args() { return new String[]{"ary","cols"}; }
+  @Override public String[] args() { return new String[]{"ary","cols","ascending"}; }
   @Override public String str(){ return "sort";}
-  @Override public int nargs() { return 1+2; } // (sort ary [cols])
+  @Override public int nargs() { return -1; } // (sort ary [cols]) or (sort ary [cols] [directions])
 
   @Override public Val apply(Env env, Env.StackHelp stk, AstRoot asts[]) {
+    if( asts.length != 3 && asts.length != 4 )
+      throw new IllegalArgumentException("sort expects a frame, its sort columns and optionally their directions");
     Frame fr = stk.track(asts[1].exec(env)).getFrame();
     int[] cols = asts[2].columns(fr.names());
-    return new ValFrame(Merge.sort(fr,cols));
+    boolean[] ascending = asts.length == 4 ? directions(env, asts[3], cols.length) : null;
+    return new ValFrame(Merge.sort(fr,cols,ascending));
+  }
+
+  static boolean[] directions( Env env, AstRoot ast, int ncols ) {
+    double[] dirs = ast instanceof AstNumList ? ((AstNumList)ast).expand() : new double[]{ast.exec(env).getNum()};
+    if( dirs.length != ncols )
+      throw new IllegalArgumentException("Expected "+ncols+" sort directions, but found "+dirs.length);
+    boolean[] ascending = new boolean[ncols];
+    for( int i=0; i<ncols; i++ ) {
+      if( dirs[i] != 1 && dirs[i] != -1 )
+        throw new IllegalArgumentException("Sort direction must be 1 (ascending) or -1 (descending), but found "+dirs[i]);
+      ascending[i] = dirs[i] == 1;
+    }
+    return ascending;
   }
 }
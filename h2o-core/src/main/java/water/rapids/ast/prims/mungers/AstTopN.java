@@ -0,0 +1,123 @@
+package water.rapids.ast.prims.mungers;
+
+import water.MRTask;
+import water.fvec.Chunk;
+import water.fvec.Frame;
+import water.fvec.NewChunk;
+import water.fvec.Vec;
+import water.parser.BufferedString;
+import water.rapids.Env;
+import water.rapids.SortOrder;
+import water.rapids.Val;
+import water.rapids.ast.AstPrimitive;
+import water.rapids.ast.AstRoot;
+import water.rapids.vals.ValFrame;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * The first n rows of a frame in sort order, without sorting it.
+ * <p/>
+ * (topn ary [cols] [directions] n)
+ * <p/>
+ * Same result as the head of {@code (sort ary [cols] [directions])}: 1 for
+ * ascending, -1 for descending, see {@link SortOrder}.  One pass keeps a
+ * bounded heap of the best n rows of every chunk, and reduce merges them, so
+ * only n rows per chunk are ever held besides the frame.
+ */
+public class AstTopN extends AstPrimitive {
+  @Override
+  public String[] args() {
+    return new String[]{"ary", "cols", "directions", "n"};
+  }
+
+  @Override
+  public int nargs() {
+    return 1 + 4;
+  } // (topn ary [cols] [directions] n)
+
+  @Override
+  public String str() {
+    return "topn";
+  }
+
+  @Override
+  public Val apply(Env env, Env.StackHelp stk, AstRoot asts[]) {
+    Frame fr = stk.track(asts[1].exec(env)).getFrame();
+    int[] cols = asts[2].columns(fr.names());
+    boolean[] ascending = AstSort.directions(env, asts[3], cols.length);
+    double n = asts[4].exec(env).getNum();
+    if (n < 0 || n != (int) n)
+      throw new IllegalArgumentException("topn expects a non-negative integer row count, but found " + n);
+    return new ValFrame(topN(fr, cols, ascending, (int) n));
+  }
+
+  public static Frame topN(Frame fr, int[] cols, boolean[] ascending, int n) {
+    Vec[] keys = SortOrder.keys(fr, cols);
+    SortOrder order = new SortOrder(keys, ascending);
+    final SortOrder.Row[] top = n == 0 || fr.numRows() == 0 ? new SortOrder.Row[0] : new TopNTask(order, n).doAll(keys)._top;
+    final Vec[] vecs = fr.vecs();
+    Vec layout = Vec.makeZero(Math.max(top.length, 1));
+    try {
+      return new MRTask() {
+        @Override
+        public void map(Chunk[] cs, NewChunk[] ncs) {
+          if (cs[0].start() == 0)
+            for (SortOrder.Row row : top) SortOrder.copyRow(vecs, row._row, ncs);
+        }
+      }.doAll(fr.types(), layout).outputFrame(fr.names(), fr.domains());
+    } finally {
+      layout.remove();
+    }
+  }
+
+  private static class TopNTask extends MRTask<TopNTask> {
+    private final SortOrder _order;
+    private final int _n;
+    SortOrder.Row[] _top;       // Best rows in sort order
+
+    TopNTask(SortOrder order, int n) {
+      _order = order;
+      _n = n;
+    }
+
+    @Override
+    public void map(Chunk[] cs) {
+      // Worst kept row at the head
+      BufferedString tmp = new BufferedString();
+      PriorityQueue<SortOrder.Row> heap = new PriorityQueue<>(Math.min(_n, cs[0]._len) + 1, Collections.reverseOrder(new Ascending(_order)));
+      for (int r = 0; r < cs[0]._len; r++) {
+        if (heap.size() < _n) heap.add(_order.row(cs, r));
+        else if (_order.compare(cs, r, heap.peek(), tmp) < 0) {
+          heap.poll();
+          heap.add(_order.row(cs, r));
+        }
+      }
+      _top = heap.toArray(new SortOrder.Row[heap.size()]);
+      Arrays.sort(_top, new Ascending(_order));
+    }
+
+    @Override
+    public void reduce(TopNTask t) {
+      if (t._top == null) return;
+      if (_top == null) {
+        _top = t._top;
+        return;
+      }
+      SortOrder.Row[] a = _top, b = t._top;
+      SortOrder.Row[] res = new SortOrder.Row[Math.min(_n, a.length + b.length)];
+      for (int i = 0, j = 0, k = 0; k < res.length; k++)
+        res[k] = j == b.length || (i < a.length && _order.compare(a[i], b[j]) < 0) ? a[i++] : b[j++];
+      _top = res;
+    }
+  }
+
+  private static class Ascending implements Comparator<SortOrder.Row> {
+    private final SortOrder _order;
+    Ascending(SortOrder order) { _order = order; }
+    @Override public int compare(SortOrder.Row a, SortOrder.Row b) { return _order.compare(a, b); }
+  }
+}
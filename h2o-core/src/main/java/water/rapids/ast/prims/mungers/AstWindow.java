@@ -0,0 +1,325 @@
+package water.rapids.ast.prims.mungers;
+
+import water.MRTask;
+import water.fvec.Chunk;
+import water.fvec.Frame;
+import water.fvec.NewChunk;
+import water.fvec.Vec;
+import water.rapids.Env;
+import water.rapids.Merge;
+import water.rapids.Val;
+import water.rapids.ast.AstPrimitive;
+import water.rapids.ast.AstRoot;
+import water.rapids.ast.prims.reducers.AstCumMax;
+import water.rapids.ast.prims.reducers.AstCumMin;
+import water.rapids.ast.prims.reducers.AstCumProd;
+import water.rapids.ast.prims.reducers.AstCumSum;
+import water.rapids.ast.prims.reducers.AstCumu;
+import water.rapids.vals.ValFrame;
+
+/**
+ * Window functions over partitions of ordered rows.
+ * <p/>
+ * (window data [partition-cols] [order-cols] col fcn n)
+ * <p/>
+ * Sorts 'data' once by the partition and order columns (radix sort, see
+ * {@link Merge#sort}) and returns it with one more column, 'fcn' applied to
+ * 'col' within each partition:
+ * <ul>
+ *   <li>rollsum, rollmean, rollmin, rollmax, rollsd: over the current and the
+ *   n-1 preceding rows; NA until the partition has n rows</li>
+ *   <li>lag, lead: the value n rows before or after; NA past the partition</li>
+ *   <li>cumsum, cumprod, cummin, cummax: from the start of the partition, n
+ *   is ignored</li>
+ * </ul>
+ * Windows are evaluated chunk-locally.  A first pass collects the rows at
+ * both ends of every chunk (and for cumulative functions the accumulation of
+ * the last partition in the chunk); the second pass reads the neighbouring
+ * rows of a chunk from those, as {@link water.rapids.ast.prims.reducers.AstCumu}
+ * does for its chunk totals.
+ */
+public class AstWindow extends AstPrimitive {
+  public enum FCN {
+    rollsum, rollmean, rollmin, rollmax, rollsd, lag, lead, cumsum, cumprod, cummin, cummax;
+
+    boolean cumulative() { return ordinal() >= cumsum.ordinal(); }
+
+    // Rows needed before and after the current one
+    int before(int n) { return this == lead || cumulative() ? 0 : this == lag ? n : n - 1; }
+    int after(int n) { return this == lead ? n : 0; }
+
+    // The accumulation of a cumulative function, as its Rapids primitive does
+    // it; null for the rolling and offset functions
+    AstCumu cumu() {
+      switch (this) {
+        case cumsum:  return new AstCumSum();
+        case cumprod: return new AstCumProd();
+        case cummin:  return new AstCumMin();
+        case cummax:  return new AstCumMax();
+        default:      return null;
+      }
+    }
+  }
+
+  @Override
+  public String[] args() {
+    return new String[]{"ary", "partitionBy", "orderBy", "col", "fcn", "n"};
+  }
+
+  @Override
+  public int nargs() {
+    return 1 + 6;
+  } // (window ary [partition-cols] [order-cols] col fcn n)
+
+  @Override
+  public String str() {
+    return "window";
+  }
+
+  @Override
+  public Val apply(Env env, Env.StackHelp stk, AstRoot asts[]) {
+    Frame fr = stk.track(asts[1].exec(env)).getFrame();
+    int[] pcols = asts[2].columns(fr.names());
+    int[] ocols = asts[3].columns(fr.names());
+    int[] col = asts[4].columns(fr.names());
+    if (col.length != 1) throw new IllegalArgumentException("Window functions take only a single column");
+    if (!fr.vec(col[0]).isNumeric()) throw new IllegalArgumentException("Column " + fr.name(col[0]) + " must be numeric");
+    FCN fcn = FCN.valueOf(asts[5].exec(env).getStr());
+    int n = (int) asts[6].exec(env).getNum();
+    if (n < 1 && !fcn.cumulative()) throw new IllegalArgumentException("Window size must be at least 1, but found " + n);
+
+    // Sort by partition, then order; radix sort takes integral keys only
+    int[] keys = new int[pcols.length + ocols.length];
+    System.arraycopy(pcols, 0, keys, 0, pcols.length);
+    System.arraycopy(ocols, 0, keys, pcols.length, ocols.length);
+    for (int k : keys) {
+      Vec v = fr.vec(k);
+      if (!(v.isCategorical() || (v.isNumeric() || v.isTime()) && v.isInt()))
+        throw new IllegalArgumentException("Partition and order columns must be integer or categorical, but found " + fr.name(k));
+    }
+    Frame sorted = keys.length == 0 ? new Frame(fr) : Merge.sort(fr, keys);
+
+    // Only the partition columns and the value column are read
+    Vec[] vecs = new Vec[pcols.length + 1];
+    for (int i = 0; i < pcols.length; i++) vecs[i] = sorted.vec(pcols[i]);
+    vecs[pcols.length] = sorted.vec(col[0]);
+    Frame in = new Frame(vecs);
+    int nchks = in.anyVec().nChunks();
+
+    AstCumu cumu = fcn.cumu();
+    Ends ends = new Ends(cumu, Math.max(1, Math.max(fcn.before(n), fcn.after(n))), nchks).doAll(in);
+    double[] carries = cumu != null ? ends.carries() : null;
+    Vec res = new WindowTask(fcn, cumu, n, ends, carries).doAll(Vec.T_NUM, in).outputFrame().anyVec();
+    String name = fcn.cumulative() ? fcn + "_" + fr.name(col[0]) : fcn + "_" + n + "_" + fr.name(col[0]);
+    sorted.add(name, res);
+    return new ValFrame(sorted);
+  }
+
+  // Rows of the same partition: all partition columns equal, NA equal to NA
+  private static boolean same(double[][] p1, int r1, double[][] p2, int r2) {
+    for (int c = 0; c < p1.length; c++) {
+      double a = p1[c][r1], b = p2[c][r2];
+      if (a != b && !(Double.isNaN(a) && Double.isNaN(b))) return false;
+    }
+    return true;
+  }
+
+  // Per chunk: the first and last rows, and for cumulative functions the
+  // accumulation over the last partition of the chunk
+  private static class Ends extends MRTask<Ends> {
+    final AstCumu _cumu;    // Null unless cumulative
+    final int _m;           // Rows kept at each end
+    int[] _lens;
+    double[][] _headV, _tailV;
+    double[][][] _headP, _tailP;
+    double[] _lastAcc;
+    boolean[] _oneRun;      // The chunk holds a single partition
+
+    Ends(AstCumu cumu, int m, int nchks) {
+      _cumu = cumu;
+      _m = m;
+      _lens = new int[nchks];
+      _headV = new double[nchks][];
+      _tailV = new double[nchks][];
+      _headP = new double[nchks][][];
+      _tailP = new double[nchks][][];
+      _lastAcc = new double[nchks];
+      _oneRun = new boolean[nchks];
+    }
+
+    @Override
+    public void map(Chunk[] cs) {
+      int cidx = cs[0].cidx(), len = cs[0]._len, np = cs.length - 1;
+      int k = Math.min(_m, len);
+      _lens[cidx] = len;
+      _headV[cidx] = new double[k];
+      _tailV[cidx] = new double[k];
+      _headP[cidx] = new double[np][k];
+      _tailP[cidx] = new double[np][k];
+      for (int i = 0; i < k; i++) {
+        _headV[cidx][i] = cs[np].atd(i);
+        _tailV[cidx][i] = cs[np].atd(len - k + i);
+        for (int c = 0; c < np; c++) {
+          _headP[cidx][c][i] = cs[c].atd(i);
+          _tailP[cidx][c][i] = cs[c].atd(len - k + i);
+        }
+      }
+      if (_cumu != null && len > 0) {
+        // Start of the last partition in this chunk
+        int start = len - 1;
+        while (start > 0 && samePartition(cs, np, start - 1, start)) start--;
+        double acc = _cumu.init();
+        for (int i = start; i < len; i++) acc = _cumu.op(acc, cs[np].atd(i));
+        _lastAcc[cidx] = acc;
+        _oneRun[cidx] = start == 0;
+      }
+    }
+
+    @Override
+    public void reduce(Ends t) {
+      if (_lens == t._lens) return;
+      for (int i = 0; i < _lens.length; i++)
+        if (_headV[i] == null && t._headV[i] != null) {
+          _lens[i] = t._lens[i];
+          _headV[i] = t._headV[i];
+          _tailV[i] = t._tailV[i];
+          _headP[i] = t._headP[i];
+          _tailP[i] = t._tailP[i];
+          _lastAcc[i] = t._lastAcc[i];
+          _oneRun[i] = t._oneRun[i];
+        }
+    }
+
+    // Accumulation carried into each chunk from the partition open at its start
+    double[] carries() {
+      double[] carries = new double[_lens.length];
+      double carry = _cumu.init();
+      int prev = -1;            // Previous non-empty chunk
+      for (int c = 0; c < _lens.length; c++) {
+        if (_lens[c] == 0) continue;
+        boolean cont = prev != -1 && same(_tailP[prev], _tailV[prev].length - 1, _headP[c], 0);
+        carries[c] = cont ? carry : _cumu.init();
+        carry = cont && _oneRun[c] ? _cumu.op(carry, _lastAcc[c]) : _lastAcc[c];
+        prev = c;
+      }
+      return carries;
+    }
+  }
+
+  private static boolean samePartition(Chunk[] cs, int np, int r1, int r2) {
+    for (int c = 0; c < np; c++) {
+      double a = cs[c].atd(r1), b = cs[c].atd(r2);
+      if (a != b && !(Double.isNaN(a) && Double.isNaN(b))) return false;
+    }
+    return true;
+  }
+
+  private static class WindowTask extends MRTask<WindowTask> {
+    final FCN _fcn;
+    final AstCumu _cumu;    // Null unless cumulative
+    final int _n;
+    final Ends _ends;
+    final double[] _carries;
+
+    WindowTask(FCN fcn, AstCumu cumu, int n, Ends ends, double[] carries) {
+      _fcn = fcn;
+      _cumu = cumu;
+      _n = n;
+      _ends = ends;
+      _carries = carries;
+    }
+
+    @Override
+    public void map(Chunk[] cs, NewChunk[] ncs) {
+      NewChunk nc = ncs[0];
+      int cidx = cs[0].cidx(), len = cs[0]._len, np = cs.length - 1;
+      if (_cumu != null) {
+        double acc = _carries[cidx];
+        for (int i = 0; i < len; i++) {
+          if (i > 0 && !samePartition(cs, np, i - 1, i)) acc = _cumu.init();
+          nc.addNum(acc = _cumu.op(acc, cs[np].atd(i)));
+        }
+        return;
+      }
+      // This chunk, with the neighbouring rows of the chunks before and after
+      int before = Math.min(_fcn.before(_n), rowsAround(cidx, -1, _fcn.before(_n)));
+      int after = Math.min(_fcn.after(_n), rowsAround(cidx, 1, _fcn.after(_n)));
+      int L = before + len + after;
+      double[] v = new double[L];
+      double[][] p = new double[np][L];
+      for (int i = 0; i < len; i++) {
+        v[before + i] = cs[np].atd(i);
+        for (int c = 0; c < np; c++) p[c][before + i] = cs[c].atd(i);
+      }
+      for (int c = cidx - 1, at = before; at > 0; c--) { // Walk back, filling from the end
+        int k = Math.min(at, _ends._tailV[c].length);
+        int from = _ends._tailV[c].length - k;
+        at -= k;
+        System.arraycopy(_ends._tailV[c], from, v, at, k);
+        for (int j = 0; j < np; j++) System.arraycopy(_ends._tailP[c][j], from, p[j], at, k);
+      }
+      for (int c = cidx + 1, at = before + len; at < L; c++) {
+        int k = Math.min(L - at, _ends._headV[c].length);
+        System.arraycopy(_ends._headV[c], 0, v, at, k);
+        for (int j = 0; j < np; j++) System.arraycopy(_ends._headP[c][j], 0, p[j], at, k);
+        at += k;
+      }
+
+      if (_fcn == FCN.lag || _fcn == FCN.lead) {
+        for (int i = before; i < before + len; i++) {
+          int j = _fcn == FCN.lag ? i - _n : i + _n;
+          nc.addNum(j >= 0 && j < L && same(p, j, p, i) ? v[j] : Double.NaN);
+        }
+        return;
+      }
+      // Rolling: one pass over the buffer, adding the row entering the window and
+      // subtracting the one leaving it.  NAs are counted rather than summed, so a
+      // window recovers once they slide out.  Min and max come from a deque of row
+      // indices whose values are monotonic, oldest at the head.
+      double sum = 0, sum2 = 0;
+      int nas = 0, start = 0;   // NAs in the window; first buffered row of the partition
+      int[] deque = new int[L];
+      int head = 0, tail = 0;
+      for (int i = 0; i < before + len; i++) {
+        if (i > 0 && !same(p, i - 1, p, i)) {
+          sum = sum2 = 0;
+          nas = head = tail = 0;
+          start = i;
+        }
+        double d = v[i];
+        if (Double.isNaN(d)) nas++;
+        else {
+          sum += d;
+          sum2 += d * d;
+          while (tail > head && (_fcn == FCN.rollmin ? v[deque[tail - 1]] >= d : v[deque[tail - 1]] <= d)) tail--;
+          deque[tail++] = i;
+        }
+        int from = i - _n + 1;
+        if (from - 1 >= start) { // Row from-1 just left the window
+          double o = v[from - 1];
+          if (Double.isNaN(o)) nas--;
+          else { sum -= o; sum2 -= o * o; }
+        }
+        while (tail > head && deque[head] < from) head++;
+        if (i < before) continue;
+        if (from < start || nas > 0) { nc.addNum(Double.NaN); continue; }
+        switch (_fcn) {
+          case rollsum:  nc.addNum(sum); break;
+          case rollmean: nc.addNum(sum / _n); break;
+          case rollmin:
+          case rollmax:  nc.addNum(v[deque[head]]); break;
+          case rollsd:   nc.addNum(_n < 2 ? Double.NaN : Math.sqrt(Math.max(0, (sum2 - sum * sum / _n) / (_n - 1)))); break;
+          default:       throw new IllegalStateException("Not a rolling function: " + _fcn);
+        }
+      }
+    }
+
+    // Rows available in the chunks before (dir -1) or after (dir 1) cidx, up to max
+    private int rowsAround(int cidx, int dir, int max) {
+      int rows = 0;
+      for (int c = cidx + dir; c >= 0 && c < _ends._lens.length && rows < max; c += dir)
+        rows += _ends._headV[c].length;
+      return rows;
+    }
+  }
+}
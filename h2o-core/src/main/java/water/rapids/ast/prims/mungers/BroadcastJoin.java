@@ -0,0 +1,336 @@
+package water.rapids.ast.prims.mungers;
+
+import water.*;
+import water.fvec.*;
+import water.parser.BufferedString;
+import water.util.ArrayUtils;
+import water.util.Log;
+
+import java.util.Arrays;
+
+/**
+ * Broadcast hash join of a distributed left frame with a small right frame.
+ * <p/>
+ * The right frame is collected once into a flat table of primitive arrays:
+ * the keys of every row packed as longs, an open-addressed index of the
+ * distinct keys chaining the rows sharing one, and the non-key columns.  The
+ * table goes in the K/V, so every node fetches and caches one copy, and the
+ * left frame is then probed chunk-locally in a single pass with no shuffle and
+ * no random reads of the right frame.
+ * <p/>
+ * Keys are the first ncols columns of both frames: integer, time or
+ * categorical (matched by level name), any number of them.  NA matches NA as
+ * in the radix merge.  Output is the left columns then the right non-key
+ * columns: every match of a left row, plus (allLeft) left rows matching
+ * nothing padded with NAs, plus (allRite) right rows matching nothing at the
+ * end.  Categorical keys then get the right levels missing on the left
+ * appended to their domain.
+ */
+class BroadcastJoin {
+  private static final long NA = Long.MIN_VALUE;
+
+  // Largest right frame estimate broadcast: part of a node's heap, and well
+  // within the largest K/V value
+  static final long MAX_BYTES = Long.getLong(H2O.OptArgs.SYSTEM_PROP_PREFIX + "rapids.merge.broadcast.bytes",
+      Math.min(Value.MAX / 2, MemoryManager.MEM_MAX / 20));
+
+  /** @return true if the right frame is small enough to broadcast, and has no UUIDs */
+  static boolean fits(Frame r) {
+    if (r.numRows() >= Integer.MAX_VALUE / 2) return false;
+    for (Vec v : r.vecs())
+      if (v.isUUID()) return false;
+    return bytes(r) <= MAX_BYTES;
+  }
+
+  // Estimated size of the table
+  private static long bytes(Frame r) {
+    long rows = r.numRows(), bytes = 0;
+    for (Vec v : r.vecs())
+      bytes += v.isString() ? v.byteSize() + 16 * rows : 8 * rows;
+    return bytes + 16 * rows;   // Index and chains
+  }
+
+  static Frame join(Frame l, Frame r, int ncols, boolean allLeft, boolean allRite) {
+    long t0 = System.currentTimeMillis();
+    // Right categorical keys as left level numbers; levels missing on the
+    // left are numbered past its domain
+    int[][] maps = new int[ncols][];
+    for (int i = 0; i < ncols; i++)
+      if (l.vec(i).isCategorical())
+        maps[i] = CategoricalWrappedVec.computeMap(r.vec(i).domain(), l.vec(i).domain());
+
+    Collect c = new Collect(ncols, maps, r.anyVec().nChunks()).doAll(r);
+    Table table = new Table(r, ncols, c);
+    Key tableKey = Key.make("__broadcast_join__" + Key.rand());
+    DKV.put(tableKey, table);
+    try {
+      boolean[] matched = allRite ? new Match(tableKey, ncols).doAll(l.vecs(ArrayUtils.seq(0, ncols)))._matched : null;
+      if (matched == null && allRite) matched = new boolean[table._n];   // No left chunks
+
+      byte[] types = Arrays.copyOf(l.types(), l.numCols() + r.numCols() - ncols);
+      System.arraycopy(r.types(), ncols, types, l.numCols(), r.numCols() - ncols);
+      String[] names = Arrays.copyOf(l.names(), types.length);
+      System.arraycopy(r.names(), ncols, names, l.numCols(), r.numCols() - ncols);
+      String[][] domains = Arrays.copyOf(l.domains(), types.length);
+      System.arraycopy(r.domains(), ncols, domains, l.numCols(), r.numCols() - ncols);
+      if (allRite)
+        for (int i = 0; i < ncols; i++)
+          if (maps[i] != null) domains[i] = extend(l.vec(i).domain(), r.vec(i).domain(), maps[i]);
+
+      Frame res = new Probe(tableKey, ncols, allLeft, matched).doAll(types, l).outputFrame(names, domains);
+      Log.info("Broadcast join of " + l.numRows() + " by " + table._n + " rows into " + res.numRows() +
+          " rows in " + (System.currentTimeMillis() - t0) + "ms");
+      return res;
+    } finally {
+      DKV.remove(tableKey);
+    }
+  }
+
+  // Left domain, then the right levels it is missing in the order of the map
+  private static String[] extend(String[] ldom, String[] rdom, int[] map) {
+    int len = ldom.length;
+    for (int m : map) len = Math.max(len, m + 1);
+    String[] dom = Arrays.copyOf(ldom, len);
+    for (int i = 0; i < map.length; i++)
+      if (map[i] >= ldom.length) dom[map[i]] = rdom[i];
+    return dom;
+  }
+
+  // Pack the keys of a row, categoricals mapped
+  private static long[] key(Chunk[] cs, int row, int ncols, int[][] maps, long[] key) {
+    for (int i = 0; i < ncols; i++) {
+      if (cs[i].isNA(row)) key[i] = NA;
+      else {
+        long k = cs[i].at8(row);
+        key[i] = maps == null || maps[i] == null ? k : maps[i][(int) k];
+      }
+    }
+    return key;
+  }
+
+  private static int hash(long[] keys, int off, int ncols) {
+    long h = 0;
+    for (int i = 0; i < ncols; i++)
+      h = (h + keys[off + i]) * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+
+  // One chunk of the right frame
+  private static class Part extends Iced<Part> {
+    long[] _keys;               // ncols per row
+    double[][] _nums;           // Per non-key column; null for strings
+    String[][] _strs;           // Per non-key column; null for others
+  }
+
+  // The right frame, in chunk order
+  private static class Collect extends MRTask<Collect> {
+    private final int _ncols;
+    private final int[][] _maps;
+    Part[] _parts;
+
+    Collect(int ncols, int[][] maps, int nchunks) {
+      _ncols = ncols;
+      _maps = maps;
+      _parts = new Part[nchunks];
+    }
+
+    @Override
+    public void map(Chunk[] cs) {
+      int len = cs[0]._len;
+      Part part = new Part();
+      part._keys = new long[len * _ncols];
+      long[] key = new long[_ncols];
+      for (int row = 0; row < len; row++)
+        System.arraycopy(key(cs, row, _ncols, _maps, key), 0, part._keys, row * _ncols, _ncols);
+      part._nums = new double[cs.length - _ncols][];
+      part._strs = new String[cs.length - _ncols][];
+      BufferedString tmp = new BufferedString();
+      for (int c = _ncols; c < cs.length; c++) {
+        if (cs[c].vec().isString()) {
+          String[] ss = part._strs[c - _ncols] = new String[len];
+          for (int row = 0; row < len; row++)
+            ss[row] = cs[c].isNA(row) ? null : cs[c].atStr(tmp, row).toString();
+        } else {
+          double[] ds = part._nums[c - _ncols] = new double[len];
+          for (int row = 0; row < len; row++)
+            ds[row] = cs[c].atd(row);
+        }
+      }
+      _parts[cs[0].cidx()] = part;
+    }
+
+    @Override
+    public void reduce(Collect c) {
+      if (_parts != c._parts)
+        for (int i = 0; i < _parts.length; i++)
+          if (c._parts[i] != null) _parts[i] = c._parts[i];
+    }
+  }
+
+  // The broadcast right frame
+  static class Table extends Iced<Table> {
+    final int _ncols, _n;
+    final long[] _keys;         // ncols per row
+    final int[] _slots;         // Open-addressed: first row of a key, or -1
+    final int[] _next;          // Next row with the same key, or -1
+    final double[][] _nums;     // Per non-key column, null for strings
+    final String[][] _strs;     // Per non-key column, null for others
+
+    Table(Frame r, int ncols, Collect c) {
+      _ncols = ncols;
+      _n = (int) r.numRows();
+      int npay = r.numCols() - ncols;
+      _keys = new long[_n * ncols];
+      _nums = new double[npay][];
+      _strs = new String[npay][];
+      for (int p = 0; p < npay; p++) {
+        if (r.vec(ncols + p).isString()) _strs[p] = new String[_n];
+        else _nums[p] = new double[_n];
+      }
+      int off = 0;
+      for (Part part : c._parts) {
+        int len = part._keys.length / ncols;
+        System.arraycopy(part._keys, 0, _keys, off * ncols, len * ncols);
+        for (int p = 0; p < npay; p++) {
+          if (_strs[p] != null) System.arraycopy(part._strs[p], 0, _strs[p], off, len);
+          else System.arraycopy(part._nums[p], 0, _nums[p], off, len);
+        }
+        off += len;
+      }
+      // Index, inserting backwards so chains run in row order
+      _slots = new int[Math.max(2, Integer.highestOneBit(Math.max(1, _n)) << 2)];  // Load at most 1/2
+      Arrays.fill(_slots, -1);
+      _next = new int[_n];
+      int mask = _slots.length - 1;
+      for (int row = _n - 1; row >= 0; row--) {
+        int s = hash(_keys, row * ncols, ncols) & mask;
+        while (_slots[s] != -1 && !same(_keys, _slots[s] * ncols, row * ncols)) s = (s + 1) & mask;
+        _next[row] = _slots[s];
+        _slots[s] = row;
+      }
+    }
+
+    private boolean same(long[] keys, int off0, int off1) {
+      for (int i = 0; i < _ncols; i++)
+        if (_keys[off0 + i] != keys[off1 + i]) return false;
+      return true;
+    }
+
+    /** @return the first row with this key, or -1; more along {@link #_next} */
+    int find(long[] key) {
+      int mask = _slots.length - 1;
+      for (int s = hash(key, 0, _ncols) & mask; _slots[s] != -1; s = (s + 1) & mask)
+        if (same(key, _slots[s] * _ncols, 0)) return _slots[s];
+      return -1;
+    }
+
+    void addPayload(NewChunk[] ncs, int off, int row) {
+      for (int p = 0; p < _nums.length; p++) {
+        if (_strs[p] != null) ncs[off + p].addStr(_strs[p][row]);
+        else ncs[off + p].addNum(_nums[p][row]);
+      }
+    }
+
+    void addNAs(NewChunk[] ncs, int off) {
+      for (int p = 0; p < _nums.length; p++)
+        ncs[off + p].addNA();
+    }
+  }
+
+  // Tasks probing the table, fetched once per node
+  private static abstract class TableTask<T extends TableTask<T>> extends MRTask<T> {
+    final Key _tableKey;
+    final int _ncols;
+    transient Table _table;
+
+    TableTask(Key tableKey, int ncols) {
+      _tableKey = tableKey;
+      _ncols = ncols;
+    }
+
+    @Override
+    protected void setupLocal() {
+      _table = DKV.getGet(_tableKey);
+    }
+  }
+
+  // Right rows matched by some left row
+  private static class Match extends TableTask<Match> {
+    boolean[] _matched;
+
+    Match(Key tableKey, int ncols) {
+      super(tableKey, ncols);
+    }
+
+    @Override
+    protected void setupLocal() {
+      super.setupLocal();
+      _matched = new boolean[_table._n];    // Shared by the maps of a node
+    }
+
+    @Override
+    public void map(Chunk[] cs) {
+      long[] key = new long[_ncols];
+      for (int row = 0; row < cs[0]._len; row++)
+        for (int e = _table.find(key(cs, row, _ncols, null, key)); e != -1; e = _table._next[e])
+          _matched[e] = true;
+    }
+
+    @Override
+    public void reduce(Match m) {
+      if (_matched != m._matched)
+        for (int i = 0; i < _matched.length; i++)
+          _matched[i] |= m._matched[i];
+    }
+  }
+
+  private static class Probe extends TableTask<Probe> {
+    private final boolean _allLeft;
+    private final boolean[] _matched;   // Right rows already output; null unless all right rows are
+
+    Probe(Key tableKey, int ncols, boolean allLeft, boolean[] matched) {
+      super(tableKey, ncols);
+      _allLeft = allLeft;
+      _matched = matched;
+    }
+
+    @Override
+    public void map(Chunk[] cs, NewChunk[] ncs) {
+      long[] key = new long[_ncols];
+      int nl = cs.length;
+      for (int row = 0; row < cs[0]._len; row++) {
+        int e = _table.find(key(cs, row, _ncols, null, key));
+        if (e == -1 && _allLeft) {
+          addRow(cs, row, ncs);
+          _table.addNAs(ncs, nl);
+        }
+        for (; e != -1; e = _table._next[e]) {
+          addRow(cs, row, ncs);
+          _table.addPayload(ncs, nl, e);
+        }
+      }
+      // Right rows matching nothing, after the last left row
+      if (_matched != null && cs[0].cidx() == _fr.anyVec().nChunks() - 1)
+        for (int e = 0; e < _table._n; e++)
+          if (!_matched[e]) {
+            for (int c = 0; c < _ncols; c++) {
+              long k = _table._keys[e * _ncols + c];
+              if (k == NA) ncs[c].addNA();
+              else ncs[c].addNum(k, 0);
+            }
+            for (int c = _ncols; c < nl; c++) ncs[c].addNA();
+            _table.addPayload(ncs, nl, e);
+          }
+    }
+
+    private static void addRow(Chunk[] cs, int row, NewChunk[] ncs) {
+      for (int c = 0; c < cs.length; c++) {
+        if (cs[c].isNA(row)) ncs[c].addNA();
+        else if (cs[c] instanceof CStrChunk) ncs[c].addStr(cs[c], row);
+        else if (cs[c] instanceof C16Chunk) ncs[c].addUUID(cs[c], row);
+        else if (cs[c].hasFloat()) ncs[c].addNum(cs[c].atd(row));
+        else ncs[c].addNum(cs[c].at8(row), 0);
+      }
+    }
+  }
+}
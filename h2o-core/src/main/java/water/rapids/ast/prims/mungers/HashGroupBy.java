@@ -0,0 +1,296 @@
+package water.rapids.ast.prims.mungers;
+
+import water.MRTask;
+import water.fvec.Chunk;
+import water.fvec.Frame;
+import water.fvec.NewChunk;
+import water.fvec.Vec;
+import water.util.Log;
+
+import java.util.Arrays;
+
+/**
+ * Group-By on integral columns with primitive keys.
+ * <p/>
+ * All group-by columns are categorical or integer, so the values of a row are
+ * packed into a single long (mixed radix, first column most significant, NA
+ * as the smallest digit).  Groups are kept in open-addressed tables of longs
+ * with one column of accumulators per aggregate; every map builds its own
+ * table which are merged at reduce.  No object is allocated per group, and
+ * sorting the packed keys gives the same group order as {@link AstGroup}.
+ * <p/>
+ * Group-bys this cannot handle (non-integral keys, key space wider than a
+ * long, the mode aggregate) are left to the generic {@link AstGroup.GBTask}.
+ * Group-bys with nearly as many groups as rows go to {@link SortGroupBy}
+ * instead, which shares the packing and accumulators.
+ */
+class HashGroupBy {
+  private static final long EMPTY = -1;   // Packed keys are never negative
+  private static final double MAX_KEYS = (double) (1L << 62);
+
+  /**
+   * Packing of the group-by columns into a long: per column, the minimum and
+   * the multiplier of its digit.
+   *
+   * @return {mins, mults}, or null if this group-by needs the generic path
+   */
+  static long[][] layout(Frame fr, int[] gbCols, AstGroup.AGG[] aggs) {
+    for (AstGroup.AGG agg : aggs)
+      if (width(agg._fcn) == 0) return null;
+    // Radix of every column: NA, then min..max
+    long[] mins = new long[gbCols.length];
+    long[] mults = new long[gbCols.length];
+    double nkeys = 1;
+    for (int i = gbCols.length - 1; i >= 0; i--) {
+      Vec v = fr.vec(gbCols[i]);
+      if (!(v.isCategorical() || v.isNumeric() || v.isTime()) || !v.isInt()) return null;
+      double span = 1;
+      if (v.naCnt() < v.length()) {
+        span = v.max() - v.min() + 2;
+        mins[i] = (long) v.min();
+      }
+      if ((nkeys * span) >= MAX_KEYS) return null;
+      mults[i] = (long) nkeys;
+      nkeys *= span;
+    }
+    return new long[][]{mins, mults};
+  }
+
+  static long packKey(Chunk[] gcs, int row, long[] mins, long[] mults) {
+    long key = 0;
+    for (int c = 0; c < gcs.length; c++)
+      if (!gcs[c].isNA(row))
+        key += (gcs[c].at8(row) - mins[c] + 1) * mults[c];
+    return key;
+  }
+
+  /**
+   * Group {@code fr} by {@code gbCols} and compute {@code aggs}.
+   *
+   * @return Frame laid out as by {@link AstGroup#buildOutput}
+   */
+  static Frame groupBy(Frame fr, int[] gbCols, AstGroup.AGG[] aggs, String[] fcnames, long[][] layout) {
+    long start = System.currentTimeMillis();
+    HashGBTask t = new HashGBTask(gbCols, layout[0], layout[1], aggs).doAll(fr);
+    Log.info("Group By Task (primitive keys) done in " + (System.currentTimeMillis() - start) / 1000. + " (s)");
+
+    // Groups in key order
+    long[] keys = new long[t._size];
+    int n = 0;
+    if (t._keys != null)
+      for (long k : t._keys) if (k != EMPTY) keys[n++] = k;
+    Arrays.sort(keys);
+    int[] slots = new int[keys.length];
+    for (int i = 0; i < keys.length; i++) slots[i] = t.find(keys[i]);
+    return output(fr, gbCols, aggs, fcnames, layout, keys, finish(aggs, t._acc, t._ns, slots));
+  }
+
+  // Final aggregate values of the groups in the given slots
+  static double[][] finish(AstGroup.AGG[] aggs, double[][] acc, long[][] ns, int[] slots) {
+    double[][] res = new double[aggs.length][slots.length];
+    double[] ds = new double[2];
+    for (int i = 0; i < slots.length; i++)
+      for (int a = 0; a < aggs.length; a++) {
+        int w = width(aggs[a]._fcn);
+        System.arraycopy(acc[a], slots[i] * w, ds, 0, w);
+        res[a][i] = aggs[a]._fcn.postPass(ds, ns[a][slots[i]]);
+      }
+    return res;
+  }
+
+  // Output Frame of sorted packed keys and their aggregates
+  static Frame output(Frame fr, final int[] gbCols, AstGroup.AGG[] aggs, String[] fcnames, long[][] layout,
+                      final long[] keys, final double[][] res) {
+    final long[] mins = layout[0], mults = layout[1];
+    MRTask mrfill = new MRTask() {
+      @Override
+      public void map(Chunk[] c, NewChunk[] ncs) {
+        int start = (int) c[0].start();
+        for (int i = 0; i < c[0]._len; ++i) {
+          long key = keys[i + start];
+          int j;
+          for (j = 0; j < gbCols.length; j++) { // Unpack the group key
+            long d = key / mults[j];
+            key -= d * mults[j];
+            if (d == 0) ncs[j].addNA();
+            else ncs[j].addNum(d - 1 + mins[j], 0);
+          }
+          for (double[] r : res)
+            ncs[j++].addNum(r[i + start]);
+        }
+      }
+    };
+    return AstGroup.buildOutput(gbCols, aggs.length, fr, fcnames, keys.length, mrfill);
+  }
+
+  // Accumulators per group, 0 for aggregates without a primitive form
+  static int width(AstGroup.FCN fcn) {
+    switch (fcn) {
+      case var:
+      case sdev:
+        return 2;
+      case mode:
+        return 0;
+      default:
+        return 1;
+    }
+  }
+
+  private static double initVal(AstGroup.FCN fcn) {
+    switch (fcn) {
+      case min:
+        return Double.MAX_VALUE;
+      case max:
+        return -Double.MAX_VALUE;
+      default:
+        return 0;
+    }
+  }
+
+  // Same as AGG.op on the accumulators of one slot
+  static void op(AstGroup.AGG agg, double[] acc, long[] ns, int slot, double d) {
+    boolean na = Double.isNaN(d);
+    if (!na || agg._na == AstGroup.NAHandling.IGNORE) ns[slot]++;
+    if (na && agg._na != AstGroup.NAHandling.ALL) return;
+    switch (agg._fcn) {
+      case nrow:       acc[slot]++; break;
+      case mean:
+      case sum:        acc[slot] += d; break;
+      case sumSquares: acc[slot] += d * d; break;
+      case var:
+      case sdev:       acc[2 * slot] += d * d; acc[2 * slot + 1] += d; break;
+      case min:        acc[slot] = Math.min(acc[slot], d); break;
+      case max:        acc[slot] = Math.max(acc[slot], d); break;
+      default:         throw new IllegalStateException("No primitive form of " + agg._fcn);
+    }
+  }
+
+  // Same as AGG.atomic_op, unsynchronized: accumulators are private to one map or reduce
+  static void merge(AstGroup.AGG agg, double[] acc, long[] ns, int slot, double[] acc1, long[] ns1, int slot1) {
+    switch (agg._fcn) {
+      case var:
+      case sdev: acc[2 * slot] += acc1[2 * slot1]; acc[2 * slot + 1] += acc1[2 * slot1 + 1]; break;
+      case min:  acc[slot] = Math.min(acc[slot], acc1[slot1]); break;
+      case max:  acc[slot] = Math.max(acc[slot], acc1[slot1]); break;
+      default:   acc[slot] += acc1[slot1]; break;
+    }
+    ns[slot] += ns1[slot1];
+  }
+
+  // Accumulators for cap groups, per aggregate
+  static double[][] newAcc(AstGroup.AGG[] aggs, int cap) {
+    double[][] acc = new double[aggs.length][];
+    for (int a = 0; a < aggs.length; a++) {
+      acc[a] = new double[cap * width(aggs[a]._fcn)];
+      double init = initVal(aggs[a]._fcn);
+      if (init != 0) Arrays.fill(acc[a], init);
+    }
+    return acc;
+  }
+
+  static class HashGBTask extends MRTask<HashGBTask> {
+    private final int[] _gbCols;
+    private final long[] _mins, _mults;
+    private final AstGroup.AGG[] _aggs;
+    // Open-addressed table; _acc[a] holds width(a) doubles per slot
+    long[] _keys;
+    double[][] _acc;
+    long[][] _ns;
+    int _size;
+
+    HashGBTask(int[] gbCols, long[] mins, long[] mults, AstGroup.AGG[] aggs) {
+      _gbCols = gbCols;
+      _mins = mins;
+      _mults = mults;
+      _aggs = aggs;
+    }
+
+    @Override
+    public void map(Chunk[] cs) {
+      alloc(16);
+      Chunk[] gcs = new Chunk[_gbCols.length];
+      for (int c = 0; c < gcs.length; c++) gcs[c] = cs[_gbCols[c]];
+      Chunk[] acs = new Chunk[_aggs.length];
+      for (int a = 0; a < acs.length; a++) acs[a] = cs[_aggs[a]._col];
+      for (int row = 0; row < cs[0]._len; row++) {
+        int slot = insert(packKey(gcs, row, _mins, _mults));
+        for (int a = 0; a < acs.length; a++)
+          op(_aggs[a], _acc[a], _ns[a], slot, acs[a].atd(row));
+      }
+    }
+
+    @Override
+    public void reduce(HashGBTask t) {
+      if (t._keys == null) return;
+      if (_keys == null || t._size > _size) { // Merge the smaller table into the larger
+        long[] keys = _keys; double[][] acc = _acc; long[][] ns = _ns;
+        _keys = t._keys; _acc = t._acc; _ns = t._ns;
+        t._keys = keys; t._acc = acc; t._ns = ns;
+        int size = _size; _size = t._size; t._size = size;
+        if (t._keys == null) return;
+      }
+      for (int s = 0; s < t._keys.length; s++) {
+        if (t._keys[s] == EMPTY) continue;
+        int slot = insert(t._keys[s]);
+        for (int a = 0; a < _aggs.length; a++)
+          merge(_aggs[a], _acc[a], _ns[a], slot, t._acc[a], t._ns[a], s);
+      }
+    }
+
+    private static int hash(long key, int mask) {
+      long h = key * 0x9E3779B97F4A7C15L;
+      return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    // Slot of key, or -1
+    int find(long key) {
+      int mask = _keys.length - 1;
+      for (int s = hash(key, mask); ; s = (s + 1) & mask) {
+        if (_keys[s] == key) return s;
+        if (_keys[s] == EMPTY) return -1;
+      }
+    }
+
+    // Slot of key, claimed if the key is new
+    private int insert(long key) {
+      int mask = _keys.length - 1;
+      int s = hash(key, mask);
+      for (; _keys[s] != key; s = (s + 1) & mask) {
+        if (_keys[s] == EMPTY) {
+          if (4 * (_size + 1) > 3 * _keys.length) { // Keep the load under 3/4
+            grow();
+            return insert(key);
+          }
+          _keys[s] = key;
+          _size++;
+          return s;
+        }
+      }
+      return s;
+    }
+
+    private void alloc(int cap) {
+      _keys = new long[cap];
+      Arrays.fill(_keys, EMPTY);
+      _acc = newAcc(_aggs, cap);
+      _ns = new long[_aggs.length][cap];
+      _size = 0;
+    }
+
+    private void grow() {
+      long[] keys = _keys;
+      double[][] acc = _acc;
+      long[][] ns = _ns;
+      alloc(keys.length * 2);
+      for (int s = 0; s < keys.length; s++) {
+        if (keys[s] == EMPTY) continue;
+        int slot = insert(keys[s]);
+        for (int a = 0; a < _aggs.length; a++) {
+          int w = width(_aggs[a]._fcn);
+          System.arraycopy(acc[a], s * w, _acc[a], slot * w, w);
+          _ns[a][slot] = ns[a][s];
+        }
+      }
+    }
+  }
+}
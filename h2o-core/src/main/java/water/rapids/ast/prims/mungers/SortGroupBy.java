@@ -0,0 +1,196 @@
+package water.rapids.ast.prims.mungers;
+
+import water.Iced;
+import water.MRTask;
+import water.fvec.Chunk;
+import water.fvec.Frame;
+import water.fvec.Vec;
+import water.rapids.Merge;
+import water.util.HyperLogLog;
+import water.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Group-By on integral columns by sorting.
+ * <p/>
+ * When nearly every row is its own group, the hash tables of
+ * {@link HashGroupBy} grow to the size of the data and merging them costs more
+ * than the aggregation itself.  Instead the group-by and aggregate columns are
+ * radix sorted ({@link Merge#sort}), after which every group is a run of equal
+ * packed keys: each chunk streams over its runs, and runs spanning chunks are
+ * stitched together in chunk order.
+ * <p/>
+ * The choice is made from a HyperLogLog estimate of the number of groups; the
+ * {@code sys.ai.h2o.rapids.groupby.sort} property ({@code auto}, {@code true}
+ * or {@code false}) overrides it.
+ */
+class SortGroupBy {
+  static final String SORT_PROPERTY = "sys.ai.h2o.rapids.groupby.sort";
+  // Sort when the estimated groups are at least this fraction of the rows...
+  private static final double SORT_GROUPS_RATIO = 0.5;
+  // ...and there are enough rows for the sort to pay off
+  private static final long SORT_MIN_ROWS = 1L << 20;
+
+  /** @return true if sorting should group {@code fr} faster than hashing */
+  static boolean preferred(Frame fr, int[] gbCols, long[][] layout) {
+    if (gbCols.length == 0 || fr.numRows() == 0) return false;
+    String mode = System.getProperty(SORT_PROPERTY, "auto");
+    if (!mode.equals("auto")) return Boolean.parseBoolean(mode);
+    if (fr.numRows() < SORT_MIN_ROWS) return false;
+    long start = System.currentTimeMillis();
+    double groups = new EstimateTask(gbCols, layout[0], layout[1]).doAll(fr)._hll.estimate();
+    Log.info("Group By estimated " + (long) groups + " groups in " + fr.numRows() + " rows in " + (System.currentTimeMillis() - start) / 1000. + " (s)");
+    return groups >= SORT_GROUPS_RATIO * fr.numRows();
+  }
+
+  /**
+   * Group {@code fr} by {@code gbCols} and compute {@code aggs}.
+   *
+   * @return Frame laid out as by {@link AstGroup#buildOutput}
+   */
+  static Frame groupBy(Frame fr, int[] gbCols, AstGroup.AGG[] aggs, String[] fcnames, long[][] layout) {
+    long start = System.currentTimeMillis();
+    // Sort only the group-by and aggregate columns
+    ArrayList<Vec> vecs = new ArrayList<>();
+    int[] sortCols = new int[gbCols.length];
+    for (int i = 0; i < gbCols.length; i++) {
+      sortCols[i] = i;
+      vecs.add(fr.vec(gbCols[i]));
+    }
+    int[] aggCols = new int[aggs.length];
+    for (int a = 0; a < aggs.length; a++) {
+      Vec v = fr.vec(aggs[a]._col);
+      int idx = vecs.indexOf(v);
+      if (idx == -1) { idx = vecs.size(); vecs.add(v); }
+      aggCols[a] = idx;
+    }
+    Frame sorted = Merge.sort(new Frame(vecs.toArray(new Vec[vecs.size()])), sortCols);
+    Runs[] runs;
+    try {
+      runs = new RunsTask(sorted.anyVec().nChunks(), gbCols.length, aggCols, layout[0], layout[1], aggs).doAll(sorted)._runs;
+    } finally {
+      sorted.delete();
+    }
+
+    // Stitch the runs of all chunks in order; a group may span chunks
+    Runs all = new Runs(aggs, 16);
+    for (Runs r : runs) {
+      if (r == null) continue;
+      for (int i = 0; i < r._n; i++) {
+        int slot = all._n > 0 && all._keys[all._n - 1] == r._keys[i] ? all._n - 1 : all.add(r._keys[i]);
+        for (int a = 0; a < aggs.length; a++)
+          HashGroupBy.merge(aggs[a], all._acc[a], all._ns[a], slot, r._acc[a], r._ns[a], i);
+      }
+    }
+    Log.info("Group By Task (sorted) done in " + (System.currentTimeMillis() - start) / 1000. + " (s)");
+
+    long[] keys = Arrays.copyOf(all._keys, all._n);
+    int[] slots = new int[all._n];
+    for (int i = 0; i < slots.length; i++) slots[i] = i;
+    return HashGroupBy.output(fr, gbCols, aggs, fcnames, layout, keys, HashGroupBy.finish(aggs, all._acc, all._ns, slots));
+  }
+
+  // Groups in key order, with their accumulators
+  static class Runs extends Iced {
+    private final AstGroup.AGG[] _aggs;
+    long[] _keys;
+    double[][] _acc;
+    long[][] _ns;
+    int _n;
+
+    Runs(AstGroup.AGG[] aggs, int cap) {
+      _aggs = aggs;
+      _keys = new long[cap];
+      _acc = HashGroupBy.newAcc(aggs, cap);
+      _ns = new long[aggs.length][cap];
+    }
+
+    // Append a group, returns its slot
+    int add(long key) {
+      if (_n == _keys.length) {
+        int cap = _n * 2;
+        double[][] acc = HashGroupBy.newAcc(_aggs, cap);
+        for (int a = 0; a < _aggs.length; a++) {
+          System.arraycopy(_acc[a], 0, acc[a], 0, _acc[a].length);
+          _ns[a] = Arrays.copyOf(_ns[a], cap);
+        }
+        _acc = acc;
+        _keys = Arrays.copyOf(_keys, cap);
+      }
+      _keys[_n] = key;
+      return _n++;
+    }
+  }
+
+  // Streams over the sorted rows of each chunk; the runs are kept per chunk
+  static class RunsTask extends MRTask<RunsTask> {
+    private final int _ngbCols;
+    private final int[] _aggCols;
+    private final long[] _mins, _mults;
+    private final AstGroup.AGG[] _aggs;
+    Runs[] _runs;
+
+    RunsTask(int nchunks, int ngbCols, int[] aggCols, long[] mins, long[] mults, AstGroup.AGG[] aggs) {
+      _ngbCols = ngbCols;
+      _aggCols = aggCols;
+      _mins = mins;
+      _mults = mults;
+      _aggs = aggs;
+      _runs = new Runs[nchunks];
+    }
+
+    @Override
+    public void map(Chunk[] cs) {
+      Chunk[] gcs = Arrays.copyOf(cs, _ngbCols);
+      Runs runs = new Runs(_aggs, 16);
+      int slot = -1;
+      for (int row = 0; row < cs[0]._len; row++) {
+        long key = HashGroupBy.packKey(gcs, row, _mins, _mults);
+        if (slot == -1 || runs._keys[slot] != key) {
+          assert slot == -1 || runs._keys[slot] < key : "Group-by input is not sorted";
+          slot = runs.add(key);
+        }
+        for (int a = 0; a < _aggs.length; a++)
+          HashGroupBy.op(_aggs[a], runs._acc[a], runs._ns[a], slot, cs[_aggCols[a]].atd(row));
+      }
+      _runs[cs[0].cidx()] = runs;
+    }
+
+    @Override
+    public void reduce(RunsTask t) {
+      if (_runs != t._runs)
+        for (int i = 0; i < _runs.length; i++)
+          if (_runs[i] == null) _runs[i] = t._runs[i];
+    }
+  }
+
+  // HyperLogLog of the packed keys
+  static class EstimateTask extends MRTask<EstimateTask> {
+    private final int[] _gbCols;
+    private final long[] _mins, _mults;
+    HyperLogLog _hll;
+
+    EstimateTask(int[] gbCols, long[] mins, long[] mults) {
+      _gbCols = gbCols;
+      _mins = mins;
+      _mults = mults;
+    }
+
+    @Override
+    public void map(Chunk[] cs) {
+      Chunk[] gcs = new Chunk[_gbCols.length];
+      for (int c = 0; c < gcs.length; c++) gcs[c] = cs[_gbCols[c]];
+      _hll = new HyperLogLog();
+      for (int row = 0; row < cs[0]._len; row++)
+        _hll.add(HashGroupBy.packKey(gcs, row, _mins, _mults));
+    }
+
+    @Override
+    public void reduce(EstimateTask t) {
+      if (_hll == null) _hll = t._hll;
+      else if (t._hll != null) _hll.merge(t._hll);
+    }
+  }
+}
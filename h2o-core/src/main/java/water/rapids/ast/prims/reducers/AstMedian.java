@@ -7,6 +7,7 @@ import water.Key;
 import water.fvec.Frame;
 import water.fvec.Vec;
 import water.rapids.Env;
+import water.rapids.Session;
 import water.rapids.vals.ValNum;
 import water.rapids.ast.AstPrimitive;
 import water.rapids.ast.AstRoot;
@@ -34,11 +35,20 @@ public class AstMedian extends AstPrimitive {
     Frame fr = stk.track(asts[1].exec(env)).getFrame();
     boolean narm = asts[2].exec(env).getNum() == 1;
     if (!narm && (fr.anyVec().length() == 0 || fr.anyVec().naCnt() > 0)) return new ValNum(Double.NaN);
+    boolean exact = env._ses != null ? env._ses.exactQuantiles() : Session.exactQuantilesByDefault();
     // does linear interpolation for even sample sizes by default
-    return new ValNum(median(fr, QuantileModel.CombineMethod.INTERPOLATE));
+    return new ValNum(median(fr, QuantileModel.CombineMethod.INTERPOLATE, exact));
   }
 
   public static double median(Frame fr, QuantileModel.CombineMethod combine_method) {
+    return median(fr, combine_method, Session.exactQuantilesByDefault());
+  }
+
+  /**
+   * @param exact compute the exact median by refinement passes, rather than
+   *              sketch it in one pass
+   */
+  public static double median(Frame fr, QuantileModel.CombineMethod combine_method, boolean exact) {
     if (fr.numCols() != 1 || !fr.anyVec().isNumeric())
       throw new IllegalArgumentException("median only works on a single numeric column");
     // Frame needs a Key for Quantile, might not have one from rapids
@@ -51,6 +61,7 @@ public class AstMedian extends AstPrimitive {
     parms._probs = new double[]{0.5};
     parms._train = fr._key;
     parms._combine_method = combine_method;
+    parms._sketch = !exact;
     QuantileModel q = new Quantile(parms).trainModel().get();
     double median = q._output._quantiles[0][0];
     q.delete();
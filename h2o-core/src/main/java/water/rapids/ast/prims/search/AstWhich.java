@@ -4,6 +4,7 @@ import water.Futures;
 import water.MRTask;
 import water.fvec.*;
 import water.rapids.Env;
+import water.rapids.ZoneFilter;
 import water.rapids.vals.ValFrame;
 import water.rapids.ast.AstPrimitive;
 import water.rapids.ast.AstRoot;
@@ -29,6 +30,22 @@ public class AstWhich extends AstPrimitive {
 
   @Override
   public ValFrame apply(Env env, Env.StackHelp stk, AstRoot asts[]) {
+    // Range predicate on columns: evaluated row by row, skipping chunks
+    final ZoneFilter zf = ZoneFilter.make(env, stk, asts[1], null);
+    if (zf != null) {
+      Frame f2 = new MRTask() {
+        @Override
+        public void map(Chunk[] cs, NewChunk[] ncs) {
+          if (zf.skip(cs[0].cidx())) return;
+          long start = cs[0].start();
+          for (int i = 0; i < cs[0]._len; ++i)
+            if (zf.matches(cs, 0, i)) ncs[0].addNum(start + i);
+        }
+      }.doAll(new byte[]{Vec.T_NUM}, new Frame(zf.vecs())).outputFrame();
+      zf.log("Which");
+      return new ValFrame(f2);
+    }
+
     Frame f = stk.track(asts[1].exec(env)).getFrame();
 
     // The 1-row version
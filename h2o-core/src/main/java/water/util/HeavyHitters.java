@@ -0,0 +1,122 @@
+package water.util;
+
+import water.Iced;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/** Heavy hitters - approximate most frequent values in bounded memory, Iced
+ *  so it is cheaply serialized over the wire and mergeable in MRTask reduces.
+ *
+ *  <p>A Misra-Gries summary: up to {@code capacity} values are counted
+ *  exactly; when the table is full the median count is subtracted from every
+ *  counter and the counters which drop to zero are purged.  The total
+ *  subtracted is kept as {@link #maxError}, so the true count of a value is
+ *  between {@link #count} and {@code count()+maxError()}, and every value
+ *  occurring more than {@code maxError()} times is kept.  The error is at most
+ *  about {@code 2*total/capacity}.
+ */
+public class HeavyHitters extends Iced {
+  private final int _cap;       // Max values counted
+  private long[] _keys;         // Open-addressed table of value bits...
+  private long[] _cnts;         // ...and their counts, 0 for an empty slot
+  private int _n;               // Values counted
+  private long _total;          // Total count added
+  private long _offset;         // Total count purged per value
+
+  public HeavyHitters() { this(1024); }
+  public HeavyHitters(int capacity) {
+    if( capacity < 2 ) throw new IllegalArgumentException("Capacity must be at least 2, got "+capacity);
+    _cap = capacity;
+    alloc();
+  }
+
+  /** Add a value; -0.0 and 0.0 count as one value, NaNs are ignored. */
+  public void add( double d ) { if( !Double.isNaN(d) ) add(d == 0 ? 0L : Double.doubleToLongBits(d), 1); }
+
+  /** Add count occurrences of a value given by its bits. */
+  public void add( long key, long count ) {
+    if( count <= 0 ) return;
+    _total += count;
+    insert(key, count);
+  }
+
+  /** Fold another summary into this one. */
+  public HeavyHitters merge( HeavyHitters hh ) {
+    for( int s=0; s<hh._keys.length; s++ )
+      if( hh._cnts[s] > 0 ) insert(hh._keys[s], hh._cnts[s]);
+    _total += hh._total;
+    _offset += hh._offset;
+    return this;
+  }
+
+  /** @return lower bound of the count of the value with these bits */
+  public long count( long key ) {
+    int mask = _keys.length-1;
+    for( int s = slot(key, mask); _cnts[s] > 0; s = (s+1)&mask )
+      if( _keys[s] == key ) return _cnts[s];
+    return 0;
+  }
+
+  /** @return max amount any count is under its true value */
+  public long maxError() { return _offset; }
+
+  /** @return total count added */
+  public long total() { return _total; }
+
+  /** @return bits of the (up to) k values with the largest counts, by decreasing count */
+  public long[] topK( int k ) {
+    long[] keys = new long[_n];
+    final long[] cnts = new long[_n];
+    int n = 0;
+    for( int s=0; s<_keys.length; s++ )
+      if( _cnts[s] > 0 ) { keys[n] = _keys[s]; cnts[n++] = _cnts[s]; }
+    Integer[] idx = new Integer[n];
+    for( int i=0; i<n; i++ ) idx[i] = i;
+    Arrays.sort(idx, new Comparator<Integer>() {
+      @Override public int compare( Integer a, Integer b ) { return Long.compare(cnts[b], cnts[a]); }
+    });
+    long[] res = new long[Math.min(k, n)];
+    for( int i=0; i<res.length; i++ ) res[i] = keys[idx[i]];
+    return res;
+  }
+
+  private static int slot( long key, int mask ) { return (int)HyperLogLog.hash(key) & mask; }
+
+  private void insert( long key, long count ) {
+    int mask = _keys.length-1;
+    int s = slot(key, mask);
+    for( ; _cnts[s] > 0; s = (s+1)&mask )
+      if( _keys[s] == key ) { _cnts[s] += count; return; }
+    if( _n == _cap ) {          // Full: the new value is purged along with the others
+      long med = purge();
+      if( count > med ) insert(key, count-med);
+      return;
+    }
+    _keys[s] = key;
+    _cnts[s] = count;
+    _n++;
+  }
+
+  // Subtract the median count from all counters, dropping those reaching zero
+  private long purge() {
+    long[] cnts = new long[_n];
+    int n = 0;
+    for( long c : _cnts ) if( c > 0 ) cnts[n++] = c;
+    Arrays.sort(cnts);
+    long med = cnts[(n-1)/2];
+    _offset += med;
+    long[] keys = _keys;
+    long[] olds = _cnts;
+    alloc();
+    for( int s=0; s<keys.length; s++ )
+      if( olds[s] > med ) insert(keys[s], olds[s]-med);
+    return med;
+  }
+
+  private void alloc() {
+    _keys = new long[Integer.highestOneBit(_cap)<<2]; // Load at most 1/2
+    _cnts = new long[_keys.length];
+    _n = 0;
+  }
+}
@@ -0,0 +1,121 @@
+package water.util;
+
+import water.Iced;
+import water.MRTask;
+import water.fvec.Chunk;
+import water.fvec.Frame;
+import water.parser.BufferedString;
+
+/** HyperLogLog - approximate count of distinct values, Iced so it is cheaply
+ *  serialized over the wire and mergeable in MRTask reduces.
+ *
+ *  <p>Values are hashed to 64 bits; the top {@code p} bits pick one of
+ *  {@code 2^p} registers, which keeps the longest run of leading zeros seen
+ *  in the remaining bits.  The relative error of {@link #estimate} is about
+ *  {@code 1.04/sqrt(2^p)}, i.e. 1.6% for the default {@code p=12} (4KB).
+ */
+public class HyperLogLog extends Iced {
+  private final int _p;         // Precision: log2 of the number of registers
+  private final byte[] _regs;   // Max rank seen per register
+
+  public HyperLogLog() { this(12); }
+  public HyperLogLog(int p) {
+    if( p < 4 || p > 18 ) throw new IllegalArgumentException("Precision must be between 4 and 18, got "+p);
+    _p = p;
+    _regs = new byte[1<<p];
+  }
+
+  /** Add a value given by its 64-bit hash; see {@link #hash}. */
+  public void addHash( long hash ) {
+    int idx = (int)(hash >>> (64-_p));
+    int rank = Math.min(Long.numberOfLeadingZeros(hash << _p), 64-_p) + 1;
+    if( rank > _regs[idx] ) _regs[idx] = (byte)rank;
+  }
+
+  /** Add a long value. */
+  public void add( long v ) { addHash(hash(v)); }
+
+  /** Add a double value; -0.0 and 0.0 count as one value, as do all NaNs. */
+  public void add( double d ) { add(d == 0 ? 0L : Double.doubleToLongBits(d)); }
+
+  /** Fold another sketch of the same precision into this one. */
+  public HyperLogLog merge( HyperLogLog hll ) {
+    if( hll._p != _p ) throw new IllegalArgumentException("Cannot merge sketches of precision "+_p+" and "+hll._p);
+    for( int i=0; i<_regs.length; i++ )
+      if( hll._regs[i] > _regs[i] ) _regs[i] = hll._regs[i];
+    return this;
+  }
+
+  /** @return estimated number of distinct values added */
+  public double estimate() {
+    int m = _regs.length, zeros = 0;
+    double sum = 0;
+    for( byte r : _regs ) {
+      sum += 1.0 / (1L << r);
+      if( r == 0 ) zeros++;
+    }
+    double e = 0.7213 / (1 + 1.079 / m) * m * m / sum;
+    // Small range: linear counting is more precise.  64-bit hashes need no
+    // large range correction.
+    if( e <= 2.5 * m && zeros > 0 ) e = m * Math.log((double)m / zeros);
+    return e;
+  }
+
+  /** @return expected relative error of {@link #estimate} */
+  public double relativeError() { return 1.04 / Math.sqrt(_regs.length); }
+
+  /** Estimated number of distinct non-NA values of each of the columns
+   *  {@code cols} of the frame, sketched together in one pass.  Numeric,
+   *  categorical, time, String and UUID columns are all supported. */
+  public static double[] nunique( Frame fr, int[] cols ) {
+    HyperLogLog[] hlls = new NUniqueTask(cols).doAll(fr)._hlls;
+    double[] ds = new double[cols.length];
+    for( int c=0; c<cols.length; c++ )
+      ds[c] = hlls == null ? 0 : Math.min(Math.round(hlls[c].estimate()), fr.vec(cols[c]).length());
+    return ds;
+  }
+
+  private static class NUniqueTask extends MRTask<NUniqueTask> {
+    private final int[] _cols;
+    HyperLogLog[] _hlls;
+    NUniqueTask( int[] cols ) { _cols = cols; }
+    @Override public void map( Chunk[] cs ) {
+      _hlls = new HyperLogLog[_cols.length];
+      BufferedString tmp = new BufferedString();
+      for( int c=0; c<_cols.length; c++ ) {
+        Chunk ch = cs[_cols[c]];
+        HyperLogLog hll = _hlls[c] = new HyperLogLog();
+        for( int row=0; row<ch._len; row++ ) {
+          if( ch.isNA(row) ) continue;
+          if( ch.vec().isString() ) hll.addHash(hash(ch.atStr(tmp, row)));
+          else if( ch.vec().isUUID() ) hll.addHash(hash(ch.at16l(row)) ^ ch.at16h(row));
+          else hll.add(ch.atd(row));
+        }
+      }
+    }
+    @Override public void reduce( NUniqueTask t ) {
+      if( _hlls == null ) _hlls = t._hlls;
+      else if( t._hlls != null )
+        for( int c=0; c<_hlls.length; c++ ) _hlls[c].merge(t._hlls[c]);
+    }
+  }
+
+  // 64-bit hash of the string bytes
+  private static long hash( BufferedString str ) {
+    byte[] buf = str.getBuffer();
+    long h = 0;
+    for( int i=str.getOffset(); i<str.getOffset()+str.length(); i++ )
+      h = (h + buf[i]) * 0x9E3779B97F4A7C15L;
+    return hash(h ^ str.length());
+  }
+
+  /** 64-bit finalizer of MurmurHash3; spreads consecutive longs over all bits. */
+  public static long hash( long v ) {
+    v ^= v >>> 33;
+    v *= 0xff51afd7ed558ccdL;
+    v ^= v >>> 33;
+    v *= 0xc4ceb9fe1a85ec53L;
+    v ^= v >>> 33;
+    return v;
+  }
+}
@@ -120,6 +120,12 @@ public class IcedBitSet extends Iced {
     }
     return sb.p("}");
   }
+  /** Copy of the bytes holding the bits (after the zero offset). */
+  public byte[] toByteArray() {
+    byte[] bits = new byte[bytes(_nbits)];
+    System.arraycopy(_val, _byteoff, bits, 0, bits.length);
+    return bits;
+  }
   public String toStrArray() {
     StringBuilder sb = new StringBuilder();
     sb.append("{").append(_val[_byteoff]);
@@ -1,5 +1,6 @@
 package water;
 
+import hex.CreateFrame;
 import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.Ignore;
@@ -215,6 +216,35 @@ public class TestUtil extends Iced {
     return ParseDataset.parse(Key.make(), res);
   }
 
+  /** A random Frame of real, integer and categorical columns, without binary,
+   *  time or string columns.
+   *  @param responseFactors 0 for no response, 1 for a real response, else the
+   *  number of response classes
+   *  @return the Frame, to be deleted by the caller */
+  protected static Frame randomFrame( Key<Frame> key, long rows, int cols, double categoricalFraction,
+                                      double integerFraction, double missingFraction, int factors,
+                                      int responseFactors, long seed ) {
+    CreateFrame cf = new CreateFrame(key);
+    cf.rows = rows;
+    cf.cols = cols;
+    cf.categorical_fraction = categoricalFraction;
+    cf.integer_fraction = integerFraction;
+    cf.binary_fraction = 0.0;
+    cf.time_fraction = 0.0;
+    cf.string_fraction = 0.0;
+    cf.missing_fraction = missingFraction;
+    cf.factors = factors;
+    cf.has_response = responseFactors > 0;
+    if( cf.has_response ) cf.response_factors = responseFactors;
+    cf.seed = seed;
+    return cf.execImpl().get();
+  }
+  /** A random Frame for model scoring tests: 30% categorical, 20% integer
+   *  columns and 10% missing values, with a response */
+  protected static Frame randomFrame( long rows, int cols, int factors, int responseFactors, long seed ) {
+    return randomFrame(Key.<Frame>make(), rows, cols, 0.3, 0.2, 0.1, factors, responseFactors, seed);
+  }
+
   /** A Numeric Vec from an array of ints
    *  @param rows Data
    *  @return The Vec  */
@@ -0,0 +1,112 @@
+package water.fvec;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import water.*;
+import water.exceptions.H2OIllegalArgumentException;
+import water.parser.ParseDataset;
+import water.parser.ParseSetup;
+import water.parser.ParserTest;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FrameAppenderTest extends TestUtil {
+  @BeforeClass static public void setup() { stall_till_cloudsize(1); }
+
+  private static final String HEADER = "id,level,x,empty\n";
+
+  // Rows lo until hi, with a few categorical levels only found in later rows
+  private static String rows( int lo, int hi ) {
+    Random rnd = new Random(lo);
+    StringBuilder sb = new StringBuilder();
+    for( int r=lo; r<hi; r++ )
+      sb.append(r).append(",lvl").append(rnd.nextInt(3 + r / 400)).append(',')
+        .append(r % 7 == 0 ? "" : String.valueOf(rnd.nextGaussian())).append(",\n");
+    return sb.toString();
+  }
+
+  private static Key csv( String... chunks ) {
+    chunks[0] = HEADER + chunks[0];
+    return ParserTest.makeByteVec(chunks);
+  }
+
+  private static Key[] keys( Key k ) { return new Key[]{k}; }
+
+  private static ParseSetup setup( Key k ) {
+    return ParseSetup.guessSetup(keys(k), false, ParseSetup.HAS_HEADER);
+  }
+
+  @Test public void testAppendParse() {
+    Frame expected = null, fr = null;
+    try {
+      Key all = csv(rows(0, 300), rows(300, 600), rows(600, 900), rows(900, 1200), rows(1200, 1500));
+      expected = ParseDataset.parse(Key.make(), keys(all), true, setup(all));
+
+      Key k1 = csv(rows(0, 300), rows(300, 600));
+      fr = ParseDataset.parse(Key.make(), keys(k1), true, setup(k1));
+      Key<Vec> xkey = fr.vec("x")._key;
+      Key chunk0 = fr.vec("x").chunkKey(0);
+      Object chunk0Value = DKV.get(chunk0).get();
+      int nchunks = fr.anyVec().nChunks();
+      // Rollups of the first part are extended, not recomputed
+      fr.vec("x").mean();
+      long checksum = fr.vec("x").contentChecksum();
+
+      Key k2 = csv(rows(600, 900), rows(900, 1200));
+      fr = ParseDataset.append(fr._key, keys(k2), true, setup(k2));
+      Key k3 = csv(rows(1200, 1500));
+      fr = ParseDataset.append(fr._key, keys(k3), true, setup(k3));
+
+      assertEquals(expected.numRows(), fr.numRows());
+      assertTrue(fr.anyVec().nChunks() > nchunks);
+      assertEquals(xkey, fr.vec("x")._key);
+      assertSame(chunk0Value, DKV.get(chunk0).get());
+      assertNotEquals(checksum, fr.vec("x").contentChecksum());
+
+      // The old levels keep their codes, the new ones come after them
+      String[] dom = fr.vec("level").domain();
+      assertEquals(expected.vec("level").domain().length, dom.length);
+      assertArrayEquals(new String[]{"lvl0", "lvl1", "lvl2"}, Arrays.copyOf(dom, 3));
+
+      for( long r=0; r<expected.numRows(); r++ ) {
+        assertEquals(expected.vec("id").at8(r), fr.vec("id").at8(r));
+        assertEquals(expected.vec("level").factor(expected.vec("level").at8(r)), dom[(int)fr.vec("level").at8(r)]);
+        assertEquals(expected.vec("x").isNA(r), fr.vec("x").isNA(r));
+        if( !fr.vec("x").isNA(r) ) assertEquals(expected.vec("x").at(r), fr.vec("x").at(r), 0);
+      }
+      Vec ex = expected.vec("x"), x = fr.vec("x");
+      assertEquals(ex.naCnt(), x.naCnt());
+      assertEquals(ex.mean(), x.mean(), 1e-12);
+      assertEquals(ex.sigma(), x.sigma(), 1e-12);
+      assertArrayEquals(ex.mins(), x.mins(), 0);
+      assertArrayEquals(ex.maxs(), x.maxs(), 0);
+      assertTrue(fr.vec("empty").isBad());
+    } finally {
+      if( expected != null ) expected.delete();
+      if( fr != null ) fr.delete();
+    }
+  }
+
+  @Test public void testMismatch() {
+    Frame fr = null;
+    Key k2 = null;
+    try {
+      Key k1 = csv(rows(0, 100));
+      fr = ParseDataset.parse(Key.make(), keys(k1), true, setup(k1));
+      k2 = ParserTest.makeByteVec("a,b\n1,2\n3,4\n");
+      try {
+        ParseDataset.append(fr._key, keys(k2), false, setup(k2));
+        fail("Expected the column count to be rejected");
+      } catch( H2OIllegalArgumentException e ) {
+        // Expected
+      }
+      assertEquals(100, ((Frame)DKV.getGet(fr._key)).numRows());
+    } finally {
+      if( fr != null ) fr.delete();
+      if( k2 != null ) ((Keyed)DKV.getGet(k2)).remove();
+    }
+  }
+}
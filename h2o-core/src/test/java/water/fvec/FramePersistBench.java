@@ -0,0 +1,65 @@
+package water.fvec;
+
+import org.junit.BeforeClass;
+import org.junit.Ignore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import water.*;
+import water.parser.ParseDataset;
+
+import java.io.File;
+import java.util.Random;
+
+/** Save and reload time of a synthetic frame, binary checkpoint versus CSV export and parse */
+public class FramePersistBench extends TestUtil {
+  @BeforeClass static public void setup() { stall_till_cloudsize(1); }
+
+  @Rule public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private static Frame makeFrame( int nrows, int ncols ) {
+    Vec zero = Vec.makeZero(nrows);
+    Frame fr = new MRTask() {
+      @Override public void map( Chunk[] cs, NewChunk[] ncs ) {
+        Random rnd = new Random(cs[0].start());
+        for( int r=0; r<cs[0]._len; r++ )
+          for( int c=0; c<ncs.length; c++ )
+            switch( c % 3 ) {
+              case 0: ncs[c].addNum(rnd.nextInt(100000)); break;
+              case 1: ncs[c].addNum(rnd.nextInt(1000000) / 1000.0); break;
+              default: ncs[c].addNum(rnd.nextGaussian());
+            }
+      }
+    }.doAll(ncols, Vec.T_NUM, new Frame(zero)).outputFrame(Key.make(), null, null);
+    zero.remove();
+    DKV.put(fr);
+    return fr;
+  }
+
+  private static void bench( String name, Frame fr, File dir ) {
+    long t0 = System.currentTimeMillis();
+    File csv = new File(dir, name + ".csv");
+    Frame.export(fr, csv.getAbsolutePath(), fr._key.toString(), true, 1).get();
+    long t1 = System.currentTimeMillis();
+    Frame parsed = ParseDataset.parse(Key.make(), NFSFileVec.make(csv)._key);
+    long t2 = System.currentTimeMillis();
+    String bin = new File(dir, name + ".bin").getAbsolutePath();
+    FramePersist.saveTo(fr, bin, true);
+    long t3 = System.currentTimeMillis();
+    Frame loaded = FramePersist.loadFrom(Key.<Frame>make(), bin);
+    long t4 = System.currentTimeMillis();
+    System.out.println(name + ": " + fr.numRows() + " rows x " + fr.numCols() + " cols; CSV export " + (t1 - t0) +
+        "ms, parse " + (t2 - t1) + "ms; binary save " + (t3 - t2) + "ms, load " + (t4 - t3) + "ms");
+    parsed.delete();
+    loaded.delete();
+  }
+
+  @Ignore @Test public void runBench() throws Exception {
+    Frame fr = makeFrame(500000, 30);
+    try {
+      for( int i=0; i<3; i++ ) bench("run" + i, fr, tmpFolder.newFolder());
+    } finally {
+      fr.delete();
+    }
+  }
+}
@@ -0,0 +1,89 @@
+package water.fvec;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import water.*;
+import water.exceptions.H2OIllegalArgumentException;
+import water.parser.BufferedString;
+import water.parser.ParseDataset;
+import water.parser.ParserTest;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class FramePersistTest extends TestUtil {
+  @BeforeClass static public void setup() { stall_till_cloudsize(1); }
+
+  @Rule public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private static Frame makeFrame() {
+    StringBuilder sb = new StringBuilder("id,name,level,x,big\n");
+    String[] chunks = new String[4];
+    for( int c=0; c<chunks.length; c++ ) {
+      for( int r=c*500; r<(c+1)*500; r++ )
+        sb.append(r).append(",name").append(r * 31 % 997).append(",l").append(r % 5).append(',')
+          .append(r % 9 == 0 ? "" : String.valueOf(r / 7.0)).append(',').append(1L << 40 | r).append('\n');
+      chunks[c] = sb.toString();
+      sb.setLength(0);
+    }
+    Frame fr = ParseDataset.parse(Key.make(), ParserTest.makeByteVec(chunks));
+    fr.replace(1, fr.vec(1).toStringVec()).remove();
+    DKV.put(fr);
+    return fr;
+  }
+
+  @Test public void testRoundTrip() {
+    Frame fr = null, loaded = null;
+    try {
+      fr = makeFrame();
+      String dir = new File(tmpFolder.getRoot(), "saved").getAbsolutePath();
+      FramePersist.saveTo(fr, dir, false);
+      loaded = FramePersist.loadFrom(Key.<Frame>make(), dir);
+
+      assertArrayEquals(fr.names(), loaded.names());
+      assertEquals(fr.anyVec().nChunks(), loaded.anyVec().nChunks());
+      // Known rollups come back with the frame
+      assertNotNull(DKV.get(loaded.vec("x").rollupStatsKey()));
+      BufferedString s1 = new BufferedString(), s2 = new BufferedString();
+      for( int i=0; i<fr.numCols(); i++ ) {
+        Vec v1 = fr.vec(i), v2 = loaded.vec(i);
+        assertEquals(v1.get_type(), v2.get_type());
+        assertArrayEquals(v1.domain(), v2.domain());
+        assertArrayEquals(v1.espc(), v2.espc());
+        for( int c=0; c<v1.nChunks(); c++ )
+          assertEquals(v1.chunkForChunkIdx(c).getClass(), v2.chunkForChunkIdx(c).getClass());
+        for( long r=0; r<v1.length(); r++ ) {
+          assertEquals(v1.isNA(r), v2.isNA(r));
+          if( v1.isString() ) assertEquals(v1.atStr(s1, r), v2.atStr(s2, r));
+          else if( !v1.isNA(r) ) assertEquals(v1.at(r), v2.at(r), 0);
+        }
+        assertEquals(v1.mean(), v2.mean(), 0);
+        assertEquals(v1.naCnt(), v2.naCnt());
+        assertEquals(v1.contentChecksum(), v2.contentChecksum());
+      }
+    } finally {
+      if( fr != null ) fr.delete();
+      if( loaded != null ) loaded.delete();
+    }
+  }
+
+  @Test public void testNonEmptyDirectory() throws Exception {
+    Frame fr = null;
+    try {
+      fr = makeFrame();
+      File dir = tmpFolder.newFolder("busy");
+      assertTrue(new File(dir, "other").createNewFile());
+      try {
+        FramePersist.saveTo(fr, dir.getAbsolutePath(), false);
+        fail("Expected a non-empty directory to be rejected");
+      } catch( H2OIllegalArgumentException e ) {
+        // Expected
+      }
+    } finally {
+      if( fr != null ) fr.delete();
+    }
+  }
+}
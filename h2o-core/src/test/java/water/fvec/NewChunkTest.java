@@ -52,6 +52,24 @@ public class NewChunkTest extends TestUtil {
     assertEquals(Math.PI,c.atd(N+1),1e-16);
   }
 
+  @Test public void testSparseStrings(){
+    // Enough leading NAs to go sparse before the first string
+    NewChunk nc = new NewChunk((Vec)null, 0);
+    int N = 2000;
+    for(int i = 0; i < N; ++i) nc.addNA();
+    nc.addStr("a");
+    nc.addNA();
+    nc.addStr("b");
+    Chunk c = nc.compress();
+    assertEquals(N+3, c._len);
+    for(int i = 0; i < N; ++i)
+      assertTrue(c.isNA(i));
+    water.parser.BufferedString bs = new water.parser.BufferedString();
+    assertEquals("a", c.atStr(bs, N).toString());
+    assertTrue(c.isNA(N+1));
+    assertEquals("b", c.atStr(bs, N+2).toString());
+  }
+
   private static class NewChunkTestCpy extends NewChunk {
     NewChunkTestCpy(Vec vec, int cidx) {super(vec, cidx);}
     public NewChunkTestCpy() { super(null,0); }
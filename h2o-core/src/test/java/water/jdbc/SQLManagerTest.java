@@ -0,0 +1,199 @@
+package water.jdbc;
+
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import water.Job;
+import water.TestUtil;
+import water.fvec.Frame;
+import water.fvec.Vec;
+
+import java.io.File;
+import java.sql.*;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SQLManagerTest extends TestUtil {
+  // An H2 database in a file, served to every node of the test cloud
+  private static final String URL = "jdbc:h2:" + new File(System.getProperty("java.io.tmpdir"), "h2o_sqlmanager_test").getAbsolutePath() + ";AUTO_SERVER=TRUE";
+  private static final int ROWS = 5000, NULL_KEYS = 100;
+  private static boolean _h2;
+
+  @BeforeClass
+  static public void setup() throws SQLException {
+    stall_till_cloudsize(1);
+    try {
+      Class.forName("org.h2.Driver");
+      _h2 = true;
+    } catch (ClassNotFoundException e) {
+      return;
+    }
+    // ID is the primary key; K is skewed: most rows share a few small keys, a
+    // few are spread up to 1e9 and some are null
+    Random rnd = new Random(42);
+    try (Connection conn = DriverManager.getConnection(URL, "sa", "")) {
+      Statement stmt = conn.createStatement();
+      stmt.executeUpdate("DROP TABLE IF EXISTS ITEMS");
+      stmt.executeUpdate("CREATE TABLE ITEMS (ID BIGINT PRIMARY KEY, K BIGINT, V DOUBLE, S VARCHAR(16))");
+      PreparedStatement ins = conn.prepareStatement("INSERT INTO ITEMS VALUES (?, ?, ?, ?)");
+      for (int i = 0; i < ROWS; i++) {
+        ins.setLong(1, i);
+        if (i < NULL_KEYS) ins.setNull(2, Types.BIGINT);
+        else ins.setLong(2, rnd.nextInt(10) < 9 ? rnd.nextInt(10) : rnd.nextInt(1000000000));
+        ins.setDouble(3, i * 0.5);
+        ins.setString(4, "s" + (i % 7));
+        ins.addBatch();
+      }
+      ins.executeBatch();
+    }
+  }
+
+  @AfterClass
+  static public void cleanup() throws SQLException {
+    if (!_h2) return;
+    try (Connection conn = DriverManager.getConnection(URL, "sa", "")) {
+      conn.createStatement().executeUpdate("DROP ALL OBJECTS DELETE FILES");
+    }
+  }
+
+  // Every row read once: the ids add up, and the values and null keys are all there
+  private static void assertItems(Frame fr, int rows, int nullKeys) {
+    assertEquals(rows, fr.numRows());
+    Vec id = fr.vec("ID"), k = fr.vec("K"), v = fr.vec("V");
+    double sumId = 0;
+    for (long r = 0; r < fr.numRows(); r++) {
+      sumId += id.at(r);
+      assertEquals(id.at(r) * 0.5, v.at(r), 0);
+    }
+    if (rows == ROWS) assertEquals((double) ROWS * (ROWS - 1) / 2, sumId, 0);
+    assertEquals(nullKeys, k.naCnt());
+  }
+
+  private static int tempTables() throws SQLException {
+    try (Connection conn = DriverManager.getConnection(URL, "sa", "")) {
+      ResultSet rs = conn.createStatement().executeQuery("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE " +
+          "UPPER(TABLE_NAME) LIKE '" + SQLManager.TEMP_TABLE_NAME.toUpperCase() + "%'");
+      rs.next();
+      return rs.getInt(1);
+    }
+  }
+
+  @Test
+  public void importByPrimaryKey() {
+    Assume.assumeTrue(_h2);
+    Frame fr = SQLManager.importSqlTable(URL, "ITEMS", "", "sa", "", "*", false, "", 4, false).get();
+    try {
+      assertItems(fr, ROWS, NULL_KEYS);
+      assertTrue(fr.vec("S").isString());
+    } finally {
+      fr.delete();
+    }
+  }
+
+  @Test
+  public void importBySkewedKeyWithNulls() {
+    Assume.assumeTrue(_h2);
+    Frame fr = SQLManager.importSqlTable(URL, "ITEMS", "", "sa", "", "*", true, "K", 8, false).get();
+    try {
+      assertItems(fr, ROWS, NULL_KEYS);
+    } finally {
+      fr.delete();
+    }
+  }
+
+  @Test
+  public void importSnapshot() throws SQLException {
+    Assume.assumeTrue(_h2);
+    Frame fr = SQLManager.importSqlTable(URL, "ITEMS", "", "sa", "", "*", false, "K", 8, true).get();
+    try {
+      assertItems(fr, ROWS, NULL_KEYS);
+      assertEquals(0, tempTables());
+    } finally {
+      fr.delete();
+    }
+  }
+
+  @Test
+  public void importConcurrentQueries() throws SQLException {
+    Assume.assumeTrue(_h2);
+    // Each copies the query result into its own table; all keys of the second are null
+    Job<Frame> j1 = SQLManager.importSqlTable(URL, "", "SELECT * FROM ITEMS WHERE K IS NOT NULL", "sa", "", "*", false, "K", 4, false);
+    Job<Frame> j2 = SQLManager.importSqlTable(URL, "", "SELECT * FROM ITEMS WHERE K IS NULL", "sa", "", "*", false, "K", 4, false);
+    Frame f1 = j1.get(), f2 = j2.get();
+    try {
+      assertNotEquals(f1._key, f2._key);
+      assertItems(f1, ROWS - NULL_KEYS, 0);
+      assertItems(f2, NULL_KEYS, NULL_KEYS);
+      assertEquals(0, tempTables());
+    } finally {
+      f1.delete();
+      f2.delete();
+    }
+  }
+
+  @Test
+  public void balancedBounds() throws SQLException {
+    Assume.assumeTrue(_h2);
+    long max;
+    try (Connection conn = DriverManager.getConnection(URL, "sa", "")) {
+      ResultSet rs = conn.createStatement().executeQuery("SELECT MAX(K) FROM ITEMS");
+      rs.next();
+      max = rs.getLong(1);
+    }
+    // Equal widths put almost all rows in the first range; counting splits it
+    long[] bounds = SQLManager.balancedBounds(URL, "sa", "", "ITEMS", "K", 0, max, 8, ROWS);
+    assertTrue(bounds.length > 1);
+    try (Connection conn = DriverManager.getConnection(URL, "sa", "")) {
+      long[] counts = SQLManager.countRanges(conn.createStatement(), "ITEMS", "K", bounds)._counts;
+      long rows = 0;
+      for (int p = 0; p < bounds.length; p++) {
+        rows += counts[p];
+        assertTrue("range " + p + " has " + counts[p] + " rows", counts[p] <= 2 * ROWS / 8);
+      }
+      assertEquals(ROWS, rows);
+    }
+  }
+
+  @Test
+  public void splitAndMergeRanges() {
+    // The first range, of keys 100 to 259, splits in 16 over them; the next ones are too small
+    long[] bounds = {0, 1000, 1010, 1020};
+    SQLManager.RangeCounts rc = new SQLManager.RangeCounts(new long[]{400, 10, 20, 30},
+        new long[]{100, 1000, 1010, 1020}, new long[]{259, 1009, 1019, 1029});
+    long[] split = SQLManager.splitRanges(bounds, rc, 100);
+    assertEquals(16 + 3, split.length);
+    assertEquals(0, split[0]);
+    for (int i = 1; i < 16; i++)
+      assertEquals(100 + 10 * i, split[i]);
+    assertEquals(1000, split[16]);
+    //a single key is not split
+    rc = new SQLManager.RangeCounts(new long[]{500, 1}, new long[]{0, 1}, new long[]{0, 1});
+    assertArrayEquals(new long[]{0, 1}, SQLManager.splitRanges(new long[]{0, 1}, rc, 100));
+    long[] merged = SQLManager.mergeRanges(new long[]{0, 250, 500, 750, 1000, 1010, 1020},
+        new long[]{120, 80, 10, 90, 10, 20, 30}, 100);
+    assertArrayEquals(new long[]{0, 250, 750, 1010}, merged);
+  }
+
+  @Test
+  public void partitionBounds() {
+    assertArrayEquals(new long[]{1, 26, 51, 76}, SQLManager.partitionBounds(1, 100, 4));
+    assertArrayEquals(new long[]{-5, -2, 1}, SQLManager.partitionBounds(-5, 3, 3));
+    //no more ranges than keys
+    assertArrayEquals(new long[]{7, 8, 9}, SQLManager.partitionBounds(7, 9, 10));
+    assertArrayEquals(new long[]{7}, SQLManager.partitionBounds(7, 7, 10));
+    //the whole long range, without overflow
+    long[] bounds = SQLManager.partitionBounds(Long.MIN_VALUE, Long.MAX_VALUE, 4);
+    assertArrayEquals(new long[]{Long.MIN_VALUE, -(1L << 62), 0, 1L << 62}, bounds);
+  }
+
+  @Test
+  public void rangeClause() {
+    long[] bounds = SQLManager.partitionBounds(1, 100, 3);
+    assertEquals(" WHERE id < 34 OR id IS NULL", SQLManager.rangeClause("id", bounds, 0));
+    assertEquals(" WHERE id >= 34 AND id < 67", SQLManager.rangeClause("id", bounds, 1));
+    assertEquals(" WHERE id >= 67", SQLManager.rangeClause("id", bounds, 2));
+    assertEquals("", SQLManager.rangeClause("id", new long[]{1}, 0));
+  }
+}
@@ -0,0 +1,128 @@
+package water.parser;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import water.*;
+import water.fvec.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+public class BlockGzipTest extends TestUtil {
+  @BeforeClass static public void setup() { stall_till_cloudsize(1); }
+
+  private static String csv( int nrows ) {
+    StringBuilder sb = new StringBuilder("a,b,c\n");
+    for( int i=0; i<nrows; i++ )
+      sb.append(i).append(',').append(i * 0.5).append(",cat").append(i % 5).append('\n');
+    return sb.toString();
+  }
+
+  // BGZF: gzip members of the given input size with the block length in the
+  // header, and the empty end-of-file block
+  private static byte[] bgzip( byte[] data, int blockSize ) {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    byte[] buf = new byte[blockSize * 2 + 64];
+    for( int off=0; ; off += blockSize ) {
+      int len = Math.max(0, Math.min(blockSize, data.length - off));
+      Deflater def = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+      def.setInput(data, Math.min(off, data.length), len);
+      def.finish();
+      int clen = def.deflate(buf);
+      def.end();
+      CRC32 crc = new CRC32();
+      crc.update(data, Math.min(off, data.length), len);
+      int bsize = 18 + clen + 8 - 1;
+      bos.write(new byte[]{31, (byte)139, 8, 4, 0, 0, 0, 0, 0, (byte)255, 6, 0, 'B', 'C', 2, 0, (byte)bsize, (byte)(bsize >> 8)}, 0, 18);
+      bos.write(buf, 0, clen);
+      int c = (int)crc.getValue();
+      bos.write(new byte[]{(byte)c, (byte)(c >> 8), (byte)(c >> 16), (byte)(c >> 24), (byte)len, (byte)(len >> 8), (byte)(len >> 16), (byte)(len >> 24)}, 0, 8);
+      if( len == 0 ) return bos.toByteArray();
+    }
+  }
+
+  // A ByteVec of the bytes, in chunks of the given size
+  private static Key makeByteVec( byte[] bytes, int chunkSize ) {
+    Futures fs = new Futures();
+    int nchunks = (bytes.length + chunkSize - 1) / chunkSize;
+    long[] espc = new long[nchunks + 1];
+    for( int i=0; i<nchunks; i++ ) espc[i+1] = Math.min(bytes.length, espc[i] + chunkSize);
+    Key k = Vec.newKey();
+    ByteVec bv = new ByteVec(k, Vec.ESPC.rowLayout(k, espc));
+    DKV.put(k, bv, fs);
+    for( int i=0; i<nchunks; i++ ) {
+      Key ck = bv.chunkKey(i);
+      DKV.put(ck, new Value(ck, new C1NChunk(Arrays.copyOfRange(bytes, (int)espc[i], (int)espc[i+1]))), fs);
+    }
+    fs.blockForPending();
+    return k;
+  }
+
+  @Test public void testParallelInflate() {
+    Frame expected = null, actual = null;
+    try {
+      String text = csv(20000);
+      // Blocks spanning chunk boundaries
+      Key bgz = makeByteVec(bgzip(text.getBytes(), 3000), 7001);
+      BlockGzip plan = BlockGzip.plan((ByteVec)DKV.getGet(bgz));
+      assertNotNull(plan);
+      assertTrue(plan.nChunks() > 1);
+      expected = ParseDataset.parse(Key.make("plain.hex"), ParserTest.makeByteVec(text));
+      actual = ParseDataset.parse(Key.make("bgzf.hex"), bgz);
+      assertEquals(20000, actual.numRows());
+      assertTrue(actual.anyVec().nChunks() > 1);
+      assertTrue(isBitIdentical(expected, actual));
+    } finally {
+      if( expected != null ) expected.delete();
+      if( actual != null ) actual.delete();
+    }
+  }
+
+  @Test public void testReaderPieces() {
+    String text = csv(20000);
+    Key bgz = makeByteVec(bgzip(text.getBytes(), 3000), 7001);
+    try {
+      ByteVec vec = DKV.getGet(bgz);
+      BlockGzip plan = BlockGzip.plan(vec);
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      for( int c=0; c<vec.nChunks(); c++ ) {
+        BlockGzip.Reader din = plan.reader(vec.chunkForChunkIdx(c));
+        for( int i=0; i<plan.nPieces(c); i++ ) {
+          byte[] bs = din.getChunkData(plan.firstPiece(c) + i);
+          bos.write(bs, 0, bs.length);
+          if( plan.firstPiece(c) + i + 1 < plan.nChunks() )  // Reading on into the next piece
+            assertNotNull(din.getChunkData(plan.firstPiece(c) + i + 1));
+        }
+      }
+      assertNull(plan.reader(vec.chunkForChunkIdx(0)).getChunkData(plan.nChunks()));
+      assertEquals(text, new String(bos.toByteArray()));
+    } finally {
+      ((ByteVec)DKV.getGet(bgz)).remove();
+    }
+  }
+
+  @Test public void testSingleMemberGzipStreams() throws IOException {
+    Frame expected = null, actual = null;
+    try {
+      String text = csv(5000);
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      GZIPOutputStream gos = new GZIPOutputStream(bos);
+      gos.write(text.getBytes());
+      gos.close();
+      Key gz = makeByteVec(bos.toByteArray(), 4001);
+      assertNull(BlockGzip.plan((ByteVec)DKV.getGet(gz)));
+      expected = ParseDataset.parse(Key.make("plain.hex"), ParserTest.makeByteVec(text));
+      actual = ParseDataset.parse(Key.make("gz.hex"), gz);
+      assertTrue(isBitIdentical(expected, actual));
+    } finally {
+      if( expected != null ) expected.delete();
+      if( actual != null ) actual.delete();
+    }
+  }
+}
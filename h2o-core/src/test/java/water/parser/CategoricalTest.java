@@ -0,0 +1,94 @@
+package water.parser;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import water.*;
+import water.fvec.*;
+import water.util.UnsafeUtils;
+
+import com.google.common.base.Charsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.junit.Assert.*;
+
+public class CategoricalTest extends TestUtil {
+  @BeforeClass static public void setup() { stall_till_cloudsize(1); }
+
+  private static String[] unpack( byte[] packed ) {
+    String[] res = new String[UnsafeUtils.get4(packed, 0)];
+    for( int i=0, p=4; i<res.length; i++ ) {
+      int len = UnsafeUtils.get4(packed, p);
+      res[i] = new String(packed, p + 4, len, Charsets.UTF_8);
+      p += 4 + len;
+    }
+    return res;
+  }
+
+  @Test public void testConcurrentAddKey() throws InterruptedException {
+    final Categorical cat = new Categorical();
+    final int nkeys = 50000, nthreads = 8;
+    final AtomicReferenceArray<String> byId = new AtomicReferenceArray<>(nkeys + 2);
+    Thread[] ts = new Thread[nthreads];
+    final boolean[] failed = new boolean[1];
+    for( int t=0; t<nthreads; t++ ) {
+      final int ft = t;
+      ts[t] = new Thread() {
+        @Override public void run() {
+          BufferedString bs = new BufferedString();
+          // Every thread adds every key, in its own order, and all agree on the numbers
+          for( int i=0; i<nkeys; i++ ) {
+            String s = "level" + ((i * 7919L + ft * 104729L) % nkeys);
+            int id = cat.addKey(bs.set(s));
+            if( id < 1 || id > nkeys || (!byId.compareAndSet(id, null, s) && !byId.get(id).equals(s)) ) failed[0] = true;
+            if( cat.getTokenId(bs) != id ) failed[0] = true;
+          }
+        }
+      };
+      ts[t].start();
+    }
+    for( Thread t : ts ) t.join();
+    assertFalse(failed[0]);
+    assertEquals(nkeys, cat.size());
+    assertEquals(nkeys, cat.maxId());
+    BufferedString[] dom = cat.getColumnDomain();
+    for( int id=1; id<=nkeys; id++ ) assertEquals(byId.get(id), dom[id - 1].toString());
+    assertFalse(cat.containsKey(new BufferedString("level" + nkeys)));
+  }
+
+  @Test public void testSortedDomainAndMap() {
+    Categorical cat = new Categorical();
+    for( String k : new String[]{"pear", "apple", "", "fig", "apple", "Zebra", "\u00e9clair", "figs"} )
+      cat.addKey(new BufferedString(k));
+    // Unsigned byte order, as BufferedString.compareTo
+    String[] sorted = {"", "Zebra", "apple", "fig", "figs", "pear", "\u00e9clair"};
+    assertArrayEquals(sorted, unpack(cat.packSortedDomain()));
+    // A global domain with levels from other nodes; ours map into it by key
+    Categorical other = new Categorical();
+    for( String k : new String[]{"kiwi", "apple", "Apple", "fig", "\u00e9clair", "Zebra", "figs", "", "pear"} )
+      other.addKey(new BufferedString(k));
+    byte[] global = other.packSortedDomain();
+    String[] gdom = unpack(global);
+    int[] map = cat.mapTo(global);
+    assertEquals(-1, map[0]);
+    for( String k : sorted )
+      assertEquals(k, gdom[map[cat.getTokenId(new BufferedString(k))]]);
+  }
+
+  @Test public void testConvertToUTF8() {
+    Categorical cat = new Categorical();
+    byte[] bad = {'a', (byte)0xFF, 'b'};
+    cat.addKey(new BufferedString("x"));
+    cat.addKey(new BufferedString(bad, 0, bad.length));
+    cat.addKey(new BufferedString("y"));
+    cat.convertToUTF8(1);
+    // Numbers are kept; the bad level is renamed to its hex form
+    String hex = new BufferedString(bad, 0, bad.length).bytesToString();
+    assertEquals(2, cat.getTokenId(new BufferedString(hex)));
+    assertEquals(0, cat.getTokenId(new BufferedString(bad, 0, bad.length)));
+    assertEquals(3, cat.getTokenId(new BufferedString("y")));
+    String[] expected = {"x", "y", hex};
+    Arrays.sort(expected);      // All ASCII now
+    assertArrayEquals(expected, unpack(cat.packSortedDomain()));
+  }
+}
@@ -3,9 +3,11 @@ package water.parser;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import water.Key;
 import water.TestUtil;
 import water.Value;
 import water.fvec.FileVec;
+import water.fvec.Frame;
 import water.util.Log;
 import water.util.PrettyPrint;
 
@@ -138,5 +140,58 @@ public class ChunksizeTest extends TestUtil {
         }
       }
   }
+
+  @Test
+  public void testAdaptive() {
+    // 10k columns, 5 bytes a value, 2 compressed bytes a value: the static heuristic makes
+    // chunks of a few rows; the measured compression asks for 4k values per column chunk
+    int numCols = 10000, cores = 8, cloudSize = 4;
+    long line = 5 * numCols, rows = FileVec.DFLT_CHUNK_SIZE / line;
+    int heuristic = FileVec.calcOptimalChunkSize((long) 1e10, numCols, line, cores, cloudSize, false, false);
+    int chunkSize = FileVec.calcAdaptiveChunkSize((long) 1e10, numCols, line, cores, cloudSize,
+        rows * line, rows, 40000000L, rows * numCols * 2, heuristic);
+    Assert.assertTrue(chunkSize > heuristic);
+    Assert.assertTrue(chunkSize / line >= 4096);
+    Assert.assertTrue(chunkSize < Value.MAX);
+
+    // 4 narrow columns at 100MB/s: enough chunks for 4 waves on every core
+    numCols = 4; line = 30; rows = FileVec.DFLT_CHUNK_SIZE / line;
+    heuristic = FileVec.calcOptimalChunkSize((long) 1e9, numCols, line, cores, 1, false, false);
+    chunkSize = FileVec.calcAdaptiveChunkSize((long) 1e9, numCols, line, cores, 1,
+        rows * line, rows, rows * line * 10, rows * numCols * 2, heuristic);
+    Assert.assertTrue((long) 1e9 / chunkSize >= 4 * cores);
+    Assert.assertTrue(chunkSize * 10 >= 1e7); // At least 10ms of parsing
+
+    // On a smaller file, fast parsing makes for fewer, larger chunks, each worth 10ms
+    int slow = FileVec.calcAdaptiveChunkSize((long) 1e8, numCols, line, cores, 1,
+        rows * line, rows, rows * line * 10, rows * numCols * 2, heuristic);
+    int fast = FileVec.calcAdaptiveChunkSize((long) 1e8, numCols, line, cores, 1,
+        rows * line, rows, rows * line, rows * numCols * 2, heuristic);
+    Assert.assertTrue(fast > 3 * slow);
+
+    // Tiny files keep the static choice
+    Assert.assertEquals(1234, FileVec.calcAdaptiveChunkSize(1 << 15, 4, 30, cores, 1, 1 << 15, 1000, 1000, 4000, 1234));
+  }
+
+  @Test
+  public void testAdaptiveParse() {
+    boolean old = ParseSetup.ADAPTIVE_CHUNK_SIZE;
+    ParseSetup.ADAPTIVE_CHUNK_SIZE = true;
+    Frame fr = null;
+    try {
+      StringBuilder sb = new StringBuilder("a,b,c\n");
+      for (int r = 0; r < 20000; r++)
+        sb.append(r).append(",x").append(r % 7).append(',').append(r * 0.5).append('\n');
+      Key k = ParserTest.makeByteVec(sb.toString());
+      ParseSetup ps = ParseSetup.guessSetup(new Key[]{k}, false, ParseSetup.GUESS_HEADER);
+      Assert.assertTrue(ps._chunk_size >= 1 << 12);
+      fr = ParseDataset.parse(Key.make(), new Key[]{k}, true, ps);
+      Assert.assertEquals(20000, fr.numRows());
+      Assert.assertEquals(7, fr.vec("b").cardinality());
+    } finally {
+      ParseSetup.ADAPTIVE_CHUNK_SIZE = old;
+      if (fr != null) fr.delete();
+    }
+  }
 }
 
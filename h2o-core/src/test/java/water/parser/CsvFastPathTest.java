@@ -0,0 +1,88 @@
+package water.parser;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import water.*;
+import water.fvec.*;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CsvFastPathTest extends TestUtil {
+  @BeforeClass static public void setup() { stall_till_cloudsize(1); }
+
+  // Parse the chunks with or without the fast path
+  private static Frame parse( boolean fast, byte[] ctypes, String... data ) {
+    boolean old = CsvParser.FAST_PATH;
+    CsvParser.FAST_PATH = fast;
+    try {
+      Key k = ParserTest.makeByteVec(data);
+      ParseSetup ps = ParseSetup.guessSetup(new Key[]{k}, false, ParseSetup.GUESS_HEADER);
+      if( ctypes != null ) ps._column_types = ctypes;
+      return ParseDataset.parse(Key.make(), new Key[]{k}, true, ps);
+    } finally {
+      CsvParser.FAST_PATH = old;
+    }
+  }
+
+  private static void assertSameParse( byte[] ctypes, String... data ) {
+    Frame expected = null, actual = null;
+    try {
+      expected = parse(false, ctypes, data);
+      actual = parse(true, ctypes, data);
+      assertArrayEquals(expected.names(), actual.names());
+      assertEquals(expected.numRows(), actual.numRows());
+      BufferedString s1 = new BufferedString(), s2 = new BufferedString();
+      for( int i=0; i<expected.numCols(); i++ ) {
+        Vec v1 = expected.vec(i), v2 = actual.vec(i);
+        assertEquals(v1.get_type(), v2.get_type());
+        assertArrayEquals(v1.domain(), v2.domain());
+        for( long r=0; r<v1.length(); r++ ) {
+          String at = "column " + i + ", row " + r;
+          assertEquals(at, v1.isNA(r), v2.isNA(r));
+          if( v1.isString() ) assertEquals(at, v1.atStr(s1, r), v2.atStr(s2, r));
+          else if( !v1.isNA(r) ) assertEquals(at, Double.doubleToLongBits(v1.at(r)), Double.doubleToLongBits(v2.at(r)));
+        }
+      }
+    } finally {
+      if( expected != null ) expected.delete();
+      if( actual != null ) actual.delete();
+    }
+  }
+
+  // Fields the fast path takes, and fields it leaves to the state machine
+  private static final String[] FIELDS = {
+      "0", "17", "-3", "+4", "2.5", "-0.125", ".5", "7.", "1e3", "1.5E-2", "2e+10", " 12 ", "\t8", "",
+      "123456789012345678901234", "1.2345678901234567890123", "1e--2", "1e", "1.2.3", "12 3", "-", ".",
+      "50%", "$12", "$x", "abc", " x y ", "NA", "\"q,uoted\"", "\"3\"", "'s'", "café", "a\u0000b", "5\u0000"
+  };
+
+  @Test public void testMixedTokens() {
+    Random rnd = new Random(0xC5F);
+    StringBuilder sb = new StringBuilder("a,b,c,d,e\n");
+    for( int r=0; r<3000; r++ ) {
+      for( int c=0; c<5; c++ ) {
+        if( c > 0 ) sb.append(',');
+        // Mostly numbers in the first columns, anything in the last
+        sb.append(c < 2 && rnd.nextInt(50) > 0 ? String.valueOf(rnd.nextInt(1000) / 8.0) : FIELDS[rnd.nextInt(FIELDS.length)]);
+      }
+      sb.append(rnd.nextInt(10) == 0 ? "\r\n" : "\n");
+      if( rnd.nextInt(100) == 0 ) sb.append('\n');
+    }
+    String text = sb.toString();
+    // Chunks ending anywhere in a line
+    assertSameParse(null, text);
+    assertSameParse(null, text.substring(0, 20011), text.substring(20011, 40003), text.substring(40003));
+  }
+
+  @Test public void testStringsAndForcedTypes() {
+    StringBuilder sb = new StringBuilder("id\tname\tcode\tx\n");
+    for( int r=0; r<2000; r++ )
+      sb.append(r).append('\t').append(r % 3 == 0 ? "NA" : "name " + (r % 17) + " ").append('\t')
+        .append(r % 11).append('\t').append(r % 5 == 0 ? "" : String.valueOf(r * 0.25)).append('\n');
+    String text = sb.toString();
+    assertSameParse(null, text);
+    assertSameParse(new byte[]{Vec.T_NUM, Vec.T_STR, Vec.T_CAT, Vec.T_NUM}, text.substring(0, 9999), text.substring(9999));
+  }
+}
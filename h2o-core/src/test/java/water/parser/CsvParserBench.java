@@ -0,0 +1,70 @@
+package water.parser;
+
+import org.junit.BeforeClass;
+import org.junit.Ignore;
+import org.junit.Test;
+import water.*;
+import water.fvec.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/** Parse throughput of synthetic wide and narrow CSV files, with and without the fast path */
+public class CsvParserBench extends TestUtil {
+  @BeforeClass static public void setup() { stall_till_cloudsize(1); }
+
+  // A ByteVec of CSV text, in default sized chunks
+  private static Key makeCsv( int nrows, int ncols, long seed ) {
+    Random rnd = new Random(seed);
+    ArrayList<String> chunks = new ArrayList<>();
+    StringBuilder sb = new StringBuilder();
+    for( int c=0; c<ncols; c++ ) sb.append(c == 0 ? "" : ",").append("C").append(c);
+    sb.append('\n');
+    for( int r=0; r<nrows; r++ ) {
+      for( int c=0; c<ncols; c++ ) {
+        if( c > 0 ) sb.append(',');
+        switch( c % 4 ) {
+          case 0: sb.append(rnd.nextInt(100000)); break;
+          case 1: sb.append(rnd.nextInt(1000000) / 1000.0); break;
+          case 2: sb.append(rnd.nextGaussian()); break;
+          default: sb.append("lvl").append(rnd.nextInt(20));
+        }
+      }
+      sb.append('\n');
+      if( sb.length() > FileVec.DFLT_CHUNK_SIZE ) {
+        chunks.add(sb.toString());
+        sb.setLength(0);
+      }
+    }
+    if( sb.length() > 0 ) chunks.add(sb.toString());
+    return ParserTest.makeByteVec(chunks.toArray(new String[chunks.size()]));
+  }
+
+  private static void bench( String name, int nrows, int ncols ) {
+    for( int i=0; i<4; i++ ) {
+      boolean fast = (i & 1) == 1;
+      Key k = makeCsv(nrows, ncols, 42);
+      long bytes = ((ByteVec)DKV.getGet(k)).length();
+      boolean old = CsvParser.FAST_PATH;
+      CsvParser.FAST_PATH = fast;
+      try {
+        long t0 = System.currentTimeMillis();
+        Frame fr = ParseDataset.parse(Key.make(), k);
+        long t = Math.max(1, System.currentTimeMillis() - t0);
+        System.out.println(name + (fast ? " fast path: " : " state machine: ") + fr.numRows() + " rows, " +
+            (bytes / 1000 / t) + " MB/s (" + t + "ms)");
+        fr.delete();
+      } finally {
+        CsvParser.FAST_PATH = old;
+      }
+    }
+  }
+
+  @Ignore @Test public void runNarrowBench() {
+    bench("narrow", 5000000, 4);
+  }
+
+  @Ignore @Test public void runWideBench() {
+    bench("wide", 50000, 400);
+  }
+}
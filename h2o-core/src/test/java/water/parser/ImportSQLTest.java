@@ -58,6 +58,21 @@ public class ImportSQLTest extends TestUtil{
     sql_f.delete();
   }
 
+  @Ignore @Test
+  public void partitioned() {
+    String table = "citibike20k";
+    Frame sql_f = SQLManager.importSqlTable(conUrl, table, select_query, user, password, "bikeid, starttime", optimize,
+        "bikeid", 4, false).get();
+    assertTrue(sql_f.numRows() == 2e4);
+    assertTrue(sql_f.numCols() == 2);
+    sql_f.delete();
+    sql_f = SQLManager.importSqlTable(conUrl, table, select_query, user, password, columns, optimize,
+        "bikeid", 100, true).get();
+    assertTrue(sql_f.numRows() == 2e4);
+    assertTrue(sql_f.numCols() == 15);
+    sql_f.delete();
+  }
+
   @Ignore @Test
   public void select_query() {
     Frame sql_f = SQLManager.importSqlTable(conUrl, "", "SELECT bikeid from citibike20k", user, password, columns, optimize).get();
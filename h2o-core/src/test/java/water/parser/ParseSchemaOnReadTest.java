@@ -0,0 +1,147 @@
+package water.parser;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import water.Key;
+import water.TestUtil;
+import water.exceptions.H2OIllegalArgumentException;
+import water.fvec.Frame;
+import water.fvec.Vec;
+
+import static org.junit.Assert.*;
+
+public class ParseSchemaOnReadTest extends TestUtil {
+  @BeforeClass static public void setup() { stall_till_cloudsize(1); }
+
+  // id,name,x,level,class over several chunks; class is "rare" on every 50th row
+  private static Key makeData(int rows, int nchunks) {
+    String[] chunks = new String[nchunks];
+    StringBuilder sb = new StringBuilder("id,name,x,level,class\n");
+    for (int c = 0; c < nchunks; c++) {
+      for (int r = c * rows / nchunks; r < (c + 1) * rows / nchunks; r++)
+        sb.append(r).append(",n").append(r % 997).append(',').append(r * 0.25).append(",l").append(r % 3)
+          .append(',').append(r % 50 == 0 ? "rare" : "common").append('\n');
+      chunks[c] = sb.toString();
+      sb.setLength(0);
+    }
+    return ParserTest.makeByteVec(chunks);
+  }
+
+  private static Frame parse(Key k, ParseSetup ps) {
+    return ParseDataset.parse(Key.make(), new Key[]{k}, true, ps);
+  }
+
+  @Test public void testSkippedColumns() {
+    Key k = makeData(3000, 3);
+    Frame fr = null;
+    try {
+      ParseSetup ps = ParseSetup.guessSetup(new Key[]{k}, false, ParseSetup.GUESS_HEADER);
+      ps.setSkippedColumns(new int[]{1, 3});
+      fr = parse(k, ps);
+      assertArrayEquals(new String[]{"id", "x", "class"}, fr.names());
+      assertEquals(3000, fr.numRows());
+      assertArrayEquals(new String[]{"common", "rare"}, fr.vec("class").domain());
+      for (int r = 0; r < 3000; r++) {
+        assertEquals(r, fr.vec("id").at8(r));
+        assertEquals(r * 0.25, fr.vec("x").at(r), 0);
+        assertEquals(r % 50 == 0 ? 1 : 0, fr.vec("class").at8(r));
+      }
+    } finally {
+      if (fr != null) fr.delete();
+    }
+  }
+
+  @Test public void testBernoulliSample() {
+    Frame fr1 = null, fr2 = null;
+    try {
+      for (int i = 0; i < 2; i++) {
+        Key k = makeData(20000, 4);
+        ParseSetup ps = ParseSetup.guessSetup(new Key[]{k}, false, ParseSetup.GUESS_HEADER);
+        ps.setSampleRate(0.1).setSampleSeed(42).setSkippedColumns(new int[]{1});
+        Frame fr = parse(k, ps);
+        if (i == 0) fr1 = fr; else fr2 = fr;
+      }
+      assertEquals(4, fr1.numCols());
+      long n = fr1.numRows();
+      assertTrue("rows " + n, n > 1600 && n < 2400);
+      // Kept rows, in order, and the same sample for the same seed
+      assertEquals(n, fr2.numRows());
+      Vec id = fr1.vec("id");
+      for (int r = 0; r < n; r++) {
+        if (r > 0) assertTrue(id.at8(r) > id.at8(r - 1));
+        assertEquals(id.at8(r) * 0.25, fr1.vec("x").at(r), 0);
+        assertEquals(id.at8(r) % 3, fr1.vec("level").at8(r));
+        assertEquals(id.at8(r), fr2.vec("id").at8(r));
+      }
+    } finally {
+      if (fr1 != null) fr1.delete();
+      if (fr2 != null) fr2.delete();
+    }
+  }
+
+  @Test public void testStratifiedSample() {
+    Key k = makeData(20000, 4);
+    Frame fr = null;
+    try {
+      // Strata on a skipped column: sampled on, but not parsed
+      ParseSetup ps = ParseSetup.guessSetup(new Key[]{k}, false, ParseSetup.GUESS_HEADER);
+      ps.setSampleRate(0.1).setSampleStrataColumn(4).setSkippedColumns(new int[]{4});
+      fr = parse(k, ps);
+      assertArrayEquals(new String[]{"id", "name", "x", "level"}, fr.names());
+      // Every level keeps a tenth of its rows, to within a row per chunk
+      long rare = 0;
+      for (long r = 0; r < fr.numRows(); r++)
+        if (fr.vec("id").at8(r) % 50 == 0) rare++;
+      assertTrue("rare " + rare, Math.abs(rare - 40) <= 4);
+      assertTrue("rows " + fr.numRows(), Math.abs(fr.numRows() - 2000) <= 8);
+    } finally {
+      if (fr != null) fr.delete();
+    }
+  }
+
+  // An SVMLight writer takes no sample: asking for one is rejected, never ignored
+  @Test public void testSVMLightSampleRejected() {
+    Key k = ParserTest.makeByteVec("1 2:.2 5:.5 9:.9\n-1 1:.1 4:.4 8:.8\n", "1 2:.2 5:.5 9:.9\n1 3:.3 6:.6\n");
+    try {
+      ParseSetup ps = ParseSetup.guessSetup(new Key[]{k}, false, ParseSetup.GUESS_HEADER);
+      assertEquals(DefaultParserProviders.SVMLight_INFO, ps._parse_type);
+      for (ParseSetup bad : new ParseSetup[]{new ParseSetup(ps).setSampleRate(0.01), new ParseSetup(ps).setSampleStrataColumn(0)}) {
+        try {
+          parse(k, bad).delete();
+          fail("Expected the setup to be rejected");
+        } catch (H2OIllegalArgumentException e) {
+          // Expected
+        }
+        try {
+          ParseDataset.forkParseSVMLight(Key.<Frame>make(), new Key[]{k}, bad).get();
+          fail("Expected the setup to be rejected");
+        } catch (H2OIllegalArgumentException e) {
+          // Expected
+        }
+      }
+    } finally {
+      k.remove();
+    }
+  }
+
+  @Test public void testBadArguments() {
+    Key k = makeData(100, 1);
+    try {
+      ParseSetup ps = ParseSetup.guessSetup(new Key[]{k}, false, ParseSetup.GUESS_HEADER);
+      for (ParseSetup bad : new ParseSetup[]{
+          new ParseSetup(ps).setSkippedColumns(new int[]{0, 1, 2, 3, 4}),
+          new ParseSetup(ps).setSkippedColumns(new int[]{5}),
+          new ParseSetup(ps).setSampleRate(0),
+          new ParseSetup(ps).setSampleStrataColumn(7)}) {
+        try {
+          parse(k, bad).delete();
+          fail("Expected the setup to be rejected");
+        } catch (H2OIllegalArgumentException e) {
+          // Expected
+        }
+      }
+    } finally {
+      k.remove();
+    }
+  }
+}
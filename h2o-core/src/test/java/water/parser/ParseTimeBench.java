@@ -0,0 +1,73 @@
+package water.parser;
+
+import org.junit.BeforeClass;
+import org.junit.Ignore;
+import org.junit.Test;
+import water.*;
+import water.fvec.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/** Time parse throughput, per token and of timestamp heavy CSV files */
+public class ParseTimeBench extends TestUtil {
+  @BeforeClass static public void setup() { stall_till_cloudsize(1); }
+
+  private static final String[] FORMATS = {"%1$04d-%2$02d-%3$02d %4$02d:%5$02d:%6$02d.%7$03d",
+      "%2$d/%3$d/%1$04d %4$02d:%5$02d:%6$02d", "%1$04d-%2$02d-%3$02dT%4$02d:%5$02d:%6$02d.%7$03dZ",
+      "%3$02d.%2$02d.%1$04d %4$02d:%5$02d:%6$02d"};
+
+  private static String time( Random rnd, String fmt ) {
+    return String.format(fmt, 1990 + rnd.nextInt(30), 1 + rnd.nextInt(12), 1 + rnd.nextInt(28),
+        rnd.nextInt(24), rnd.nextInt(60), rnd.nextInt(60), rnd.nextInt(1000));
+  }
+
+  // A ByteVec of CSV text with a column of times in each format, in default sized chunks
+  private static Key makeCsv( int nrows, long seed ) {
+    Random rnd = new Random(seed);
+    ArrayList<String> chunks = new ArrayList<>();
+    StringBuilder sb = new StringBuilder();
+    for( int c=0; c<FORMATS.length; c++ ) sb.append(c == 0 ? "" : ",").append("T").append(c);
+    sb.append('\n');
+    for( int r=0; r<nrows; r++ ) {
+      for( int c=0; c<FORMATS.length; c++ )
+        sb.append(c == 0 ? "" : ",").append(time(rnd, FORMATS[c]));
+      sb.append('\n');
+      if( sb.length() > FileVec.DFLT_CHUNK_SIZE ) {
+        chunks.add(sb.toString());
+        sb.setLength(0);
+      }
+    }
+    if( sb.length() > 0 ) chunks.add(sb.toString());
+    return ParserTest.makeByteVec(chunks.toArray(new String[chunks.size()]));
+  }
+
+  @Ignore @Test public void runTokenBench() {
+    Random rnd = new Random(42);
+    for( String fmt : FORMATS ) {
+      BufferedString[] strs = new BufferedString[100000];
+      for( int i=0; i<strs.length; i++ ) strs[i] = new BufferedString(time(rnd, fmt));
+      for( int i=0; i<6; i++ ) {
+        boolean cached = (i & 1) == 1;
+        byte[] formats = cached ? new byte[1] : null;
+        long sum = 0, t0 = System.nanoTime();
+        for( BufferedString str : strs ) sum += ParseTime.attemptTimeParse(str, formats, 0);
+        long t = Math.max(1, System.nanoTime() - t0);
+        System.out.println(fmt + (cached ? " column format: " : " every format: ") +
+            (strs.length * 1000000000L / t) + " times/s (" + sum % 10 + ")");
+      }
+    }
+  }
+
+  @Ignore @Test public void runParseBench() {
+    for( int i=0; i<3; i++ ) {
+      Key k = makeCsv(2000000, 42);
+      long bytes = ((ByteVec)DKV.getGet(k)).length();
+      long t0 = System.currentTimeMillis();
+      Frame fr = ParseDataset.parse(Key.make(), k);
+      long t = Math.max(1, System.currentTimeMillis() - t0);
+      System.out.println("times: " + fr.numRows() + " rows, " + (bytes / 1000 / t) + " MB/s (" + t + "ms)");
+      fr.delete();
+    }
+  }
+}
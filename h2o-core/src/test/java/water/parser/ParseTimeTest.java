@@ -2,6 +2,7 @@ package water.parser;
 
 import org.junit.*;
 
+import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 
 import water.Key;
@@ -290,4 +291,58 @@ public class ParseTimeTest extends TestUtil {
       Assert.assertEquals(exp[i],vec.at8(i));
     fr.delete();
   }
+
+  @Test public void testIsoAndDottedDates() {
+    DateTimeZone localTZ = DateTimeZone.getDefault();
+    String data = "Iso,Dotted\n"+
+      "2014-01-23T10:11:12Z,23.01.2014\n"+
+      "2014-01-23T10:11:12.5+01:00,24.1.2014 10:11:12\n"+
+      "2014-01-23T10:11:12.123456-0530,\"23.01.2014\"\n"+
+      "2014-01-23T10:11,01.12.1999 \n";
+    Key k1 = ParserTest.makeByteVec(data);
+    Frame fr = ParseDataset.parse(Key.make("r1"), k1);
+    try {
+      Assert.assertTrue(fr.vec("Iso").get_type_str().equals("Time"));
+      Assert.assertTrue(fr.vec("Dotted").get_type_str().equals("Time"));
+      long utc = new DateTime(2014,1,23,10,11,12,DateTimeZone.UTC).getMillis();
+      long[] iso = new long[] {
+        utc,
+        utc + 500 - 3600000L,
+        utc + 123 + 5*3600000L + 30*60000L,
+        new DateTime(2014,1,23,10,11,0,localTZ).getMillis(), // No zone: local time
+      };
+      long[] dotted = new long[] {
+        new DateTime(2014,1,23,0,0,0,localTZ).getMillis(),
+        new DateTime(2014,1,24,10,11,12,localTZ).getMillis(),
+        new DateTime(2014,1,23,0,0,0,localTZ).getMillis(),
+        new DateTime(1999,12,1,0,0,0,localTZ).getMillis(),
+      };
+      for (int i=0; i < iso.length; i++ ) {
+        Assert.assertEquals(iso[i], fr.vec("Iso").at8(i));
+        Assert.assertEquals(dotted[i], fr.vec("Dotted").at8(i));
+      }
+    } finally {
+      fr.delete();
+    }
+    // Not times: bad zones, and dotted times with 2-digit years stay times of day
+    for (String s : new String[]{"2014-01-23T10:11:12+", "2014-01-23T10:11:12+01:", "2014-01-23T25:11", "23.13.2014", "23.01.20145"})
+      Assert.assertEquals(s, Long.MIN_VALUE, ParseTime.attemptTimeParse(new BufferedString(s)));
+    Assert.assertEquals(12*3600000L + 3*60000L + 20000L, ParseTime.attemptTimeParse(new BufferedString("12.03.20")));
+  }
+
+  // The last format of a column is tried first, and must never change a parse
+  @Test public void testCachedFormat() {
+    String[] data = new String[] {
+      "2014-1-23", "12Jun10:10:00:00", "14-JAN", "10:36:2.0", "1/23/2014", "2014-01-23T10:11:12Z",
+      "23.01.2014", "24-MAR-14 06.10.48.000000000PM", "not a time", "2014-02-30", "3/2/10 10:00:00 PM",
+    };
+    byte[] formats = new byte[2];
+    for (int i = 0; i < 5*data.length; i++) {
+      BufferedString str = new BufferedString(data[(i*7) % data.length]);
+      long t = ParseTime.attemptTimeParse(str);
+      Assert.assertEquals(str.toString(), t, ParseTime.attemptTimeParse(str, formats, 1));
+      Assert.assertEquals(str.toString(), t, ParseTime.attemptTimeParse(str, formats, 1)); // Again with its own format
+      Assert.assertEquals(t == Long.MIN_VALUE, ParseTime.attemptTimeParse(str, formats, 0) == Long.MIN_VALUE);
+    }
+  }
 }
@@ -19,7 +19,7 @@ public class ParserServiceTest extends TestUtil {
 
   // A list of REGISTERED core provider names in the expected order based on priorities.
   // Warning: The order is fixed in the test to detect any changes in the code!!!
-  private static final String[] CORE_PROVIDER_NAMES = { "GUESS", "ARFF", "XLS", "SVMLight", "CSV"};
+  private static final String[] CORE_PROVIDER_NAMES = { "GUESS", "ARFF", "XLS", "XLSX", "SVMLight", "CSV"};
 
   @Test
   public void testVerifyCoreProvidersInCaller() {
@@ -0,0 +1,139 @@
+package water.parser;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import water.*;
+import water.fvec.ByteVec;
+import water.fvec.C1NChunk;
+import water.fvec.Frame;
+import water.fvec.Vec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+import static water.parser.DefaultParserProviders.XLSX_INFO;
+
+public class XlsxParserTest extends TestUtil {
+  @BeforeClass static public void setup() { stall_till_cloudsize(1); }
+
+  private static final String NS = "xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"";
+
+  // A workbook with its sheet zipped before the shared strings, as some writers do
+  private static byte[] workbook( String sheetData, String... shared ) throws IOException {
+    StringBuilder sst = new StringBuilder("<sst " + NS + " count=\"" + shared.length + "\">");
+    for( String s : shared ) sst.append("<si><t>").append(s).append("</t></si>");
+    sst.append("</sst>");
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    ZipOutputStream zos = new ZipOutputStream(bos);
+    put(zos, "[Content_Types].xml", "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\"/>");
+    put(zos, "xl/workbook.xml", "<workbook " + NS + " xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\">" +
+        "<sheets><sheet name=\"data\" sheetId=\"1\" r:id=\"rId3\"/><sheet name=\"other\" sheetId=\"2\" r:id=\"rId1\"/></sheets></workbook>");
+    put(zos, "xl/_rels/workbook.xml.rels", "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">" +
+        "<Relationship Id=\"rId1\" Target=\"worksheets/sheet1.xml\"/><Relationship Id=\"rId3\" Target=\"worksheets/sheet2.xml\"/></Relationships>");
+    put(zos, "xl/worksheets/sheet1.xml", "<worksheet " + NS + "><sheetData><row r=\"1\"><c r=\"A1\"><v>42</v></c></row></sheetData></worksheet>");
+    put(zos, "xl/worksheets/sheet2.xml", "<worksheet " + NS + "><sheetData>" + sheetData + "</sheetData></worksheet>");
+    put(zos, "xl/sharedStrings.xml", sst.toString());
+    zos.close();
+    return bos.toByteArray();
+  }
+
+  private static void put( ZipOutputStream zos, String name, String xml ) throws IOException {
+    zos.putNextEntry(new ZipEntry(name));
+    zos.write(("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>" + xml).getBytes("UTF-8"));
+    zos.closeEntry();
+  }
+
+  // The bytes as a ByteVec of several chunks
+  private static Key makeByteVec( byte[] bits, int nchunks ) {
+    Futures fs = new Futures();
+    long[] espc = new long[nchunks + 1];
+    for( int i = 1; i <= nchunks; i++ ) espc[i] = (long) bits.length * i / nchunks;
+    Key k = Vec.newKey();
+    ByteVec bv = new ByteVec(k, Vec.ESPC.rowLayout(k, espc));
+    DKV.put(k, bv, fs);
+    for( int i = 0; i < nchunks; i++ ) {
+      Key ck = bv.chunkKey(i);
+      DKV.put(ck, new Value(ck, new C1NChunk(Arrays.copyOfRange(bits, (int) espc[i], (int) espc[i + 1]))), fs);
+    }
+    fs.blockForPending();
+    return k;
+  }
+
+  private static String row( int r, String... cells ) {
+    StringBuilder sb = new StringBuilder("<row r=\"" + r + "\">");
+    for( String c : cells ) sb.append(c);
+    return sb.append("</row>").toString();
+  }
+
+  @Test public void testParse() throws IOException {
+    StringBuilder sd = new StringBuilder();
+    sd.append(row(1, "<c r=\"A1\" t=\"s\"><v>0</v></c>", "<c r=\"B1\" t=\"s\"><v>1</v></c>",
+        "<c r=\"C1\" t=\"inlineStr\"><is><t>flag</t></is></c>", "<c r=\"D1\" t=\"s\"><v>2</v></c>"));
+    for( int r = 2; r <= 301; r++ ) {
+      int i = r - 2;
+      sd.append(row(r,
+          "<c r=\"A" + r + "\"><v>" + (i * 0.5) + "</v></c>",
+          i % 10 == 0 ? "" : "<c r=\"B" + r + "\" t=\"s\"><v>" + (3 + i % 3) + "</v></c>",  // Gaps are missing
+          "<c r=\"C" + r + "\" t=\"b\"><v>" + (i % 2) + "</v></c>",
+          i % 7 == 0 ? "<c r=\"D" + r + "\" t=\"e\"><v>#N/A</v></c>" : "<c r=\"D" + r + "\" t=\"inlineStr\"><is><t>c" + (i % 4) + "</t></is></c>"));
+    }
+    sd.append("<row r=\"302\"/>");    // Empty rows are dropped
+    byte[] bits = workbook(sd.toString(), "x", "level", "kind", "l&amp;a", "lb", "lc");
+    assertTrue(XlsxParser.isXlsx(bits));
+    assertEquals(ZipUtil.Compression.NONE, ZipUtil.guessCompressionMethod(bits));
+
+    Key k = makeByteVec(bits, 3);
+    Frame fr = null;
+    try {
+      ParseSetup ps = ParseSetup.guessSetup(new Key[]{k}, false, ParseSetup.GUESS_HEADER);
+      assertEquals(XLSX_INFO, ps._parse_type);
+      assertEquals(ParseSetup.HAS_HEADER, ps._check_header);
+      assertArrayEquals(new String[]{"x", "level", "flag", "kind"}, ps._column_names);
+      assertArrayEquals(new byte[]{Vec.T_NUM, Vec.T_CAT, Vec.T_NUM, Vec.T_CAT}, ps._column_types);
+
+      fr = ParseDataset.parse(Key.make(), new Key[]{k}, true, ps);
+      assertEquals(300, fr.numRows());
+      assertArrayEquals(new String[]{"x", "level", "flag", "kind"}, fr.names());
+      assertArrayEquals(new String[]{"l&a", "lb", "lc"}, fr.vec("level").domain());
+      assertArrayEquals(new String[]{"c0", "c1", "c2", "c3"}, fr.vec("kind").domain());
+      for( int i = 0; i < 300; i++ ) {
+        assertEquals(i * 0.5, fr.vec("x").at(i), 0);
+        assertEquals(i % 10 == 0, fr.vec("level").isNA(i));
+        if( i % 10 != 0 ) assertEquals(i % 3, fr.vec("level").at8(i));
+        assertEquals(i % 2, fr.vec("flag").at8(i));
+        assertEquals(i % 7 == 0, fr.vec("kind").isNA(i));
+        if( i % 7 != 0 ) assertEquals("c" + (i % 4), fr.vec("kind").domain()[(int) fr.vec("kind").at8(i)]);
+      }
+    } finally {
+      if( fr != null ) fr.delete();
+      else DKV.remove(k);
+    }
+  }
+
+  @Test public void testNoHeaderAndRaggedRows() throws IOException {
+    String sd = row(1, "<c r=\"A1\"><v>1</v></c>", "<c r=\"C1\"><v>3</v></c>") +
+        row(2, "<c r=\"B2\"><v>5</v></c>") +
+        row(3, "<c r=\"A3\"><v>7</v></c>", "<c r=\"B3\"><v>8.5</v></c>", "<c r=\"C3\"><v>9</v></c>");
+    Key k = makeByteVec(workbook(sd), 1);
+    Frame fr = null;
+    try {
+      fr = ParseDataset.parse(Key.make(), k);
+      assertEquals(3, fr.numCols());
+      assertEquals(3, fr.numRows());
+      assertEquals(1, fr.vec(0).at8(0));
+      assertTrue(fr.vec(0).isNA(1));
+      assertTrue(fr.vec(1).isNA(0));
+      assertEquals(5, fr.vec(1).at8(1));
+      assertEquals(8.5, fr.vec(1).at(2), 0);
+      assertEquals(3, fr.vec(2).at8(0));
+      assertTrue(fr.vec(2).isNA(1));
+    } finally {
+      if( fr != null ) fr.delete();
+      else DKV.remove(k);
+    }
+  }
+}
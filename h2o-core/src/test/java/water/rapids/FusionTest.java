@@ -0,0 +1,66 @@
+package water.rapids;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import water.Key;
+import water.TestUtil;
+import water.fvec.Frame;
+
+public class FusionTest extends TestUtil {
+  @BeforeClass public static void setup() { stall_till_cloudsize(1); }
+
+  private static Val exec(String rapids, boolean fusion) {
+    Session ses = new Session().setFusion(fusion);
+    try {
+      return ses.end(ses.exec(Rapids.parse(rapids), null));
+    } catch (Throwable ex) {
+      throw ses.endQuietly(ex);
+    }
+  }
+
+  // Fused evaluation must give the same Frame as the eager one
+  private static void checkSame(String rapids) {
+    Frame eager = null, fused = null;
+    try {
+      eager = exec(rapids, false).getFrame();
+      fused = exec(rapids, true).getFrame();
+      Assert.assertArrayEquals(rapids, eager.names(), fused.names());
+      Assert.assertTrue(rapids, isBitIdentical(eager, fused));
+    } finally {
+      if (eager != null) eager.remove();
+      if (fused != null) fused.remove();
+    }
+  }
+
+  private static Frame makeFrame(String key) {
+    return randomFrame(Key.<Frame>make(key), 10000, 3, 0.0, 0.3, 0.1, 100, 0, 1234);
+  }
+
+  @Test public void testFusedSameAsEager() {
+    Frame fr = makeFrame("fuse.hex");
+    try {
+      checkSame("(- (* (log (+ (cols fuse.hex [0]) 1)) (cols fuse.hex [1])) (ifelse (> (cols fuse.hex [2]) 0) (cols fuse.hex [2]) 0))");
+      checkSame("(+ (* fuse.hex 2) (sqrt (abs fuse.hex)))");
+      checkSame("(/ (- fuse.hex (cols fuse.hex [0])) 3)");   // 1-column widening
+      checkSame("(* (cols fuse.hex [1]) (- 1 fuse.hex))");
+      checkSame("(== (+ fuse.hex 1) 1)");
+      checkSame("(ifelse (< fuse.hex 0) (- 0 fuse.hex) fuse.hex)");
+      checkSame("(+ (- fuse.hex (rows fuse.hex [0])) 1)");    // 1-row broadcast, falls back to eager
+    } finally {
+      fr.delete();
+    }
+  }
+
+  @Test public void testExplain() {
+    Frame fr = makeFrame("explain.hex");
+    try {
+      String plan = exec("(explain (sum (- (* (log (+ explain.hex 1)) 2) (ifelse (> explain.hex 0) explain.hex 0))))", true).getStr();
+      Assert.assertTrue(plan, plan.startsWith("Materialize: (sum "));
+      Assert.assertTrue(plan, plan.contains("Fused[6 ops, 1 inputs]"));
+      Assert.assertTrue(plan, plan.contains("Value: explain.hex"));
+    } finally {
+      fr.delete();
+    }
+  }
+}
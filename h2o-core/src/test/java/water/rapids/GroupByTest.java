@@ -1,5 +1,6 @@
 package water.rapids;
 
+import hex.CreateFrame;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -235,6 +236,86 @@ public class GroupByTest extends TestUtil {
   }    
 
 
+  // Integral keys take the primitive hash path; adding a mode aggregate forces
+  // the generic one.  Both must agree.
+  @Test public void testPrimitiveKeys() {
+    CreateFrame cf = new CreateFrame(Key.<Frame>make("hex"));
+    cf.rows = 20000;
+    cf.cols = 6;
+    cf.categorical_fraction = 0.5;
+    cf.integer_fraction = 0.5;
+    cf.binary_fraction = 0;
+    cf.time_fraction = 0;
+    cf.string_fraction = 0;
+    cf.missing_fraction = 0.05;
+    cf.factors = 7;
+    cf.integer_range = 20;
+    cf.seed = 4321;
+    Frame fr = cf.execImpl().get();
+    Frame hash = null, generic = null;
+    try {
+      int cat = -1, num = -1, num2 = -1;
+      for( int i=0; i<fr.numCols(); i++ )
+        if( fr.vec(i).isCategorical() ) cat = i;
+        else if( num == -1 ) num = i;
+        else num2 = i;
+      String aggs = " nrow "+num+" \"all\" sum "+num+" \"rm\" mean "+num2+" \"ignore\" var "+num2+" \"rm\" \"sdev\" "+num+" \"all\" min "+num+" \"rm\" max "+num2+" \"all\"";
+      hash = Rapids.exec("(GB hex ["+cat+" "+num+"]"+aggs+")").getFrame();
+      generic = Rapids.exec("(GB hex ["+cat+" "+num+"]"+aggs+" mode "+cat+" \"all\")").getFrame();
+      Assert.assertTrue(hash.numRows() > 100);
+      Assert.assertEquals(generic.numCols()-1, hash.numCols());
+      for( int i=0; i<hash.numCols(); i++ ) {
+        Assert.assertEquals(generic.name(i), hash.name(i));
+        Assert.assertArrayEquals(generic.vec(i).domain(), hash.vec(i).domain());
+        assertVecEquals(generic.vec(i), hash.vec(i), 1e-8);
+      }
+    } finally {
+      fr.delete();
+      if( hash != null ) hash.delete();
+      if( generic != null ) generic.delete();
+    }
+  }
+
+  // Sorted and hashed group-bys must agree on nearly unique keys
+  @Test public void testSortedGroups() {
+    CreateFrame cf = new CreateFrame(Key.<Frame>make("hex"));
+    cf.rows = 20000;
+    cf.cols = 4;
+    cf.categorical_fraction = 0.25;
+    cf.integer_fraction = 0.75;
+    cf.binary_fraction = 0;
+    cf.time_fraction = 0;
+    cf.string_fraction = 0;
+    cf.missing_fraction = 0.02;
+    cf.factors = 5;
+    cf.integer_range = 100000;
+    cf.seed = 1234;
+    Frame fr = cf.execImpl().get();
+    Frame sorted = null, hashed = null;
+    try {
+      int cat = -1, num = -1, num2 = -1;
+      for( int i=0; i<fr.numCols(); i++ )
+        if( fr.vec(i).isCategorical() ) cat = i;
+        else if( num == -1 ) num = i;
+        else num2 = i;
+      String tree = "(GB hex ["+cat+" "+num+"] nrow "+num2+" \"all\" mean "+num2+" \"rm\" var "+num2+" \"ignore\" max "+cat+" \"all\")";
+      System.setProperty(SORT_PROPERTY, "true");
+      sorted = Rapids.exec(tree).getFrame();
+      System.setProperty(SORT_PROPERTY, "false");
+      hashed = Rapids.exec(tree).getFrame();
+      Assert.assertTrue(hashed.numRows() > 10000);
+      Assert.assertEquals(hashed.numRows(), sorted.numRows());
+      for( int i=0; i<hashed.numCols(); i++ )
+        assertVecEquals(hashed.vec(i), sorted.vec(i), 1e-8);
+    } finally {
+      System.clearProperty(SORT_PROPERTY);
+      fr.delete();
+      if( sorted != null ) sorted.delete();
+      if( hashed != null ) hashed.delete();
+    }
+  }
+  private static final String SORT_PROPERTY = "sys.ai.h2o.rapids.groupby.sort";
+
   private void chkDim( Frame fr, int col, int row ) {
     Assert.assertEquals(col,fr.numCols());
     Assert.assertEquals(row,fr.numRows());
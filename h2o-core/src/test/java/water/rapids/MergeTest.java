@@ -0,0 +1,160 @@
+package water.rapids;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import water.*;
+import water.fvec.*;
+import water.parser.BufferedString;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class MergeTest extends TestUtil {
+  @BeforeClass public static void setup() { stall_till_cloudsize(1); }
+
+  // Left: int key k1, categorical key k2 over a..d, number x
+  private static Frame leftFrame( long nrows ) {
+    Vec seq = Vec.makeSeq(0, nrows, true);
+    try {
+      Frame fr = new MRTask() {
+        @Override public void map( Chunk cs[], NewChunk ncs[] ) {
+          for( int i=0; i<cs[0]._len; i++ ) {
+            long row = cs[0].at8(i);
+            ncs[0].addNum(row % 50);
+            ncs[1].addNum((row / 50) % 4);
+            ncs[2].addNum(row / 2.0);
+          }
+        }
+      }.doAll(new byte[]{Vec.T_NUM, Vec.T_CAT, Vec.T_NUM}, seq)
+       .outputFrame(Key.<Frame>make("left.hex"), new String[]{"k1", "k2", "x"}, new String[][]{null, {"a", "b", "c", "d"}, null});
+      DKV.put(fr);
+      return fr;
+    } finally {
+      seq.remove();
+    }
+  }
+
+  // Right: the same keys, k2 over another domain, every pair 10 times, some
+  // matching nothing; number y and string s with NAs
+  private static Frame rightFrame( long nrows ) {
+    Vec seq = Vec.makeSeq(0, nrows, true);
+    try {
+      Frame fr = new MRTask() {
+        @Override public void map( Chunk cs[], NewChunk ncs[] ) {
+          for( int i=0; i<cs[0]._len; i++ ) {
+            long row = cs[0].at8(i);
+            ncs[0].addNum(row % 60);
+            ncs[1].addNum(row % 4);
+            ncs[2].addNum(row);
+            if( row % 7 == 0 ) ncs[3].addNA(); else ncs[3].addStr("s" + row);
+          }
+        }
+      }.doAll(new byte[]{Vec.T_NUM, Vec.T_CAT, Vec.T_NUM, Vec.T_STR}, seq)
+       .outputFrame(Key.<Frame>make("right.hex"), new String[]{"k1", "k2", "y", "s"}, new String[][]{null, {"e", "d", "c", "b"}, null, null});
+      DKV.put(fr);
+      return fr;
+    } finally {
+      seq.remove();
+    }
+  }
+
+  // Rows as text, by column name, in sorted order
+  private static String[] rows( Frame fr ) {
+    String[] names = fr.names().clone();
+    Arrays.sort(names);
+    String[] rows = new String[(int)fr.numRows()];
+    BufferedString tmp = new BufferedString();
+    for( int r=0; r<rows.length; r++ ) {
+      StringBuilder sb = new StringBuilder();
+      for( String name : names ) {
+        Vec v = fr.vec(name);
+        if( v.isNA(r) ) sb.append("NA");
+        else if( v.isCategorical() ) sb.append(v.domain()[(int)v.at8(r)]);
+        else if( v.isString() ) sb.append(v.atStr(tmp, r));
+        else sb.append(v.at(r));
+        sb.append(',');
+      }
+      rows[r] = sb.toString();
+    }
+    Arrays.sort(rows);
+    return rows;
+  }
+
+  private static Frame merge( Frame l, Frame r, int allLeft, int allRite, String method ) {
+    return Rapids.exec(String.format("(merge %s %s %d %d [] [] \"%s\")", l._key, r._key, allLeft, allRite, method)).getFrame();
+  }
+
+  @Test public void testBroadcastJoin() {
+    Frame l = null, r = null, rnum = null;
+    try {
+      l = leftFrame(20000);
+      r = rightFrame(600);
+      assertTrue(r.anyVec().nChunks() > 1);
+      // Radix joins keep all matches, but take no strings
+      rnum = new Frame(Key.<Frame>make("right_num.hex"), new String[]{"k1", "k2", "y"}, r.vecs(new int[]{0, 1, 2}));
+      DKV.put(rnum);
+      for( int allLeft = 0; allLeft <= 1; allLeft++ ) {
+        Frame expected = null, actual = null;
+        try {
+          expected = merge(l, rnum, allLeft, 0, "radix");
+          actual = merge(l, rnum, allLeft, 0, "broadcast");
+          assertEquals(allLeft == 0 ? 37000 : 53300, actual.numRows());
+          assertArrayEquals("all_left=" + allLeft, rows(expected), rows(actual));
+        } finally {
+          if( expected != null ) expected.delete();
+          if( actual != null ) actual.delete();
+        }
+      }
+    } finally {
+      if( rnum != null ) DKV.remove(rnum._key);
+      if( l != null ) l.delete();
+      if( r != null ) r.delete();
+    }
+  }
+
+  @Test public void testBroadcastOuterJoin() {
+    Frame l = null, r = null, left = null, outer = null;
+    try {
+      l = leftFrame(20000);
+      r = rightFrame(600);
+      left = merge(l, r, 1, 0, "broadcast");
+      outer = merge(l, r, 1, 1, "broadcast");
+      // The left join, then right rows matching nothing: k1 past 49 or k2 "e"
+      String[] leftRows = rows(left);
+      String[] expected = Arrays.copyOf(leftRows, (int)outer.numRows());
+      int n = leftRows.length;
+      String[] k2 = {"e", "d", "c", "b"};
+      for( int row=0; row<600; row++ )
+        if( row % 60 >= 50 || row % 4 == 0 )
+          expected[n++] = (double)(row % 60) + "," + k2[row % 4] + "," + (row % 7 == 0 ? "NA" : "s" + row) + ",NA," + (double)row + ",";
+      assertEquals(expected.length, n);
+      Arrays.sort(expected);
+      assertArrayEquals(expected, rows(outer));
+      // Right levels missing on the left are appended to the key domain
+      assertArrayEquals(new String[]{"a", "b", "c", "d", "e"}, outer.vec("k2").domain());
+    } finally {
+      if( outer != null ) outer.delete();
+      if( left != null ) left.delete();
+      if( l != null ) l.delete();
+      if( r != null ) r.delete();
+    }
+  }
+
+  @Test public void testBroadcastJoinNAKeys() {
+    Frame l = null, r = null, res = null;
+    try {
+      l = new Frame(Key.<Frame>make("left.hex"), new String[]{"k", "x"}, new Vec[]{Vec.makeVec(new double[]{1, Double.NaN, 3, 4}, Vec.newKey()), vec(10, 20, 30, 40)});
+      DKV.put(l);
+      r = new Frame(Key.<Frame>make("right.hex"), new String[]{"k", "y"}, new Vec[]{Vec.makeVec(new double[]{1, Double.NaN, 5}, Vec.newKey()), vec(100, 200, 500)});
+      DKV.put(r);
+      res = merge(l, r, 1, 1, "broadcast");
+      // NA matches NA, as in the radix merge
+      assertArrayEquals(new String[]{"1.0,10.0,100.0,", "3.0,30.0,NA,", "4.0,40.0,NA,", "5.0,NA,500.0,", "NA,20.0,200.0,"}, rows(res));
+    } finally {
+      if( res != null ) res.delete();
+      if( l != null ) l.delete();
+      if( r != null ) r.delete();
+    }
+  }
+}
@@ -334,6 +334,34 @@ public class RapidsTest extends TestUtil {
     }
   }
 
+  @Test public void testExactQuantile() {
+    int n = 20001;              // More rows than the sketch keeps centroids
+    double[][] rows = new double[n][];
+    double[] sorted = new double[n];
+    java.util.Random rng = new java.util.Random(4242);
+    for( int i=0; i<n; i++ ) rows[i] = ard(sorted[i] = Math.exp(10 * rng.nextGaussian()));
+    Arrays.sort(sorted);
+    Frame fr = ArrayUtils.frame(rows), q = null;
+    try {
+      q = execExact(String.format("(quantile %s [0.37 0.5] \"interpolate\" _)", fr._key)).getFrame();
+      Assert.assertEquals(sorted[7400], q.vec(1).at(0), 0);
+      Assert.assertEquals(sorted[10000], q.vec(1).at(1), 0);
+      Assert.assertEquals(sorted[10000], execExact(String.format("(median %s 1)", fr._key)).getNum(), 0);
+    } finally {
+      fr.delete();
+      if( q != null ) q.delete();
+    }
+  }
+
+  private static Val execExact( String str ) {
+    Session ses = new Session().setExactQuantiles(true);
+    try {
+      return ses.end(ses.exec(Rapids.parse(str), null));
+    } catch( Throwable ex ) {
+      throw ses.endQuietly(ex);
+    }
+  }
+
   static void exec_str( String str, Session ses ) {
     Val val = Rapids.exec(str,ses);
     switch( val.type() ) {
@@ -0,0 +1,144 @@
+package water.rapids;
+
+import hex.CreateFrame;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import water.DKV;
+import water.Key;
+import water.MRTask;
+import water.TestUtil;
+import water.fvec.Chunk;
+import water.fvec.Frame;
+import water.rapids.ast.AstRoot;
+import water.rapids.vals.ValNums;
+
+public class ResultCacheTest extends TestUtil {
+  @BeforeClass public static void setup() { stall_till_cloudsize(1); }
+
+  private static Frame makeFrame(String key) {
+    CreateFrame cf = new CreateFrame(Key.<Frame>make(key));
+    cf.rows = 10000;
+    cf.cols = 2;
+    cf.categorical_fraction = 0.0;
+    cf.integer_fraction = 0.5;
+    cf.binary_fraction = 0.0;
+    cf.time_fraction = 0.0;
+    cf.string_fraction = 0.0;
+    cf.missing_fraction = 0.0;
+    cf.seed = 1234;
+    return cf.execImpl().get();
+  }
+
+  private static Frame tmp(String id) { return DKV.getGet(id); }
+
+  @Test public void testCache() {
+    Frame fr = makeFrame("cache.hex");
+    Session ses = new Session().setCache(true);
+    ResultCache cache = ses.cache();
+    try {
+      Rapids.exec("(tmp= py_1 (* cache.hex 2))", ses);
+      Rapids.exec("(tmp= py_2 (* cache.hex 2))", ses);
+      Assert.assertEquals(1, cache.hits());
+      Assert.assertEquals(1, cache.size());
+      Assert.assertSame(tmp("py_1").vec(0), tmp("py_2").vec(0));
+      Assert.assertEquals(2 * fr.vec(1).at(5), tmp("py_2").vec(1).at(5), 0);
+
+      // Column slices are not worth caching; reductions are
+      Rapids.exec("(tmp= py_3 (cols cache.hex [0]))", ses);
+      Assert.assertEquals(1, cache.size());
+      double sum = Rapids.exec("(sum (* cache.hex 2))", ses).getNum();
+      Assert.assertEquals(sum, Rapids.exec("(sum (* cache.hex 2))", ses).getNum(), 0);
+      Assert.assertEquals(3, cache.hits());   // Once (* cache.hex 2) and once (sum ...)
+
+      // Copy-On-Write keeps the cached Vecs intact
+      Rapids.exec("(tmp= py_4 (:= py_2 0 [0] []))", ses);
+      Assert.assertEquals(0, tmp("py_4").vec(0).at(5), 0);
+      Assert.assertEquals(2 * fr.vec(0).at(5), tmp("py_1").vec(0).at(5), 0);
+      Rapids.exec("(tmp= py_5 (* cache.hex 2))", ses);
+      Assert.assertEquals(2 * fr.vec(0).at(5), tmp("py_5").vec(0).at(5), 0);
+      Assert.assertEquals(4, cache.hits());
+
+      // Writing into an input recomputes
+      new MRTask() {
+        @Override public void map(Chunk c) {
+          for (int i = 0; i < c._len; i++) c.set(i, c.atd(i) + 1);
+        }
+      }.doAll(fr.vec(0));
+      long misses = cache.misses();
+      Rapids.exec("(tmp= py_6 (* cache.hex 2))", ses);
+      Assert.assertEquals(misses + 1, cache.misses());
+      Assert.assertEquals(2 * fr.vec(0).at(5), tmp("py_6").vec(0).at(5), 0);
+
+      // In-place updates drop everything
+      Rapids.exec("(tmp= py_7 (scale py_6 1 1))", ses);
+      Assert.assertEquals(0, cache.size());
+      Assert.assertEquals(0, cache.bytes());
+      ses.end(null);
+    } catch (Throwable ex) {
+      throw ses.endQuietly(ex);
+    } finally {
+      fr.delete();
+    }
+  }
+
+  @Test public void testEviction() {
+    Frame fr = makeFrame("evict.hex");
+    Session ses = new Session();
+    ResultCache cache = new ResultCache(ses, 3 * (64 + 8 * 2 * fr.numRows()));   // Room for 3 results
+    ses.setCache(cache);
+    try {
+      for (int i = 1; i <= 3; i++)
+        Rapids.exec("(tmp= py_" + i + " (+ evict.hex " + i + "))", ses);
+      Rapids.exec("(tmp= py_11 (+ evict.hex 1))", ses);
+      Assert.assertEquals(1, cache.hits());
+      for (int i = 4; i <= 5; i++)
+        Rapids.exec("(tmp= py_" + i + " (+ evict.hex " + i + "))", ses);
+      Assert.assertEquals(3, cache.size());
+      Assert.assertEquals(2, cache.evictions());
+      Rapids.exec("(tmp= py_12 (+ evict.hex 1))", ses);  // Recently used, kept
+      Assert.assertEquals(2, cache.hits());
+      Rapids.exec("(tmp= py_13 (+ evict.hex 2))", ses);  // Least recently used, evicted
+      Assert.assertEquals(2, cache.hits());
+      // Evicted results live on in the frames handed out
+      Assert.assertEquals(fr.vec(0).at(7) + 2, tmp("py_2").vec(0).at(7), 0);
+      ses.end(null);
+    } catch (Throwable ex) {
+      throw ses.endQuietly(ex);
+    } finally {
+      fr.delete();
+    }
+  }
+
+  @Test public void testConcurrentAccess() throws InterruptedException {
+    Session ses = new Session();
+    final ResultCache cache = new ResultCache(ses, 100 * (64 + 8));   // Room for 100 results
+    ses.setCache(cache);
+    final AstRoot plus = AstRoot.PRIMS.get("+");
+    final Throwable[] failed = new Throwable[1];
+    Thread[] threads = new Thread[8];
+    for (int t = 0; t < threads.length; t++) {
+      final int seed = t;
+      threads[t] = new Thread() {
+        @Override public void run() {
+          try {
+            Env env = new Env(null);
+            for (int i = 0; i < 10000; i++) {
+              String key = "k" + (i * (seed + 1)) % 300;
+              if (cache.get(key) == null) cache.put(env, key, plus, new ValNums(new double[]{i}));
+            }
+          } catch (Throwable ex) {
+            failed[0] = ex;
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread t : threads) t.join();
+    Assert.assertNull(failed[0]);
+    Assert.assertEquals(100, cache.size());
+    Assert.assertEquals(100 * (64 + 8), cache.bytes());
+    Assert.assertEquals(8 * 10000, cache.hits() + cache.misses());
+    ses.end(null);
+  }
+}
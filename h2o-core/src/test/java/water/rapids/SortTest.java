@@ -5,11 +5,14 @@ import org.junit.Test;
 import water.*;
 import water.fvec.*;
 import water.nbhm.NonBlockingHashMapLong;
+import water.parser.BufferedString;
 import water.rapids.vals.ValFrame;
 
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Random;
 
-import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.*;
 
 public class SortTest extends TestUtil {
   @BeforeClass public static void setup() { stall_till_cloudsize(1); }
@@ -68,6 +71,144 @@ public class SortTest extends TestUtil {
   }
 
 
+  // Fractional, string and descending keys: the sample sort
+  @Test public void testSortMixedKeys() {
+    Frame fr = null, mixed = null, res = null, top = null;
+    try {
+      fr = buildFrame(100,10);
+      mixed = mixedFrame(fr);
+      long nrows = mixed.numRows();
+      Long[] expect = sortedRows(mixed, nrows);
+
+      res = Rapids.exec("(sort mixed.hex [\"s\" \"d\"] [1 -1])").getFrame();
+      assertEquals(nrows, res.numRows());
+      for( long i=0; i<nrows; i++ )
+        assertEquals(expect[(int)i].longValue(), res.vec("row").at8(i));
+
+      top = Rapids.exec("(topn mixed.hex [\"s\" \"d\"] [1 -1] 100)").getFrame();
+      assertEquals(100, top.numRows());
+      assertArrayEquals(mixed.names(), top.names());
+      for( long i=0; i<100; i++ ) {
+        assertEquals(expect[(int)i].longValue(), top.vec("row").at8(i));
+        assertEquals(res.vec("s").isNA(i), top.vec("s").isNA(i));
+        assertEquals(res.vec("d").at(i), top.vec("d").at(i), 0);
+      }
+    } finally {
+      if( fr    != null ) fr   .delete();
+      if( mixed != null ) mixed.delete();
+      if( res   != null ) res  .delete();
+      if( top   != null ) top  .delete();
+    }
+  }
+
+  @Test public void testSortDescending() {
+    Frame fr = null, res = null, top = null;
+    try {
+      fr = buildFrame(1000,10);
+      res = Rapids.exec("(sort hex [0 1] [-1 -1])").getFrame();
+      top = Rapids.exec("(topn hex [0 1] [-1 -1] 10)").getFrame();
+      // Reversed keys sort ascending, with the row number still ascending
+      res.replace(0, new MRTask() {
+        @Override public void map( Chunk c, NewChunk nc ) { for( int i=0; i<c._len; i++ ) nc.addNum(-c.at8(i)); }
+      }.doAll(Vec.T_NUM, res.vec(0)).outputFrame().anyVec()).remove();
+      res.replace(1, new MRTask() {
+        @Override public void map( Chunk c, NewChunk nc ) { for( int i=0; i<c._len; i++ ) nc.addNum(-c.at8(i)); }
+      }.doAll(Vec.T_NUM, res.vec(1)).outputFrame().anyVec()).remove();
+      new CheckSort().doAll(res);
+      for( int i=0; i<10; i++ )
+        assertEquals(-res.vec(0).at8(i), top.vec(0).at8(i));
+    } finally {
+      if( fr  != null ) fr .delete();
+      if( res != null ) res.delete();
+      if( top != null ) top.delete();
+    }
+  }
+
+  @Test public void testSampleSortShipsAllColumns() {
+    Vec con = Vec.makeCon(0, 1000, 6, false);
+    Frame fr = null, res = null;
+    try {
+      // Strings and UUIDs only: the rows of a bucket carry no numeric column
+      fr = new MRTask() {
+        @Override public void map( Chunk cs[], NewChunk ncs[] ) {
+          for( int i=0; i<cs[0]._len; i++ ) {
+            long row = cs[0].start()+i;
+            if( row % 11 == 0 ) ncs[0].addNA(); else ncs[0].addStr("s" + (row * 7919) % 101);
+            if( row % 13 == 0 ) ncs[1].addUUID(C16Chunk._LO_NA, C16Chunk._HI_NA); else ncs[1].addUUID(row, -row);
+          }
+        }
+      }.doAll(new byte[]{Vec.T_STR, Vec.T_UUID}, con).outputFrame(new String[]{"s", "u"}, null);
+      SampleSort.Rows rows = new SampleSort.Rows(fr.vecs(), 5);
+      Chunk[] cs = new Chunk[]{fr.vec(0).chunkForChunkIdx(0), fr.vec(1).chunkForChunkIdx(0)};
+      for( int i=0; i<5; i++ ) rows.set(i, cs, i, new BufferedString());
+      SampleSort.Rows back = new AutoBuffer().put(rows).flipForReading().get();
+      assertArrayEquals(rows._rows, back._rows);
+      assertNull(back._ss[0][0]);
+      assertArrayEquals(rows._ss[0][1], back._ss[0][1]);
+      assertArrayEquals(rows._los[1], back._los[1]);
+      assertArrayEquals(rows._his[1], back._his[1]);
+
+      res = SampleSort.sort(fr, new int[]{0}, null);
+      assertEquals(fr.numRows(), res.numRows());
+      String prev = null;
+      for( long i=0; i<res.numRows(); i++ ) {
+        String str = res.vec(0).isNA(i) ? null : res.vec(0).atStr(new BufferedString(), i).toString();
+        if( prev != null ) assertTrue(str != null && prev.compareTo(str) <= 0);
+        prev = str;
+        // The UUID came along with its row
+        if( res.vec(1).isNA(i) ) continue;
+        long row = res.vec(1).at16l(i);
+        assertEquals(-row, res.vec(1).at16h(i));
+        assertEquals(row % 11 == 0 ? null : "s" + (row * 7919) % 101, str);
+      }
+    } finally {
+      con.remove();
+      if( fr  != null ) fr .remove();
+      if( res != null ) res.remove();
+    }
+  }
+
+  // Columns d: fractional with ties and NAs, s: string with NAs, row: row number
+  private static Frame mixedFrame( Frame fr ) {
+    Frame mixed = new MRTask() {
+      @Override public void map( Chunk cs[], NewChunk ncs[] ) {
+        for( int i=0; i<cs[0]._len; i++ ) {
+          long c0 = cs[0].at8(i), row = cs[2].at8(i);
+          if( row % 17 == 0 ) ncs[0].addNA(); else ncs[0].addNum(cs[1].at8(i) / 7.0);
+          if( row % 23 == 0 ) ncs[1].addNA(); else ncs[1].addStr("s" + c0 % 13);
+          ncs[2].addNum(row);
+        }
+      }
+    }.doAll(new byte[]{Vec.T_NUM, Vec.T_STR, Vec.T_NUM}, fr).outputFrame(Key.<Frame>make("mixed.hex"), new String[]{"d", "s", "row"}, null);
+    DKV.put(mixed);
+    return mixed;
+  }
+
+  // Row numbers by s ascending, d descending, NA first then last, stable
+  private static Long[] sortedRows( Frame mixed, long nrows ) {
+    final String[] s = new String[(int)nrows];
+    final double[] d = new double[(int)nrows];
+    Long[] rows = new Long[(int)nrows];
+    for( int i=0; i<nrows; i++ ) {
+      s[i] = mixed.vec("s").isNA(i) ? null : mixed.vec("s").atStr(new BufferedString(), i).toString();
+      d[i] = mixed.vec("d").at(i);
+      rows[i] = mixed.vec("row").at8(i);
+    }
+    final long[] idx = new long[(int)nrows];   // Row number to position
+    for( int i=0; i<nrows; i++ ) idx[(int)(long)rows[i]] = i;
+    Arrays.sort(rows, new Comparator<Long>() {
+      @Override public int compare( Long a, Long b ) {
+        int i = (int)idx[(int)(long)a], j = (int)idx[(int)(long)b];
+        if( s[i] == null || s[j] == null ) { if( s[i] != s[j] ) return s[i] == null ? -1 : 1; }
+        else if( !s[i].equals(s[j]) ) return s[i].compareTo(s[j]);
+        if( Double.isNaN(d[i]) || Double.isNaN(d[j]) ) { if( Double.isNaN(d[i]) != Double.isNaN(d[j]) ) return Double.isNaN(d[i]) ? 1 : -1; }
+        else if( d[i] != d[j] ) return Double.compare(d[j], d[i]);
+        return Integer.compare(i, j);
+      }
+    });
+    return rows;
+  }
+
   // Assert that result is indeed sorted - on all 3 columns, as this is a
   // stable sort.
   private class CheckSort extends MRTask<CheckSort> {
@@ -1,12 +1,16 @@
 package water.rapids;
 
+import hex.CreateFrame;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import water.Key;
 import water.Keyed;
 import water.TestUtil;
+import water.MRTask;
+import water.fvec.Chunk;
 import water.fvec.Frame;
+import water.fvec.Vec;
 import water.rapids.vals.ValFrame;
 
 public class TableTest extends TestUtil {
@@ -40,6 +44,61 @@ public class TableTest extends TestUtil {
   }
 
 
+  @Test public void testApprox() {
+    CreateFrame cf = new CreateFrame(Key.<Frame>make("hex"));
+    cf.rows = 100000;
+    cf.cols = 3;
+    cf.categorical_fraction = 0;
+    cf.integer_fraction = 1;
+    cf.binary_fraction = 0;
+    cf.time_fraction = 0;
+    cf.string_fraction = 0;
+    cf.missing_fraction = 0.1;
+    cf.integer_range = 100;
+    cf.seed = 1234;
+    Frame fr = cf.execImpl().get();
+    fr.replace(2, fr.vec(2).toCategoricalVec()).remove();
+    Frame res = null;
+    try {
+      double[] ds = Rapids.exec("(approx_nunique hex)").getNums();
+      for( int c=0; c<3; c++ )
+        Assert.assertEquals(201, ds[c], 10);
+      // Small integer ranges count distinct values exactly in the rollups...
+      Assert.assertEquals(201, fr.vec(1).nunique(), 0);
+      // ...which are reused once computed
+      Assert.assertEquals(201, Rapids.exec("(approx_nunique hex)").getNums()[1], 0);
+      Vec big = fr.vec(0).makeCopy();
+      new MRTask() {
+        @Override public void map(Chunk c) {
+          for( int i=0; i<c._len; i++ ) if( !c.isNA(i) ) c.set(i, c.start()+i);
+        }
+      }.doAll(big);
+      long nonNA = big.length() - big.naCnt();
+      double est = big.nunique();
+      Assert.assertEquals(nonNA, est, 0.05*nonNA);
+      // The estimate is kept with the rollups...
+      Assert.assertEquals(est, big.lazy_nunique(), 0);
+      Assert.assertEquals(est, big.nunique(), 0);
+      // ...until the Vec is written into
+      big.set(0, -1);
+      Assert.assertTrue(Double.isNaN(big.lazy_nunique()));
+      big.remove();
+
+      res = Rapids.exec("(approx_topk (cols_py hex 2) 5)").getFrame();
+      chkDim(res, 3, 5);
+      Assert.assertArrayEquals(fr.vec(2).domain(), res.vec(0).domain());
+      long[] bins = fr.vec(2).bins();
+      for( int i=0; i<5; i++ ) {
+        Assert.assertEquals(0, res.vec(2).at8(i));
+        Assert.assertEquals(bins[(int)res.vec(0).at8(i)], res.vec(1).at8(i));
+        if( i > 0 ) Assert.assertTrue(res.vec(1).at8(i) <= res.vec(1).at8(i-1));
+      }
+    } finally {
+      fr.delete();
+      if( res != null ) res.delete();
+    }
+  }
+
   private void chkDim( Frame fr, int col, int row ) {
     Assert.assertEquals(col,fr.numCols());
     Assert.assertEquals(row,fr.numRows());
@@ -0,0 +1,88 @@
+package water.rapids;
+
+import hex.CreateFrame;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import water.Key;
+import water.TestUtil;
+import water.fvec.Frame;
+import water.fvec.Vec;
+
+public class WindowTest extends TestUtil {
+  @BeforeClass public static void setup() { stall_till_cloudsize(1); }
+
+  // Partition on column 0 (categorical), order on column 1, values in column 2
+  private static Frame makeFrame() {
+    CreateFrame cf = new CreateFrame(Key.<Frame>make("win.hex"));
+    cf.rows = 20000;
+    cf.cols = 3;
+    cf.categorical_fraction = 0;
+    cf.integer_fraction = 1;
+    cf.binary_fraction = 0;
+    cf.time_fraction = 0;
+    cf.string_fraction = 0;
+    cf.missing_fraction = 0;
+    cf.integer_range = 1000;
+    cf.seed = 42;
+    Frame fr = cf.execImpl().get();
+    fr.replace(0, fr.vec(0).toCategoricalVec()).remove();
+    return fr;
+  }
+
+  private static double[] expected(String fcn, int n, double[] part, double[] v, int i) {
+    int start = i;              // First row of the partition
+    while (start > 0 && part[start - 1] == part[i]) start--;
+    int end = i;                // Last row of the partition
+    while (end < part.length - 1 && part[end + 1] == part[i]) end++;
+    double sum = 0, sum2 = 0, min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY, prod = 1;
+    for (int j = start; j <= i; j++) {
+      if (fcn.startsWith("roll") && j <= i - n) continue;
+      sum += v[j]; sum2 += v[j] * v[j]; prod *= v[j];
+      min = Math.min(min, v[j]); max = Math.max(max, v[j]);
+    }
+    boolean full = i - n + 1 >= start;
+    switch (fcn) {
+      case "rollsum":  return new double[]{full ? sum : Double.NaN};
+      case "rollmean": return new double[]{full ? sum / n : Double.NaN};
+      case "rollmin":  return new double[]{full ? min : Double.NaN};
+      case "rollmax":  return new double[]{full ? max : Double.NaN};
+      case "rollsd":   return new double[]{full ? Math.sqrt((sum2 - sum * sum / n) / (n - 1)) : Double.NaN};
+      case "lag":      return new double[]{i - n >= start ? v[i - n] : Double.NaN};
+      case "lead":     return new double[]{i + n <= end ? v[i + n] : Double.NaN};
+      case "cumsum":   return new double[]{sum};
+      case "cummin":   return new double[]{min};
+      case "cumprod":  return new double[]{prod};
+      default: throw new IllegalArgumentException(fcn);
+    }
+  }
+
+  @Test public void testWindows() {
+    Frame fr = makeFrame();
+    try {
+      for (String fcn : new String[]{"rollsum", "rollmean", "rollmin", "rollmax", "rollsd", "lag", "lead", "cumsum", "cummin"}) {
+        int n = fcn.startsWith("roll") ? 5 : 3;
+        Frame res = Rapids.exec("(window win.hex [0] [1] 2 \"" + fcn + "\" " + n + ")").getFrame();
+        try {
+          Assert.assertEquals(4, res.numCols());
+          Assert.assertTrue(res.anyVec().nChunks() > 1);
+          int len = (int) res.numRows();
+          double[] part = new double[len], ord = new double[len], v = new double[len];
+          Vec out = res.vec(3);
+          for (int i = 0; i < len; i++) {
+            part[i] = res.vec(0).at(i);
+            ord[i] = res.vec(1).at(i);
+            v[i] = res.vec(2).at(i);
+            if (i > 0) Assert.assertTrue(part[i - 1] < part[i] || part[i - 1] == part[i] && ord[i - 1] <= ord[i]);
+          }
+          for (int i = 0; i < len; i++)
+            Assert.assertEquals(fcn + " row " + i, expected(fcn, n, part, v, i)[0], out.at(i), 1e-6 * (1 + Math.abs(out.at(i))));
+        } finally {
+          res.delete();
+        }
+      }
+    } finally {
+      fr.delete();
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package water.rapids;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import water.Key;
+import water.MRTask;
+import water.TestUtil;
+import water.fvec.Chunk;
+import water.fvec.Frame;
+import water.fvec.Vec;
+import water.fvec.ZoneMap;
+
+public class ZoneFilterTest extends TestUtil {
+  @BeforeClass public static void setup() { stall_till_cloudsize(1); }
+
+  // Sorted "ts" column 1..N, and "x" = ts % 7 with every 10th row NA
+  private static Frame makeFrame(String key, long rows) {
+    Vec ts = Vec.makeSeq(rows, true);
+    Vec x = ts.makeZero();
+    new MRTask() {
+      @Override public void map(Chunk[] cs) {
+        for (int i = 0; i < cs[0]._len; i++) {
+          long v = cs[0].at8(i);
+          if (v % 10 == 0) cs[1].setNA(i);
+          else cs[1].set(i, v % 7);
+        }
+      }
+    }.doAll(ts, x);
+    Frame fr = new Frame(Key.<Frame>make(key), new String[]{"ts", "x"}, new Vec[]{ts, x});
+    water.DKV.put(fr);
+    return fr;
+  }
+
+  private static Frame exec(String rapids) {
+    return Rapids.exec(rapids).getFrame();
+  }
+
+  @Test public void testZoneMap() {
+    Frame fr = makeFrame("zone.hex", 100000);
+    try {
+      ZoneMap zm = ZoneMap.get(fr.vec("x"));
+      Assert.assertEquals(fr.anyVec().nChunks(), zm.nChunks());
+      long nas = 0;
+      for (int c = 0; c < zm.nChunks(); c++) {
+        nas += zm.naCnt(c);
+        Assert.assertTrue(zm.min(c) >= 0 && zm.max(c) <= 6);
+      }
+      Assert.assertEquals(fr.vec("x").naCnt(), nas);
+      Assert.assertSame(zm, ZoneMap.get(fr.vec("x")));   // Cached...
+      fr.vec("x").set(0, 100);
+      ZoneMap zm2 = ZoneMap.get(fr.vec("x"));          // ...until written into
+      Assert.assertEquals(100, zm2.max(0), 0);
+    } finally {
+      fr.delete();
+    }
+  }
+
+  @Test public void testRowFilter() {
+    Frame fr = makeFrame("filt.hex", 100000);
+    Frame zoned = null, plain = null, zwhich = null, pwhich = null;
+    try {
+      // Products are not pushed down, so give the same answer the plain way
+      zoned = exec("(rows filt.hex (& (> (cols_py filt.hex \"ts\") 40000) (& (<= 40500 (cols filt.hex [0])) (== (cols filt.hex [1]) 3))))");
+      plain = exec("(rows filt.hex (* (> (cols_py filt.hex \"ts\") 40000) (* (>= (cols filt.hex [0]) 40500) (== (cols filt.hex [1]) 3))))");
+      Assert.assertTrue(zoned.numRows() > 0);
+      Assert.assertTrue(isBitIdentical(plain, zoned));
+      zwhich = exec("(which (&& (>= (cols filt.hex [0]) 70000) (< (cols filt.hex [0]) 70010)))");
+      pwhich = exec("(which (* (>= (cols filt.hex [0]) 70000) (< (cols filt.hex [0]) 70010)))");
+      Assert.assertEquals(10, zwhich.numRows());
+      Assert.assertEquals(69999, zwhich.anyVec().at8(0));
+      Assert.assertTrue(isBitIdentical(pwhich, zwhich));
+      zwhich.delete();
+      pwhich.delete();
+
+      // Equality within one ulp, like (==), even at the edge of a chunk
+      double max0 = ZoneMap.get(fr.vec(0)).max(0);
+      String near = Double.toString(Math.nextUp(max0));
+      zwhich = exec("(which (== (cols filt.hex [0]) " + near + "))");
+      pwhich = exec("(which (* (== (cols filt.hex [0]) " + near + ") 1))");
+      Assert.assertEquals(1, zwhich.numRows());
+      Assert.assertEquals((long) max0 - 1, zwhich.anyVec().at8(0));
+      Assert.assertTrue(isBitIdentical(pwhich, zwhich));
+
+      Session ses = new Session();
+      try {
+        Env env = new Env(ses);
+        try (Env.StackHelp stk = env.stk()) {
+          ZoneFilter zf = ZoneFilter.make(env, stk, Rapids.parse("(> (cols filt.hex [0]) 90000)"), fr);
+          Assert.assertNotNull(zf);
+          if (fr.anyVec().nChunks() > 1) Assert.assertTrue(zf.skipped() > 0);
+          Assert.assertNull(ZoneFilter.make(env, stk, Rapids.parse("(> (+ (cols filt.hex [0]) 1) 90000)"), fr));
+          Assert.assertNull(ZoneFilter.make(env, stk, Rapids.parse("(> (cols filt.hex [0]) (cols filt.hex [1]))"), fr));
+          Assert.assertNull(ZoneFilter.make(env, stk, Rapids.parse("(== (cols filt.hex [1]) NaN)"), fr));
+        }
+        ses.end(null);
+      } catch (Throwable ex) {
+        throw ses.endQuietly(ex);
+      }
+    } finally {
+      fr.delete();
+      for (Frame f : new Frame[]{zoned, plain, zwhich, pwhich})
+        if (f != null) f.delete();
+    }
+  }
+}
@@ -0,0 +1,46 @@
+package water.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class HeavyHittersTest {
+
+  @Test public void testExact() {
+    HeavyHitters hh = new HeavyHitters(16);
+    for( int i=0; i<10; i++ )
+      for( int j=0; j<=i; j++ )
+        hh.add((double)i);
+    Assert.assertEquals(0, hh.maxError());
+    long[] top = hh.topK(3);
+    Assert.assertEquals(3, top.length);
+    for( int i=0; i<3; i++ ) {
+      Assert.assertEquals(9-i, Double.longBitsToDouble(top[i]), 0);
+      Assert.assertEquals(10-i, hh.count(top[i]));
+    }
+  }
+
+  @Test public void testBounds() {
+    // Skewed values over a much larger domain than the capacity
+    int n = 1000000;
+    long[] cnts = new long[100000];
+    HeavyHitters a = new HeavyHitters(256), b = new HeavyHitters(256);
+    Random r = new Random(42);
+    for( int i=0; i<n; i++ ) {
+      int v = (int)Math.min(cnts.length-1, Math.abs(r.nextGaussian())*r.nextInt(2000));
+      cnts[v]++;
+      (i%2==0 ? a : b).add((double)v);
+    }
+    HeavyHitters hh = a.merge(b);
+    Assert.assertEquals(n, hh.total());
+    Assert.assertTrue(hh.maxError() <= 2*n/256);
+    for( int v=0; v<cnts.length; v++ ) {
+      long c = hh.count(Double.doubleToLongBits((double)v));
+      Assert.assertTrue(c <= cnts[v] && cnts[v] <= c + hh.maxError());
+      if( cnts[v] > hh.maxError() ) Assert.assertTrue(c > 0);
+    }
+    long[] top = hh.topK(1);
+    Assert.assertEquals(0, Double.longBitsToDouble(top[0]), 0);
+  }
+}
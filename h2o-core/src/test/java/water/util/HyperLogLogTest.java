@@ -0,0 +1,30 @@
+package water.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HyperLogLogTest {
+
+  @Test public void testEstimate() {
+    for( int n : new int[]{10, 1000, 100000, 1000000} ) {
+      HyperLogLog hll = new HyperLogLog();
+      for( int rep=0; rep<3; rep++ )    // Duplicates do not count
+        for( long i=0; i<n; i++ )
+          hll.add(i);
+      Assert.assertEquals(n, hll.estimate(), 4 * hll.relativeError() * n);
+    }
+  }
+
+  @Test public void testMerge() {
+    HyperLogLog a = new HyperLogLog(), b = new HyperLogLog();
+    for( int i=0; i<60000; i++ ) a.add((double)i);
+    for( int i=30000; i<90000; i++ ) b.add((double)i);
+    Assert.assertEquals(90000, a.merge(b).estimate(), 4 * a.relativeError() * 90000);
+    try {
+      a.merge(new HyperLogLog(10));
+      Assert.fail("Should have failed");
+    } catch( IllegalArgumentException e ) {
+      // expected
+    }
+  }
+}
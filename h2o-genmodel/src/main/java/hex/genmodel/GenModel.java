@@ -126,6 +126,14 @@ public abstract class GenModel implements IGenModel, IGeneratedModel, Serializab
    *  GenModel class. */
   abstract public double[] score0( double[] data, double[] preds );
 
+  /** Predicted label (class index) of a classifier, for callers that do not
+   *  need the class probabilities.  Generated models may override it to stop
+   *  scoring early; by default the label of the full {@link #score0}
+   *  prediction, which applies the model's threshold. */
+  public int scoreLabel(double[] data) {
+    return (int) score0(data, new double[getPredsSize()])[0];
+  }
+
   // Does the mapping lookup for every row, no allocation.
   // data and preds arrays are pre-allocated and can be re-used for every row.
   public double[] score0( Map<String, Double> row, double data[], double preds[] ) {
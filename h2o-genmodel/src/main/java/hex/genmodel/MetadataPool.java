@@ -0,0 +1,113 @@
+package hex.genmodel;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Interns the column metadata of generated models, so that wrappers of many
+ * models loaded into the same JVM share one lookup table per distinct column
+ * name or domain array.
+ *
+ * The first array of a given content to be interned becomes the canonical
+ * instance, which is returned for every equal array interned after it.  The
+ * pool never copies nor modifies the arrays.  Each generated POJO class still
+ * carries its own {@code NAMES} and {@code DOMAINS}; what models trained on
+ * the same data share are the value-to-index maps built from the canonical
+ * arrays, which are the larger part of the metadata kept per model.  An array
+ * and its map leave the pool once the last model which acquired them is
+ * released.  A pool can be shared by any number of models and threads; all
+ * returned arrays and maps must be treated as read-only.
+ */
+public class MetadataPool {
+  private final HashMap<Values, Entry> _arrays = new HashMap<>();
+
+  // A canonical array, its lookup table (built on first use) and its reference count
+  private static final class Entry {
+    final String[] _a;
+    HashMap<String, Integer> _index;
+    int _refs;
+    Entry(String[] a) { _a = a; }
+  }
+
+  /**
+   * Count one more reference to the canonical array with the same content,
+   * which is {@code a} itself if no equal array is pooled yet.
+   *
+   * @return the canonical array with the same content as {@code a}
+   */
+  public synchronized String[] intern(String[] a) {
+    if (a == null) return null;
+    Values k = new Values(a);
+    Entry e = _arrays.get(k);
+    if (e == null) _arrays.put(k, e = new Entry(a));
+    e._refs++;
+    return e._a;
+  }
+
+  /**
+   * Drop one reference to the canonical array with the same content; it
+   * leaves the pool, with its lookup table, with the last reference.
+   */
+  public synchronized void release(String[] a) {
+    if (a == null) return;
+    Values k = new Values(a);
+    Entry e = _arrays.get(k);
+    if (e != null && --e._refs == 0) _arrays.remove(k);
+  }
+
+  /**
+   * @return the pooled value-to-index map of the given array, or a private map
+   * if no equal array is pooled
+   */
+  public synchronized HashMap<String, Integer> indexMap(String[] a) {
+    Entry e = _arrays.get(new Values(a));
+    if (e != null && e._index != null) return e._index;
+    HashMap<String, Integer> m = new HashMap<>();
+    String[] vals = e == null ? a : e._a;
+    for (int i = 0; i < vals.length; i++)
+      m.put(vals[i], i);
+    if (e != null) e._index = m;
+    return m;
+  }
+
+  /**
+   * Pool the names and domains of the model, see {@link #intern(String[])}.
+   * The model itself is not modified.
+   *
+   * @param model model whose metadata to acquire
+   * @return the model
+   */
+  public <M extends GenModel> M acquire(M model) {
+    intern(model.getNames());
+    String[][] domains = model.getDomainValues();
+    if (domains != null)
+      for (String[] d : domains)
+        intern(d);
+    return model;
+  }
+
+  /**
+   * Release the names and domains of a model passed to {@link #acquire}.
+   */
+  public void release(GenModel model) {
+    release(model.getNames());
+    String[][] domains = model.getDomainValues();
+    if (domains != null)
+      for (String[] d : domains)
+        release(d);
+  }
+
+  /** @return number of distinct arrays in the pool */
+  public synchronized int size() { return _arrays.size(); }
+
+  // Content-based key of a String array
+  private static final class Values {
+    final String[] _a;
+    final int _hash;
+    Values(String[] a) { _a = a; _hash = Arrays.hashCode(a); }
+    @Override public int hashCode() { return _hash; }
+    @Override public boolean equals(Object o) {
+      return o instanceof Values && _hash == ((Values) o)._hash && Arrays.equals(_a, ((Values) o)._a);
+    }
+  }
+}
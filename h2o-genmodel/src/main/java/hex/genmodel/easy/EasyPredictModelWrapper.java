@@ -8,6 +8,7 @@ import java.util.concurrent.atomic.AtomicLong;
 
 import hex.ModelCategory;
 import hex.genmodel.GenModel;
+import hex.genmodel.MetadataPool;
 import hex.genmodel.easy.exception.PredictException;
 import hex.genmodel.easy.exception.PredictUnknownCategoricalLevelException;
 import hex.genmodel.easy.exception.PredictUnknownTypeException;
@@ -58,6 +59,7 @@ public class EasyPredictModelWrapper implements java.io.Serializable {
   public static class Config {
     private GenModel model;
     private boolean convertUnknownCategoricalLevelsToNa = false;
+    private MetadataPool metadataPool;
 
     public Config() {
     }
@@ -93,6 +95,23 @@ public class EasyPredictModelWrapper implements java.io.Serializable {
      * @return Setting for unknown categorical levels handling
      */
     public boolean getConvertUnknownCategoricalLevelsToNa() { return convertUnknownCategoricalLevelsToNa; }
+
+    /**
+     * Share the column name and categorical level lookup tables with other wrappers using the same pool.
+     * Tables are shared only for models acquired in the pool, see {@link MetadataPool#acquire}.
+     *
+     * @param value pool, or null to build private tables
+     * @return this config object
+     */
+    public Config setMetadataPool(MetadataPool value) {
+      metadataPool = value;
+      return this;
+    }
+
+    /**
+     * @return Pool of shared lookup tables, or null
+     */
+    public MetadataPool getMetadataPool() { return metadataPool; }
   }
 
   /**
@@ -102,12 +121,18 @@ public class EasyPredictModelWrapper implements java.io.Serializable {
    */
   public EasyPredictModelWrapper(Config config) {
     m = config.getModel();
+    MetadataPool pool = config.getMetadataPool();
 
     // Create map of column names to index number.
-    modelColumnNameToIndexMap = new HashMap<>();
     String[] modelColumnNames = m.getNames();
-    for (int i = 0; i < modelColumnNames.length; i++) {
-      modelColumnNameToIndexMap.put(modelColumnNames[i], i);
+    if (pool != null) {
+      modelColumnNameToIndexMap = pool.indexMap(modelColumnNames);
+    }
+    else {
+      modelColumnNameToIndexMap = new HashMap<>();
+      for (int i = 0; i < modelColumnNames.length; i++) {
+        modelColumnNameToIndexMap.put(modelColumnNames[i], i);
+      }
     }
 
     // How to handle unknown categorical levels.
@@ -121,6 +146,10 @@ public class EasyPredictModelWrapper implements java.io.Serializable {
     for (int i = 0; i < m.getNumCols(); i++) {
       String[] domainValues = m.getDomainValues(i);
       if (domainValues != null) {
+        if (pool != null) {
+          domainMap.put(i, pool.indexMap(domainValues));
+          continue;
+        }
         HashMap<String, Integer> m = new HashMap<>();
         for (int j = 0; j < domainValues.length; j++) {
           m.put(domainValues[j], j);
@@ -240,6 +269,26 @@ public class EasyPredictModelWrapper implements java.io.Serializable {
    * @throws PredictException
    */
   public BinomialModelPrediction predictBinomial(RowData data) throws PredictException {
+    return predictBinomial(data, false);
+  }
+
+  /**
+   * Make a prediction on a new data point using a Binomial model.
+   *
+   * @param data A new data point.
+   * @param labelOnly Only predict the label, leaving the class probabilities null; lets the model
+   *                  stop scoring early, see {@link GenModel#scoreLabel(double[])}.
+   * @return The prediction.
+   * @throws PredictException
+   */
+  public BinomialModelPrediction predictBinomial(RowData data, boolean labelOnly) throws PredictException {
+    if (labelOnly) {
+      validateModelCategory(ModelCategory.Binomial);
+      BinomialModelPrediction p = new BinomialModelPrediction();
+      p.labelIndex = m.scoreLabel(rawData(data));
+      p.label = m.getDomainValues(m.getResponseIdx())[p.labelIndex];
+      return p;
+    }
     double[] preds = preamble(ModelCategory.Binomial, data);
 
     BinomialModelPrediction p = new BinomialModelPrediction();
@@ -477,11 +526,15 @@ public class EasyPredictModelWrapper implements java.io.Serializable {
     }
   }
 
-  private double[] predict(RowData data, double[] preds) throws PredictException {
+  private double[] rawData(RowData data) throws PredictException {
     double[] rawData = new double[m.nfeatures()];
     setToNaN(rawData);
     fillRawData(data, rawData);
-    preds = m.score0(rawData, preds);
+    return rawData;
+  }
+
+  private double[] predict(RowData data, double[] preds) throws PredictException {
+    preds = m.score0(rawData(data), preds);
     return preds;
   }
 }
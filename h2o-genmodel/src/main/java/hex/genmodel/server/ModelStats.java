@@ -0,0 +1,55 @@
+package hex.genmodel.server;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Scoring counters of one model hosted by a {@link ScoringServer}.
+ * Updated by the workers; all getters can be called at any time.
+ */
+public class ModelStats {
+  private final AtomicLong rows = new AtomicLong();
+  private final AtomicLong batches = new AtomicLong();
+  private final AtomicLong errors = new AtomicLong();
+  private final AtomicLong busyNanos = new AtomicLong();
+  private final AtomicLong maxBatchNanos = new AtomicLong();
+
+  void record(int nrows, long nanos, boolean failed) {
+    batches.incrementAndGet();
+    if (failed) errors.incrementAndGet();
+    else rows.addAndGet(nrows);
+    busyNanos.addAndGet(nanos);
+    long max;
+    while (nanos > (max = maxBatchNanos.get()) && !maxBatchNanos.compareAndSet(max, nanos)) ;
+  }
+
+  /** @return number of rows scored successfully */
+  public long getRows() { return rows.get(); }
+
+  /** @return number of batches processed, including failed ones */
+  public long getBatches() { return batches.get(); }
+
+  /** @return number of batches that failed */
+  public long getErrors() { return errors.get(); }
+
+  /** @return rows scored per second of worker time */
+  public double getRowsPerSecond() {
+    long nanos = busyNanos.get();
+    return nanos == 0 ? 0 : rows.get() * 1e9 / nanos;
+  }
+
+  /** @return mean time to score a batch, in milliseconds */
+  public double getMeanBatchLatencyMillis() {
+    long n = batches.get();
+    return n == 0 ? 0 : busyNanos.get() / 1e6 / n;
+  }
+
+  /** @return longest time to score a batch, in milliseconds */
+  public double getMaxBatchLatencyMillis() { return maxBatchNanos.get() / 1e6; }
+
+  @Override
+  public String toString() {
+    return "rows=" + getRows() + ", batches=" + getBatches() + ", errors=" + getErrors() +
+            ", rows/s=" + getRowsPerSecond() + ", mean batch ms=" + getMeanBatchLatencyMillis() +
+            ", max batch ms=" + getMaxBatchLatencyMillis();
+  }
+}
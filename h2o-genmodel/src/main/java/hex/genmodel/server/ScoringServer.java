@@ -0,0 +1,206 @@
+package hex.genmodel.server;
+
+import hex.ModelCategory;
+import hex.genmodel.GenModel;
+import hex.genmodel.MetadataPool;
+import hex.genmodel.easy.EasyPredictModelWrapper;
+import hex.genmodel.easy.RowData;
+import hex.genmodel.easy.exception.PredictException;
+import hex.genmodel.easy.prediction.AbstractPrediction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hosts many generated models in one JVM and scores batches of rows for them.
+ *
+ * <ul>
+ *   <li>Column names and domains of all models are interned in one
+ *   {@link MetadataPool}, so models trained on the same data share a single
+ *   copy of the column and categorical lookup tables.</li>
+ *   <li>Batches are scored by a fixed pool of worker threads.  At most a
+ *   bounded number of batches can be pending; submitting more blocks the
+ *   caller until a batch completes (backpressure).</li>
+ *   <li>Every model keeps its own {@link ModelStats}.</li>
+ * </ul>
+ *
+ * Example:
+ * <pre>
+ *   {@code
+ *   ScoringServer server = new ScoringServer(8, 64);
+ *   server.addModel("churn", (GenModel) Class.forName("churn_gbm").newInstance());
+ *   double[][] preds = server.score("churn", rows).get();
+ *   }
+ * </pre>
+ */
+public class ScoringServer implements AutoCloseable {
+  private final MetadataPool pool = new MetadataPool();
+  private final ConcurrentHashMap<String, Hosted> models = new ConcurrentHashMap<>();
+  private final ExecutorService workers;
+  private final Semaphore pending;
+
+  private static class Hosted {
+    final GenModel model;
+    final EasyPredictModelWrapper wrapper;
+    final ModelStats stats = new ModelStats();
+    Hosted(GenModel model, EasyPredictModelWrapper wrapper) { this.model = model; this.wrapper = wrapper; }
+  }
+
+  /**
+   * Server with one worker per core.
+   */
+  public ScoringServer() {
+    this(Runtime.getRuntime().availableProcessors(), 4 * Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * @param nthreads number of worker threads
+   * @param maxPendingBatches number of submitted but not yet completed batches after which submission blocks
+   */
+  public ScoringServer(int nthreads, int maxPendingBatches) {
+    if (nthreads < 1 || maxPendingBatches < 1)
+      throw new IllegalArgumentException("Need at least one worker and one pending batch");
+    pending = new Semaphore(maxPendingBatches);
+    workers = Executors.newFixedThreadPool(nthreads, new ThreadFactory() {
+      private final AtomicInteger cnt = new AtomicInteger();
+      @Override public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, "ScoringServer-" + cnt.getAndIncrement());
+        t.setDaemon(true);
+        return t;
+      }
+    });
+  }
+
+  /**
+   * Host a model.  Its names and domains are acquired in the shared pool until
+   * the model is removed; the model itself is not modified.
+   *
+   * @param id name of the model in this server
+   * @param model the model
+   * @param convertUnknownCategoricalLevelsToNa see {@link EasyPredictModelWrapper.Config}
+   */
+  public void addModel(String id, GenModel model, boolean convertUnknownCategoricalLevelsToNa) {
+    pool.acquire(model);
+    EasyPredictModelWrapper wrapper = new EasyPredictModelWrapper(new EasyPredictModelWrapper.Config()
+            .setModel(model)
+            .setConvertUnknownCategoricalLevelsToNa(convertUnknownCategoricalLevelsToNa)
+            .setMetadataPool(pool));
+    if (models.putIfAbsent(id, new Hosted(model, wrapper)) != null) {
+      pool.release(model);
+      throw new IllegalArgumentException("Model " + id + " is already hosted");
+    }
+  }
+
+  /**
+   * Host a model, unknown categorical levels are errors.
+   */
+  public void addModel(String id, GenModel model) { addModel(id, model, false); }
+
+  /**
+   * Stop hosting a model; batches already submitted still complete.
+   *
+   * @return the model, or null if not hosted
+   */
+  public GenModel removeModel(String id) {
+    Hosted h = models.remove(id);
+    if (h == null) return null;
+    pool.release(h.model);
+    return h.model;
+  }
+
+  /** @return ids of all hosted models */
+  public Set<String> modelIds() { return models.keySet(); }
+
+  /** @return the hosted model */
+  public GenModel getModel(String id) { return hosted(id).model; }
+
+  /** @return the easy prediction wrapper of the hosted model */
+  public EasyPredictModelWrapper getWrapper(String id) { return hosted(id).wrapper; }
+
+  /** @return scoring counters of the hosted model */
+  public ModelStats getStats(String id) { return hosted(id).stats; }
+
+  /** @return the pool shared by all hosted models */
+  public MetadataPool getMetadataPool() { return pool; }
+
+  /**
+   * Score a batch of raw rows, laid out as expected by {@link GenModel#score0(double[], double[])}.
+   * Blocks while too many batches are pending.
+   *
+   * @return the predictions, one array per row
+   */
+  public Future<double[][]> score(String id, final double[][] rows) throws InterruptedException {
+    final Hosted h = hosted(id);
+    final int npreds = h.model.getModelCategory() == ModelCategory.DimReduction ? h.model.nclasses() : h.model.getPredsSize();
+    return submit(h, rows.length, new Callable<double[][]>() {
+      @Override public double[][] call() {
+        double[][] preds = new double[rows.length][];
+        for (int i = 0; i < rows.length; i++)
+          preds[i] = h.model.score0(rows[i], new double[npreds]);
+        return preds;
+      }
+    });
+  }
+
+  /**
+   * Predict a batch of rows through the easy prediction API.
+   * Blocks while too many batches are pending.
+   *
+   * @return the predictions, in the order of the rows
+   */
+  public Future<List<AbstractPrediction>> predict(String id, final List<RowData> rows) throws InterruptedException {
+    final Hosted h = hosted(id);
+    return submit(h, rows.size(), new Callable<List<AbstractPrediction>>() {
+      @Override public List<AbstractPrediction> call() throws PredictException {
+        List<AbstractPrediction> preds = new ArrayList<>(rows.size());
+        for (RowData row : rows)
+          preds.add(h.wrapper.predict(row));
+        return preds;
+      }
+    });
+  }
+
+  /**
+   * Stop the workers; pending batches still complete.
+   */
+  @Override
+  public void close() { workers.shutdown(); }
+
+  private Hosted hosted(String id) {
+    Hosted h = models.get(id);
+    if (h == null) throw new IllegalArgumentException("Model " + id + " is not hosted");
+    return h;
+  }
+
+  private <T> Future<T> submit(final Hosted h, final int nrows, final Callable<T> task) throws InterruptedException {
+    pending.acquire();
+    try {
+      return workers.submit(new Callable<T>() {
+        @Override public T call() throws Exception {
+          long start = System.nanoTime();
+          boolean failed = true;
+          try {
+            T res = task.call();
+            failed = false;
+            return res;
+          } finally {
+            h.stats.record(nrows, System.nanoTime() - start, failed);
+            pending.release();
+          }
+        }
+      });
+    } catch (RuntimeException e) { // Rejected, e.g. after close
+      pending.release();
+      throw e;
+    }
+  }
+}
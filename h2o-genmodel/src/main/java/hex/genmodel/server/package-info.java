@@ -0,0 +1,4 @@
+/**
+ * Hosting and batch scoring of many generated models in one JVM.
+ */
+package hex.genmodel.server;
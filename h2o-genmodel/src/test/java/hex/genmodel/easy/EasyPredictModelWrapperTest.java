@@ -156,4 +156,15 @@ public class EasyPredictModelWrapperTest {
       Assert.assertEquals(arr[1].probability, 0.0, 0.001);
     }
   }
+
+  @Test
+  public void testPredictBinomialLabelOnly() throws Exception {
+    EasyPredictModelWrapper m = new EasyPredictModelWrapper(makeModel());
+    RowData row = new RowData();
+    row.put("C1", "c1level1");
+    BinomialModelPrediction p = m.predictBinomial(row, true);
+    Assert.assertEquals(0, p.labelIndex);
+    Assert.assertEquals("NO", p.label);
+    Assert.assertNull(p.classProbabilities);
+  }
 }
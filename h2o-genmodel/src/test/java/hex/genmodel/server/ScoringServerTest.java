@@ -0,0 +1,147 @@
+package hex.genmodel.server;
+
+import hex.ModelCategory;
+import hex.genmodel.GenModel;
+import hex.genmodel.easy.RowData;
+import hex.genmodel.easy.prediction.AbstractPrediction;
+import hex.genmodel.easy.prediction.RegressionModelPrediction;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class ScoringServerTest {
+  // Regression on two columns: scale * (C1 level index + C2)
+  private static class MyModel extends GenModel {
+    final double scale;
+    final CountDownLatch gate;
+    MyModel(double scale, CountDownLatch gate) {
+      super(new String[]{"C1", "C2", "RESPONSE"}, new String[][]{{"a", "b", "c"}, null, null});
+      this.scale = scale;
+      this.gate = gate;
+    }
+    @Override public int nfeatures() { return 2; }
+    @Override public boolean isSupervised() { return true; }
+    @Override public ModelCategory getModelCategory() { return ModelCategory.Regression; }
+    @Override public String getUUID() { return null; }
+    @Override public double[] score0(double[] data, double[] preds) {
+      try {
+        if (gate != null) gate.await();
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+      if (Double.isNaN(data[0])) throw new IllegalArgumentException("NA");
+      preds[0] = scale * (data[0] + data[1]);
+      return preds;
+    }
+  }
+
+  @Test
+  public void testScoring() throws Exception {
+    try (ScoringServer server = new ScoringServer(2, 4)) {
+      server.addModel("m1", new MyModel(1, null));
+      server.addModel("m2", new MyModel(10, null));
+      Assert.assertEquals(2, server.modelIds().size());
+
+      double[][] rows = {{0, 1}, {2, 3}};
+      double[][] p1 = server.score("m1", rows).get();
+      double[][] p2 = server.score("m2", rows).get();
+      Assert.assertEquals(1, p1[0][0], 0);
+      Assert.assertEquals(5, p1[1][0], 0);
+      Assert.assertEquals(10, p2[0][0], 0);
+      Assert.assertEquals(50, p2[1][0], 0);
+
+      List<RowData> data = new ArrayList<>();
+      RowData row = new RowData();
+      row.put("C1", "c");
+      row.put("C2", 1.5);
+      data.add(row);
+      List<AbstractPrediction> preds = server.predict("m2", data).get();
+      Assert.assertEquals(35, ((RegressionModelPrediction) preds.get(0)).value, 0);
+
+      try {
+        server.score("m1", new double[][]{{Double.NaN, 0}}).get();
+        Assert.fail("Should have failed");
+      } catch (ExecutionException e) {
+        Assert.assertTrue(e.getCause() instanceof IllegalArgumentException);
+      }
+
+      ModelStats s1 = server.getStats("m1");
+      Assert.assertEquals(2, s1.getRows());
+      Assert.assertEquals(2, s1.getBatches());
+      Assert.assertEquals(1, s1.getErrors());
+      ModelStats s2 = server.getStats("m2");
+      Assert.assertEquals(3, s2.getRows());
+      Assert.assertEquals(2, s2.getBatches());
+      Assert.assertEquals(0, s2.getErrors());
+
+      Assert.assertNotNull(server.removeModel("m1"));
+      try {
+        server.score("m1", rows);
+        Assert.fail("Should have failed");
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void testSharedMetadata() {
+    try (ScoringServer server = new ScoringServer(1, 1)) {
+      MyModel m1 = new MyModel(1, null), m2 = new MyModel(2, null);
+      String[] d1 = m1._domains[0];
+      String n1 = m1._names[0];
+      server.addModel("m1", m1);
+      server.addModel("m2", m2);
+      // The models' own arrays are left alone; the first ones are canonical
+      Assert.assertSame(d1, m1._domains[0]);
+      Assert.assertSame(n1, m1._names[0]);
+      Assert.assertNotSame(m1._domains[0], m2._domains[0]);
+      Assert.assertEquals(2, server.getMetadataPool().size());
+      Assert.assertSame(m1._domains[0], server.getMetadataPool().intern(m2._domains[0]));
+      server.getMetadataPool().release(m2._domains[0]);
+      Assert.assertSame(server.getMetadataPool().indexMap(m1._domains[0]), server.getMetadataPool().indexMap(m2._domains[0]));
+      Assert.assertSame(server.getMetadataPool().indexMap(m1._names), server.getMetadataPool().indexMap(m2._names));
+
+      server.removeModel("m1");
+      Assert.assertEquals(2, server.getMetadataPool().size());
+      server.removeModel("m2");
+      Assert.assertEquals(0, server.getMetadataPool().size());
+      Assert.assertNotSame(server.getMetadataPool().indexMap(m1._names), server.getMetadataPool().indexMap(m2._names));
+    }
+  }
+
+  @Test
+  public void testBackpressure() throws Exception {
+    final CountDownLatch gate = new CountDownLatch(1);
+    try (final ScoringServer server = new ScoringServer(1, 2)) {
+      server.addModel("m", new MyModel(1, gate));
+      final double[][] rows = {{0, 1}};
+      Future<double[][]> f1 = server.score("m", rows);
+      Future<double[][]> f2 = server.score("m", rows);
+      // Third batch must wait until one of the first two completes
+      final CountDownLatch submitted = new CountDownLatch(1);
+      Thread t = new Thread() {
+        @Override public void run() {
+          try {
+            server.score("m", rows);
+            submitted.countDown();
+          } catch (InterruptedException e) {
+            // test failure is detected by the latch
+          }
+        }
+      };
+      t.start();
+      Assert.assertFalse(submitted.await(200, TimeUnit.MILLISECONDS));
+      gate.countDown();
+      Assert.assertTrue(submitted.await(10, TimeUnit.SECONDS));
+      Assert.assertEquals(1, f1.get()[0][0], 0);
+      Assert.assertEquals(1, f2.get()[0][0], 0);
+    }
+  }
+}
@@ -312,10 +312,12 @@ def import_file(path=None, destination_frame="", parse=True, header=(-1, 0, 1),
                                     col_types, na_strings)
 
 
-def import_sql_table(connection_url, table, username, password, columns=None, optimize=None):
+def import_sql_table(connection_url, table, username, password, columns=None, optimize=None, partition_column=None,
+                     max_connections=None, snapshot=None):
     """
-    Import SQL table to H2OFrame in memory. Assumes that the SQL table is not being updated and is stable.
-    Runs multiple SELECT SQL queries concurrently for parallel ingestion.
+    Import SQL table to H2OFrame in memory. Assumes that the SQL table is not being updated and is stable, unless
+    snapshot is set. Runs multiple SELECT SQL queries concurrently for parallel ingestion; with an integral partition
+    column each query reads one range of its keys.
     Be sure to start the h2o.jar in the terminal with your downloaded JDBC driver in the classpath::
 
         java -cp <path_to_h2o_jar>:<path_to_jdbc_driver_jar> water.H2OApp
@@ -345,6 +347,17 @@ def import_sql_table(connection_url, table, username, password, columns=None, op
       optimize : bool, optional, default is True
         Optimize import of SQL table for faster imports. Experimental.
 
+      partition_column : str, optional
+        Integral column to split the reads on by key range. Default is the primary key of the table, if it is a
+        single integral column; without one, the reads page through the table with LIMIT and OFFSET.
+
+      max_connections : int, optional, default is 100
+        Maximum number of connections to the SQL database, over all nodes.
+
+      snapshot : bool, optional, default is False
+        Import a copy of the table made by a single statement, so that the import is consistent while the table is
+        being updated. The copy is a temporary table, dropped after the import.
+
     Returns
     -------
       H2OFrame containing data of specified SQL table
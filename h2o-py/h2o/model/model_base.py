@@ -99,6 +99,22 @@ class ModelBase(object):
         return h2o.get_frame(j["predictions_frame"]["name"])
 
 
+    def predict_contributions(self, test_data):
+        """
+        Predict on a dataset and return the per-feature contributions to the prediction (only for DRF and GBM
+        regression and binomial models). The contributions of a row plus its BiasTerm column sum up to the raw
+        prediction of the model.
+
+        :param H2OFrame test_data: Data on which to make predictions.
+
+        :returns: A new H2OFrame with one column per feature and a last BiasTerm column.
+        """
+        if not isinstance(test_data, h2o.H2OFrame): raise ValueError("test_data must be an instance of H2OFrame")
+        j = h2o.api("POST /3/Predictions/models/%s/frames/%s" % (self.model_id, test_data.frame_id),
+                    data={"predict_contributions": True})
+        return h2o.get_frame(j["predictions_frame"]["name"])
+
+
     def predict(self, test_data):
         """
         Predict on a dataset.